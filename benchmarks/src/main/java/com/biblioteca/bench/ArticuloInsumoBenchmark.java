@@ -0,0 +1,42 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/** traza2: ArticuloInsumo (stock y precios). */
+@State(Scope.Benchmark)
+public class ArticuloInsumoBenchmark extends RepositoryBenchmark<ArticuloInsumo> {
+
+    @Override
+    protected List<ArticuloInsumo> generate(DatasetGenerator generator, int size) {
+        return generator.insumos(size);
+    }
+
+    @Override
+    protected String searchField() {
+        return "denominacion";
+    }
+
+    @Override
+    protected Object searchValue(ArticuloInsumo entity) {
+        return entity.getDenominacion();
+    }
+
+    @Override
+    protected String updateField() {
+        return "stockActual";
+    }
+
+    @Override
+    protected Object updateValue(int i) {
+        return i & 1023;
+    }
+
+    @Override
+    protected long idOf(ArticuloInsumo entity) {
+        return entity.getId();
+    }
+}
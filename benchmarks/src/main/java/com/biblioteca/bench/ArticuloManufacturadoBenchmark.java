@@ -0,0 +1,46 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/** traza2: ArticuloManufacturado de 3 a 8 detalles sobre 10K insumos compartidos. */
+@State(Scope.Benchmark)
+public class ArticuloManufacturadoBenchmark extends RepositoryBenchmark<ArticuloManufacturado> {
+
+    private static final int INSUMOS = 10_000;
+
+    @Override
+    protected List<ArticuloManufacturado> generate(DatasetGenerator generator, int size) {
+        List<ArticuloInsumo> pool = generator.insumos(INSUMOS);
+        return generator.manufacturados(size, pool);
+    }
+
+    @Override
+    protected String searchField() {
+        return "descripcion";
+    }
+
+    @Override
+    protected Object searchValue(ArticuloManufacturado entity) {
+        return entity.getDescripcion();
+    }
+
+    @Override
+    protected String updateField() {
+        return "tiempoEstimadoMinutos";
+    }
+
+    @Override
+    protected Object updateValue(int i) {
+        return 5 + (i % 60);
+    }
+
+    @Override
+    protected long idOf(ArticuloManufacturado entity) {
+        return entity.getId();
+    }
+}
@@ -0,0 +1,36 @@
+package com.biblioteca.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de benchmarks.jar: mismos argumentos que JMH, más
+ * - profiler GC siempre activo (gc.alloc.rate.norm = bytes asignados por operación),
+ * - resultados en JSON (target/jmh-result.json) si no se pidió otro archivo.
+ * Ejemplos:
+ *   mvn install                      (en la raíz: instala el proyecto principal)
+ *   cd benchmarks &amp;&amp; mvn package
+ *   java -jar target/benchmarks.jar ArticuloInsumo -p size=1000,100000 -p store=concurrent
+ *   java -jar target/benchmarks.jar "Empresa.*findById" -t 8 -p size=1000000
+ *   java -jar target/benchmarks.jar -p size=10000000 -jvmArgsAppend -Xmx16g
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class);
+        if (!cmd.getResult().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON).result("target/jmh-result.json");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,129 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.BoundedStore;
+import com.biblioteca.repositorio.ConcurrentMapStore;
+import com.biblioteca.repositorio.EntityLoader;
+import com.biblioteca.repositorio.EntityStore;
+import com.biblioteca.repositorio.EvictionPolicy;
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryRepository sobre BoundedStore.
+ * - findByIdHit: todo entra en memoria; mide lo que agrega la política al camino de lectura
+ *   (no depende de maximum).
+ * - findByIdZipf: 100K ids con popularidad Zipf (s=0.9) sobre un caché de 1% o 10%,
+ *   con un recorrido de 10K ids cada 100K lecturas. Los fallos cargan de un loader en
+ *   memoria; la tasa de aciertos se imprime al final de cada trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class BoundedStoreBenchmark {
+
+    private static final int SIZE = 100_000;
+    private static final double ZIPF_EXPONENT = 0.9;
+    private static final int SCAN_EVERY = 100_000;
+    private static final int SCAN_LENGTH = 10_000;
+
+    @Param({"concurrent", "lru", "tinylfu"})
+    public String store;
+
+    @Param({"1000", "10000"})
+    public int maximum;
+
+    private InMemoryRepository<ArticuloInsumo> full;
+    private long[] ids;
+    private InMemoryRepository<ArticuloInsumo> cached;
+    private BoundedStore<ArticuloInsumo> cachedStore;
+    private double[] zipf;
+
+    @Setup(Level.Trial)
+    public void load() {
+        List<ArticuloInsumo> data = new DatasetGenerator().insumos(SIZE);
+        full = new InMemoryRepository<>(store(SIZE, null));
+        full.saveAll(data);
+        ids = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) ids[i] = data.get(i).getId();
+
+        // Fuente "lenta" en memoria: el costo medido es el del caché, no el de un disco
+        ArticuloInsumo[] source = data.toArray(new ArticuloInsumo[0]);
+        EntityLoader<ArticuloInsumo> loader = id -> id >= 1 && id <= SIZE ? source[(int) id - 1] : null;
+        if ("concurrent".equals(store)) {
+            cached = full;
+        } else {
+            cachedStore = (BoundedStore<ArticuloInsumo>) store(maximum, loader);
+            cached = new InMemoryRepository<>(cachedStore);
+        }
+        zipf = new double[SIZE];
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            zipf[i] = sum;
+        }
+        for (int i = 0; i < SIZE; i++) zipf[i] /= sum;
+    }
+
+    private EntityStore<ArticuloInsumo> store(int max, EntityLoader<ArticuloInsumo> loader) {
+        BoundedStore.Builder<ArticuloInsumo> b = BoundedStore.maximumSize(max);
+        if (loader != null) b.loader(loader);
+        return switch (store) {
+            case "concurrent" -> new ConcurrentMapStore<>();
+            case "lru" -> b.eviction(EvictionPolicy.lru()).build();
+            case "tinylfu" -> b.eviction(EvictionPolicy.windowTinyLfu()).build();
+            default -> throw new IllegalArgumentException("store desconocido: " + store);
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class Workload {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+        private long reads;
+        private long scan = -1;
+    }
+
+    @Benchmark
+    public Optional<ArticuloInsumo> findByIdHit(Workload w) {
+        return full.findById(ids[w.random.nextInt(SIZE)]);
+    }
+
+    @Benchmark
+    public Optional<ArticuloInsumo> findByIdZipf(Workload w) {
+        long reads = w.reads++;
+        if (reads % SCAN_EVERY == 0) w.scan = SIZE / 2;
+        if (w.scan >= 0) {
+            long id = w.scan++;
+            if (w.scan >= SIZE / 2 + SCAN_LENGTH) w.scan = -1;
+            return cached.findById(id);
+        }
+        int i = Arrays.binarySearch(zipf, w.random.nextDouble());
+        return cached.findById(1 + (i >= 0 ? i : -i - 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void printStats() {
+        if (cachedStore != null) System.out.println("\n" + store + " máximo " + maximum + ": " + cachedStore.stats());
+    }
+}
@@ -0,0 +1,297 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.server.CatalogServer;
+import com.biblioteca.traza1.entidades.Empresa;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de carga para CatalogServer (no es JMH: mide latencia con muchas conexiones).
+ * - Levanta el servidor en un JVM hijo con el mismo classpath (cliente y servidor en el mismo
+ *   proceso competirían por el límite de descriptores: 10K conexiones son 20K sockets).
+ * - Abre N conexiones keep-alive, cada una en un hilo virtual con sockets bloqueantes, y en
+ *   bucle cerrado manda depth pedidos pipelined de una vez y lee las depth respuestas.
+ * - Mezcla: 60% /articulos?categoria=, 30% /empresas/{id}/sucursales, 10% /insumos/{id}/stock.
+ * - Latencia de cada pedido = desde que se escribió la tanda hasta que llegó su respuesta
+ *   completa. Se descarta el calentamiento; se informa p50/p90/p99/p99.9, máximo y pedidos/s.
+ * Uso (argumentos clave=valor, todos opcionales):
+ *   cd benchmarks &amp;&amp; mvn package
+ *   java -cp target/benchmarks.jar com.biblioteca.bench.CatalogLoadGenerator connections=10000 depth=4 seconds=30
+ *   (necesita ulimit -n mayor que connections, en este proceso y en el hijo)
+ */
+public final class CatalogLoadGenerator {
+
+    private static final String READY = "LISTO";
+
+    private CatalogLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        if (options.containsKey("serve")) {
+            serve(options);
+            return;
+        }
+        int connections = intOption(options, "connections", 10_000);
+        int depth = intOption(options, "depth", 4);
+        int warmupSeconds = intOption(options, "warmup", 10);
+        int seconds = intOption(options, "seconds", 30);
+        int empresas = intOption(options, "empresas", 1_000);
+        int insumos = intOption(options, "insumos", 20_000);
+        int categorias = intOption(options, "categorias", 200);
+
+        Process server = startServer(options);
+        try {
+            int port = awaitReady(server);
+            System.out.printf("Servidor en el puerto %d; abriendo %d conexiones (depth=%d)%n", port, connections, depth);
+            Result result = run(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                    connections, depth, warmupSeconds, seconds, empresas, insumos, categorias);
+            result.print();
+        } finally {
+            server.getOutputStream().close();
+            if (!server.waitFor(10, TimeUnit.SECONDS)) server.destroyForcibly();
+        }
+    }
+
+    // ===== Cliente =====
+
+    private static Result run(InetSocketAddress address, int connections, int depth, int warmupSeconds, int seconds,
+                              int empresas, int insumos, int categorias) throws InterruptedException {
+        long[][] latencies = new long[connections][];
+        int[] counts = new int[connections];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch connected = new CountDownLatch(connections);
+        long[] window = new long[2]; // inicio y fin de la medición (nanoTime), se fija cuando conectaron todos
+        CountDownLatch started = new CountDownLatch(1);
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                int index = c;
+                clients.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(index);
+                    long[] mine = new long[1_024];
+                    int n = 0;
+                    boolean counted = false;
+                    try (Socket socket = connect(address)) {
+                        connected.countDown();
+                        counted = true;
+                        started.await();
+                        socket.setTcpNoDelay(true);
+                        OutputStream out = socket.getOutputStream();
+                        InputStream in = new BufferedInputStream(socket.getInputStream(), 16 * 1_024);
+                        while (true) {
+                            long now = System.nanoTime();
+                            if (now - window[1] >= 0) break;
+                            StringBuilder requests = new StringBuilder(128 * depth);
+                            for (int d = 0; d < depth; d++) request(requests, random, empresas, insumos, categorias);
+                            byte[] batch = requests.toString().getBytes(StandardCharsets.US_ASCII);
+                            long sent = System.nanoTime();
+                            out.write(batch);
+                            for (int d = 0; d < depth; d++) {
+                                int status = readResponse(in);
+                                long done = System.nanoTime();
+                                if (status != 200) errors.incrementAndGet();
+                                if (sent - window[0] >= 0) {
+                                    if (n == mine.length) mine = Arrays.copyOf(mine, n * 2);
+                                    mine[n++] = done - sent;
+                                }
+                            }
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (!counted) connected.countDown(); // falló al conectar
+                        latencies[index] = mine;
+                        counts[index] = n;
+                    }
+                    return null;
+                });
+            }
+            connected.await();
+            long now = System.nanoTime();
+            window[0] = now + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            window[1] = window[0] + TimeUnit.SECONDS.toNanos(seconds);
+            System.out.printf("Conectadas; %ds de calentamiento y %ds de medición%n", warmupSeconds, seconds);
+            started.countDown();
+        }
+        int total = 0;
+        for (int n : counts) total += n;
+        long[] all = new long[total];
+        int at = 0;
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies[c], 0, all, at, counts[c]);
+            at += counts[c];
+        }
+        Arrays.sort(all);
+        return new Result(connections, depth, seconds, all, errors.get());
+    }
+
+    /** Conecta reintentando: con miles de conexiones a la vez la cola de accept se llena. */
+    private static Socket connect(InetSocketAddress address) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address, 30_000);
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (attempt == 20) throw e;
+                Thread.sleep(50L << Math.min(attempt, 5));
+            }
+        }
+    }
+
+    private static void request(StringBuilder out, SplittableRandom random, int empresas, int insumos, int categorias) {
+        int dice = random.nextInt(100);
+        out.append("GET ");
+        if (dice < 60) {
+            int c = random.nextInt(categorias);
+            out.append("/articulos?categoria=").append(c == 0 ? "Insumos" : "Insumos%20" + c);
+        } else if (dice < 90) {
+            out.append("/empresas/").append(1 + random.nextInt(empresas)).append("/sucursales");
+        } else {
+            out.append("/insumos/").append(1 + random.nextInt(insumos)).append("/stock");
+        }
+        out.append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+    }
+
+    /** Lee una respuesta completa (cabeceras + Content-Length bytes) y devuelve el status. */
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        long length = 0;
+        for (String line; !(line = readLine(in)).isEmpty(); ) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) length = Long.parseLong(line.substring(15).trim());
+        }
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException("Respuesta cortada");
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+        return status;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (int b; (b = in.read()) != '\n'; ) {
+            if (b < 0) throw new EOFException("Conexión cerrada por el servidor");
+            if (b != '\r') line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    private record Result(int connections, int depth, int seconds, long[] sorted, long errors) {
+        void print() {
+            System.out.printf("conexiones=%d depth=%d pedidos=%d errores=%d throughput=%.0f pedidos/s%n",
+                    connections, depth, sorted.length, errors, sorted.length / (double) seconds);
+            if (sorted.length == 0) return;
+            System.out.printf("latencia ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                    ms(percentile(0.50)), ms(percentile(0.90)), ms(percentile(0.99)), ms(percentile(0.999)),
+                    ms(sorted[sorted.length - 1]));
+        }
+
+        private long percentile(double p) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+
+        private static double ms(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    // ===== Servidor (JVM hijo) =====
+
+    private static Process startServer(Map<String, String> options) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + options.getOrDefault("serverHeap", "1g"));
+        // El default (200) cierra las conexiones keep-alive que sobran
+        command.add("-Dsun.net.httpserver.maxIdleConnections=" + Integer.MAX_VALUE);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CatalogLoadGenerator.class.getName());
+        command.add("serve");
+        for (String key : List.of("empresas", "insumos", "categorias", "manufacturados", "backlog")) {
+            if (options.containsKey(key)) command.add(key + "=" + options.get(key));
+        }
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    private static int awaitReady(Process server) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        if (line == null || !line.startsWith(READY + " ")) throw new IOException("El servidor no arrancó: " + line);
+        return Integer.parseInt(line.substring(READY.length() + 1).trim());
+    }
+
+    private static void serve(Map<String, String> options) throws IOException {
+        DatasetGenerator data = new DatasetGenerator();
+        InMemoryRepository<Empresa> empresas = new InMemoryRepository<>();
+        InMemoryRepository<ArticuloInsumo> insumos = new InMemoryRepository<>();
+        InMemoryRepository<ArticuloManufacturado> manufacturados = new InMemoryRepository<>();
+        empresas.saveAll(data.empresas(intOption(options, "empresas", 1_000), 5));
+        List<ArticuloInsumo> pool = data.insumos(intOption(options, "insumos", 20_000), intOption(options, "categorias", 200));
+        insumos.saveAll(pool);
+        manufacturados.saveAll(data.manufacturados(intOption(options, "manufacturados", 2_000), pool));
+        try (CatalogServer server = CatalogServer.builder().port(0)
+                .backlog(intOption(options, "backlog", 4_096))
+                .empresas(empresas).insumos(insumos).manufacturados(manufacturados)
+                .start()) {
+            System.out.println(READY + " " + server.port());
+            System.out.flush();
+            // Termina cuando el proceso padre cierra el stdin
+            while (System.in.read() >= 0) {
+                // nada
+            }
+            System.err.printf("servidor: cache hits=%d misses=%d%n", server.cacheHits(), server.cacheMisses());
+        }
+    }
+
+    // ===== Argumentos =====
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) options.put(arg, "");
+            else options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,110 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.BatchResult;
+import com.biblioteca.repositorio.ChangeEvent;
+import com.biblioteca.repositorio.ChangeStream;
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Costo de publicar en un ChangeStream desde el camino de escritura.
+ * - cdc=off: repositorio sin ChangeStream.
+ * - cdc=attached: ChangeStream sin suscriptores (reserva de secuencia + casillero).
+ * - cdc=subscribed: con un suscriptor sin límite de demanda. Con un solo núcleo el
+ *   consumidor comparte la CPU con el escritor y su trabajo se suma a la medición.
+ * - saveAll reemplaza los SIZE insumos en un lote (por encima de PARALLEL_BATCH_THRESHOLD:
+ *   con o sin listeners va en paralelo).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ChangeStreamBenchmark {
+
+    private static final int SIZE = 100_000;
+
+    @Param({"off", "attached", "subscribed"})
+    public String cdc;
+
+    @Param({"65536"})
+    public int capacity;
+
+    private InMemoryRepository<ArticuloInsumo> repo;
+    private List<ArticuloInsumo> data;
+    private long[] ids;
+    private ChangeStream<ArticuloInsumo> stream;
+    private final LongAdder delivered = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void load() {
+        repo = new InMemoryRepository<>();
+        data = new DatasetGenerator().insumos(SIZE);
+        repo.saveAll(data);
+        ids = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) ids[i] = data.get(i).getId();
+        if (!"off".equals(cdc)) stream = ChangeStream.attach(repo, capacity);
+        if ("subscribed".equals(cdc)) {
+            stream.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    s.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(ChangeEvent<ArticuloInsumo> event) {
+                    delivered.increment();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    System.out.println("\nsuscriptor: " + t.getMessage());
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        if (stream != null) stream.close();
+    }
+
+    @Benchmark
+    public ArticuloInsumo save(RepositoryBenchmark.Cursor cursor) {
+        return repo.save(data.get(cursor.next(SIZE)));
+    }
+
+    @Benchmark
+    public boolean genericUpdate(RepositoryBenchmark.Cursor cursor) {
+        int i = cursor.next(SIZE);
+        return repo.genericUpdate(ids[i], "stockActual", i);
+    }
+
+    @Benchmark
+    public BatchResult<ArticuloInsumo> saveAll() {
+        return repo.saveAll(data);
+    }
+}
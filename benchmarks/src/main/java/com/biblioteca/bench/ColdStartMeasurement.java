@@ -0,0 +1,194 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.CatalogImage;
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.traza1.entidades.Domicilio;
+import com.biblioteca.traza1.entidades.Empresa;
+import com.biblioteca.traza1.entidades.Localidad;
+import com.biblioteca.traza1.entidades.Pais;
+import com.biblioteca.traza1.entidades.Provincia;
+import com.biblioteca.traza1.entidades.Sucursal;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.entidades.ArticuloManufacturadoDetalle;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.ImagenArticulo;
+import com.biblioteca.traza2.entidades.UnidadMedida;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de arranque en frío hasta la primera respuesta (no es JMH: cada medición es un JVM nuevo).
+ * - rebuild: arma el grafo completo en memoria (DatasetGenerator + saveAll), como hoy los Main.
+ * - image: abre una CatalogImage pre-armada y materializa solo lo que pide la primera consulta.
+ * - Cada modo con y sin archivo AppCDS: un primer JVM corre con -XX:ArchiveClassesAtExit y
+ *   guarda las clases cargadas (entidades, builders de Lombok, repositorio, JDK); los
+ *   siguientes arrancan con -XX:SharedArchiveFile y las mapean ya verificadas y parseadas.
+ * - Se mide desde que se lanza el proceso hasta que imprime su línea de listo, runs veces
+ *   por variante; se informa la mediana y el mínimo.
+ * Uso (argumentos clave=valor, todos opcionales):
+ *   cd benchmarks &amp;&amp; mvn package
+ *   java -cp target/benchmarks.jar com.biblioteca.bench.ColdStartMeasurement insumos=500000 runs=5
+ *   (AppCDS solo archiva clases de jars: hay que correrlo desde benchmarks.jar, no desde target/classes)
+ */
+public final class ColdStartMeasurement {
+
+    private static final String READY = "LISTO";
+
+    /** Todas las clases del grafo (para CatalogImage.open). */
+    private static final Class<?>[] CLASSES = {
+            ArticuloInsumo.class, ArticuloManufacturado.class, ArticuloManufacturadoDetalle.class,
+            Categoria.class, UnidadMedida.class, ImagenArticulo.class,
+            Empresa.class, Sucursal.class, Domicilio.class, Localidad.class, Provincia.class, Pais.class};
+
+    private ColdStartMeasurement() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String mode = options.get("mode");
+        if (mode != null) {
+            child(mode, options);
+            return;
+        }
+        int runs = intOption(options, "runs", 5);
+        String heap = options.getOrDefault("heap", "2g");
+        Path dir = Files.createTempDirectory("coldstart");
+        try {
+            Path image = dir.resolve("catalogo.img");
+            long start = System.nanoTime();
+            long bytes = writeImage(image, options);
+            System.out.printf("Imagen: %,d bytes en %d ms (%s)%n", bytes,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), image);
+
+            List<String> data = new ArrayList<>();
+            for (String key : List.of("insumos", "manufacturados", "empresas")) {
+                if (options.containsKey(key)) data.add(key + "=" + options.get(key));
+            }
+            data.add("image=" + image);
+            for (String m : List.of("rebuild", "image")) {
+                Path archive = dir.resolve(m + ".jsa");
+                // Corrida de entrenamiento: genera el archivo CDS al salir
+                launch(List.of("-Xmx" + heap, "-XX:ArchiveClassesAtExit=" + archive), m, data);
+                long[] cold = new long[runs];
+                long[] cds = new long[runs];
+                for (int r = 0; r < runs; r++) {
+                    cold[r] = launch(List.of("-Xmx" + heap, "-Xshare:auto"), m, data);
+                    cds[r] = launch(List.of("-Xmx" + heap, "-XX:SharedArchiveFile=" + archive), m, data);
+                }
+                report(m, cold);
+                report(m + "+cds", cds);
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // ===== Proceso medido =====
+
+    private static void child(String mode, Map<String, String> options) throws IOException {
+        InMemoryRepository<ArticuloInsumo> insumos;
+        InMemoryRepository<ArticuloManufacturado> manufacturados;
+        InMemoryRepository<Empresa> empresas;
+        if (mode.equals("image")) {
+            CatalogImage image = CatalogImage.open(Path.of(options.get("image")), CLASSES);
+            insumos = image.repository("insumos", ArticuloInsumo.class);
+            manufacturados = image.repository("manufacturados", ArticuloManufacturado.class);
+            empresas = image.repository("empresas", Empresa.class);
+        } else if (mode.equals("rebuild")) {
+            insumos = new InMemoryRepository<>();
+            manufacturados = new InMemoryRepository<>();
+            empresas = new InMemoryRepository<>();
+            load(options, insumos, manufacturados, empresas);
+        } else {
+            throw new IllegalArgumentException("mode desconocido: " + mode);
+        }
+        // Primera respuesta: un manufacturado (con sus insumos), un insumo y una empresa
+        ArticuloManufacturado m = manufacturados.findById(manufacturados.count() / 2L).orElseThrow();
+        ArticuloInsumo i = insumos.findById(insumos.count() / 2L).orElseThrow();
+        Empresa e = empresas.findById(1L).orElseThrow();
+        System.out.println(READY + " " + (m.getDetalles().size() + i.getDenominacion().length() + e.getSucursales().size()));
+        System.out.flush();
+    }
+
+    /** Lanza un JVM hijo en el modo dado y devuelve los nanos hasta su línea de listo. */
+    private static long launch(List<String> jvmArgs, String mode, List<String> data) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-Xlog:cds=off");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ColdStartMeasurement.class.getName());
+        command.add("mode=" + mode);
+        command.addAll(data);
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String line = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8)).readLine();
+        long elapsed = System.nanoTime() - start;
+        if (!p.waitFor(60, TimeUnit.SECONDS)) p.destroyForcibly();
+        if (line == null || !line.startsWith(READY)) throw new IOException("El hijo (" + mode + ") no respondió: " + line);
+        return elapsed;
+    }
+
+    private static void report(String variant, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-13s mediana=%6d ms  min=%6d ms  (%d corridas)%n", variant,
+                TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length / 2]), TimeUnit.NANOSECONDS.toMillis(sorted[0]),
+                sorted.length);
+    }
+
+    // ===== Datos =====
+
+    private static void load(Map<String, String> options, InMemoryRepository<ArticuloInsumo> insumos,
+                             InMemoryRepository<ArticuloManufacturado> manufacturados, InMemoryRepository<Empresa> empresas) {
+        DatasetGenerator data = new DatasetGenerator();
+        List<ArticuloInsumo> pool = data.insumos(intOption(options, "insumos", 500_000), 50);
+        insumos.saveAll(pool);
+        manufacturados.saveAll(data.manufacturados(intOption(options, "manufacturados", 50_000), pool));
+        empresas.saveAll(data.empresas(intOption(options, "empresas", 1_000), 5));
+    }
+
+    private static long writeImage(Path image, Map<String, String> options) throws IOException {
+        InMemoryRepository<ArticuloInsumo> insumos = new InMemoryRepository<>();
+        InMemoryRepository<ArticuloManufacturado> manufacturados = new InMemoryRepository<>();
+        InMemoryRepository<Empresa> empresas = new InMemoryRepository<>();
+        load(options, insumos, manufacturados, empresas);
+        try (CatalogImage.Writer writer = CatalogImage.writer(image)) {
+            writer.add("insumos", insumos).add("manufacturados", manufacturados).add("empresas", empresas);
+        }
+        return Files.size(image);
+    }
+
+    // ===== Argumentos =====
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) options.put(arg, "");
+            else options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
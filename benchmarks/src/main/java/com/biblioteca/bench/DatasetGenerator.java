@@ -0,0 +1,235 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.traza1.entidades.Domicilio;
+import com.biblioteca.traza1.entidades.Empresa;
+import com.biblioteca.traza1.entidades.Localidad;
+import com.biblioteca.traza1.entidades.Pais;
+import com.biblioteca.traza1.entidades.Provincia;
+import com.biblioteca.traza1.entidades.Sucursal;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.ImagenArticulo;
+import com.biblioteca.traza2.entidades.UnidadMedida;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Datos sintéticos reproducibles (misma semilla = mismos datos) para los benchmarks.
+ * - Los objetos salen sin id: los asigna el repositorio al guardarlos.
+ * - Nombres únicos por índice (genericFindByField devuelve una sola entidad).
+ * - Catálogos compartidos chicos (geografía, categorías, unidades) como en los main de ejemplo.
+ */
+public final class DatasetGenerator {
+
+    public static final long DEFAULT_SEED = 20250922L;
+
+    private static final int PROVINCIAS = 24;
+    private static final int LOCALIDADES_POR_PROVINCIA = 20;
+
+    private final SplittableRandom random;
+
+    public DatasetGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    public DatasetGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    // ===================== traza1 =====================
+
+    /** Un país con 24 provincias de 20 localidades cada una. */
+    public List<Localidad> geografia() {
+        Pais pais = Pais.builder().nombre("Argentina").provincias(new HashSet<>()).build();
+        List<Localidad> localidades = new ArrayList<>(PROVINCIAS * LOCALIDADES_POR_PROVINCIA);
+        for (int p = 0; p < PROVINCIAS; p++) {
+            Provincia provincia = Provincia.builder().nombre("Provincia " + p).pais(pais)
+                    .localidades(new HashSet<>()).build();
+            pais.getProvincias().add(provincia);
+            for (int l = 0; l < LOCALIDADES_POR_PROVINCIA; l++) {
+                Localidad localidad = Localidad.builder().nombre("Localidad " + p + "-" + l)
+                        .provincia(provincia).build();
+                provincia.getLocalidades().add(localidad);
+                localidades.add(localidad);
+            }
+        }
+        return localidades;
+    }
+
+    /** n empresas con sucursalesPorEmpresa sucursales cada una (con domicilio). */
+    public List<Empresa> empresas(int n, int sucursalesPorEmpresa) {
+        List<Localidad> localidades = geografia();
+        List<Empresa> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Set<Sucursal> sucursales = new HashSet<>();
+            for (int s = 0; s < sucursalesPorEmpresa; s++) {
+                Domicilio domicilio = Domicilio.builder()
+                        .calle("Calle " + random.nextInt(5_000))
+                        .numero(1 + random.nextInt(9_999))
+                        .cp("C" + (1000 + random.nextInt(9_000)))
+                        .localidad(localidades.get(random.nextInt(localidades.size())))
+                        .build();
+                sucursales.add(Sucursal.builder()
+                        .nombre("Sucursal " + i + "-" + s)
+                        .horarioApertura(LocalTime.of(7 + random.nextInt(3), 0))
+                        .horarioCierre(LocalTime.of(17 + random.nextInt(5), 30))
+                        .esCasaMatriz(s == 0)
+                        .domicilio(domicilio)
+                        .build());
+            }
+            result.add(Empresa.builder()
+                    .nombre("Empresa " + i)
+                    .razonSocial("Empresa " + i + " S.A.")
+                    .cuit(20_000_000 + i)
+                    .logo("logo" + i + ".png")
+                    .sucursales(sucursales)
+                    .build());
+        }
+        return result;
+    }
+
+    // ===================== traza2 =====================
+
+    public List<ArticuloInsumo> insumos(int n) {
+        return insumos(n, 1);
+    }
+
+    /** n insumos repartidos al azar entre categorias categorías ("Insumos", "Insumos 1", ...). */
+    public List<ArticuloInsumo> insumos(int n, int categorias) {
+        Categoria[] cats = new Categoria[categorias];
+        for (int c = 0; c < categorias; c++) {
+            cats[c] = Categoria.builder().denominacion(c == 0 ? "Insumos" : "Insumos " + c).build();
+        }
+        UnidadMedida[] unidades = {
+                UnidadMedida.builder().denominacion("Kilogramos").build(),
+                UnidadMedida.builder().denominacion("Litros").build(),
+                UnidadMedida.builder().denominacion("Gramos").build()};
+        List<ArticuloInsumo> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int minimo = 10 + random.nextInt(90);
+            result.add(ArticuloInsumo.builder()
+                    .denominacion("Insumo " + i)
+                    .precioVenta(round(1 + random.nextDouble() * 500))
+                    .precioCompra(round(1 + random.nextDouble() * 300))
+                    .stockActual(random.nextInt(1_000))
+                    .stockMinimo(minimo)
+                    .stockMaximo(minimo * 10)
+                    .esParaElaborar(random.nextInt(4) != 0)
+                    .unidadMedida(unidades[random.nextInt(unidades.length)])
+                    .categoria(categorias == 1 ? cats[0] : cats[random.nextInt(categorias)])
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Como insumos(n, categorias), pero como llegan de una carga sin cuidado: cada insumo trae
+     * su propia copia de Categoria y UnidadMedida (misma denominacion, otra instancia) y una
+     * ImagenArticulo (también copiada) elegida entre imagenes nombres distintos.
+     */
+    public List<ArticuloInsumo> insumosDuplicados(int n, int categorias, int imagenes) {
+        String[] unidades = {"Kilogramos", "Litros", "Gramos"};
+        List<ArticuloInsumo> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int c = categorias == 1 ? 0 : random.nextInt(categorias);
+            int minimo = 10 + random.nextInt(90);
+            ArticuloInsumo insumo = ArticuloInsumo.builder()
+                    .denominacion("Insumo " + i)
+                    .precioVenta(round(1 + random.nextDouble() * 500))
+                    .precioCompra(round(1 + random.nextDouble() * 300))
+                    .stockActual(random.nextInt(1_000))
+                    .stockMinimo(minimo)
+                    .stockMaximo(minimo * 10)
+                    .esParaElaborar(random.nextInt(4) != 0)
+                    .unidadMedida(UnidadMedida.builder()
+                            .denominacion(new String(unidades[random.nextInt(unidades.length)].toCharArray())).build())
+                    .categoria(Categoria.builder().denominacion(c == 0 ? "Insumos" : "Insumos " + c).build())
+                    .build();
+            insumo.addImagen(ImagenArticulo.builder().denominacion("img-" + random.nextInt(imagenes) + ".png").build());
+            result.add(insumo);
+        }
+        return result;
+    }
+
+    /** n manufacturados de 3 a 8 detalles sobre un pool de insumos compartido. */
+    public List<ArticuloManufacturado> manufacturados(int n, List<ArticuloInsumo> pool) {
+        if (pool.isEmpty()) throw new IllegalArgumentException("pool de insumos vacío");
+        Categoria categoria = Categoria.builder().denominacion("Pizzas").build();
+        List<ArticuloManufacturado> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ArticuloManufacturado m = ArticuloManufacturado.builder()
+                    .denominacion("Manufacturado " + i)
+                    .descripcion("Receta " + i)
+                    .precioVenta(round(1_000 + random.nextDouble() * 20_000))
+                    .tiempoEstimadoMinutos(5 + random.nextInt(60))
+                    .preparacion("Paso 1, paso 2, paso 3")
+                    .categoria(categoria)
+                    .build();
+            int detalles = 3 + random.nextInt(6);
+            for (int d = 0; d < detalles; d++) {
+                m.addDetalle(pool.get(random.nextInt(pool.size())), 1 + random.nextInt(5));
+            }
+            result.add(m);
+        }
+        return result;
+    }
+
+    /**
+     * n manufacturados con texto de carta real (para búsquedas): "Pizza Hawaiana Grande 123",
+     * "Empanada de Carne Cortada a Cuchillo 45", con acentos, descripcion y preparacion
+     * armadas de un vocabulario chico y categoría según el plato. Sin detalles.
+     */
+    public List<ArticuloManufacturado> menu(int n) {
+        String[][] platos = {
+                {"Pizzas", "Pizza"}, {"Empanadas", "Empanada"}, {"Sándwiches", "Sándwich de Lomo"},
+                {"Minutas", "Milanesa"}, {"Pastas", "Ñoquis"}, {"Pastas", "Ravioles"},
+                {"Postres", "Tarta"}, {"Bebidas", "Licuado"}};
+        String[] variantes = {
+                "Hawaiana", "Napolitana", "Fugazzeta", "de Muzzarella", "Especial", "Cuatro Quesos",
+                "de Carne Cortada a Cuchillo", "de Jamón y Queso", "de Pollo", "Árabe", "Caprese",
+                "a la Romana", "con Ananá", "de Verdura", "Salteña", "Cordobesa", "al Champiñón",
+                "de Atún", "con Jalapeños", "de Calabaza"};
+        String[] tamanios = {"Chica", "Mediana", "Grande", "Familiar", "Individual"};
+        String[] ingredientes = {
+                "muzzarella", "tomate", "jamón", "ananá", "cebolla", "morrón", "aceitunas", "orégano",
+                "albahaca", "rúcula", "champiñones", "panceta", "huevo", "provolone", "roquefort",
+                "palmitos", "choclo", "espinaca", "calabaza", "atún", "pollo", "lomo", "papas", "crema"};
+        String[] pasos = {
+                "Estirar la masa", "Hornear a 250 grados", "Freír en aceite", "Cortar en cubos",
+                "Salsear", "Gratinar", "Rellenar", "Cocinar a la parrilla", "Servir caliente", "Decorar"};
+        Map<String, Categoria> categorias = new HashMap<>();
+        List<ArticuloManufacturado> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String[] plato = platos[random.nextInt(platos.length)];
+            String variante = variantes[random.nextInt(variantes.length)];
+            StringBuilder descripcion = new StringBuilder("Con ");
+            int cantidad = 2 + random.nextInt(4);
+            for (int k = 0; k < cantidad; k++) {
+                if (k > 0) descripcion.append(k == cantidad - 1 ? " y " : ", ");
+                descripcion.append(ingredientes[random.nextInt(ingredientes.length)]);
+            }
+            String preparacion = pasos[random.nextInt(pasos.length)] + ". " + pasos[random.nextInt(pasos.length)] + ".";
+            result.add(ArticuloManufacturado.builder()
+                    .denominacion(plato[1] + " " + variante + " " + tamanios[random.nextInt(tamanios.length)] + " " + i)
+                    .descripcion(descripcion.toString())
+                    .precioVenta(round(1_000 + random.nextDouble() * 20_000))
+                    .tiempoEstimadoMinutos(5 + random.nextInt(60))
+                    .preparacion(preparacion)
+                    .categoria(categorias.computeIfAbsent(plato[0], d -> Categoria.builder().denominacion(d).build()))
+                    .build());
+        }
+        return result;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.traza1.entidades.Empresa;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/** traza1: Empresa con 2 sucursales (domicilio, localidad, provincia, país). */
+@State(Scope.Benchmark)
+public class EmpresaBenchmark extends RepositoryBenchmark<Empresa> {
+
+    @Override
+    protected List<Empresa> generate(DatasetGenerator generator, int size) {
+        return generator.empresas(size, 2);
+    }
+
+    @Override
+    protected String searchField() {
+        return "nombre";
+    }
+
+    @Override
+    protected Object searchValue(Empresa entity) {
+        return entity.getNombre();
+    }
+
+    @Override
+    protected String updateField() {
+        return "cuit";
+    }
+
+    @Override
+    protected Object updateValue(int i) {
+        return 30_000_000 + i;
+    }
+
+    @Override
+    protected long idOf(Empresa entity) {
+        return entity.getId();
+    }
+}
@@ -0,0 +1,113 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.GraphCodec;
+import com.biblioteca.traza2.entidades.Articulo;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.entidades.ArticuloManufacturadoDetalle;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.ImagenArticulo;
+import com.biblioteca.traza2.entidades.UnidadMedida;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export/import de un catálogo traza2 (insumos en 10 categorías y manufacturados con sus
+ * detalles sobre esos insumos): GraphCodec contra Java serialization (ObjectOutputStream).
+ * - encode: todo el catálogo a un ByteArrayOutputStream.
+ * - decode: el catálogo completo desde bytes ya codificados.
+ * El tamaño de cada formato se imprime al preparar el trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class GraphCodecBenchmark {
+
+    private static final int CATEGORIAS = 10;
+    private static final Class<?>[] TRAZA2 = {ArticuloInsumo.class, ArticuloManufacturado.class,
+            ArticuloManufacturadoDetalle.class, Categoria.class, UnidadMedida.class, ImagenArticulo.class};
+
+    @Param({"binary", "java"})
+    public String codec;
+
+    @Param({"100000"})
+    public int insumos;
+
+    @Param({"20000"})
+    public int manufacturados;
+
+    private List<Articulo> catalogo;
+    private byte[] encoded;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        DatasetGenerator generator = new DatasetGenerator();
+        List<ArticuloInsumo> pool = generator.insumos(insumos, CATEGORIAS);
+        catalogo = new ArrayList<>(pool);
+        catalogo.addAll(generator.manufacturados(manufacturados, pool));
+        long id = 1;
+        for (Articulo a : catalogo) a.setId(id++);
+        out = new ByteArrayOutputStream(32 * 1024 * 1024);
+        encode();
+        encoded = out.toByteArray();
+        System.out.printf("%n%s: %,d bytes (%.1f por artículo)%n", codec, encoded.length,
+                (double) encoded.length / catalogo.size());
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        out.reset();
+        if ("binary".equals(codec)) {
+            try (GraphCodec.Writer w = GraphCodec.writer(Channels.newChannel(out))) {
+                for (Articulo a : catalogo) w.write(a);
+            }
+        } else {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(out, 64 * 1024))) {
+                for (Articulo a : catalogo) oos.writeObject(a);
+            }
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public List<Object> decode() throws IOException, ClassNotFoundException {
+        List<Object> result = new ArrayList<>(catalogo.size());
+        ByteArrayInputStream in = new ByteArrayInputStream(encoded);
+        if ("binary".equals(codec)) {
+            try (GraphCodec.Reader r = GraphCodec.reader(Channels.newChannel(in), TRAZA2)) {
+                for (Object o = r.read(); o != null; o = r.read()) result.add(o);
+            }
+        } else {
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in, 64 * 1024))) {
+                for (int i = 0; i < catalogo.size(); i++) result.add(ois.readObject());
+            }
+        }
+        return result;
+    }
+}
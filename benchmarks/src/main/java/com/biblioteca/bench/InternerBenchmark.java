@@ -0,0 +1,81 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.BatchResult;
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.repositorio.Interner;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.ImagenArticulo;
+import com.biblioteca.traza2.entidades.UnidadMedida;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saveAll de un lote de insumos con Categoria, UnidadMedida e ImagenArticulo duplicadas
+ * (una copia por insumo, como en una carga sin cuidado), con y sin internField.
+ * - Cada medición guarda un lote recién generado en un repositorio vacío (SingleShotTime:
+ *   el internado modifica las entidades, no se puede repetir sobre las mismas).
+ * - Al final de cada iteración se imprime el heap ocupado después de un GC completo;
+ *   la diferencia entre intern=off y on es lo que ahorran las instancias compartidas.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class InternerBenchmark {
+
+    private static final int CATEGORIAS = 50;
+    private static final int IMAGENES = 1_000;
+
+    @Param({"off", "on"})
+    public String intern;
+
+    @Param({"200000"})
+    public int size;
+
+    private final DatasetGenerator generator = new DatasetGenerator();
+    private List<ArticuloInsumo> batch;
+    private InMemoryRepository<ArticuloInsumo> repo;
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        repo = null;
+        batch = generator.insumosDuplicados(size, CATEGORIAS, IMAGENES);
+        repo = new InMemoryRepository<>();
+        if ("on".equals(intern)) {
+            repo.internField("categoria", Interner.byKey(Categoria.class, Categoria::getDenominacion));
+            repo.internField("unidadMedida", Interner.byKey(UnidadMedida.class, UnidadMedida::getDenominacion));
+            repo.internField("imagenes", Interner.byKey(ImagenArticulo.class, ImagenArticulo::getDenominacion));
+        }
+    }
+
+    @Benchmark
+    public BatchResult<ArticuloInsumo> saveAll() {
+        return repo.saveAll(batch);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printHeap() {
+        batch = null; // solo queda lo que retiene el repositorio
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        System.out.printf("%nheap con %,d insumos (intern=%s): %,d KB%n", repo.count(), intern,
+                (rt.totalMemory() - rt.freeMemory()) / 1024);
+    }
+}
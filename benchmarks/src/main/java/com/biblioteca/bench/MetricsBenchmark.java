@@ -0,0 +1,81 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de las métricas (enableMetrics) en las operaciones más baratas del repositorio.
+ * - metrics=off mide el chequeo que queda cuando están desactivadas.
+ * - metrics=on suma contadores, histograma y el chequeo de umbral JFR.
+ * - metrics=sampled mide la latencia de 1 de cada 16 operaciones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private static final int SIZE = 100_000;
+
+    @Param({"off", "on", "sampled"})
+    public String metrics;
+
+    private InMemoryRepository<ArticuloInsumo> repo;
+    private List<ArticuloInsumo> data;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void load() {
+        repo = new InMemoryRepository<>();
+        repo.createIndex("denominacion");
+        data = new DatasetGenerator().insumos(SIZE);
+        repo.saveAll(data);
+        ids = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) ids[i] = data.get(i).getId();
+        switch (metrics) {
+            case "off" -> { }
+            case "on" -> repo.enableMetrics("bench");
+            case "sampled" -> repo.enableMetrics("bench").setLatencySampling(16);
+            default -> throw new IllegalArgumentException("metrics desconocido: " + metrics);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        repo.disableMetrics();
+    }
+
+    @Benchmark
+    public Optional<ArticuloInsumo> findById(RepositoryBenchmark.Cursor cursor) {
+        return repo.findById(ids[cursor.next(SIZE)]);
+    }
+
+    @Benchmark
+    public ArticuloInsumo save(RepositoryBenchmark.Cursor cursor) {
+        return repo.save(data.get(cursor.next(SIZE)));
+    }
+
+    @Benchmark
+    public List<ArticuloInsumo> genericFindByField(RepositoryBenchmark.Cursor cursor) {
+        return repo.genericFindByField("denominacion", data.get(cursor.next(SIZE)).getDenominacion());
+    }
+}
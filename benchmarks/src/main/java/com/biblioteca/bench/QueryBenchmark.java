@@ -0,0 +1,99 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.Filter;
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.repositorio.Query;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query sobre un catálogo grande (5M insumos en 20 categorías), sin índices: escalado del
+ * recorrido fork-join según la cantidad de hilos (threads=1 es el recorrido secuencial).
+ * - countRange: count de precioVenta &lt; 50 (~10%).
+ * - sumByCategoria: group by categoria.denominacion con suma de precioVenta.
+ * - listAnd: list de un and de tres condiciones (~0.1%).
+ * - indexedRange: el mismo count que countRange con índice ordenado (size reducido:
+ *   mantener el índice de 5M entradas no entra en el heap del fork).
+ * Para ver el escalado correr en una máquina con al menos tantos núcleos como threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    private static final int CATEGORIAS = 20;
+
+    @Param({"5000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private InMemoryRepository<ArticuloInsumo> repo;
+    private InMemoryRepository<ArticuloInsumo> indexed;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void load() {
+        List<ArticuloInsumo> data = new DatasetGenerator().insumos(size, CATEGORIAS);
+        repo = new InMemoryRepository<>();
+        repo.saveAll(data);
+        indexed = new InMemoryRepository<>();
+        indexed.saveAll(data.subList(0, Math.min(size, 500_000)));
+        indexed.createOrderedIndex("precioVenta");
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private Query<ArticuloInsumo> query(InMemoryRepository<ArticuloInsumo> r) {
+        Query<ArticuloInsumo> q = r.query();
+        return threads == 1 ? q.sequential() : q.parallel(pool);
+    }
+
+    @Benchmark
+    public long countRange() {
+        return query(repo).where(Filter.lt("precioVenta", 50.0)).count();
+    }
+
+    @Benchmark
+    public Map<Object, Double> sumByCategoria() {
+        return query(repo).sumBy("categoria.denominacion", "precioVenta");
+    }
+
+    @Benchmark
+    public List<ArticuloInsumo> listAnd() {
+        return query(repo).where(Filter.and(
+                Filter.eq("categoria.denominacion", "Insumos 7"),
+                Filter.between("precioVenta", 100.0, 150.0),
+                Filter.lt("stockActual", 100))).list();
+    }
+
+    @Benchmark
+    public long indexedRange() {
+        return query(indexed).where(Filter.lt("precioVenta", 50.0)).count();
+    }
+}
@@ -0,0 +1,133 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.repositorio.LongHashStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRUD de InMemoryRepository; cada subclase aporta la entidad y sus campos.
+ * - size: entidades cargadas antes de medir (1K a 1M). 10M no entra en los 4 GB del fork
+ *   (ocupa unos 7 GB): correrlo a mano con -p size=10000000 -jvmArgsAppend -Xmx16g.
+ * - store: concurrent (ConcurrentHashMap) o longhash (LongHashStore).
+ * - indexed: con índice hash sobre el campo de búsqueda.
+ * - Los ids se eligen al azar por hilo (-t N para varios hilos).
+ * - save reemplaza una entidad existente y genericDelete la vuelve a guardar:
+ *   el tamaño no cambia entre iteraciones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public abstract class RepositoryBenchmark<T> {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"concurrent", "longhash"})
+    public String store;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    protected InMemoryRepository<T> repo;
+    protected List<T> data;
+    protected long[] ids;
+    protected Object[] searchValues;
+
+    /** Entidades a cargar (sin id). */
+    protected abstract List<T> generate(DatasetGenerator generator, int size);
+
+    /** Campo de genericFindByField (y del índice cuando indexed = true). */
+    protected abstract String searchField();
+
+    protected abstract Object searchValue(T entity);
+
+    /** Campo y valor para genericUpdate. */
+    protected abstract String updateField();
+
+    protected abstract Object updateValue(int i);
+
+    protected abstract long idOf(T entity);
+
+    @Setup(Level.Trial)
+    public void load() {
+        repo = switch (store) {
+            case "concurrent" -> new InMemoryRepository<>();
+            case "longhash" -> new InMemoryRepository<>(new LongHashStore<>(
+                    Runtime.getRuntime().availableProcessors() * 4, size));
+            default -> throw new IllegalArgumentException("store desconocido: " + store);
+        };
+        if (indexed) repo.createIndex(searchField());
+        data = generate(new DatasetGenerator(), size);
+        repo.saveAll(data);
+        ids = new long[size];
+        searchValues = new Object[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = idOf(data.get(i));
+            searchValues[i] = searchValue(data.get(i));
+        }
+    }
+
+    /** Posición al azar, independiente por hilo. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    public T save(Cursor cursor) {
+        return repo.save(data.get(cursor.next(size)));
+    }
+
+    @Benchmark
+    public Optional<T> findById(Cursor cursor) {
+        return repo.findById(ids[cursor.next(size)]);
+    }
+
+    @Benchmark
+    public List<T> findAll() {
+        return repo.findAll();
+    }
+
+    @Benchmark
+    public List<T> genericFindByField(Cursor cursor) {
+        return repo.genericFindByField(searchField(), searchValues[cursor.next(size)]);
+    }
+
+    @Benchmark
+    public boolean genericUpdate(Cursor cursor) {
+        int i = cursor.next(size);
+        return repo.genericUpdate(ids[i], updateField(), updateValue(i));
+    }
+
+    /** Incluye volver a guardar la entidad borrada. */
+    @Benchmark
+    public boolean genericDelete(Cursor cursor) {
+        int i = cursor.next(size);
+        boolean deleted = repo.genericDelete(ids[i]);
+        repo.save(data.get(i));
+        return deleted;
+    }
+}
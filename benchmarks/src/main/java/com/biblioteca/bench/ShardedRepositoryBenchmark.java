@@ -0,0 +1,82 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.LocalShardCluster;
+import com.biblioteca.repositorio.ShardedRepository;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.UnidadMedida;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShardedRepository sobre shards en procesos locales (LocalShardCluster), 200K insumos.
+ * - findById: un viaje de ida y vuelta a un shard.
+ * - findByField: scatter-gather de genericFindByField (sin índices, ~0.1% de aciertos):
+ *   cada shard recorre su parte a la vez. Para ver la ganancia con más shards hace falta
+ *   al menos un núcleo por shard.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+@State(Scope.Benchmark)
+public class ShardedRepositoryBenchmark {
+
+    private static final int SIZE = 200_000;
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private LocalShardCluster cluster;
+    private ShardedRepository<ArticuloInsumo> repo;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        cluster = LocalShardCluster.start(shards, List.of("-Xmx" + Math.max(256, 1024 / shards) + "m"),
+                ArticuloInsumo.class, Categoria.class, UnidadMedida.class);
+        repo = cluster.repository(ArticuloInsumo.class).connect();
+        List<ArticuloInsumo> data = new DatasetGenerator().insumos(SIZE, 20);
+        if (!repo.saveAll(data).allOk()) throw new IllegalStateException("No se pudo cargar el dataset");
+        ids = data.stream().mapToLong(ArticuloInsumo::getId).toArray();
+    }
+
+    @State(Scope.Thread)
+    public static class Workload {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public Optional<ArticuloInsumo> findById(Workload w) {
+        return repo.findById(ids[w.random.nextInt(SIZE)]);
+    }
+
+    @Benchmark
+    public List<ArticuloInsumo> findByField(Workload w) {
+        return repo.genericFindByField("stockActual", w.random.nextInt(1_000));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        repo.close();
+        cluster.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.stock.StockColumns;
+import com.biblioteca.traza2.stock.StockReservationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StockReservationEngine con muchos hilos compitiendo por el mismo stock.
+ * - Cada operación reserva un manufacturado y cancela la reserva (el stock queda igual).
+ * - insumos: tamaño del pool compartido; con 4 casi todos los pedidos chocan, con 4096 casi ninguno.
+ * - detalles=1 mide el CAS sin locks; detalles=4 los locks por franjas tomados en orden.
+ * - 16 hilos por defecto (cambiar con -t). Al final de cada trial se verifica que el stock
+ *   volvió al inicial: una reserva a medias o un descuento perdido lo dejarían distinto.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(16)
+@State(Scope.Benchmark)
+public class StockReservationBenchmark {
+
+    private static final int ARTICULOS = 1024;
+    private static final int STOCK = 1_000_000;
+
+    @Param({"4", "64", "4096"})
+    public int insumos;
+
+    @Param({"1", "4"})
+    public int detalles;
+
+    private StockColumns columns;
+    private StockReservationEngine engine;
+    private ArticuloManufacturado[] articulos;
+
+    @Setup(Level.Trial)
+    public void load() {
+        columns = StockColumns.offHeap();
+        engine = new StockReservationEngine(columns);
+        List<ArticuloInsumo> pool = new DatasetGenerator().insumos(insumos);
+        for (int i = 0; i < insumos; i++) {
+            ArticuloInsumo insumo = pool.get(i);
+            insumo.setId(i + 1L);
+            insumo.setStockActual(STOCK);
+            columns.attach(insumo);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        articulos = new ArticuloManufacturado[ARTICULOS];
+        for (int a = 0; a < ARTICULOS; a++) {
+            ArticuloManufacturado m = ArticuloManufacturado.builder().denominacion("Manufacturado " + a).build();
+            for (int d = 0; d < detalles; d++) m.addDetalle(pool.get(random.nextInt(insumos)), 1 + random.nextInt(3));
+            articulos[a] = m;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Workload {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public boolean reserveAndCancel(Workload w) {
+        return engine.tryReserve(articulos[w.random.nextInt(ARTICULOS)], 1)
+                .map(StockReservationEngine.Reservation::cancel)
+                .orElse(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void check() throws IOException {
+        for (long id = 1; id <= insumos; id++) {
+            Integer stock = columns.getStockActual(id);
+            if (stock == null || stock != STOCK) throw new IllegalStateException("Stock del insumo " + id + " = " + stock + ", esperado " + STOCK);
+        }
+        columns.close();
+    }
+}
@@ -0,0 +1,95 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.ConcurrentMapStore;
+import com.biblioteca.repositorio.EntityStore;
+import com.biblioteca.repositorio.LongHashStore;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Memoria por entrada de cada EntityStore (no es JMH: mide heap ocupado, no tiempo).
+ * - Todas las entradas apuntan a la misma entidad: se mide solo lo que agrega el store
+ *   (en ConcurrentHashMap, nodo + Long en caja; en LongHashStore, el slot long + referencia).
+ * - Heap usado tras varios System.gc(), antes y después de cargar ids 1..size. Con
+ *   ParallelGC el gc() compacta y la diferencia es estable entre corridas.
+ * - Para LongHashStore también se informa el piso de las tablas: slots * (8 + referencia),
+ *   con los slots que deja el factor de carga 0.66 y la capacidad en potencias de 2.
+ * Uso (argumentos clave=valor, todos opcionales):
+ *   cd benchmarks &amp;&amp; mvn package
+ *   java -XX:+UseParallelGC -Xmx3g -cp target/benchmarks.jar com.biblioteca.bench.StoreFootprintMeasurement sizes=1000000,10000000
+ */
+public final class StoreFootprintMeasurement {
+
+    private static final Object ENTITY = new Object();
+    private static final float LOAD_FACTOR = 0.66f; // el de LongHashStore
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private StoreFootprintMeasurement() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = options(args);
+        String[] sizes = options.getOrDefault("sizes", "1000000,10000000").split(",");
+        int referenceBytes = compressedOops() ? 4 : 8;
+        System.out.printf("Referencias de %d bytes, %d procesadores%n", referenceBytes,
+                Runtime.getRuntime().availableProcessors());
+        for (String s : sizes) {
+            int size = Integer.parseInt(s.trim());
+            report("concurrent", size, ConcurrentMapStore::new);
+            report("longhash", size, LongHashStore::new);
+            System.out.printf("%-12s %,12d entradas: piso de tablas %.1f B/entrada%n", "longhash", size,
+                    (double) longHashSlots(size) * (8 + referenceBytes) / size);
+        }
+    }
+
+    private static void report(String name, int size, Supplier<EntityStore<Object>> factory)
+            throws InterruptedException {
+        long before = usedHeap();
+        EntityStore<Object> store = factory.get();
+        for (long id = 1; id <= size; id++) store.put(id, ENTITY);
+        long after = usedHeap();
+        if (store.size() != size) throw new IllegalStateException(name + ": " + store.size() + " entradas, esperadas " + size);
+        System.out.printf("%-12s %,12d entradas: %.1f B/entrada medido%n", name, size, (double) (after - before) / size);
+    }
+
+    /** Slots totales de LongHashStore con el constructor por defecto (4 segmentos por procesador). */
+    static long longHashSlots(int size) {
+        int concurrency = Runtime.getRuntime().availableProcessors() * 4;
+        int segments = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(1, concurrency) - 1));
+        long perSegment = (size + segments - 1) / segments; // fmix64 reparte los ids secuenciales casi parejo
+        long capacity = MIN_SEGMENT_CAPACITY;
+        while ((long) (capacity * LOAD_FACTOR) < perSegment) capacity <<= 1;
+        return capacity * segments;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    private static boolean compressedOops() {
+        HotSpotDiagnosticMXBean hotspot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        return Boolean.parseBoolean(hotspot.getVMOption("UseCompressedOops").getValue());
+    }
+
+    // ===== Argumentos =====
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) options.put(arg, "");
+            else options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,64 @@
+package com.biblioteca.bench;
+
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.repositorio.TextIndex;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de texto sobre una carta grande (DatasetGenerator.menu, 1M manufacturados) con TextIndex.
+ * - query elige el caso: palabra rara exacta ("jalapenos"), prefijo ("hawai"), sin acento
+ *   ("anana" contra "Ananá"), con error de tipeo ("muzarela"), varias palabras, y un número
+ *   (denominacion única: una sola coincidencia).
+ * - Las palabras comunes ("pizza") tocan del orden de size/8 documentos: el costo crece con
+ *   el largo de la lista, no con el tamaño del índice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+@State(Scope.Benchmark)
+public class TextIndexBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"424242", "jalapenos", "hawai", "anana", "muzarela", "ñoquis calabaza", "pizza"})
+    public String query;
+
+    private InMemoryRepository<ArticuloManufacturado> repo;
+    private TextIndex<ArticuloManufacturado> index;
+
+    @Setup(Level.Trial)
+    public void load() {
+        repo = new InMemoryRepository<>();
+        repo.saveAll(new DatasetGenerator().menu(size));
+        index = TextIndex.builder(ArticuloManufacturado.class)
+                .field("denominacion", 3)
+                .field("categoria.denominacion", 2)
+                .field("descripcion", 1)
+                .field("preparacion", 0.5)
+                .build();
+        index.attach(repo);
+    }
+
+    @Benchmark
+    public List<TextIndex.Hit<ArticuloManufacturado>> search() {
+        return index.search(query, 10);
+    }
+}
@@ -0,0 +1,101 @@
+package com.biblioteca.app;
+
+import com.biblioteca.repositorio.CatalogImage;
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.server.CatalogServer;
+import com.biblioteca.traza1.entidades.*;
+import com.biblioteca.traza2.entidades.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Uso: MainServidor [puerto] [imagen]
+ * - Sin imagen: arma los datos de ejemplo en memoria.
+ * - Con imagen que no existe: arma los datos de ejemplo y los guarda ahí (CatalogImage).
+ * - Con imagen existente: abre los repositorios desde la imagen (mmap, carga perezosa).
+ *   Para arrancar aún más rápido, con un archivo AppCDS de las clases cargadas:
+ *   java -XX:ArchiveClassesAtExit=servidor.jsa -cp app.jar com.biblioteca.app.MainServidor 8080 catalogo.img
+ *   java -XX:SharedArchiveFile=servidor.jsa -cp app.jar com.biblioteca.app.MainServidor 8080 catalogo.img
+ */
+public class MainServidor {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        Path imagen = args.length > 1 ? Path.of(args[1]) : null;
+
+        InMemoryRepository<Empresa> repoEmpresa;
+        InMemoryRepository<ArticuloInsumo> repoInsumo;
+        InMemoryRepository<ArticuloManufacturado> repoManu;
+        if (imagen != null && Files.exists(imagen)) {
+            // =====================================================
+            // Modo imagen: nada se decodifica hasta que se pide
+            // =====================================================
+            var catalogo = CatalogImage.open(imagen,
+                    Empresa.class, Sucursal.class, Domicilio.class, Localidad.class, Provincia.class, Pais.class,
+                    ArticuloInsumo.class, ArticuloManufacturado.class, ArticuloManufacturadoDetalle.class,
+                    Categoria.class, UnidadMedida.class, ImagenArticulo.class);
+            repoEmpresa = catalogo.repository("empresas", Empresa.class);
+            repoInsumo  = catalogo.repository("insumos", ArticuloInsumo.class);
+            repoManu    = catalogo.repository("manufacturados", ArticuloManufacturado.class);
+            System.out.println("Imagen abierta: " + catalogo);
+        } else {
+            repoEmpresa = new InMemoryRepository<>();
+            repoInsumo  = new InMemoryRepository<>();
+            repoManu    = new InMemoryRepository<>();
+            cargarEjemplo(repoEmpresa, repoInsumo, repoManu);
+            if (imagen != null) {
+                try (var writer = CatalogImage.writer(imagen)) {
+                    writer.add("empresas", repoEmpresa).add("insumos", repoInsumo).add("manufacturados", repoManu);
+                }
+                System.out.println("Imagen guardada en " + imagen);
+            }
+        }
+
+        // =====================================================
+        // Servidor (Ctrl+C para terminar)
+        // =====================================================
+        CatalogServer server = CatalogServer.builder().port(port)
+                .empresas(repoEmpresa).insumos(repoInsumo).manufacturados(repoManu)
+                .start();
+        System.out.println("Escuchando en http://localhost:" + server.port() + "/articulos?categoria=Pizzas");
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        new CountDownLatch(1).await();
+    }
+
+    private static void cargarEjemplo(InMemoryRepository<Empresa> repoEmpresa,
+                                      InMemoryRepository<ArticuloInsumo> repoInsumo,
+                                      InMemoryRepository<ArticuloManufacturado> repoManu) {
+        // =====================================================
+        // Datos de ejemplo
+        // =====================================================
+        var caba = Localidad.builder().nombre("CABA").build();
+        var empresa = Empresa.builder().nombre("Empresa A").razonSocial("Empresa A S.A.").cuit(20123456)
+                .sucursales(new HashSet<>()).build();
+        empresa.getSucursales().add(Sucursal.builder()
+                .nombre("Sucursal Centro")
+                .horarioApertura(LocalTime.of(9, 0)).horarioCierre(LocalTime.of(18, 0))
+                .esCasaMatriz(true)
+                .domicilio(Domicilio.builder().calle("Cerrito").numero(628).cp("C1010").localidad(caba).build())
+                .build());
+        repoEmpresa.save(empresa);
+
+        var catInsumos = Categoria.builder().denominacion("Insumos").build();
+        var catPizzas  = Categoria.builder().denominacion("Pizzas").build();
+        var kg = UnidadMedida.builder().denominacion("Kilogramos").build();
+
+        var harina = repoInsumo.save(ArticuloInsumo.builder()
+                .denominacion("Harina").precioVenta(1500.0)
+                .unidadMedida(kg).categoria(catInsumos)
+                .precioCompra(1100.0).stockActual(200).stockMinimo(20).stockMaximo(400)
+                .esParaElaborar(true).build());
+        var pizza = ArticuloManufacturado.builder()
+                .denominacion("Pizza Muzarella").precioVenta(9000.0)
+                .categoria(catPizzas).tiempoEstimadoMinutos(20).build();
+        pizza.addDetalle(harina, 1);
+        repoManu.save(pizza);
+    }
+}
@@ -1,6 +1,5 @@
 package com.biblioteca.app;
 
-import com.biblioteca.repositorio.InMemoryRepository;
 import com.biblioteca.traza1.entidades.*;
 
 public class MainTraza1 {
@@ -147,7 +146,9 @@ public class MainTraza1 {
         // PUNTO 5 — CRUD de Empresa con mi InMemoryRepository
         // =====================================================
 
-        InMemoryRepository<Empresa> repo = new InMemoryRepository<>();
+        EmpresaRepository repo = new EmpresaRepository(); // generado por @GenerateRepository
+        repo.createIndex("nombre");     // búsqueda [c] por índice en vez de recorrer todo
+        repo.createUniqueIndex("cuit"); // no puede haber dos empresas con el mismo CUIT
 
         // Guardar las empresas creadas en el Punto 4
         repo.save(empresa1);
@@ -164,12 +165,12 @@ public class MainTraza1 {
 
         // c) Buscar empresas por NOMBRE (igualdad exacta)
         System.out.println("\n[c] Buscar por nombre = 'Empresa 1':");
-        repo.genericFindByField("nombre", "Empresa 1")
+        repo.findByNombre("Empresa 1")
                 .forEach(System.out::println);
 
         // d) Actualizar datos por ID (ej.: CUIT)
         System.out.println("\n[d] Actualizar CUIT de la empresa con ID " + idEmp1 + " a 20999999:");
-        repo.genericUpdate(idEmp1, "cuit", 20999999);
+        repo.updateCuit(idEmp1, 20999999);
         System.out.println(repo.findById(idEmp1).orElse(null));
 
         // e) Eliminar una empresa por ID (la segunda)
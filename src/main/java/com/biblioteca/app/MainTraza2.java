@@ -10,6 +10,8 @@ public class MainTraza2 {
         var repoUnidad    = new InMemoryRepository<UnidadMedida>();
         var repoInsumo    = new InMemoryRepository<ArticuloInsumo>();
         var repoManu      = new InMemoryRepository<ArticuloManufacturado>();
+        repoCategoria.createUniqueIndex("denominacion");
+        repoManu.createIndex("descripcion");
 
         // =====================================================
         // Categorías
@@ -108,6 +110,7 @@ public class MainTraza2 {
 
         System.out.println("\n[e] Actualizar manufacturado por ID (cambio de descripción Pizza):");
         repoManu.findById(idPizza).ifPresent(m -> m.setDescripcion("Pizza con ananá y extra queso"));
+        repoManu.reindex(idPizza); // se modificó por setter: actualizar el índice de descripcion
         System.out.println(repoManu.findById(idPizza).orElse(null));
 
         System.out.println("\n[f] Eliminar manufacturado por ID (Lomo):");
@@ -0,0 +1,53 @@
+package com.biblioteca.repositorio;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una operación en lote (saveAll, updateAll, deleteAll).
+ * - Un ItemResult por elemento de entrada, en el mismo orden.
+ * - Un elemento que falla no corta el lote: queda con status FAILED y su error.
+ */
+public final class BatchResult<T> {
+
+    public enum Status { OK, NOT_FOUND, FAILED }
+
+    /** index = posición en la colección de entrada. */
+    public record ItemResult<T>(int index, Long id, T entity, Status status, RuntimeException error) {
+        public boolean isOk() {
+            return status == Status.OK;
+        }
+    }
+
+    private final List<ItemResult<T>> items;
+
+    BatchResult(List<ItemResult<T>> items) {
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public List<ItemResult<T>> items() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public long okCount() {
+        return items.stream().filter(ItemResult::isOk).count();
+    }
+
+    public boolean allOk() {
+        return items.stream().allMatch(ItemResult::isOk);
+    }
+
+    /** Los elementos que no quedaron OK (no encontrados o con error). */
+    public List<ItemResult<T>> failures() {
+        return items.stream().filter(r -> !r.isOk()).toList();
+    }
+
+    /** Entidades procesadas correctamente, en orden de entrada. */
+    public List<T> okEntities() {
+        return items.stream().filter(ItemResult::isOk).map(ItemResult::entity).toList();
+    }
+}
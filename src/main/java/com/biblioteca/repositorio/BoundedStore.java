@@ -0,0 +1,492 @@
+package com.biblioteca.repositorio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Store acotado: InMemoryRepository pasa a ser un caché sobre una fuente más lenta.
+ * - Máximo por cantidad (maximumSize) o por peso (maximumWeight + weigher); al pasarse
+ *   desaloja según la EvictionPolicy (W-TinyLFU por defecto, o LRU).
+ * - Read-through: findById de un id que no está en memoria lo trae del EntityLoader.
+ *   Varios hilos que piden el mismo id faltante esperan una sola carga (sin estampida).
+ * - Escrituras al EntityWriter: writeThrough (en el hilo que escribe) o writeBehind
+ *   (en segundo plano, agrupando las escrituras repetidas de un mismo id). Lo pendiente
+ *   se sigue leyendo desde memoria aunque se haya desalojado.
+ * - Sin writer, lo desalojado se pierde (caché puro); sin loader, un id desalojado ya no se encuentra.
+ * - count, findAll, stream y genericFindByField ven solo lo que está en memoria.
+ *   No admite índices secundarios ni versionado (necesitan todas las entidades en memoria),
+ *   ni WriteAheadLog (el writer ya es la persistencia).
+ * - Lecturas sin bloquear: los accesos se informan a la política de a READ_BUFFER_SIZE
+ *   (con pérdida bajo contención); altas, borrados y desalojos se serializan con un lock.
+ */
+public final class BoundedStore<T> implements EntityStore<T>, Closeable {
+
+    /** Con más escrituras pendientes que esto, el que escribe vuelca en su propio hilo. */
+    static final int MAX_PENDING_WRITES = 10_000;
+
+    /** Lecturas que se juntan antes de informarlas a la política (potencia de 2). */
+    static final int READ_BUFFER_SIZE = 128;
+
+    /** Estadísticas acumuladas desde que se creó el store. */
+    public record Stats(long hits, long misses, long loads, long loadFailures, long evictions,
+                        long evictedWeight, long writes, long writeFailures, int pendingWrites,
+                        int size, long weightedSize) {
+
+        /** Fracción de lecturas resueltas en memoria (0 si no hubo lecturas). */
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hitRate=%.2f%% (hits=%d misses=%d) loads=%d (fallidas=%d) evictions=%d"
+                            + " (peso=%d) writes=%d (fallidas=%d, pendientes=%d) size=%d peso=%d",
+                    hitRate() * 100, hits, misses, loads, loadFailures, evictions, evictedWeight,
+                    writes, writeFailures, pendingWrites, size, weightedSize);
+        }
+    }
+
+    public static <T> Builder<T> maximumSize(long maximumEntities) {
+        return new Builder<>(maximumEntities, null);
+    }
+
+    /** Máximo por peso: el weigher da el peso de cada entidad (ej: cantidad de detalles). */
+    public static <T> Builder<T> maximumWeight(long maximumWeight, ToLongFunction<? super T> weigher) {
+        return new Builder<>(maximumWeight, Objects.requireNonNull(weigher, "weigher no puede ser null"));
+    }
+
+    public static final class Builder<T> {
+
+        private final long maximum;
+        private final ToLongFunction<? super T> weigher;
+        private EvictionPolicy policy;
+        private EntityLoader<T> loader;
+        private EntityWriter<T> writer;
+        private Duration writeDelay;
+
+        private Builder(long maximum, ToLongFunction<? super T> weigher) {
+            if (maximum < 1) throw new IllegalArgumentException("El máximo debe ser >= 1");
+            this.maximum = maximum;
+            this.weigher = weigher;
+        }
+
+        public Builder<T> eviction(EvictionPolicy policy) {
+            this.policy = Objects.requireNonNull(policy, "policy no puede ser null");
+            return this;
+        }
+
+        public Builder<T> loader(EntityLoader<T> loader) {
+            this.loader = Objects.requireNonNull(loader, "loader no puede ser null");
+            return this;
+        }
+
+        /** Cada escritura llega al writer antes de volver (un error le llega al que escribió). */
+        public Builder<T> writeThrough(EntityWriter<T> writer) {
+            this.writer = Objects.requireNonNull(writer, "writer no puede ser null");
+            this.writeDelay = null;
+            return this;
+        }
+
+        /** Las escrituras se vuelcan en segundo plano cada delay (ver flush y close). */
+        public Builder<T> writeBehind(EntityWriter<T> writer, Duration delay) {
+            Objects.requireNonNull(delay, "delay no puede ser null");
+            if (delay.isNegative() || delay.isZero()) throw new IllegalArgumentException("delay debe ser > 0");
+            this.writer = Objects.requireNonNull(writer, "writer no puede ser null");
+            this.writeDelay = delay;
+            return this;
+        }
+
+        public BoundedStore<T> build() {
+            return new BoundedStore<>(this);
+        }
+    }
+
+    /** Escritura pendiente; la identidad distingue dos escrituras del mismo estado. */
+    private static final class PendingWrite {
+        final Object value;
+
+        PendingWrite(Object value) {
+            this.value = value;
+        }
+    }
+
+    private static final Object DELETED = new Object();
+
+    private final ConcurrentHashMap<Long, T> data = new ConcurrentHashMap<>();
+    private final long maximum;
+    private final ToLongFunction<? super T> weigher;
+
+    // Política y mutaciones de data (altas, borrados, desalojos)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final EvictionPolicy policy;
+
+    // Lecturas pendientes de informar a la política. Sin sincronizar a propósito: si dos
+    // hilos pisan la misma posición se pierde un acceso (solo afina menos el desalojo)
+    private final long[] readBuffer = new long[READ_BUFFER_SIZE];
+    private int readIndex;
+
+    private final EntityLoader<T> loader;
+    private final ConcurrentHashMap<Long, CompletableFuture<T>> loading = new ConcurrentHashMap<>();
+    // Un remove en curso (id -> cantidad, con lock) y las cargas que leyeron la fuente antes
+    // de que el borrado llegara: install las descarta para no revivir lo borrado
+    private final Map<Long, Integer> removing = new HashMap<>();
+    private final Set<CompletableFuture<T>> invalidated = ConcurrentHashMap.newKeySet();
+
+    private final EntityWriter<T> writer;
+    private final ConcurrentHashMap<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong evictedWeight = new AtomicLong();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    private BoundedStore(Builder<T> b) {
+        this.maximum = b.maximum;
+        this.weigher = b.weigher;
+        this.policy = b.policy != null ? b.policy : EvictionPolicy.windowTinyLfu();
+        this.policy.setMaximum(maximum);
+        this.loader = b.loader;
+        this.writer = b.writer;
+        if (b.writeDelay == null) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "bounded-store-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            long every = b.writeDelay.toNanos();
+            flusher.scheduleWithFixedDelay(this::backgroundFlush, every, every, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // ===================== EntityStore =====================
+
+    @Override
+    public T get(long id) {
+        T entity = data.get(id);
+        if (entity != null) {
+            hits.increment();
+            int i = readIndex;
+            readBuffer[i & (READ_BUFFER_SIZE - 1)] = id;
+            readIndex = i + 1;
+            if ((i & (READ_BUFFER_SIZE - 1)) == READ_BUFFER_SIZE - 1) drainReads();
+            return entity;
+        }
+        misses.increment();
+        return loader == null ? null : load(id);
+    }
+
+    @Override
+    public T put(long id, T entity) {
+        T previous;
+        lock.lock();
+        try {
+            previous = data.put(id, entity);
+            policy.recordWrite(id, weigh(entity));
+            evictIfNeeded();
+        } finally {
+            lock.unlock();
+        }
+        scheduleWrite(id, entity);
+        return previous;
+    }
+
+    /**
+     * Quita el id; si no estaba en memoria, lo busca en el loader para informar si existía.
+     * Una carga read-through del mismo id que se cruce con el borrado no lo vuelve a agregar.
+     */
+    @Override
+    public T remove(long id) {
+        T previous;
+        lock.lock();
+        try {
+            previous = data.remove(id);
+            if (previous != null) policy.recordRemoval(id);
+            if (loader != null) removing.merge(id, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+        if (loader == null) {
+            if (previous != null) scheduleWrite(id, DELETED);
+            return previous;
+        }
+        try {
+            if (previous == null) previous = loadFromSource(id);
+            if (previous != null) scheduleWrite(id, DELETED);
+            return previous;
+        } finally {
+            lock.lock();
+            try {
+                removing.computeIfPresent(id, (k, n) -> n == 1 ? null : n - 1);
+                // Una carga todavía en vuelo pudo leer la fuente antes del borrado
+                CompletableFuture<T> inFlight = loading.get(id);
+                if (inFlight != null) invalidated.add(inFlight);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void updated(long id, T entity) {
+        if (weigher != null) {
+            lock.lock();
+            try {
+                if (data.get(id) == entity) {
+                    policy.recordWrite(id, weigh(entity));
+                    evictIfNeeded();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        scheduleWrite(id, entity);
+    }
+
+    /** Entidades en memoria (no las que quedaron solo en la fuente). */
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        data.values().forEach(action);
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer<? super T> action) {
+        data.forEach((id, entity) -> action.accept(id, entity));
+    }
+
+    @Override
+    public Stream<T> values() {
+        return data.values().stream();
+    }
+
+    // ===================== Estadísticas y escritura =====================
+
+    public Stats stats() {
+        long weighted;
+        lock.lock();
+        try {
+            weighted = policy.weightedSize();
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), evictions.get(),
+                evictedWeight.get(), writes.sum(), writeFailures.sum(), pending.size(), data.size(), weighted);
+    }
+
+    /**
+     * Vuelca ya las escrituras pendientes (write-behind). Las que fallan quedan pendientes
+     * para el próximo intento; devuelve cuántas se escribieron.
+     */
+    public int flush() {
+        if (writer == null || pending.isEmpty()) return 0;
+        flushLock.lock();
+        try {
+            int written = 0;
+            for (Long id : pending.keySet()) {
+                PendingWrite w = pending.get(id);
+                if (w == null) continue;
+                try {
+                    writeNow(id, w.value);
+                    written++;
+                } catch (IOException e) {
+                    writeFailures.increment();
+                    continue;
+                }
+                // Si mientras tanto hubo otra escritura del id, queda para la próxima vuelta
+                pending.remove(id, w);
+            }
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Detiene el volcado en segundo plano y escribe lo pendiente. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            throw new IOException("Quedaron " + pending.size() + " escrituras sin guardar");
+        }
+    }
+
+    /** Mayor id de la fuente (para la secuencia del repositorio). */
+    long maxId() {
+        if (loader == null) return 0L;
+        try {
+            return loader.maxId();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el mayor id de la fuente", e);
+        }
+    }
+
+    // ===================== Internos =====================
+
+    private T load(long id) {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> inFlight = loading.putIfAbsent(id, mine);
+        if (inFlight != null) return await(inFlight);
+        try {
+            // Otro hilo pudo terminar de cargarlo entre el fallo y el putIfAbsent
+            T entity = data.get(id);
+            if (entity == null) {
+                entity = loadFromSource(id);
+                if (entity != null) entity = install(id, entity, mine);
+            }
+            mine.complete(entity);
+            return entity;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, mine);
+            invalidated.remove(mine);
+        }
+    }
+
+    /** Lo pendiente de escribir es más nuevo que lo que tiene la fuente. */
+    @SuppressWarnings("unchecked")
+    private T loadFromSource(long id) {
+        PendingWrite w = pending.get(id);
+        if (w != null) return w.value == DELETED ? null : (T) w.value;
+        loads.increment();
+        try {
+            return loader.load(id);
+        } catch (IOException e) {
+            loadFailures.increment();
+            throw new UncheckedIOException("No se pudo cargar id=" + id, e);
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Agrega lo cargado, salvo que un put concurrente haya dejado algo más nuevo o que un
+     * remove del id esté en curso o haya terminado durante la carga (devuelve lo que haya).
+     */
+    private T install(long id, T entity, CompletableFuture<T> load) {
+        lock.lock();
+        try {
+            if (invalidated.remove(load) || removing.containsKey(id)) return data.get(id);
+            T current = data.putIfAbsent(id, entity);
+            if (current != null) return current;
+            policy.recordWrite(id, weigh(entity));
+            evictIfNeeded();
+            return entity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private T await(CompletableFuture<T> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /** Informa las lecturas juntadas; si otro hilo tiene el lock se descartan (con pérdida). */
+    private void drainReads() {
+        if (!lock.tryLock()) return;
+        try {
+            for (long id : readBuffer) policy.recordAccess(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Con lock. */
+    private void evictIfNeeded() {
+        while (policy.weightedSize() > maximum) {
+            long victim = policy.victim();
+            if (victim < 0) return;
+            T evicted = data.remove(victim);
+            evictions.incrementAndGet();
+            if (evicted != null) evictedWeight.addAndGet(weigh(evicted));
+        }
+    }
+
+    private long weigh(T entity) {
+        if (weigher == null) return 1L;
+        long w = weigher.applyAsLong(entity);
+        if (w < 0) throw new IllegalArgumentException("El peso no puede ser negativo: " + w);
+        return w;
+    }
+
+    private void scheduleWrite(long id, Object value) {
+        if (writer == null) return;
+        if (closed) throw new IllegalStateException("BoundedStore cerrado");
+        if (flusher == null) {
+            try {
+                writeNow(id, value);
+            } catch (IOException e) {
+                writeFailures.increment();
+                throw new UncheckedIOException("No se pudo escribir id=" + id, e);
+            }
+            return;
+        }
+        pending.put(id, new PendingWrite(value));
+        if (pending.size() > MAX_PENDING_WRITES) flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeNow(long id, Object value) throws IOException {
+        if (value == DELETED) writer.delete(id);
+        else writer.write(id, (T) value);
+        writes.increment();
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Un writer con errores no debe matar el hilo: se reintenta en la próxima vuelta
+            writeFailures.increment();
+        }
+    }
+}
@@ -0,0 +1,750 @@
+package com.biblioteca.repositorio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.biblioteca.repositorio.GraphCodec.A_BOOLEAN;
+import static com.biblioteca.repositorio.GraphCodec.A_DOUBLE;
+import static com.biblioteca.repositorio.GraphCodec.A_INT;
+import static com.biblioteca.repositorio.GraphCodec.A_LONG;
+import static com.biblioteca.repositorio.GraphCodec.A_NULL;
+import static com.biblioteca.repositorio.GraphCodec.A_OBJECT;
+import static com.biblioteca.repositorio.GraphCodec.A_STRING;
+import static com.biblioteca.repositorio.GraphCodec.C_ARRAY_LIST;
+import static com.biblioteca.repositorio.GraphCodec.C_HASH_MAP;
+import static com.biblioteca.repositorio.GraphCodec.C_HASH_SET;
+import static com.biblioteca.repositorio.GraphCodec.C_LINKED_HASH_MAP;
+import static com.biblioteca.repositorio.GraphCodec.C_LINKED_HASH_SET;
+import static com.biblioteca.repositorio.GraphCodec.C_TREE_MAP;
+import static com.biblioteca.repositorio.GraphCodec.C_TREE_SET;
+import static com.biblioteca.repositorio.GraphCodec.K_BOOLEAN;
+import static com.biblioteca.repositorio.GraphCodec.K_BYTE;
+import static com.biblioteca.repositorio.GraphCodec.K_CHAR;
+import static com.biblioteca.repositorio.GraphCodec.K_COLLECTION;
+import static com.biblioteca.repositorio.GraphCodec.K_DATE;
+import static com.biblioteca.repositorio.GraphCodec.K_DATETIME;
+import static com.biblioteca.repositorio.GraphCodec.K_DOUBLE;
+import static com.biblioteca.repositorio.GraphCodec.K_ENUM;
+import static com.biblioteca.repositorio.GraphCodec.K_FLOAT;
+import static com.biblioteca.repositorio.GraphCodec.K_INT;
+import static com.biblioteca.repositorio.GraphCodec.K_LONG;
+import static com.biblioteca.repositorio.GraphCodec.K_MAP;
+import static com.biblioteca.repositorio.GraphCodec.K_REF;
+import static com.biblioteca.repositorio.GraphCodec.K_SHORT;
+import static com.biblioteca.repositorio.GraphCodec.K_STRING;
+import static com.biblioteca.repositorio.GraphCodec.K_TIME;
+import static com.biblioteca.repositorio.GraphCodec.NULLABLE;
+
+/**
+ * Imagen de catálogo: snapshot de uno o varios repositorios en un archivo que se abre con
+ * mmap y se materializa a demanda (arranque sin reconstruir el grafo).
+ * - Tabla de objetos: cada objeto del grafo (raíces, Categoria, UnidadMedida, imágenes,
+ *   detalles, domicilios...) es un registro propio; las referencias son números de objeto.
+ *   Así cualquier objeto se decodifica solo, sin leer lo anterior (a diferencia de
+ *   GraphCodec, que es un stream secuencial).
+ * - Secciones con nombre ("insumos", "manufacturados"...): ids ordenados -> número de
+ *   objeto, con búsqueda binaria directamente sobre el archivo mapeado.
+ * - open lee solo el pie y el esquema; repository(nombre, tipo) devuelve un
+ *   InMemoryRepository cuyo store decodifica cada entidad la primera vez que se pide
+ *   (findById, stream, ...) y después la sirve desde memoria.
+ * - Identidad preservada entre secciones: la Categoria compartida por mil insumos, o el
+ *   insumo de un detalle de manufacturado, es la misma instancia que devuelve su sección.
+ * - Mismos tipos de campo que GraphCodec (esquema por nombre: agregar o quitar un campo
+ *   de la clase no invalida imágenes viejas) y solo se instancian las clases permitidas.
+ * - Escrituras sobre un repositorio abierto de una imagen quedan en memoria; la imagen
+ *   no se modifica. Para persistir, escribir una imagen nueva.
+ * - Límite: 2 GB por archivo (un solo MappedByteBuffer).
+ *   Ej:
+ *   try (CatalogImage.Writer w = CatalogImage.writer(path)) { w.add("insumos", repoInsumo); w.add("manufacturados", repoManu); }
+ *   CatalogImage image = CatalogImage.open(path, ArticuloInsumo.class, ArticuloManufacturado.class, ...);
+ *   InMemoryRepository&lt;ArticuloInsumo&gt; insumos = image.repository("insumos", ArticuloInsumo.class);
+ *
+ * Formato: [int magic][int versión] registros... [tabla de objetos: long offset por objeto]
+ * [entradas de cada sección: (long id, int objeto) ordenadas por id] [esquema y secciones]
+ * [pie: long tablaDeObjetos, long esquema, int cantidadDeObjetos, int magic].
+ */
+public final class CatalogImage implements Closeable {
+
+    private static final int MAGIC = 0x54525a49; // "TRZI"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FOOTER_SIZE = 8 + 8 + 4 + 4;
+    private static final int ENTRY_SIZE = 8 + 4;
+
+    // Referencias: 0 = null, n + 1 = el objeto n
+    private static final int REF_NULL = 0;
+
+    /** Una sección: count entradas (id, objeto) ordenadas desde entries; sequence = último id emitido. */
+    record Section(String name, int count, int entries, long sequence) {
+    }
+
+    private final Path file;
+    private final MappedByteBuffer data;
+    private final GraphDecoder.ClassIn[] classes;
+    private final Decoder decoder = new Decoder();
+    private final int objectTable;
+    private final int objectCount;
+    private final Map<String, Section> sections;
+    private final AtomicReferenceArray<Object> objects;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Objetos decodificados en la materialización en curso; se publican al terminar
+    private final Map<Integer, Object> pending = new HashMap<>();
+    private volatile int materialized;
+    private volatile boolean closed;
+
+    private CatalogImage(Path file, MappedByteBuffer data, Map<String, Class<?>> allowed) throws IOException {
+        this.file = file;
+        this.data = data;
+        int size = data.capacity();
+        if (size < 8 + FOOTER_SIZE || data.getInt(0) != MAGIC) {
+            throw new StreamCorruptedException("No es una imagen de catálogo: " + file);
+        }
+        int version = data.getInt(4);
+        if (version != VERSION) throw new StreamCorruptedException("Versión de imagen no soportada: " + version);
+        int footer = size - FOOTER_SIZE;
+        if (data.getInt(footer + 20) != MAGIC) throw new StreamCorruptedException("Imagen incompleta: " + file);
+        this.objectTable = offset(data.getLong(footer), footer);
+        int meta = offset(data.getLong(footer + 8), footer);
+        this.objectCount = data.getInt(footer + 16);
+        if (objectCount < 0 || (long) objectTable + (long) objectCount * 8 > meta) {
+            throw new StreamCorruptedException("Tabla de objetos inválida");
+        }
+        this.objects = new AtomicReferenceArray<>(objectCount);
+
+        Cursor in = new Cursor(meta, footer);
+        int classCount = in.count();
+        this.classes = new GraphDecoder.ClassIn[classCount];
+        for (int c = 0; c < classCount; c++) {
+            String name = in.string();
+            Class<?> type = allowed.get(name);
+            if (type == null) throw new InvalidClassException(name, "no está entre las clases permitidas");
+            classes[c] = decoder.readSchema(EntityMetadata.of(type), in, false);
+        }
+        int sectionCount = in.count();
+        Map<String, Section> sections = new LinkedHashMap<>();
+        for (int s = 0; s < sectionCount; s++) {
+            String name = in.string();
+            int count = in.count();
+            int entries = offset(in.varint(), footer);
+            long sequence = in.varint();
+            if ((long) entries + (long) count * ENTRY_SIZE > meta) throw new StreamCorruptedException("Sección inválida: " + name);
+            sections.put(name, new Section(name, count, entries, sequence));
+        }
+        this.sections = Collections.unmodifiableMap(sections);
+    }
+
+    /** Abre la imagen (solo mapea y lee el esquema). allowed: las clases de todas las secciones y lo que referencian. */
+    public static CatalogImage open(Path file, Class<?>... allowed) throws IOException {
+        Objects.requireNonNull(file, "file no puede ser null");
+        Map<String, Class<?>> types = new HashMap<>();
+        for (Class<?> t : allowed) {
+            Objects.requireNonNull(t, "allowed no puede contener null");
+            EntityMetadata.requireDecodable(t);
+            types.put(t.getName(), t);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Imagen de más de 2 GB: " + file);
+            // El mapeo sigue válido después de cerrar el canal
+            return new CatalogImage(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), types);
+        }
+    }
+
+    /** Escribe una imagen nueva en file (a un temporal que se renombra al cerrar). */
+    public static Writer writer(Path file) throws IOException {
+        return new Writer(Objects.requireNonNull(file, "file no puede ser null"));
+    }
+
+    /**
+     * Repositorio sobre la sección name: las entidades se decodifican al primer acceso.
+     * La secuencia de ids sigue donde estaba la del repositorio al escribir la imagen (los
+     * ids de entidades borradas antes no se vuelven a emitir). Índices y recorridos
+     * completos (findAll, query sin índice) materializan toda la sección.
+     */
+    public <T> InMemoryRepository<T> repository(String name, Class<T> type) {
+        Objects.requireNonNull(type, "type no puede ser null");
+        Section section = section(name);
+        InMemoryRepository<T> repository = new InMemoryRepository<>(new ImageStore<>(this, section, type));
+        repository.restoreSequence(section.sequence());
+        return repository;
+    }
+
+    public Set<String> sections() {
+        return sections.keySet();
+    }
+
+    /** Entidades de la sección (sin materializar nada). */
+    public int count(String name) {
+        return section(name).count();
+    }
+
+    /** Objetos del grafo en el archivo. */
+    public int objectCount() {
+        return objectCount;
+    }
+
+    /** Objetos ya decodificados (de todas las secciones). */
+    public int materializedCount() {
+        return materialized;
+    }
+
+    /**
+     * Lo ya materializado sigue usable; lo que falte materializar falla con
+     * IllegalStateException. El mapeo lo libera el GC.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogImage[" + file + ", secciones=" + sections.keySet() + ", objetos=" + objectCount
+                + ", materializados=" + materialized + "]";
+    }
+
+    // ===================== Acceso para ImageStore =====================
+
+    Section section(String name) {
+        Objects.requireNonNull(name, "name no puede ser null");
+        Section s = sections.get(name);
+        if (s == null) throw new IllegalArgumentException("La imagen no tiene la sección '" + name + "'");
+        return s;
+    }
+
+    long idAt(Section s, int index) {
+        return data.getLong(s.entries() + index * ENTRY_SIZE);
+    }
+
+    /** Posición de id en la sección (búsqueda binaria sobre el archivo), o -1. */
+    int indexOf(Section s, long id) {
+        int low = 0;
+        int high = s.count() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = idAt(s, mid);
+            if (midId < id) low = mid + 1;
+            else if (midId > id) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /** La entidad en la posición index de la sección (decodificándola si hace falta). */
+    Object entityAt(Section s, int index) {
+        return materialize(data.getInt(s.entries() + index * ENTRY_SIZE + 8));
+    }
+
+    // ===================== Materialización =====================
+
+    private Object materialize(int n) {
+        Object o = objects.getAcquire(n);
+        if (o != null) return o;
+        lock.lock();
+        try {
+            if (closed) throw new IllegalStateException("CatalogImage cerrada: " + file);
+            o = resolve(n);
+            // Recién ahora son visibles para otros hilos: ya tienen todos sus campos
+            for (Map.Entry<Integer, Object> e : pending.entrySet()) objects.setRelease(e.getKey(), e.getValue());
+            materialized += pending.size();
+            return o;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el objeto " + n + " de " + file, e);
+        } catch (IndexOutOfBoundsException e) {
+            throw new UncheckedIOException("No se pudo leer el objeto " + n + " de " + file,
+                    new StreamCorruptedException(e.getMessage()));
+        } finally {
+            pending.clear();
+            lock.unlock();
+        }
+    }
+
+    /** Con el lock tomado: el objeto n, decodificando él y lo que referencia que falte. */
+    private Object resolve(int n) throws IOException {
+        if (n < 0 || n >= objectCount) throw new StreamCorruptedException("Referencia inválida: " + n);
+        Object o = objects.getPlain(n);
+        if (o != null) return o;
+        o = pending.get(n);
+        if (o != null) return o;
+        int position = offset(data.getLong(objectTable + n * 8), objectTable);
+        Cursor in = new Cursor(position, objectTable);
+        GraphDecoder.ClassIn cls = classAt(in.count());
+        o = cls.metadata.newInstance();
+        pending.put(n, o); // antes de los campos: los ciclos apuntan a este objeto
+        decoder.readFields(cls, o, in);
+        return o;
+    }
+
+    private GraphDecoder.ClassIn classAt(int index) throws StreamCorruptedException {
+        if (index >= classes.length) throw new StreamCorruptedException("Clase inválida: " + index);
+        return classes[index];
+    }
+
+    private static int offset(long value, int limit) throws StreamCorruptedException {
+        if (value < 8 || value > limit) throw new StreamCorruptedException("Offset inválido: " + value);
+        return (int) value;
+    }
+
+    /** Lo propio de la imagen: referencias por número de objeto y strings sin internar. */
+    private final class Decoder extends GraphDecoder<Cursor> {
+
+        @Override
+        Object readRef(Cursor in) throws IOException {
+            long r = in.varint();
+            if (r == REF_NULL) return null;
+            if (r > objectCount) throw new StreamCorruptedException("Referencia inválida: " + (r - 1));
+            return resolve((int) (r - 1));
+        }
+
+        @Override
+        String fieldString(Cursor in, ClassIn cls, int field) throws IOException {
+            return in.string();
+        }
+
+        @Override
+        String anyString(Cursor in) throws IOException {
+            return in.string();
+        }
+
+        @Override
+        String schemaString(Cursor in) throws IOException {
+            return in.string();
+        }
+    }
+
+    /** Lectura secuencial con posiciones absolutas sobre el mapeo compartido (sin estado en el buffer). */
+    private final class Cursor implements GraphDecoder.ByteSource {
+        int position;
+        private final int limit;
+
+        Cursor(int position, int limit) {
+            this.position = position;
+            this.limit = limit;
+        }
+
+        @Override
+        public byte get() throws StreamCorruptedException {
+            check(1);
+            return data.get(position++);
+        }
+
+        @Override
+        public int getInt() throws StreamCorruptedException {
+            check(4);
+            int v = data.getInt(position);
+            position += 4;
+            return v;
+        }
+
+        @Override
+        public long getLong() throws StreamCorruptedException {
+            check(8);
+            long v = data.getLong(position);
+            position += 8;
+            return v;
+        }
+
+        @Override
+        public void get(byte[] dst) throws StreamCorruptedException {
+            check(dst.length);
+            data.get(position, dst);
+            position += dst.length;
+        }
+
+        /** [varint largo << 1 | ascii][bytes]: los ASCII se decodifican como Latin-1 (sin validar UTF-8). */
+        String string() throws IOException {
+            long v = varint();
+            if (v >>> 1 > Integer.MAX_VALUE) throw new StreamCorruptedException("String inválido");
+            int n = (int) (v >>> 1);
+            check(n); // antes de reservar: un largo corrupto no pide memoria
+            byte[] bytes = new byte[n];
+            get(bytes);
+            return new String(bytes, (v & 1) != 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        }
+
+        private void check(int n) throws StreamCorruptedException {
+            if (n < 0 || position > limit - n) throw new StreamCorruptedException("Registro cortado en " + position);
+        }
+    }
+
+    // ===================== Escritura =====================
+
+    /**
+     * Escribe secciones (repositorios) a una imagen nueva. Cada objeto alcanzable se escribe
+     * una sola vez aunque lo compartan varias secciones. No es thread-safe; los repositorios
+     * no deberían modificarse mientras se escriben.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path file;
+        private final Path temp;
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private long written; // bytes ya volcados al canal
+        private final Map<Class<?>, ClassOut> classes = new LinkedHashMap<>();
+        private final GraphCodec.IdentityIntMap numbers = new GraphCodec.IdentityIntMap();
+        private final ArrayDeque<Object> queue = new ArrayDeque<>();
+        private long[] offsets = new long[1_024];
+        private final List<SectionOut> sections = new ArrayList<>();
+        private boolean closed;
+        private boolean failed; // un add falló a mitad: close descarta el temporal
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buf.putInt(MAGIC);
+            buf.putInt(VERSION);
+        }
+
+        /** Agrega todas las entidades del repositorio como la sección name. */
+        public Writer add(String name, InMemoryRepository<?> repository) throws IOException {
+            Objects.requireNonNull(name, "name no puede ser null");
+            Objects.requireNonNull(repository, "repository no puede ser null");
+            if (closed) throw new IllegalStateException("Writer cerrado");
+            for (SectionOut s : sections) {
+                if (s.name.equals(name)) throw new IllegalArgumentException("Sección repetida: " + name);
+            }
+            failed = true;
+            List<long[]> entries = new ArrayList<>(); // {id, objeto}
+            repository.forEachEntry((id, entity) -> entries.add(new long[]{id, number(entity)}));
+            entries.sort(Comparator.comparingLong(e -> e[0]));
+            long[] ids = new long[entries.size()];
+            int[] objects = new int[entries.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = entries.get(i)[0];
+                objects[i] = (int) entries.get(i)[1];
+            }
+            // La secuencia del repositorio (no el mayor id guardado): si se borró el último
+            // id, el repositorio abierto de la imagen no debe volver a emitirlo
+            long sequence = Math.max(repository.currentSequence(), ids.length == 0 ? 0 : ids[ids.length - 1]);
+            sections.add(new SectionOut(name, ids, objects, Math.max(0, sequence)));
+            drain();
+            failed = false;
+            return this;
+        }
+
+        /** Escribe tablas, esquema y pie, y renombra el temporal al archivo final. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            boolean ok = false;
+            try {
+                if (failed) throw new IOException("Imagen descartada: falló la escritura de una sección");
+                drain();
+                long objectTable = position();
+                int count = numbers.size();
+                for (int i = 0; i < count; i++) {
+                    ensure(8);
+                    buf.putLong(offsets[i]);
+                }
+                long[] sectionOffsets = new long[sections.size()];
+                for (int s = 0; s < sections.size(); s++) {
+                    SectionOut section = sections.get(s);
+                    sectionOffsets[s] = position();
+                    for (int i = 0; i < section.ids.length; i++) {
+                        ensure(ENTRY_SIZE);
+                        buf.putLong(section.ids[i]);
+                        buf.putInt(section.objects[i]);
+                    }
+                }
+                long meta = position();
+                varint(classes.size());
+                for (ClassOut cls : classes.values()) {
+                    string(cls.type.getName());
+                    varint(cls.accessors.length);
+                    for (int i = 0; i < cls.accessors.length; i++) {
+                        string(cls.accessors[i].name());
+                        ensure(1);
+                        buf.put((byte) (cls.kinds[i] | (cls.nullable[i] ? NULLABLE : 0)));
+                    }
+                }
+                varint(sections.size());
+                for (int s = 0; s < sections.size(); s++) {
+                    SectionOut section = sections.get(s);
+                    string(section.name);
+                    varint(section.ids.length);
+                    varint(sectionOffsets[s]);
+                    varint(section.sequence);
+                }
+                ensure(FOOTER_SIZE);
+                buf.putLong(objectTable);
+                buf.putLong(meta);
+                buf.putInt(count);
+                buf.putInt(MAGIC);
+                flush();
+                if (written > Integer.MAX_VALUE) throw new IOException("La imagen supera los 2 GB");
+                channel.force(true);
+                ok = true;
+            } finally {
+                channel.close();
+                if (ok) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+
+        /** Número del objeto; si es nuevo, queda en cola para escribirse. */
+        private int number(Object o) {
+            int n = numbers.get(o);
+            if (n >= 0) return n;
+            n = numbers.size();
+            numbers.put(o, n);
+            queue.add(o);
+            return n;
+        }
+
+        private void drain() throws IOException {
+            for (Object o; (o = queue.poll()) != null; ) {
+                int n = numbers.get(o);
+                if (n >= offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                offsets[n] = position();
+                ClassOut cls = classOf(o.getClass());
+                varint(cls.index);
+                writeFields(cls, o);
+            }
+        }
+
+        private ClassOut classOf(Class<?> type) {
+            ClassOut cls = classes.get(type);
+            if (cls == null) {
+                cls = new ClassOut(classes.size(), type);
+                classes.put(type, cls);
+            }
+            return cls;
+        }
+
+        private void writeFields(ClassOut cls, Object o) throws IOException {
+            PropertyAccessor[] accessors = cls.accessors;
+            Object[] values = new Object[accessors.length];
+            int bits = 0;
+            int count = 0;
+            for (int i = 0; i < accessors.length; i++) {
+                values[i] = accessors[i].get(o);
+                if (!cls.nullable[i]) continue;
+                if (values[i] != null) bits |= 1 << (count & 7);
+                if ((++count & 7) == 0) {
+                    ensure(1);
+                    buf.put((byte) bits);
+                    bits = 0;
+                }
+            }
+            if ((count & 7) != 0) {
+                ensure(1);
+                buf.put((byte) bits);
+            }
+            for (int i = 0; i < accessors.length; i++) {
+                if (values[i] != null) writeValue(cls.kinds[i], values[i]);
+            }
+        }
+
+        private void writeValue(byte kind, Object value) throws IOException {
+            switch (kind) {
+                case K_BOOLEAN -> {
+                    ensure(1);
+                    buf.put((byte) ((Boolean) value ? 1 : 0));
+                }
+                case K_BYTE -> zigzag((Byte) value);
+                case K_SHORT -> zigzag((Short) value);
+                case K_CHAR -> varint((Character) value);
+                case K_INT -> zigzag((Integer) value);
+                case K_LONG -> zigzag((Long) value);
+                case K_FLOAT -> {
+                    ensure(4);
+                    buf.putFloat((Float) value);
+                }
+                case K_DOUBLE -> {
+                    ensure(8);
+                    buf.putDouble((Double) value);
+                }
+                case K_STRING -> string((String) value);
+                case K_ENUM -> string(((Enum<?>) value).name());
+                case K_TIME -> time((LocalTime) value);
+                case K_DATE -> zigzag(((LocalDate) value).toEpochDay());
+                case K_DATETIME -> {
+                    zigzag(((LocalDateTime) value).toLocalDate().toEpochDay());
+                    time(((LocalDateTime) value).toLocalTime());
+                }
+                case K_REF -> varint(number(value) + 1L);
+                case K_COLLECTION -> writeCollection((Collection<?>) value);
+                case K_MAP -> writeMap((Map<?, ?>) value);
+                default -> throw new IllegalStateException("Tipo de campo desconocido: " + kind);
+            }
+        }
+
+        private void writeCollection(Collection<?> c) throws IOException {
+            byte kind;
+            if (c instanceof LinkedHashSet<?>) kind = C_LINKED_HASH_SET;
+            else if (c instanceof SortedSet<?> s && s.comparator() == null) kind = C_TREE_SET;
+            else if (c instanceof Set<?>) kind = C_HASH_SET;
+            else if (c instanceof List<?>) kind = C_ARRAY_LIST;
+            else throw new IllegalArgumentException("Colección no soportada: " + c.getClass().getName());
+            ensure(1);
+            buf.put(kind);
+            varint(c.size());
+            for (Object e : c) writeAny(e);
+        }
+
+        private void writeMap(Map<?, ?> m) throws IOException {
+            byte kind;
+            if (m instanceof LinkedHashMap<?, ?>) kind = C_LINKED_HASH_MAP;
+            else if (m instanceof SortedMap<?, ?> s && s.comparator() == null) kind = C_TREE_MAP;
+            else kind = C_HASH_MAP;
+            ensure(1);
+            buf.put(kind);
+            varint(m.size());
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                writeAny(e.getKey());
+                writeAny(e.getValue());
+            }
+        }
+
+        private void writeAny(Object value) throws IOException {
+            ensure(1);
+            switch (value) {
+                case null -> buf.put(A_NULL);
+                case String s -> {
+                    buf.put(A_STRING);
+                    string(s);
+                }
+                case Integer i -> {
+                    buf.put(A_INT);
+                    zigzag(i);
+                }
+                case Long l -> {
+                    buf.put(A_LONG);
+                    zigzag(l);
+                }
+                case Double d -> {
+                    buf.put(A_DOUBLE);
+                    ensure(8);
+                    buf.putDouble(d);
+                }
+                case Boolean b -> {
+                    buf.put(A_BOOLEAN);
+                    ensure(1);
+                    buf.put((byte) (b ? 1 : 0));
+                }
+                default -> {
+                    if (GraphCodec.kindOf(value.getClass()) != K_REF) {
+                        throw new IllegalArgumentException("Tipo no soportado como elemento: " + value.getClass().getName());
+                    }
+                    buf.put(A_OBJECT);
+                    varint(number(value) + 1L);
+                }
+            }
+        }
+
+        // ----- Primitivas -----
+
+        private void time(LocalTime t) throws IOException {
+            varint(t.getNano() == 0 ? (long) t.toSecondOfDay() << 1 : t.toNanoOfDay() << 1 | 1);
+        }
+
+        private void string(String s) throws IOException {
+            boolean ascii = true;
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+            byte[] bytes = s.getBytes(ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+            varint((long) bytes.length << 1 | (ascii ? 1 : 0));
+            for (int off = 0; off < bytes.length; ) {
+                if (!buf.hasRemaining()) flush();
+                int len = Math.min(buf.remaining(), bytes.length - off);
+                buf.put(bytes, off, len);
+                off += len;
+            }
+        }
+
+        private void zigzag(long v) throws IOException {
+            varint(v << 1 ^ v >> 63);
+        }
+
+        private void varint(long v) throws IOException {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf.put((byte) (v & 0x7F | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+
+        private long position() {
+            return written + buf.position();
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) flush();
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) written += channel.write(buf);
+            buf.clear();
+        }
+    }
+
+    private record SectionOut(String name, long[] ids, int[] objects, long sequence) {
+    }
+
+    /** Esquema de una clase para escribir: accessors en orden y tipo de cada campo. */
+    private static final class ClassOut {
+        final int index;
+        final Class<?> type;
+        final PropertyAccessor[] accessors;
+        final byte[] kinds;
+        final boolean[] nullable;
+
+        ClassOut(int index, Class<?> type) {
+            this.index = index;
+            this.type = type;
+            this.accessors = EntityMetadata.of(type).properties().toArray(PropertyAccessor[]::new);
+            int n = accessors.length;
+            this.kinds = new byte[n];
+            this.nullable = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                Class<?> t = accessors[i].type();
+                kinds[i] = GraphCodec.kindOf(t);
+                nullable[i] = !t.isPrimitive();
+            }
+        }
+    }
+}
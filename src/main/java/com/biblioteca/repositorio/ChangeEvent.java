@@ -0,0 +1,17 @@
+package com.biblioteca.repositorio;
+
+/**
+ * Un cambio publicado por ChangeStream, en orden de sequence (1, 2, 3, ... sin huecos).
+ * - SAVED: before = la entidad que tenía ese id antes (o null si es alta), after = la guardada.
+ * - UPDATED: after = la entidad (modificada en el lugar, así que no hay before); field,
+ *   oldValue y newValue describen el cambio.
+ * - DELETED: before = la entidad borrada, after = null.
+ * Las entidades son las del repositorio, no copias: un cambio posterior también se ve acá.
+ */
+public record ChangeEvent<T>(long sequence, Type type, long id, T before, T after,
+                             String field, Object oldValue, Object newValue) {
+
+    public enum Type {
+        SAVED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,291 @@
+package com.biblioteca.repositorio;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Change-data-capture de un InMemoryRepository: cada save/genericUpdate/genericDelete
+ * (y los lotes) publica un ChangeEvent numerado en un ring buffer acotado.
+ * - Escritura sin locks propios: el escritor reserva la secuencia con un getAndIncrement y
+ *   deja el evento en su casillero; nunca espera a los consumidores. Si un consumidor se
+ *   atrasa más que la capacidad, sus eventos se pisan y recibe ChangeStreamOverflowException.
+ * - Orden: el repositorio publica con el lock del id tomado, así que los eventos de un mismo
+ *   id tienen secuencias crecientes en el orden en que se aplicaron y reproducirlos deja el
+ *   estado del repositorio. Entre ids distintos la secuencia no implica orden de escritura.
+ * - Consumo por java.util.concurrent.Flow con backpressure: cada suscripción entrega a
+ *   lo sumo lo pedido con request(n), en orden, desde un Executor (por defecto el pool común).
+ * - subscribe(s, fromSequence) retoma desde una secuencia (ej: la última procesada + 1)
+ *   mientras siga en el buffer; subscribe(s) recibe solo lo que se publique desde ahora.
+ * - Un consumidor al día queda "esperando" y el escritor lo despierta; con consumidores
+ *   ocupados el escritor solo lee un flag por suscripción.
+ * - El buffer retiene las últimas capacity entidades publicadas (son referencias, no copias).
+ */
+public final class ChangeStream<T> implements RepositoryListener<T>, Flow.Publisher<ChangeEvent<T>>, Closeable {
+
+    @SuppressWarnings("rawtypes")
+    private static final ChangeSubscription[] NO_SUBSCRIPTIONS = new ChangeSubscription[0];
+
+    private final InMemoryRepository<T> repository;
+    private final AtomicReferenceArray<ChangeEvent<T>> ring;
+    private final int mask;
+    private final Executor executor;
+    private final AtomicLong nextSequence = new AtomicLong(1L);
+    private final Object subscriptionsLock = new Object();
+    @SuppressWarnings("unchecked")
+    private volatile ChangeSubscription<T>[] subscriptions = NO_SUBSCRIPTIONS;
+    private volatile boolean closed;
+
+    private ChangeStream(InMemoryRepository<T> repository, int capacity, Executor executor) {
+        this.repository = repository;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.executor = executor;
+    }
+
+    /** Publica los cambios del repositorio en un buffer de capacity eventos (se redondea a potencia de 2). */
+    public static <T> ChangeStream<T> attach(InMemoryRepository<T> repository, int capacity) {
+        return attach(repository, capacity, ForkJoinPool.commonPool());
+    }
+
+    public static <T> ChangeStream<T> attach(InMemoryRepository<T> repository, int capacity, Executor executor) {
+        Objects.requireNonNull(repository, "repository no puede ser null");
+        Objects.requireNonNull(executor, "executor no puede ser null");
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity debe estar entre 2 y 2^30");
+        }
+        int rounded = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        ChangeStream<T> stream = new ChangeStream<>(repository, rounded, executor);
+        repository.addListener(stream);
+        return stream;
+    }
+
+    // ===================== Publicación (RepositoryListener) =====================
+
+    @Override
+    public void onSaved(long id, T previous, T entity) {
+        publish(ChangeEvent.Type.SAVED, id, previous, entity, null, null, null);
+    }
+
+    @Override
+    public void onUpdated(long id, T entity, String fieldName, Object oldValue, Object newValue) {
+        publish(ChangeEvent.Type.UPDATED, id, null, entity, fieldName, oldValue, newValue);
+    }
+
+    @Override
+    public void onDeleted(long id, T entity) {
+        publish(ChangeEvent.Type.DELETED, id, entity, null, null, null, null);
+    }
+
+    private void publish(ChangeEvent.Type type, long id, T before, T after,
+                         String field, Object oldValue, Object newValue) {
+        if (closed) return;
+        long sequence = nextSequence.getAndIncrement();
+        ChangeEvent<T> event = new ChangeEvent<>(sequence, type, id, before, after, field, oldValue, newValue);
+        int slot = (int) sequence & mask;
+        // Un escritor demorado no pisa a uno que ya dio la vuelta al buffer
+        ChangeEvent<T> current;
+        do {
+            current = ring.get(slot);
+            if (current != null && current.sequence() > sequence) break;
+        } while (!ring.compareAndSet(slot, current, event));
+        for (ChangeSubscription<T> s : subscriptions) {
+            if (s.waiting) s.wakeUp();
+        }
+    }
+
+    // ===================== Suscripción (Flow.Publisher) =====================
+
+    /** Recibe los eventos que se publiquen desde ahora. */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeEvent<T>> subscriber) {
+        subscribe(subscriber, nextSequence.get());
+    }
+
+    /**
+     * Recibe los eventos desde fromSequence inclusive (ej: la última procesada + 1).
+     * Si ya no está en el buffer el suscriptor recibe ChangeStreamOverflowException.
+     */
+    public void subscribe(Flow.Subscriber<? super ChangeEvent<T>> subscriber, long fromSequence) {
+        Objects.requireNonNull(subscriber, "subscriber no puede ser null");
+        if (fromSequence < 1 || fromSequence > nextSequence.get()) {
+            throw new IllegalArgumentException("fromSequence fuera de rango: " + fromSequence
+                    + " (próxima secuencia " + nextSequence.get() + ")");
+        }
+        ChangeSubscription<T> s = new ChangeSubscription<>(this, subscriber, fromSequence);
+        synchronized (subscriptionsLock) {
+            ChangeSubscription<T>[] copy = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+            copy[copy.length - 1] = s;
+            subscriptions = copy;
+        }
+        s.signal(); // onSubscribe sale desde el executor, serializado con el resto
+    }
+
+    /** Secuencia que recibirá el próximo evento. */
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    /** El evento más viejo que todavía se puede pedir con subscribe(s, fromSequence). */
+    public long oldestSequence() {
+        return Math.max(1L, nextSequence.get() - ring.length());
+    }
+
+    public int capacity() {
+        return ring.length();
+    }
+
+    /** Deja de publicar, se desengancha del repositorio y completa a los suscriptores al vaciar el buffer. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        repository.removeListener(this);
+        for (ChangeSubscription<T> s : subscriptions) s.signal();
+    }
+
+    private void remove(ChangeSubscription<T> s) {
+        synchronized (subscriptionsLock) {
+            ChangeSubscription<T>[] current = subscriptions;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == s) {
+                    ChangeSubscription<T>[] copy = Arrays.copyOf(current, current.length - 1);
+                    System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                    subscriptions = copy;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Una suscripción. Las señales (request, cancel, eventos nuevos, close) incrementan wip y
+     * solo la primera agenda drain en el executor: a lo sumo un hilo entrega por suscripción.
+     */
+    private static final class ChangeSubscription<T> implements Flow.Subscription, Runnable {
+
+        private final ChangeStream<T> stream;
+        private final Flow.Subscriber<? super ChangeEvent<T>> subscriber;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+        // Sin datos nuevos y con demanda: el próximo publish tiene que despertarla
+        volatile boolean waiting;
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        // Solo desde drain
+        private long next;
+        private boolean started;
+        private boolean done;
+
+        ChangeSubscription(ChangeStream<T> stream, Flow.Subscriber<? super ChangeEvent<T>> subscriber, long from) {
+            this.stream = stream;
+            this.subscriber = subscriber;
+            this.next = from;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request(n) requiere n > 0, no " + n);
+            } else {
+                demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            stream.remove(this);
+        }
+
+        void wakeUp() {
+            waiting = false;
+            signal();
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) stream.executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!done) drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            try {
+                if (!started) {
+                    started = true;
+                    subscriber.onSubscribe(this);
+                }
+                if (invalidRequest != null) {
+                    finish(invalidRequest);
+                    return;
+                }
+                AtomicReferenceArray<ChangeEvent<T>> ring = stream.ring;
+                long delivered = 0;
+                long requested = demand.get();
+                while (!cancelled) {
+                    if (delivered == requested) {
+                        // Se agotó lo pedido: descontarlo y ver si llegó más demanda mientras tanto
+                        requested = demand.addAndGet(-delivered);
+                        delivered = 0;
+                        if (requested == 0) return;
+                    }
+                    ChangeEvent<T> event = ring.get((int) next & stream.mask);
+                    if (event == null || event.sequence() < next) {
+                        if (stream.closed && next >= stream.nextSequence.get()) {
+                            finish(null);
+                            return;
+                        }
+                        // Marcar la espera y volver a mirar: el escritor publica y después lee waiting
+                        waiting = true;
+                        event = ring.get((int) next & stream.mask);
+                        if (event == null || event.sequence() < next) {
+                            if (delivered > 0 && requested != Long.MAX_VALUE) demand.addAndGet(-delivered);
+                            return;
+                        }
+                        waiting = false;
+                    }
+                    if (event.sequence() > next) {
+                        finish(new ChangeStreamOverflowException(next, stream.oldestSequence()));
+                        return;
+                    }
+                    subscriber.onNext(event);
+                    next++;
+                    if (requested != Long.MAX_VALUE) delivered++;
+                }
+                finish(null);
+            } catch (Throwable t) {
+                // El suscriptor lanzó (regla 2.13 de Flow): se cancela la suscripción
+                cancelled = true;
+                done = true;
+                stream.remove(this);
+            }
+        }
+
+        /** Termina con onError(error), o con onComplete si error es null y no fue cancelada. */
+        private void finish(Throwable error) {
+            done = true;
+            waiting = false;
+            stream.remove(this);
+            if (error != null) {
+                cancelled = true;
+                subscriber.onError(error);
+            } else if (!cancelled) {
+                subscriber.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.biblioteca.repositorio;
+
+/**
+ * El suscriptor quedó más atrás que la capacidad del ChangeStream: los eventos desde
+ * requestedSequence ya se sobrescribieron. Para seguir hay que re-sincronizar (ej: findAll)
+ * y volver a suscribirse desde oldestAvailable o desde el final.
+ */
+public class ChangeStreamOverflowException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long requestedSequence;
+    private final long oldestAvailable;
+
+    public ChangeStreamOverflowException(long requestedSequence, long oldestAvailable) {
+        super("El evento " + requestedSequence + " ya no está en el ChangeStream (el más viejo es " + oldestAvailable + ")");
+        this.requestedSequence = requestedSequence;
+        this.oldestAvailable = oldestAvailable;
+    }
+
+    public long requestedSequence() {
+        return requestedSequence;
+    }
+
+    public long oldestAvailable() {
+        return oldestAvailable;
+    }
+}
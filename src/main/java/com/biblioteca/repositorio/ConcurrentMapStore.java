@@ -0,0 +1,50 @@
+package com.biblioteca.repositorio;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Store por defecto: ConcurrentHashMap&lt;Long, T&gt;.
+ * - Cada entrada lleva nodo + Long en caja; ver LongHashStore para la versión primitiva.
+ */
+public final class ConcurrentMapStore<T> implements EntityStore<T> {
+
+    private final Map<Long, T> map = new ConcurrentHashMap<>();
+
+    @Override
+    public T get(long id) {
+        return map.get(id);
+    }
+
+    @Override
+    public T put(long id, T entity) {
+        return map.put(id, entity);
+    }
+
+    @Override
+    public T remove(long id) {
+        return map.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        map.values().forEach(action);
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer<? super T> action) {
+        map.forEach((id, entity) -> action.accept(id, entity));
+    }
+
+    @Override
+    public Stream<T> values() {
+        return map.values().stream();
+    }
+}
@@ -0,0 +1,16 @@
+package com.biblioteca.repositorio;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codificación binaria de una entidad (persistencia, exportación).
+ * - encode y decode deben ser simétricos; el id viaja por fuera del codec.
+ */
+public interface EntityCodec<T> {
+
+    void encode(T entity, DataOutput out) throws IOException;
+
+    T decode(DataInput in) throws IOException;
+}
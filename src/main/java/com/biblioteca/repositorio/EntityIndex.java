@@ -0,0 +1,36 @@
+package com.biblioteca.repositorio;
+
+import java.util.Objects;
+
+/**
+ * Índice secundario mantenido por InMemoryRepository.
+ * - El repositorio serializa las escrituras que tocan índices (save/update/delete/reindex).
+ * - Las lecturas no toman locks.
+ */
+abstract class EntityIndex<T> {
+
+    private final String fieldName;
+
+    EntityIndex(String fieldName) {
+        this.fieldName = Objects.requireNonNull(fieldName, "fieldName no puede ser null");
+    }
+
+    String fieldName() {
+        return fieldName;
+    }
+
+    /** Valor actual de la propiedad indexada en la entidad. */
+    Object keyOf(T entity) {
+        return EntityMetadata.of(entity.getClass()).property(fieldName).get(entity);
+    }
+
+    /** Lanza IllegalStateException si indexar la entidad violaría una restricción. */
+    void checkConstraints(Long id, T entity) {
+    }
+
+    /** Indexa (o re-indexa) la entidad con ese id. */
+    abstract void put(Long id, T entity);
+
+    /** Quita el id del índice (no falla si no estaba). */
+    abstract void remove(Long id);
+}
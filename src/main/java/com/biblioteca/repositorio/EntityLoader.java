@@ -0,0 +1,19 @@
+package com.biblioteca.repositorio;
+
+import java.io.IOException;
+
+/**
+ * Fuente lenta (archivo, base de datos, servicio) de la que un BoundedStore
+ * trae las entidades que no están en memoria (read-through).
+ */
+@FunctionalInterface
+public interface EntityLoader<T> {
+
+    /** La entidad con ese id (con el id ya seteado), o null si no existe. */
+    T load(long id) throws IOException;
+
+    /** Mayor id existente en la fuente: la secuencia del repositorio arranca desde ahí. */
+    default long maxId() throws IOException {
+        return 0L;
+    }
+}
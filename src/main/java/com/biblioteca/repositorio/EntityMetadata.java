@@ -0,0 +1,216 @@
+package com.biblioteca.repositorio;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Metadatos de acceso de una clase de entidad.
+ * - Se construyen una sola vez por clase (cache con ClassValue).
+ * - Incluye los campos heredados (ej: ArticuloInsumo hereda id/denominacion de Articulo).
+ * - Lectura/escritura del id sin reflexión ni excepciones en el camino caliente.
+ */
+final class EntityMetadata {
+
+    private static final ClassValue<EntityMetadata> CACHE = new ClassValue<>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+            return new EntityMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final Map<String, PropertyAccessor> properties;
+    private final PropertyAccessor id;
+    private final PropertyAccessor[] accessors;
+    private final boolean[] isContainer; // Collection/Map: copy() los duplica
+    private final boolean instantiable;
+    private volatile MethodHandle constructor;
+
+    private EntityMetadata(Class<?> type) {
+        this.type = type;
+
+        // De la superclase hacia abajo: un campo de la subclase oculta al heredado
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.push(c);
+        }
+        Map<String, PropertyAccessor> props = new LinkedHashMap<>();
+        for (Class<?> c : hierarchy) {
+            for (Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || f.isSynthetic()) continue;
+                props.put(f.getName(), PropertyAccessor.of(type, f));
+            }
+        }
+        this.properties = Collections.unmodifiableMap(props);
+        this.id = props.get("id");
+        this.accessors = props.values().toArray(PropertyAccessor[]::new);
+        this.instantiable = !type.isInterface() && !Modifier.isAbstract(type.getModifiers()) && hasNoArgConstructor(type);
+        this.isContainer = new boolean[accessors.length];
+        for (int i = 0; i < accessors.length; i++) {
+            Class<?> t = accessors[i].type();
+            isContainer[i] = Collection.class.isAssignableFrom(t) || Map.class.isAssignableFrom(t);
+        }
+    }
+
+    private static boolean hasNoArgConstructor(Class<?> type) {
+        try {
+            type.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    static EntityMetadata of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    Class<?> type() {
+        return type;
+    }
+
+    Collection<PropertyAccessor> properties() {
+        return properties.values();
+    }
+
+    /** Accessor de la propiedad, o null si la clase no la tiene. */
+    PropertyAccessor findProperty(String name) {
+        return properties.get(name);
+    }
+
+    /** Accessor de la propiedad o IllegalArgumentException si no existe. */
+    PropertyAccessor property(String name) {
+        PropertyAccessor p = properties.get(name);
+        if (p == null) {
+            throw new IllegalArgumentException(
+                    "No existe el campo '" + name + "' en " + type.getSimpleName());
+        }
+        return p;
+    }
+
+    /** Si newInstance/copy funcionan: clase concreta con constructor sin argumentos. */
+    boolean isInstantiable() {
+        return instantiable;
+    }
+
+    /**
+     * Para las listas de clases permitidas de los decodificadores: una clase concreta sin
+     * constructor sin argumentos (ej: ArticuloInsumoColumnar) se rechaza al abrir, no al
+     * encontrarla a mitad de la lectura. Las abstractas e interfaces pasan (solo se nombran).
+     */
+    static void requireDecodable(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isEnum()) return;
+        if (!of(type).isInstantiable()) {
+            throw new IllegalArgumentException(type.getSimpleName()
+                    + " no tiene constructor sin argumentos: no se puede decodificar");
+        }
+    }
+
+    /** Nueva instancia con el constructor sin argumentos (@NoArgsConstructor de Lombok). */
+    Object newInstance() {
+        MethodHandle ctor = constructor;
+        if (ctor == null) {
+            if (Modifier.isAbstract(type.getModifiers())) {
+                throw new IllegalStateException(type.getSimpleName() + " es abstracta, no se puede instanciar");
+            }
+            try {
+                ctor = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                        .findConstructor(type, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalStateException(type.getSimpleName() + " no tiene constructor sin argumentos", e);
+            }
+            constructor = ctor;
+        }
+        try {
+            return ctor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("No se pudo instanciar " + type.getSimpleName(), t);
+        }
+    }
+
+    /**
+     * Copia superficial: mismos valores, pero las colecciones (ej: detalles) se copian
+     * para que modificar la copia no toque al original.
+     */
+    Object copy(Object source) {
+        Object copy = newInstance();
+        for (int i = 0; i < accessors.length; i++) {
+            Object value = accessors[i].get(source);
+            accessors[i].set(copy, isContainer[i] ? copyValue(value) : value);
+        }
+        return copy;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof SortedSet<?> s) return new TreeSet<>(s);
+        if (value instanceof LinkedHashSet<?> s) return new LinkedHashSet<>(s);
+        if (value instanceof Set<?> s) return new HashSet<>(s);
+        if (value instanceof List<?> l) return new ArrayList<>(l);
+        if (value instanceof SortedMap<?, ?> m) return new TreeMap<>(m);
+        if (value instanceof LinkedHashMap<?, ?> m) return new LinkedHashMap<>(m);
+        if (value instanceof Map<?, ?> m) return new HashMap<>(m);
+        return value;
+    }
+
+    boolean hasId() {
+        return id != null;
+    }
+
+    Long readId(Object entity) {
+        return id == null ? null : coerceToLongOrNull(id.get(entity));
+    }
+
+    void writeId(Object entity, long value) {
+        if (id == null) {
+            throw new IllegalStateException("No se pudo asignar id: "
+                    + type.getSimpleName() + " no tiene campo 'id'");
+        }
+        Class<?> t = id.type();
+        if (t.equals(Long.class) || t.equals(long.class)) {
+            id.set(entity, value);
+        } else if (t.equals(Integer.class) || t.equals(int.class)) {
+            id.set(entity, (int) value);
+        } else if (t.equals(String.class)) {
+            id.set(entity, String.valueOf(value));
+        } else {
+            throw new IllegalStateException("Tipo de id no soportado: " + t.getSimpleName());
+        }
+    }
+
+    static Long coerceToLongOrNull(Object value) {
+        if (value == null) return null;
+        if (value instanceof Long l)    return l;
+        if (value instanceof Integer i) return i.longValue();
+        if (value instanceof Short s)   return s.longValue();
+        if (value instanceof String s) {
+            try {
+                return Long.valueOf(s);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.biblioteca.repositorio;
+
+/**
+ * Propiedad tipada de una entidad (getter y setter directos), sin reflexión.
+ * Las generan los repositorios de @GenerateRepository; ver InMemoryRepository.updateProperty.
+ */
+public interface EntityProperty<T, V> {
+
+    /** Nombre del campo (el mismo que usan genericUpdate, los índices y los listeners). */
+    String name();
+
+    V get(T entity);
+
+    void set(T entity, V value);
+}
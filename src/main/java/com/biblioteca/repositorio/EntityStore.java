@@ -0,0 +1,39 @@
+package com.biblioteca.repositorio;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Motor de almacenamiento id -> entidad de InMemoryRepository.
+ * - Claves long primitivas (los ids Integer/Long de las entidades se normalizan a long).
+ * - Implementaciones concurrentes; los recorridos son débilmente consistentes.
+ */
+public interface EntityStore<T> {
+
+    /** La entidad con ese id, o null. */
+    T get(long id);
+
+    /** Guarda la entidad y devuelve la anterior (o null). */
+    T put(long id, T entity);
+
+    /** Quita el id y devuelve la entidad que tenía (o null). */
+    T remove(long id);
+
+    /** Aviso de que la entidad guardada en id se modificó en el lugar (genericUpdate/updateAll). */
+    default void updated(long id, T entity) {
+    }
+
+    int size();
+
+    void forEach(Consumer<? super T> action);
+
+    void forEachEntry(EntryConsumer<? super T> action);
+
+    Stream<T> values();
+
+    /** Recibe id (sin boxing) y entidad. */
+    @FunctionalInterface
+    interface EntryConsumer<T> {
+        void accept(long id, T entity);
+    }
+}
@@ -0,0 +1,15 @@
+package com.biblioteca.repositorio;
+
+import java.io.IOException;
+
+/**
+ * Destino de las escrituras de un BoundedStore (write-behind o write-through).
+ * - Recibe el estado final de cada id: varias escrituras seguidas pueden llegar como una.
+ * - Debe ser idempotente: ante un error se reintenta la misma escritura.
+ */
+public interface EntityWriter<T> {
+
+    void write(long id, T entity) throws IOException;
+
+    void delete(long id) throws IOException;
+}
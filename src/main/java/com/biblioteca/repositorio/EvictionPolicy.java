@@ -0,0 +1,40 @@
+package com.biblioteca.repositorio;
+
+/**
+ * Qué entrada desaloja un BoundedStore cuando se pasa del máximo.
+ * - lru: la usada hace más tiempo.
+ * - windowTinyLfu: W-TinyLFU (ventana LRU chica + SLRU con admisión por frecuencia estimada).
+ *   Resiste recorridos completos (findAll, reportes) que con LRU vacían el caché.
+ * - El peso de cada entrada lo decide el store (1 por entidad, o su Weigher).
+ * - El store llama a todos los métodos bajo su propio lock: las implementaciones no
+ *   necesitan ser thread-safe, pero una instancia sirve a un solo store.
+ */
+public interface EvictionPolicy {
+
+    static EvictionPolicy lru() {
+        return new LruPolicy();
+    }
+
+    static EvictionPolicy windowTinyLfu() {
+        return new WindowTinyLfuPolicy();
+    }
+
+    /** Peso máximo del store; se llama una vez, antes de cualquier otro método. */
+    default void setMaximum(long maximumWeight) {
+    }
+
+    /** Alta (o reemplazo) de la entrada con su peso. */
+    void recordWrite(long id, long weight);
+
+    /** Lectura que encontró la entrada en memoria (el store puede descartar algunas bajo contención). */
+    void recordAccess(long id);
+
+    /** La entrada salió del store (borrado); no se vuelve a devolver como víctima. */
+    void recordRemoval(long id);
+
+    /** Suma de los pesos de las entradas registradas. */
+    long weightedSize();
+
+    /** Id de la entrada a desalojar (la política la olvida), o -1 si no hay entradas. */
+    long victim();
+}
@@ -0,0 +1,82 @@
+package com.biblioteca.repositorio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * Fuente en disco para BoundedStore: un archivo por entidad (&lt;id&gt;.bin) codificado con un EntityCodec.
+ * - Sirve de ejemplo y para pruebas; una base de datos real implementaría EntityLoader/EntityWriter.
+ * - Cada escritura va a un temporal y se renombra: un lector nunca ve un archivo a medias.
+ */
+public final class FileEntitySource<T> implements EntityLoader<T>, EntityWriter<T> {
+
+    private static final String SUFFIX = ".bin";
+
+    private final Path dir;
+    private final EntityCodec<T> codec;
+
+    public FileEntitySource(Path dir, EntityCodec<T> codec) {
+        this.dir = Objects.requireNonNull(dir, "dir no puede ser null");
+        this.codec = Objects.requireNonNull(codec, "codec no puede ser null");
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear " + dir, e);
+        }
+    }
+
+    @Override
+    public T load(long id) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(fileOf(id))))) {
+            T entity = codec.decode(in);
+            EntityMetadata.of(entity.getClass()).writeId(entity, id);
+            return entity;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long maxId() throws IOException {
+        long max = 0L;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                try {
+                    max = Math.max(max, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // No es un archivo de entidad
+                }
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public void write(long id, T entity) throws IOException {
+        Path tmp = dir.resolve(id + SUFFIX + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            codec.encode(entity, out);
+        }
+        Files.move(tmp, fileOf(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void delete(long id) throws IOException {
+        Files.deleteIfExists(fileOf(id));
+    }
+
+    private Path fileOf(long id) {
+        return dir.resolve(id + SUFFIX);
+    }
+}
@@ -0,0 +1,180 @@
+package com.biblioteca.repositorio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Condición de una Query, componible con and/or.
+ * - El campo puede ser una ruta: "categoria.denominacion" (null en el camino = no coincide,
+ *   salvo eq(campo, null)).
+ * - eq/in comparan los valores tal cual, como en genericFindByField: deben ser del tipo del
+ *   campo (ej: precioVenta es Double, así que eq("precioVenta", 10.0), no 10).
+ * - Los límites de range se convierten al tipo del campo como en genericUpdate (10 sirve
+ *   para un Double); si no se puede sin perder el valor (10.5 para un Long), la consulta
+ *   falla con IllegalArgumentException.
+ * - range y prefix ignoran los valores null.
+ */
+public sealed interface Filter {
+
+    static Filter eq(String field, Object value) {
+        return new Eq(field, value);
+    }
+
+    static Filter in(String field, Object... values) {
+        return in(field, Arrays.asList(values));
+    }
+
+    static Filter in(String field, Collection<?> values) {
+        Objects.requireNonNull(values, "values no puede ser null");
+        return new In(field, Collections.unmodifiableSet(new HashSet<>(values)));
+    }
+
+    /** from/to null = sin límite. */
+    static Filter range(String field, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        return new Range(field, comparable(from), fromInclusive, comparable(to), toInclusive);
+    }
+
+    /** from <= campo <= to. */
+    static Filter between(String field, Object from, Object to) {
+        return range(field, from, true, to, true);
+    }
+
+    static Filter gt(String field, Object value) {
+        return range(field, Objects.requireNonNull(value, "value no puede ser null"), false, null, false);
+    }
+
+    static Filter ge(String field, Object value) {
+        return range(field, Objects.requireNonNull(value, "value no puede ser null"), true, null, false);
+    }
+
+    static Filter lt(String field, Object value) {
+        return range(field, null, false, Objects.requireNonNull(value, "value no puede ser null"), false);
+    }
+
+    static Filter le(String field, Object value) {
+        return range(field, null, false, Objects.requireNonNull(value, "value no puede ser null"), true);
+    }
+
+    static Filter prefix(String field, String prefix) {
+        return new Prefix(field, Objects.requireNonNull(prefix, "prefix no puede ser null"));
+    }
+
+    static Filter and(Filter... filters) {
+        return new And(flatten(filters, And.class));
+    }
+
+    static Filter or(Filter... filters) {
+        return new Or(flatten(filters, Or.class));
+    }
+
+    default Filter and(Filter other) {
+        return and(this, other);
+    }
+
+    default Filter or(Filter other) {
+        return or(this, other);
+    }
+
+    // ===================== Condiciones =====================
+
+    record Eq(String field, Object value) implements Filter {
+        public Eq {
+            Objects.requireNonNull(field, "field no puede ser null");
+        }
+    }
+
+    record In(String field, Set<Object> values) implements Filter {
+        public In {
+            Objects.requireNonNull(field, "field no puede ser null");
+            Objects.requireNonNull(values, "values no puede ser null");
+        }
+    }
+
+    record Range(String field, Comparable<Object> from, boolean fromInclusive,
+                 Comparable<Object> to, boolean toInclusive) implements Filter {
+        public Range {
+            Objects.requireNonNull(field, "field no puede ser null");
+            if (from == null && to == null) {
+                throw new IllegalArgumentException("range sobre '" + field + "' necesita al menos un límite");
+            }
+        }
+
+        /** El mismo rango con los límites convertidos a keyType (this si ya eran de ese tipo). */
+        Range withKeyType(Class<?> keyType) {
+            Comparable<Object> f = bound(field, from, keyType);
+            Comparable<Object> t = bound(field, to, keyType);
+            return f == from && t == to ? this : new Range(field, f, fromInclusive, t, toInclusive);
+        }
+
+        /** Un límite convertido al tipo de las claves, o IllegalArgumentException si no se puede. */
+        static Comparable<Object> bound(String field, Object value, Class<?> keyType) {
+            if (value == null || keyType.isInstance(value)) return comparable(value);
+            try {
+                return comparable(PropertyAccessor.convertValue(value, keyType));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("El límite " + value + " (" + value.getClass().getSimpleName()
+                        + ") no es compatible con '" + field + "' (" + keyType.getSimpleName() + ")", e);
+            }
+        }
+
+        boolean matches(Object value) {
+            if (value == null) return false;
+            if (from != null) {
+                int c = from.compareTo(value);
+                if (c > 0 || (c == 0 && !fromInclusive)) return false;
+            }
+            if (to != null) {
+                int c = to.compareTo(value);
+                if (c < 0 || (c == 0 && !toInclusive)) return false;
+            }
+            return true;
+        }
+    }
+
+    record Prefix(String field, String prefix) implements Filter {
+        public Prefix {
+            Objects.requireNonNull(field, "field no puede ser null");
+            Objects.requireNonNull(prefix, "prefix no puede ser null");
+        }
+    }
+
+    record And(List<Filter> filters) implements Filter {
+        public And {
+            filters = List.copyOf(filters);
+            if (filters.isEmpty()) throw new IllegalArgumentException("and necesita al menos una condición");
+        }
+    }
+
+    record Or(List<Filter> filters) implements Filter {
+        public Or {
+            filters = List.copyOf(filters);
+            if (filters.isEmpty()) throw new IllegalArgumentException("or necesita al menos una condición");
+        }
+    }
+
+    // ===================== Helpers =====================
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        if (value == null || value instanceof Comparable<?>) return (Comparable<Object>) value;
+        throw new IllegalArgumentException("range requiere valores Comparable, no " + value.getClass().getSimpleName());
+    }
+
+    /** and(and(a, b), c) -> and(a, b, c): el planificador ve todas las condiciones juntas. */
+    private static List<Filter> flatten(Filter[] filters, Class<? extends Filter> kind) {
+        List<Filter> result = new ArrayList<>(filters.length);
+        for (Filter f : filters) {
+            Objects.requireNonNull(f, "filter no puede ser null");
+            if (kind == And.class && f instanceof And and) result.addAll(and.filters());
+            else if (kind == Or.class && f instanceof Or or) result.addAll(or.filters());
+            else result.add(f);
+        }
+        return result;
+    }
+}
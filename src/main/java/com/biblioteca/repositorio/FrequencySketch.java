@@ -0,0 +1,77 @@
+package com.biblioteca.repositorio;
+
+/**
+ * Estimador de frecuencia de W-TinyLFU: count-min sketch con contadores de 4 bits.
+ * - 16 contadores por long, 4 funciones de hash: ~8 bytes por entrada del caché.
+ * - Los 4 contadores de un id caen en el mismo bloque de 64 bytes (una línea de caché).
+ * - Envejecimiento: cada 10 × tamaño incrementos todos los contadores se dividen por 2,
+ *   así lo que fue popular hace mucho deja de pesar.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long HALF_MASK = 0x7777777777777777L;
+    private static final int MAX_TABLE = 1 << 22;
+
+    private final long[] table;
+    private final int blockMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long maximumEntries) {
+        int size = (int) Math.min(MAX_TABLE, Math.max(16L, Long.highestOneBit(Math.max(1L, maximumEntries - 1)) << 1));
+        this.table = new long[size];
+        this.blockMask = (size >>> 3) - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /** Frecuencia estimada (0..15; nunca subestima salvo por el envejecimiento). */
+    int frequency(long id) {
+        long h = hash(id);
+        int block = block(h);
+        int min = 15;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, (int) (table[index(block, h, i)] >>> offset(h, i)) & 0xF);
+        }
+        return min;
+    }
+
+    void increment(long id) {
+        long h = hash(id);
+        int block = block(h);
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = index(block, h, i);
+            int offset = offset(h, i);
+            if (((table[index] >>> offset) & 0xF) < 15) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) halve();
+    }
+
+    private void halve() {
+        for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & HALF_MASK;
+        additions /= 2;
+    }
+
+    private static long hash(long id) {
+        long h = (id ^ 0xc3a5c85c97cb3127L) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /** Primer long del bloque de 8 (bits bajos del hash). */
+    private int block(long h) {
+        return ((int) h & blockMask) << 3;
+    }
+
+    /** Profundidad i: uno de dos longs del bloque, elegido por los bits altos. */
+    private static int index(int block, long h, int i) {
+        return block + (i << 1) + (int) ((h >>> (32 + i)) & 1);
+    }
+
+    private static int offset(long h, int i) {
+        return (int) ((h >>> (40 + (i << 2))) & 0xF) << 2;
+    }
+}
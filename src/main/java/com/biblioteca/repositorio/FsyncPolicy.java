@@ -0,0 +1,55 @@
+package com.biblioteca.repositorio;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Cuándo el WriteAheadLog fuerza los datos a disco (fsync).
+ * - everyCommit: cada escritura espera su fsync; escritores concurrentes comparten uno (group commit).
+ * - every(intervalo): fsync periódico en segundo plano; se pueden perder los últimos cambios.
+ * - never: el sistema operativo decide; solo sobrevive a caídas del proceso, no del equipo.
+ */
+public final class FsyncPolicy {
+
+    enum Mode { EVERY_COMMIT, INTERVAL, NEVER }
+
+    /** Cada cuánto el hilo de fondo vuelca el buffer al archivo cuando no es everyCommit. */
+    static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(10);
+
+    private final Mode mode;
+    private final Duration interval;
+
+    private FsyncPolicy(Mode mode, Duration interval) {
+        this.mode = mode;
+        this.interval = interval;
+    }
+
+    public static FsyncPolicy everyCommit() {
+        return new FsyncPolicy(Mode.EVERY_COMMIT, Duration.ZERO);
+    }
+
+    public static FsyncPolicy every(Duration interval) {
+        Objects.requireNonNull(interval, "interval no puede ser null");
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval debe ser > 0");
+        }
+        return new FsyncPolicy(Mode.INTERVAL, interval);
+    }
+
+    public static FsyncPolicy never() {
+        return new FsyncPolicy(Mode.NEVER, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    Duration interval() {
+        return interval;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.INTERVAL ? "every(" + interval + ")" : mode.name().toLowerCase();
+    }
+}
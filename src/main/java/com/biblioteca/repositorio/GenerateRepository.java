@@ -0,0 +1,21 @@
+package com.biblioteca.repositorio;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Genera en compilación &lt;Entidad&gt;Repository (mismo paquete), subclase de
+ * InMemoryRepository con métodos tipados por cada campo escalar de la entidad
+ * (propios y heredados, sin id):
+ * - findByX(valor): usa el índice hash de X si existe; si no, recorre comparando
+ *   con el getter directo (sin nombres en String ni conversión de tipos).
+ * - updateX(id, valor): llama al setter directo.
+ * - Un nombre de campo mal escrito es un error de compilación, no de ejecución.
+ * Lo procesa com.biblioteca.repositorio.processor.RepositoryProcessor.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateRepository {
+}
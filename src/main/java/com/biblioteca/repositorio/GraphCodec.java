@@ -0,0 +1,868 @@
+package com.biblioteca.repositorio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Formato binario compacto para exportar/importar grafos de entidades (traza1, traza2).
+ * - Dirigido por esquema: la primera vez que aparece una clase se escribe su nombre y la
+ *   lista de campos (nombre + tipo); después solo su número. Al leer, los campos se
+ *   asocian por nombre: un campo nuevo o borrado en la clase no rompe archivos viejos.
+ * - Enteros (ids incluidos) en varint zigzag; null de wrappers en un bitmap por objeto.
+ * - Referencias preservadas en todo el stream: una Categoria/UnidadMedida compartida por
+ *   miles de artículos se escribe una vez y después es un número; los ciclos
+ *   (Pais -> provincias -> pais) y Articulo.imagenes / ArticuloManufacturado.detalles
+ *   se reconstruyen con la misma forma.
+ * - Strings internados por campo: un valor repetido es un índice. Si un campo casi no
+ *   repite (ej: denominaciones únicas) deja de internar para no acumular una tabla inútil;
+ *   lector y escritor toman la misma decisión con los mismos datos.
+ * - Streaming sobre canales NIO (FileChannel, SocketChannel, ...) con un buffer de 64 KB.
+ * - Al leer solo se instancian las clases permitidas (nada de Class.forName de lo que diga
+ *   el archivo).
+ *
+ * Formato: [int magic][byte versión] y registros [byte tipo][valor]... [byte FIN].
+ */
+public final class GraphCodec {
+
+    private static final int MAGIC = 0x54525a47; // "TRZG"
+    private static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Tamaño de lote de importInto (saveAll). */
+    private static final int IMPORT_BATCH = 10_000;
+
+    // Registros
+    private static final byte RECORD_END = 0;
+    private static final byte RECORD_OBJECT = 1;
+    private static final byte RECORD_RESET = 2;
+
+    // Tipos de campo del esquema (bit NULLABLE = wrapper/objeto, puede ser null).
+    // Tipos, etiquetas y clases de colección se comparten con CatalogImage.
+    static final byte K_BOOLEAN = 1;
+    static final byte K_BYTE = 2;
+    static final byte K_SHORT = 3;
+    static final byte K_CHAR = 4;
+    static final byte K_INT = 5;
+    static final byte K_LONG = 6;
+    static final byte K_FLOAT = 7;
+    static final byte K_DOUBLE = 8;
+    static final byte K_STRING = 9;
+    static final byte K_ENUM = 10;
+    static final byte K_TIME = 11;
+    static final byte K_DATE = 12;
+    static final byte K_DATETIME = 13;
+    static final byte K_REF = 14;
+    static final byte K_COLLECTION = 15;
+    static final byte K_MAP = 16;
+    static final int NULLABLE = 0x80;
+
+    // Elementos de colecciones/mapas (tipo borrado: van con etiqueta)
+    static final byte A_NULL = 0;
+    static final byte A_OBJECT = 1;
+    static final byte A_STRING = 2;
+    static final byte A_INT = 3;
+    static final byte A_LONG = 4;
+    static final byte A_DOUBLE = 5;
+    static final byte A_BOOLEAN = 6;
+
+    // Clases de colección
+    static final byte C_HASH_SET = 1;
+    static final byte C_LINKED_HASH_SET = 2;
+    static final byte C_TREE_SET = 3;
+    static final byte C_ARRAY_LIST = 4;
+    static final byte C_HASH_MAP = 5;
+    static final byte C_LINKED_HASH_MAP = 6;
+    static final byte C_TREE_MAP = 7;
+    /** Tope de capacidad inicial al decodificar colecciones: el tamaño leído puede estar corrupto. */
+    static final int MAX_INITIAL_CAPACITY = 1024;
+
+    // Referencias: 0 = null, 1 = objeto nuevo a continuación, n >= 2 = el objeto n - 2
+    private static final int REF_NULL = 0;
+    private static final int REF_NEW = 1;
+    private static final int REF_BASE = 2;
+
+    private GraphCodec() {
+    }
+
+    public static Writer writer(WritableByteChannel channel) throws IOException {
+        return new Writer(Objects.requireNonNull(channel, "channel no puede ser null"));
+    }
+
+    /** allowed: las clases que se pueden instanciar (las raíces y todo lo que referencian). */
+    public static Reader reader(ReadableByteChannel channel, Class<?>... allowed) throws IOException {
+        return new Reader(Objects.requireNonNull(channel, "channel no puede ser null"), allowed);
+    }
+
+    /** Escribe todas las entidades del repositorio (con lo que referencian). Devuelve cuántas. */
+    public static long export(InMemoryRepository<?> repository, WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(repository, "repository no puede ser null");
+        long count = 0;
+        try (Writer w = writer(channel)) {
+            for (Iterator<?> it = repository.stream().iterator(); it.hasNext(); count++) {
+                w.write(it.next());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lee un export y guarda las raíces en el repositorio con saveAll (conservan sus ids).
+     * related: las demás clases del grafo (ej: Categoria, UnidadMedida). Devuelve cuántas guardó.
+     */
+    public static <T> long importInto(InMemoryRepository<T> repository, Class<T> type, ReadableByteChannel channel,
+                                      Class<?>... related) throws IOException {
+        Objects.requireNonNull(repository, "repository no puede ser null");
+        Objects.requireNonNull(type, "type no puede ser null");
+        Class<?>[] allowed = new Class<?>[related.length + 1];
+        allowed[0] = type;
+        System.arraycopy(related, 0, allowed, 1, related.length);
+        long saved = 0;
+        try (Reader r = reader(channel, allowed)) {
+            List<T> batch = new ArrayList<>(IMPORT_BATCH);
+            for (T entity = r.read(type); entity != null; entity = r.read(type)) {
+                batch.add(entity);
+                if (batch.size() == IMPORT_BATCH) saved += saveBatch(repository, batch);
+            }
+            saved += saveBatch(repository, batch);
+        }
+        return saved;
+    }
+
+    private static <T> long saveBatch(InMemoryRepository<T> repository, List<T> batch) {
+        if (batch.isEmpty()) return 0;
+        BatchResult<T> result = repository.saveAll(batch);
+        batch.clear();
+        if (!result.allOk()) {
+            BatchResult.ItemResult<T> first = result.failures().get(0);
+            throw new IllegalStateException("No se pudieron importar " + result.failures().size()
+                    + " entidades (id=" + first.id() + ")", first.error());
+        }
+        return result.okCount();
+    }
+
+    /**
+     * EntityCodec que guarda la entidad con todo su grafo (para WriteAheadLog / FileEntitySource).
+     * - Cada entidad es un stream independiente: lo compartido entre registros (una Categoria
+     *   común) se repite en cada uno y al recuperar son instancias distintas (Interner las
+     *   vuelve a unir si el repositorio tiene internField).
+     * - related: las demás clases del grafo, como en importInto.
+     */
+    public static <T> EntityCodec<T> entityCodec(Class<T> type, Class<?>... related) {
+        Objects.requireNonNull(type, "type no puede ser null");
+        Class<?>[] allowed = new Class<?>[related.length + 1];
+        allowed[0] = type;
+        System.arraycopy(related, 0, allowed, 1, related.length);
+        for (Class<?> t : allowed) EntityMetadata.requireDecodable(Objects.requireNonNull(t, "related no puede contener null"));
+        return new EntityCodec<>() {
+            @Override
+            public void encode(T entity, DataOutput out) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                try (Writer w = writer(Channels.newChannel(bytes))) {
+                    w.write(entity);
+                }
+                out.writeInt(bytes.size());
+                bytes.writeTo(new DataOutputAdapter(out));
+            }
+
+            @Override
+            public T decode(DataInput in) throws IOException {
+                int length = in.readInt();
+                if (length < 0) throw new StreamCorruptedException("Largo de registro inválido: " + length);
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                try (Reader r = reader(Channels.newChannel(new ByteArrayInputStream(bytes)), allowed)) {
+                    T entity = r.read(type);
+                    if (entity == null) throw new StreamCorruptedException("Registro sin entidad");
+                    return entity;
+                }
+            }
+        };
+    }
+
+    /** OutputStream sobre un DataOutput (para volcar un ByteArrayOutputStream sin copiarlo). */
+    private static final class DataOutputAdapter extends OutputStream {
+        private final DataOutput out;
+
+        DataOutputAdapter(DataOutput out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+    }
+
+    // ===================== Escritura =====================
+
+    /** Escribe objetos (con su grafo) a un canal. No es thread-safe. */
+    public static final class Writer implements Closeable {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Map<Class<?>, ClassOut> classes = new HashMap<>();
+        private final IdentityIntMap refs = new IdentityIntMap();
+        private final StringsOut anyStrings = new StringsOut();
+        private boolean closed;
+
+        private Writer(WritableByteChannel channel) throws IOException {
+            this.channel = channel;
+            ensure(5);
+            buf.putInt(MAGIC);
+            buf.put(VERSION);
+        }
+
+        /** Agrega un objeto raíz (null se permite). */
+        public void write(Object root) throws IOException {
+            if (closed) throw new IllegalStateException("Writer cerrado");
+            ensure(1);
+            buf.put(RECORD_OBJECT);
+            writeAny(root);
+        }
+
+        /**
+         * Olvida los objetos ya escritos (como ObjectOutputStream.reset): libera memoria en
+         * exports enormes, a costa de re-escribir lo que se vuelva a referenciar.
+         */
+        public void reset() throws IOException {
+            ensure(1);
+            buf.put(RECORD_RESET);
+            refs.clear();
+        }
+
+        public void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        /** Escribe el fin de stream, vuelca y cierra el canal. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                ensure(1);
+                buf.put(RECORD_END);
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void writeRef(Object o) throws IOException {
+            if (o == null) {
+                varint(REF_NULL);
+                return;
+            }
+            int ref = refs.get(o);
+            if (ref >= 0) {
+                varint(REF_BASE + (long) ref);
+                return;
+            }
+            refs.put(o, refs.size());
+            varint(REF_NEW);
+            ClassOut cls = classOf(o.getClass());
+            writeFields(cls, o);
+        }
+
+        private ClassOut classOf(Class<?> type) throws IOException {
+            ClassOut cls = classes.get(type);
+            if (cls != null) {
+                varint(cls.index);
+                return cls;
+            }
+            cls = new ClassOut(classes.size(), type);
+            classes.put(type, cls);
+            varint(cls.index);
+            rawString(type.getName());
+            varint(cls.accessors.length);
+            for (int i = 0; i < cls.accessors.length; i++) {
+                rawString(cls.accessors[i].name());
+                ensure(1);
+                buf.put((byte) (cls.kinds[i] | (cls.nullable[i] ? NULLABLE : 0)));
+            }
+            return cls;
+        }
+
+        private void writeFields(ClassOut cls, Object o) throws IOException {
+            // Bitmap de presentes (solo campos que pueden ser null), de a 8 por byte
+            PropertyAccessor[] accessors = cls.accessors;
+            int bits = 0;
+            int count = 0;
+            for (int i = 0; i < accessors.length; i++) {
+                if (!cls.nullable[i]) continue;
+                if (accessors[i].get(o) != null) bits |= 1 << (count & 7);
+                if ((++count & 7) == 0) {
+                    ensure(1);
+                    buf.put((byte) bits);
+                    bits = 0;
+                }
+            }
+            if ((count & 7) != 0) {
+                ensure(1);
+                buf.put((byte) bits);
+            }
+            for (int i = 0; i < accessors.length; i++) {
+                Object value = accessors[i].get(o);
+                if (value != null) writeValue(cls.kinds[i], value, cls.strings[i]);
+            }
+        }
+
+        private void writeValue(byte kind, Object value, StringsOut strings) throws IOException {
+            switch (kind) {
+                case K_BOOLEAN -> {
+                    ensure(1);
+                    buf.put((byte) ((Boolean) value ? 1 : 0));
+                }
+                case K_BYTE -> zigzag((Byte) value);
+                case K_SHORT -> zigzag((Short) value);
+                case K_CHAR -> varint((Character) value);
+                case K_INT -> zigzag((Integer) value);
+                case K_LONG -> zigzag((Long) value);
+                case K_FLOAT -> {
+                    ensure(4);
+                    buf.putFloat((Float) value);
+                }
+                case K_DOUBLE -> {
+                    ensure(8);
+                    buf.putDouble((Double) value);
+                }
+                case K_STRING -> string((String) value, strings);
+                case K_ENUM -> string(((Enum<?>) value).name(), strings);
+                case K_TIME -> time((LocalTime) value);
+                case K_DATE -> zigzag(((LocalDate) value).toEpochDay());
+                case K_DATETIME -> {
+                    zigzag(((LocalDateTime) value).toLocalDate().toEpochDay());
+                    time(((LocalDateTime) value).toLocalTime());
+                }
+                case K_REF -> writeRef(value);
+                case K_COLLECTION -> writeCollection((Collection<?>) value);
+                case K_MAP -> writeMap((Map<?, ?>) value);
+                default -> throw new IllegalStateException("Tipo de campo desconocido: " + kind);
+            }
+        }
+
+        private void writeCollection(Collection<?> c) throws IOException {
+            byte kind;
+            if (c instanceof LinkedHashSet<?>) kind = C_LINKED_HASH_SET;
+            else if (c instanceof SortedSet<?> s && s.comparator() == null) kind = C_TREE_SET;
+            else if (c instanceof Set<?>) kind = C_HASH_SET;
+            else if (c instanceof List<?>) kind = C_ARRAY_LIST;
+            else throw new IllegalArgumentException("Colección no soportada: " + c.getClass().getName());
+            ensure(1);
+            buf.put(kind);
+            varint(c.size());
+            for (Object e : c) writeAny(e);
+        }
+
+        private void writeMap(Map<?, ?> m) throws IOException {
+            byte kind;
+            if (m instanceof LinkedHashMap<?, ?>) kind = C_LINKED_HASH_MAP;
+            else if (m instanceof SortedMap<?, ?> s && s.comparator() == null) kind = C_TREE_MAP;
+            else kind = C_HASH_MAP;
+            ensure(1);
+            buf.put(kind);
+            varint(m.size());
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                writeAny(e.getKey());
+                writeAny(e.getValue());
+            }
+        }
+
+        /** Valor sin tipo estático (raíces y elementos de colecciones). */
+        private void writeAny(Object value) throws IOException {
+            ensure(1);
+            switch (value) {
+                case null -> buf.put(A_NULL);
+                case String s -> {
+                    buf.put(A_STRING);
+                    string(s, anyStrings);
+                }
+                case Integer i -> {
+                    buf.put(A_INT);
+                    zigzag(i);
+                }
+                case Long l -> {
+                    buf.put(A_LONG);
+                    zigzag(l);
+                }
+                case Double d -> {
+                    buf.put(A_DOUBLE);
+                    ensure(8);
+                    buf.putDouble(d);
+                }
+                case Boolean b -> {
+                    buf.put(A_BOOLEAN);
+                    ensure(1);
+                    buf.put((byte) (b ? 1 : 0));
+                }
+                default -> {
+                    if (kindOf(value.getClass()) != K_REF) {
+                        throw new IllegalArgumentException("Tipo no soportado como elemento: " + value.getClass().getName());
+                    }
+                    buf.put(A_OBJECT);
+                    writeRef(value);
+                }
+            }
+        }
+
+        // ----- Primitivas -----
+
+        /** Hora: segundos del día si no tiene nanos (lo usual), si no nanos del día. */
+        private void time(LocalTime t) throws IOException {
+            varint(t.getNano() == 0 ? (long) t.toSecondOfDay() << 1 : t.toNanoOfDay() << 1 | 1);
+        }
+
+        private void string(String s, StringsOut strings) throws IOException {
+            int index = strings.indexOf(s);
+            if (index >= 0) {
+                varint((long) index << 1 | 1);
+                return;
+            }
+            strings.added(s);
+            inline(s);
+        }
+
+        /** Nombres del esquema: sin internar. */
+        private void rawString(String s) throws IOException {
+            inline(s);
+        }
+
+        private void inline(String s) throws IOException {
+            int n = s.length();
+            boolean ascii = true;
+            for (int i = 0; i < n; i++) {
+                if (s.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (ascii && n <= buf.capacity()) {
+                varint((long) n << 1);
+                ensure(n);
+                for (int i = 0; i < n; i++) buf.put((byte) s.charAt(i));
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint((long) bytes.length << 1);
+            for (int off = 0; off < bytes.length; ) {
+                if (!buf.hasRemaining()) flush();
+                int len = Math.min(buf.remaining(), bytes.length - off);
+                buf.put(bytes, off, len);
+                off += len;
+            }
+        }
+
+        private void zigzag(long v) throws IOException {
+            varint(v << 1 ^ v >> 63);
+        }
+
+        private void varint(long v) throws IOException {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf.put((byte) (v & 0x7F | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) flush();
+        }
+    }
+
+    /** Esquema de una clase para escribir: accessors en orden y tipo de cada campo. */
+    private static final class ClassOut {
+        final int index;
+        final PropertyAccessor[] accessors;
+        final byte[] kinds;
+        final boolean[] nullable;
+        final StringsOut[] strings;
+
+        ClassOut(int index, Class<?> type) {
+            this.index = index;
+            this.accessors = EntityMetadata.of(type).properties().toArray(PropertyAccessor[]::new);
+            int n = accessors.length;
+            this.kinds = new byte[n];
+            this.nullable = new boolean[n];
+            this.strings = new StringsOut[n];
+            for (int i = 0; i < n; i++) {
+                Class<?> t = accessors[i].type();
+                kinds[i] = kindOf(t);
+                nullable[i] = !t.isPrimitive();
+                if (kinds[i] == K_STRING || kinds[i] == K_ENUM) strings[i] = new StringsOut();
+            }
+        }
+    }
+
+    // ===================== Lectura =====================
+
+    /** Lee los objetos raíz de un canal, en el orden en que se escribieron. No es thread-safe. */
+    public static final class Reader implements Closeable {
+
+        private final ChannelSource in;
+        private final Map<String, Class<?>> allowed = new HashMap<>();
+        private final List<GraphDecoder.ClassIn> classes = new ArrayList<>();
+        private final ArrayList<Object> refs = new ArrayList<>();
+        private final StringsIn anyStrings = new StringsIn();
+        private final Decoder decoder = new Decoder();
+        private boolean ended;
+
+        private Reader(ReadableByteChannel channel, Class<?>[] allowedTypes) throws IOException {
+            this.in = new ChannelSource(channel);
+            for (Class<?> t : allowedTypes) {
+                Objects.requireNonNull(t, "allowed no puede contener null");
+                EntityMetadata.requireDecodable(t);
+                allowed.put(t.getName(), t);
+            }
+            if (in.getInt() != MAGIC) throw new StreamCorruptedException("No es un archivo de GraphCodec");
+            byte version = in.get();
+            if (version != VERSION) throw new StreamCorruptedException("Versión de formato no soportada: " + version);
+        }
+
+        /** El próximo objeto raíz, o null al final del stream (o si se escribió null). */
+        public Object read() throws IOException {
+            while (!ended) {
+                byte record = in.get();
+                switch (record) {
+                    case RECORD_OBJECT -> {
+                        return decoder.readAny(in);
+                    }
+                    case RECORD_RESET -> refs.clear();
+                    case RECORD_END -> ended = true;
+                    default -> throw new StreamCorruptedException("Registro desconocido: " + record);
+                }
+            }
+            return null;
+        }
+
+        /** Como read(), validando el tipo de la raíz. */
+        public <T> T read(Class<T> type) throws IOException {
+            Object o = read();
+            if (o != null && !type.isInstance(o)) {
+                throw new StreamCorruptedException("Se esperaba " + type.getSimpleName() + " y se leyó "
+                        + o.getClass().getSimpleName());
+            }
+            return type.cast(o);
+        }
+
+        /** true si ya se leyó el fin de stream. */
+        public boolean isEnd() {
+            return ended;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.channel.close();
+        }
+
+        private GraphDecoder.ClassIn classAt(long index) throws IOException {
+            if (index < classes.size()) return classes.get((int) index);
+            if (index != classes.size()) throw new StreamCorruptedException("Clase inválida: " + index);
+            String name = in.rawString();
+            Class<?> type = allowed.get(name);
+            if (type == null) throw new InvalidClassException(name, "no está entre las clases permitidas");
+            GraphDecoder.ClassIn cls = decoder.readSchema(EntityMetadata.of(type), in, true);
+            classes.add(cls);
+            return cls;
+        }
+
+        /** Lo propio del stream: objetos en línea la primera vez (después, número) y strings internados. */
+        private final class Decoder extends GraphDecoder<ChannelSource> {
+
+            @Override
+            Object readRef(ChannelSource in) throws IOException {
+                long r = in.varint();
+                if (r == REF_NULL) return null;
+                if (r >= REF_BASE) {
+                    long index = r - REF_BASE;
+                    if (index >= refs.size()) throw new StreamCorruptedException("Referencia inválida: " + index);
+                    return refs.get((int) index);
+                }
+                ClassIn cls = classAt(in.varint());
+                Object o = cls.metadata.newInstance();
+                refs.add(o); // antes de los campos: los ciclos apuntan a este objeto
+                readFields(cls, o, in);
+                return o;
+            }
+
+            @Override
+            String fieldString(ChannelSource in, ClassIn cls, int field) throws IOException {
+                return in.string(cls.strings[field]);
+            }
+
+            @Override
+            String anyString(ChannelSource in) throws IOException {
+                return in.string(anyStrings);
+            }
+
+            @Override
+            String schemaString(ChannelSource in) throws IOException {
+                return in.rawString();
+            }
+        }
+    }
+
+    /** Bytes de un canal a través de un buffer de BUFFER_SIZE, leído a medida que hace falta. */
+    private static final class ChannelSource implements GraphDecoder.ByteSource {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+        ChannelSource(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public byte get() throws IOException {
+            require(1);
+            return buf.get();
+        }
+
+        @Override
+        public int getInt() throws IOException {
+            require(4);
+            return buf.getInt();
+        }
+
+        @Override
+        public long getLong() throws IOException {
+            require(8);
+            return buf.getLong();
+        }
+
+        @Override
+        public void get(byte[] dst) throws IOException {
+            require(dst.length);
+            buf.get(dst);
+        }
+
+        String string(StringsIn strings) throws IOException {
+            long v = varint();
+            if ((v & 1) != 0) return strings.get(v >>> 1);
+            String s = inline(v >>> 1);
+            strings.added(s);
+            return s;
+        }
+
+        String rawString() throws IOException {
+            long v = varint();
+            if ((v & 1) != 0) throw new StreamCorruptedException("Nombre de esquema inválido");
+            return inline(v >>> 1);
+        }
+
+        private String inline(long length) throws IOException {
+            if (length > Integer.MAX_VALUE) throw new StreamCorruptedException("String inválido: " + length);
+            int n = (int) length;
+            if (n <= buf.capacity()) {
+                require(n);
+                String s = new String(buf.array(), buf.arrayOffset() + buf.position(), n, StandardCharsets.UTF_8);
+                buf.position(buf.position() + n);
+                return s;
+            }
+            // Largo: se junta a medida que llega (un largo corrupto corta por fin de stream, no por OOM)
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(buf.capacity());
+            for (int off = 0; off < n; ) {
+                if (!buf.hasRemaining()) require(1);
+                int len = Math.min(buf.remaining(), n - off);
+                bytes.write(buf.array(), buf.arrayOffset() + buf.position(), len);
+                buf.position(buf.position() + len);
+                off += len;
+            }
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+
+        /** Asegura n bytes disponibles en el buffer (n <= capacidad). */
+        private void require(int n) throws IOException {
+            if (buf.remaining() >= n) return;
+            buf.compact();
+            try {
+                while (buf.position() < n) {
+                    if (channel.read(buf) < 0) throw new EOFException("Fin inesperado del stream");
+                }
+            } finally {
+                buf.flip();
+            }
+        }
+    }
+
+    // ===================== Tipos y tablas =====================
+
+    static byte kindOf(Class<?> t) {
+        Class<?> w = PropertyAccessor.wrap(t);
+        if (w == Boolean.class) return K_BOOLEAN;
+        if (w == Byte.class) return K_BYTE;
+        if (w == Short.class) return K_SHORT;
+        if (w == Character.class) return K_CHAR;
+        if (w == Integer.class) return K_INT;
+        if (w == Long.class) return K_LONG;
+        if (w == Float.class) return K_FLOAT;
+        if (w == Double.class) return K_DOUBLE;
+        if (w == String.class) return K_STRING;
+        if (t.isEnum()) return K_ENUM;
+        if (t == LocalTime.class) return K_TIME;
+        if (t == LocalDate.class) return K_DATE;
+        if (t == LocalDateTime.class) return K_DATETIME;
+        if (Collection.class.isAssignableFrom(t)) return K_COLLECTION;
+        if (Map.class.isAssignableFrom(t)) return K_MAP;
+        if (t.isArray() || t.isPrimitive() || t.getName().startsWith("java.")) {
+            throw new IllegalArgumentException("Tipo no soportado por GraphCodec: " + t.getName());
+        }
+        return K_REF;
+    }
+
+    /**
+     * Regla de internado, idéntica al escribir y al leer: se internan los primeros
+     * MAX_STRINGS valores distintos; si después de MIN_SAMPLE valores nuevos hubo menos
+     * repetidos que nuevos, el campo deja de internar (y la tabla se libera).
+     */
+    private abstract static class StringTable {
+        static final int MAX_STRINGS = 1 << 16;
+        static final int MIN_SAMPLE = 1_024;
+
+        int hits;
+        int added;
+        boolean enabled = true;
+
+        /** Llamar después de cada string nuevo (escrito o leído completo). */
+        final void afterAdd() {
+            added++;
+            if (enabled && added >= MIN_SAMPLE && hits < added) {
+                enabled = false;
+                clear();
+            }
+        }
+
+        abstract void clear();
+    }
+
+    private static final class StringsOut extends StringTable {
+        private Map<String, Integer> indexes = new HashMap<>();
+
+        int indexOf(String s) {
+            if (!enabled) return -1;
+            Integer index = indexes.get(s);
+            if (index == null) return -1;
+            hits++;
+            return index;
+        }
+
+        void added(String s) {
+            if (enabled && indexes.size() < MAX_STRINGS) indexes.put(s, indexes.size());
+            afterAdd();
+        }
+
+        @Override
+        void clear() {
+            indexes = Map.of();
+        }
+    }
+
+    static final class StringsIn extends StringTable {
+        private List<String> values = new ArrayList<>();
+
+        String get(long index) throws StreamCorruptedException {
+            if (!enabled || index >= values.size()) throw new StreamCorruptedException("String inválido: " + index);
+            hits++;
+            return values.get((int) index);
+        }
+
+        void added(String s) {
+            if (enabled && values.size() < MAX_STRINGS) values.add(s);
+            afterAdd();
+        }
+
+        @Override
+        void clear() {
+            values = List.of();
+        }
+    }
+
+    /** Mapa identidad -> int con direccionamiento abierto (sin nodos ni Integer en caja). */
+    static final class IdentityIntMap {
+        private Object[] keys = new Object[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(Object key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                Object k = keys[i];
+                if (k == key) return values[i];
+                if (k == null) return -1;
+            }
+        }
+
+        void put(Object key, int value) {
+            if (size * 2 >= keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void clear() {
+            keys = new Object[1024];
+            values = new int[1024];
+            size = 0;
+        }
+
+        private void grow() {
+            Object[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new Object[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == null) continue;
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int slot(Object key, int mask) {
+            return (System.identityHashCode(key) * 0x9E3779B9) >>> 7 & mask;
+        }
+    }
+}
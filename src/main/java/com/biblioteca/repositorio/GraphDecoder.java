@@ -0,0 +1,249 @@
+package com.biblioteca.repositorio;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static com.biblioteca.repositorio.GraphCodec.A_BOOLEAN;
+import static com.biblioteca.repositorio.GraphCodec.A_DOUBLE;
+import static com.biblioteca.repositorio.GraphCodec.A_INT;
+import static com.biblioteca.repositorio.GraphCodec.A_LONG;
+import static com.biblioteca.repositorio.GraphCodec.A_NULL;
+import static com.biblioteca.repositorio.GraphCodec.A_OBJECT;
+import static com.biblioteca.repositorio.GraphCodec.A_STRING;
+import static com.biblioteca.repositorio.GraphCodec.C_ARRAY_LIST;
+import static com.biblioteca.repositorio.GraphCodec.C_HASH_MAP;
+import static com.biblioteca.repositorio.GraphCodec.C_HASH_SET;
+import static com.biblioteca.repositorio.GraphCodec.C_LINKED_HASH_MAP;
+import static com.biblioteca.repositorio.GraphCodec.C_LINKED_HASH_SET;
+import static com.biblioteca.repositorio.GraphCodec.C_TREE_MAP;
+import static com.biblioteca.repositorio.GraphCodec.C_TREE_SET;
+import static com.biblioteca.repositorio.GraphCodec.K_BOOLEAN;
+import static com.biblioteca.repositorio.GraphCodec.K_BYTE;
+import static com.biblioteca.repositorio.GraphCodec.K_CHAR;
+import static com.biblioteca.repositorio.GraphCodec.K_COLLECTION;
+import static com.biblioteca.repositorio.GraphCodec.K_DATE;
+import static com.biblioteca.repositorio.GraphCodec.K_DATETIME;
+import static com.biblioteca.repositorio.GraphCodec.K_DOUBLE;
+import static com.biblioteca.repositorio.GraphCodec.K_ENUM;
+import static com.biblioteca.repositorio.GraphCodec.K_FLOAT;
+import static com.biblioteca.repositorio.GraphCodec.K_INT;
+import static com.biblioteca.repositorio.GraphCodec.K_LONG;
+import static com.biblioteca.repositorio.GraphCodec.K_MAP;
+import static com.biblioteca.repositorio.GraphCodec.K_REF;
+import static com.biblioteca.repositorio.GraphCodec.K_SHORT;
+import static com.biblioteca.repositorio.GraphCodec.K_STRING;
+import static com.biblioteca.repositorio.GraphCodec.K_TIME;
+import static com.biblioteca.repositorio.GraphCodec.MAX_INITIAL_CAPACITY;
+import static com.biblioteca.repositorio.GraphCodec.NULLABLE;
+
+/**
+ * Decodificación de campos compartida por GraphCodec.Reader (stream sobre un canal) y
+ * CatalogImage (archivo mapeado).
+ * - Los bytes salen de un ByteSource: el buffer del canal o un cursor sobre el mapeo.
+ * - Esquemas, bitmap de nulls, valores por tipo, colecciones y valores sueltos se leen acá.
+ * - Cada formato aporta lo que difiere: cómo se codifican strings (con o sin tabla de
+ *   internado) y referencias (objeto en línea o número de la tabla de objetos). S es la
+ *   fuente concreta del formato, así sus lecturas de strings no necesitan casts.
+ */
+abstract class GraphDecoder<S extends GraphDecoder.ByteSource> {
+
+    /** Fuente de bytes de un decodificador. Un fin o corte inesperado es IOException. */
+    interface ByteSource {
+
+        byte get() throws IOException;
+
+        int getInt() throws IOException;
+
+        long getLong() throws IOException;
+
+        void get(byte[] dst) throws IOException;
+
+        default long varint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = get();
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return result;
+            }
+            throw new StreamCorruptedException("varint demasiado largo");
+        }
+
+        default long zigzag() throws IOException {
+            long v = varint();
+            return v >>> 1 ^ -(v & 1);
+        }
+
+        /** Cantidad no negativa que entra en un int. */
+        default int count() throws IOException {
+            long v = varint();
+            if (v < 0 || v > Integer.MAX_VALUE) throw new StreamCorruptedException("Cantidad inválida: " + v);
+            return (int) v;
+        }
+
+        default LocalTime time() throws IOException {
+            long v = varint();
+            return (v & 1) == 0 ? LocalTime.ofSecondOfDay(v >>> 1) : LocalTime.ofNanoOfDay(v >>> 1);
+        }
+    }
+
+    /** Esquema leído, asociado por nombre a los accessors locales (null = descartar el campo). */
+    static final class ClassIn {
+        final EntityMetadata metadata;
+        final PropertyAccessor[] accessors;
+        final byte[] kinds;
+        final boolean[] nullable;
+        final GraphCodec.StringsIn[] strings; // tabla de internado por campo, o null si el formato no interna
+        final int presentBytes;
+
+        private ClassIn(EntityMetadata metadata, PropertyAccessor[] accessors, byte[] kinds, boolean[] nullable,
+                        GraphCodec.StringsIn[] strings, int presentBytes) {
+            this.metadata = metadata;
+            this.accessors = accessors;
+            this.kinds = kinds;
+            this.nullable = nullable;
+            this.strings = strings;
+            this.presentBytes = presentBytes;
+        }
+    }
+
+    // ===================== Lo que aporta cada formato =====================
+
+    /** Valor de un campo K_REF o A_OBJECT. */
+    abstract Object readRef(S in) throws IOException;
+
+    /** String del campo field de cls (también el nombre de un enum). */
+    abstract String fieldString(S in, ClassIn cls, int field) throws IOException;
+
+    /** String suelto (elemento de colección o clave/valor de mapa). */
+    abstract String anyString(S in) throws IOException;
+
+    /** Nombre de campo en el esquema. */
+    abstract String schemaString(S in) throws IOException;
+
+    // ===================== Decodificación común =====================
+
+    /** [cantidad][nombre, tipo]... internedStrings: tabla por campo String/enum (GraphCodec). */
+    final ClassIn readSchema(EntityMetadata metadata, S in, boolean internedStrings) throws IOException {
+        int n = in.count();
+        PropertyAccessor[] accessors = new PropertyAccessor[n];
+        byte[] kinds = new byte[n];
+        boolean[] nullable = new boolean[n];
+        GraphCodec.StringsIn[] strings = internedStrings ? new GraphCodec.StringsIn[n] : null;
+        int nullableCount = 0;
+        for (int i = 0; i < n; i++) {
+            String field = schemaString(in);
+            int kind = in.get() & 0xFF;
+            kinds[i] = (byte) (kind & ~NULLABLE);
+            nullable[i] = (kind & NULLABLE) != 0;
+            if (nullable[i]) nullableCount++;
+            if (internedStrings && (kinds[i] == K_STRING || kinds[i] == K_ENUM)) strings[i] = new GraphCodec.StringsIn();
+            for (PropertyAccessor p : metadata.properties()) {
+                // Campo que ya no existe o cambió de tipo: se lee y se descarta
+                if (p.name().equals(field) && GraphCodec.kindOf(p.type()) == kinds[i]) accessors[i] = p;
+            }
+        }
+        return new ClassIn(metadata, accessors, kinds, nullable, strings, (nullableCount + 7) >>> 3);
+    }
+
+    /** [bitmap de nulls][valores presentes], asignados a o. */
+    final void readFields(ClassIn cls, Object o, S in) throws IOException {
+        int n = cls.kinds.length;
+        // Local: un campo REF puede leer otro objeto de la misma clase antes de terminar
+        byte[] present = new byte[cls.presentBytes];
+        in.get(present);
+        int bit = 0;
+        for (int i = 0; i < n; i++) {
+            PropertyAccessor p = cls.accessors[i];
+            if (cls.nullable[i]) {
+                boolean isPresent = (present[bit >>> 3] & 1 << (bit & 7)) != 0;
+                bit++;
+                if (!isPresent) {
+                    if (p != null && !p.type().isPrimitive()) p.set(o, null);
+                    continue;
+                }
+            }
+            Object value = readValue(cls, i, p, in);
+            if (p != null) p.set(o, value);
+        }
+    }
+
+    private Object readValue(ClassIn cls, int field, PropertyAccessor p, S in) throws IOException {
+        byte kind = cls.kinds[field];
+        return switch (kind) {
+            case K_BOOLEAN -> in.get() != 0;
+            case K_BYTE -> (byte) in.zigzag();
+            case K_SHORT -> (short) in.zigzag();
+            case K_CHAR -> (char) in.varint();
+            case K_INT -> (int) in.zigzag();
+            case K_LONG -> in.zigzag();
+            case K_FLOAT -> Float.intBitsToFloat(in.getInt());
+            case K_DOUBLE -> Double.longBitsToDouble(in.getLong());
+            case K_STRING -> fieldString(in, cls, field);
+            case K_ENUM -> {
+                String name = fieldString(in, cls, field);
+                yield p == null ? name : PropertyAccessor.convertValue(name, p.type());
+            }
+            case K_TIME -> in.time();
+            case K_DATE -> LocalDate.ofEpochDay(in.zigzag());
+            case K_DATETIME -> {
+                LocalDate date = LocalDate.ofEpochDay(in.zigzag());
+                yield LocalDateTime.of(date, in.time());
+            }
+            case K_REF -> readRef(in);
+            case K_COLLECTION, K_MAP -> readContainer(in);
+            default -> throw new StreamCorruptedException("Tipo de campo desconocido: " + kind);
+        };
+    }
+
+    private Object readContainer(S in) throws IOException {
+        byte kind = in.get();
+        int n = in.count();
+        int initial = Math.min(n, MAX_INITIAL_CAPACITY); // un tamaño corrupto no reserva de más
+        Collection<Object> c = switch (kind) {
+            case C_HASH_SET -> HashSet.newHashSet(initial);
+            case C_LINKED_HASH_SET -> LinkedHashSet.newLinkedHashSet(initial);
+            case C_TREE_SET -> new TreeSet<>();
+            case C_ARRAY_LIST -> new ArrayList<>(initial);
+            default -> null;
+        };
+        if (c != null) {
+            for (int i = 0; i < n; i++) c.add(readAny(in));
+            return c;
+        }
+        Map<Object, Object> m = switch (kind) {
+            case C_HASH_MAP -> HashMap.newHashMap(initial);
+            case C_LINKED_HASH_MAP -> LinkedHashMap.newLinkedHashMap(initial);
+            case C_TREE_MAP -> new TreeMap<>();
+            default -> throw new StreamCorruptedException("Colección desconocida: " + kind);
+        };
+        for (int i = 0; i < n; i++) m.put(readAny(in), readAny(in));
+        return m;
+    }
+
+    /** [etiqueta][valor]: elementos de colección y valores raíz. */
+    final Object readAny(S in) throws IOException {
+        byte tag = in.get();
+        return switch (tag) {
+            case A_NULL -> null;
+            case A_OBJECT -> readRef(in);
+            case A_STRING -> anyString(in);
+            case A_INT -> (int) in.zigzag();
+            case A_LONG -> in.zigzag();
+            case A_DOUBLE -> Double.longBitsToDouble(in.getLong());
+            case A_BOOLEAN -> in.get() != 0;
+            default -> throw new StreamCorruptedException("Etiqueta desconocida: " + tag);
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package com.biblioteca.repositorio;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice hash por igualdad sobre una propiedad (único o no único).
+ * - valor -> ids, y id -> valor indexado (para des-indexar aunque la entidad ya haya cambiado).
+ * - Los valores null se indexan, pero no cuentan para la restricción de unicidad.
+ */
+final class HashIndex<T> extends EntityIndex<T> {
+
+    /** ConcurrentHashMap no admite claves null. */
+    private static final Object NULL_KEY = new Object();
+
+    private final boolean unique;
+    private final Map<Object, Set<Long>> idsByKey = new ConcurrentHashMap<>();
+    private final Map<Long, Object> keyById = new ConcurrentHashMap<>();
+
+    HashIndex(String fieldName, boolean unique) {
+        super(fieldName);
+        this.unique = unique;
+    }
+
+    boolean isUnique() {
+        return unique;
+    }
+
+    @Override
+    void checkConstraints(Long id, T entity) {
+        if (!unique) return;
+        Object key = keyOf(entity);
+        if (key == null) return;
+        Set<Long> ids = idsByKey.get(key);
+        if (ids == null) return;
+        for (Long other : ids) {
+            if (!other.equals(id)) {
+                throw new IllegalStateException("Valor duplicado para el índice único '"
+                        + fieldName() + "': " + key + " (ya lo usa id=" + other + ")");
+            }
+        }
+    }
+
+    @Override
+    void put(Long id, T entity) {
+        Object key = mask(keyOf(entity));
+        Object previous = keyById.put(id, key);
+        if (previous != null && !previous.equals(key)) {
+            removeFrom(previous, id);
+        }
+        idsByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    @Override
+    void remove(Long id) {
+        Object previous = keyById.remove(id);
+        if (previous != null) {
+            removeFrom(previous, id);
+        }
+    }
+
+    /** Ids indexados con ese valor (vista, puede incluir entradas obsoletas si la entidad cambió por setter). */
+    Set<Long> lookup(Object value) {
+        Set<Long> ids = idsByKey.get(mask(value));
+        return ids != null ? ids : Set.of();
+    }
+
+    private void removeFrom(Object key, Long id) {
+        idsByKey.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static Object mask(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+}
@@ -0,0 +1,116 @@
+package com.biblioteca.repositorio;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Store de un repositorio abierto desde una CatalogImage (ver CatalogImage.repository).
+ * - Base: la sección de la imagen (solo lectura); cada entidad se decodifica al primer get.
+ * - Encima, un mapa con lo ya leído y las escrituras (put/remove) hechas después de abrir;
+ *   un borrado de algo de la base queda como lápida.
+ * - Los recorridos materializan toda la base (en orden de id) y después lo agregado.
+ */
+final class ImageStore<T> implements EntityStore<T> {
+
+    private static final Object TOMBSTONE = new Object();
+
+    private final CatalogImage image;
+    private final CatalogImage.Section section;
+    private final Class<T> type;
+    // id -> entidad (leída o escrita) o TOMBSTONE
+    private final ConcurrentHashMap<Long, Object> overlay = new ConcurrentHashMap<>();
+    private final AtomicInteger size;
+
+    ImageStore(CatalogImage image, CatalogImage.Section section, Class<T> type) {
+        this.image = Objects.requireNonNull(image, "image no puede ser null");
+        this.section = Objects.requireNonNull(section, "section no puede ser null");
+        this.type = Objects.requireNonNull(type, "type no puede ser null");
+        this.size = new AtomicInteger(section.count());
+    }
+
+    @Override
+    public T get(long id) {
+        Object value = overlay.get(id);
+        if (value != null) return value == TOMBSTONE ? null : type.cast(value);
+        int index = image.indexOf(section, id);
+        if (index < 0) return null;
+        T entity = base(index);
+        // Si mientras tanto alguien escribió o borró el id, gana eso
+        Object current = overlay.putIfAbsent(id, entity);
+        return current == null ? entity : current == TOMBSTONE ? null : type.cast(current);
+    }
+
+    @Override
+    public T put(long id, T entity) {
+        Object previous = overlay.put(id, entity);
+        T result = effective(id, previous);
+        if (result == null) size.incrementAndGet();
+        return result;
+    }
+
+    @Override
+    public T remove(long id) {
+        Object previous = overlay.put(id, TOMBSTONE);
+        T result = effective(id, previous);
+        if (result != null) {
+            size.decrementAndGet();
+        } else if (previous == null) {
+            overlay.remove(id, TOMBSTONE); // no existía: no hace falta la lápida
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        forEachEntry((id, entity) -> action.accept(entity));
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer<? super T> action) {
+        for (int i = 0; i < section.count(); i++) {
+            long id = image.idAt(section, i);
+            T entity = get(id);
+            if (entity != null) action.accept(id, entity);
+        }
+        overlay.forEach((id, value) -> {
+            if (value != TOMBSTONE && image.indexOf(section, id) < 0) action.accept(id, type.cast(value));
+        });
+    }
+
+    @Override
+    public Stream<T> values() {
+        Stream<T> base = IntStream.range(0, section.count())
+                .mapToObj(i -> get(image.idAt(section, i)))
+                .filter(Objects::nonNull);
+        Stream<T> added = overlay.entrySet().stream()
+                .filter(e -> e.getValue() != TOMBSTONE && image.indexOf(section, e.getKey()) < 0)
+                .map(e -> type.cast(e.getValue()));
+        return Stream.concat(base, added);
+    }
+
+    /** Lo que había en id antes de una escritura que reemplazó previous en el mapa. */
+    private T effective(long id, Object previous) {
+        if (previous == TOMBSTONE) return null;
+        if (previous != null) return type.cast(previous);
+        int index = image.indexOf(section, id);
+        return index < 0 ? null : base(index);
+    }
+
+    private T base(int index) {
+        Object o = image.entityAt(section, index);
+        if (!type.isInstance(o)) {
+            throw new IllegalStateException("La sección '" + section.name() + "' tiene " + o.getClass().getSimpleName()
+                    + ", no " + type.getSimpleName());
+        }
+        return type.cast(o);
+    }
+}
@@ -1,219 +1,1313 @@
 package com.biblioteca.repositorio;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Repositorio genérico en memoria.
  * - Asigna ID automáticamente al guardar (save).
  * - Soporta entidades con id Long o Integer (getId/setId).
  * - Permite findAll, findById, genericFindByField, genericUpdate, genericDelete.
+ * - Motor de almacenamiento intercambiable (EntityStore): ConcurrentHashMap por defecto
+ *   o LongHashStore (claves long primitivas, sin boxing).
+ * - Modo acotado (BoundedStore): caché con desalojo sobre una fuente más lenta.
+ * - Apertura desde una imagen de catálogo (CatalogImage.repository): mmap y cada
+ *   entidad se decodifica la primera vez que se pide.
+ * - Índices secundarios opcionales: hash (createIndex / createUniqueIndex)
+ *   y ordenados para rangos, prefijos y top-N (createOrderedIndex).
+ * - Operaciones en lote (saveAll, updateAll, deleteAll) con resultado por elemento.
+ * - Internado opcional (internField): valores repetidos (Categoria, UnidadMedida, strings)
+ *   se reemplazan al guardar por una instancia canónica compartida.
+ * - Listeners de escritura (addListener) para persistencia, índices externos, etc.
+ *   ChangeStream publica cada escritura como evento numerado (CDC) para consumidores Flow.
+ * - Métricas opcionales (enableMetrics): contadores, percentiles de latencia, JMX y JFR.
+ * - Versionado opcional (enableVersioning): actualizaciones copy-on-write con
+ *   compare-and-set por versión (updateIfVersion) y reintentos (update + RetryPolicy).
+ * - Lecturas sin copia (stream, forEach, findPage): débilmente consistentes,
+ *   como los iteradores de ConcurrentHashMap (nunca fallan por escrituras
+ *   concurrentes y pueden o no ver los cambios hechos durante el recorrido).
  */
 public class InMemoryRepository<T> {
 
-    private final Map<Long, T> store = new ConcurrentHashMap<>();
+    /** Desde este tamaño saveAll inserta en paralelo (si no hay índices que mantener). */
+    static final int PARALLEL_BATCH_THRESHOLD = 10_000;
+
+    private final EntityStore<T> store;
+    private final boolean bounded;
     private final AtomicLong sequence = new AtomicLong(0L);
 
+    // Índices: lista copy-on-write; las escrituras que los tocan se serializan con indexLock
+    private final Object indexLock = new Object();
+    private volatile List<EntityIndex<T>> indexes = List.of();
+
+    private volatile List<RepositoryListener<? super T>> listeners = List.of();
+
+    // Locks por id (rayados): escritura al store + aviso a listeners de un mismo id van juntos,
+    // así los listeners ven los cambios de cada id en el orden en que se aplicaron.
+    // Orden de locks: primero el del id, después indexLock.
+    private static final int WRITE_STRIPES = 64;
+    private final Object[] writeLocks = new Object[WRITE_STRIPES];
+
+    // Campos canonicalizados al escribir (copy-on-write, como los listeners)
+    private volatile List<InternedField> interned = List.of();
+
+    // Versionado: id -> (entidad, versión). Con versionado activo toda escritura al store
+    // se hace dentro de versions.compute, así entidad y versión cambian juntas.
+    private volatile ConcurrentHashMap<Long, Versioned<T>> versions;
+    private final AtomicLong versionClock = new AtomicLong(0L);
+
+    // Métricas: null = desactivadas (un solo chequeo por operación)
+    private volatile RepositoryMetrics metrics;
+    private ObjectName metricsObjectName;
+
+    public InMemoryRepository() {
+        this(new ConcurrentMapStore<>());
+    }
+
+    /** Repositorio sobre otro motor de almacenamiento (ej: new LongHashStore&lt;&gt;()). */
+    public InMemoryRepository(EntityStore<T> store) {
+        this.store = Objects.requireNonNull(store, "store no puede ser null");
+        this.bounded = store instanceof BoundedStore<T>;
+        if (store instanceof BoundedStore<T> b) sequence.set(b.maxId());
+        for (int i = 0; i < WRITE_STRIPES; i++) writeLocks[i] = new Object();
+    }
+
     /** Crea/actualiza la entidad. Si no tiene id, le asigna uno nuevo. */
     public T save(T entity) {
-        Objects.requireNonNull(entity, "entity no puede ser null");
-        Long id = readIdAsLong(entity);
+        RepositoryMetrics m = metrics;
+        return m == null ? saveInternal(entity) : measured(m, RepositoryMetrics.Operation.SAVE, () -> saveInternal(entity));
+    }
 
-        if (id == null || id == 0L) { // Entidad nueva
-            id = sequence.incrementAndGet();
-            writeIdFromLong(entity, id);
-        } else {
-            // Evita la captura de variable en lambda
-            sequence.accumulateAndGet(id, Math::max);
+    private T saveInternal(T entity) {
+        Objects.requireNonNull(entity, "entity no puede ser null");
+        prepare(entity);
+        if (!indexes.isEmpty()) {
+            Long current = readIdAsLong(entity);
+            boolean isNew = current == null || current == 0L;
+            // Un id nuevo se reserva antes de los locks: así se avisa con el lock del id
+            // tomado y fuera de indexLock (un listener lento, ej. el WAL con fsync, no frena
+            // a los demás escritores con índices)
+            long id = isNew ? sequence.incrementAndGet() : current;
+            synchronized (writeLock(id)) {
+                T previous;
+                try {
+                    previous = saveIndexed(entity, isNew ? null : current, id);
+                } catch (RuntimeException e) {
+                    if (isNew) sequence.compareAndSet(id, id - 1); // devuelve el id si nadie tomó otro
+                    throw e;
+                }
+                fireSaved(id, previous, entity);
+            }
+            return entity;
         }
 
-        store.put(id, entity);
+        long id = assignId(entity);
+        synchronized (writeLock(id)) {
+            T previous = storePut(id, entity);
+            afterUnindexedWrite(id);
+            fireSaved(id, previous, entity);
+        }
         return entity;
     }
 
+    /** Con el lock del id tomado: chequea restricciones, guarda e indexa. Devuelve la anterior. */
+    private T saveIndexed(T entity, Long current, long id) {
+        synchronized (indexLock) {
+            for (EntityIndex<T> idx : indexes) idx.checkConstraints(current, entity);
+            if (current == null) writeIdFromLong(entity, id);
+            else sequence.accumulateAndGet(id, Math::max);
+            T previous = storePut(id, entity);
+            for (EntityIndex<T> idx : indexes) idx.put(id, entity);
+            return previous;
+        }
+    }
+
     /** b) Buscar una entidad por ID */
     public Optional<T> findById(Long id) {
-        return Optional.ofNullable(store.get(id));
+        return findById(id.longValue());
+    }
+
+    /** b) Buscar por ID sin boxing */
+    public Optional<T> findById(long id) {
+        RepositoryMetrics m = metrics;
+        if (m == null) return Optional.ofNullable(store.get(id));
+        long start = m.start();
+        T entity = store.get(id);
+        m.recordFind(start, entity != null);
+        return Optional.ofNullable(entity);
     }
 
-    /** a) Mostrar todas las entidades */
+    /** a) Mostrar todas las entidades (copia; para catálogos grandes usar stream/forEach/findPage) */
     public List<T> findAll() {
-        return new ArrayList<>(store.values());
+        RepositoryMetrics m = metrics;
+        return m == null ? findAllInternal() : measured(m, RepositoryMetrics.Operation.FIND_ALL, this::findAllInternal);
+    }
+
+    private List<T> findAllInternal() {
+        List<T> all = new ArrayList<>(store.size());
+        store.forEach(all::add);
+        return all;
+    }
+
+    /** Cantidad de entidades guardadas. */
+    public int count() {
+        return store.size();
+    }
+
+    /** Recorre las entidades sin copiarlas (débilmente consistente). */
+    public Stream<T> stream() {
+        return store.values();
+    }
+
+    /** Aplica la acción a cada entidad sin copiar ni crear iteradores por elemento. */
+    public void forEach(Consumer<? super T> action) {
+        Objects.requireNonNull(action, "action no puede ser null");
+        store.forEach(action);
+    }
+
+    /**
+     * Página de hasta limit entidades con id > afterId, en orden de id.
+     * Para empezar usar afterId = 0; para seguir, el nextAfterId de la página anterior.
+     * Como los ids salen de una secuencia, se prueban los ids siguientes al cursor;
+     * si hay demasiados huecos (borrados o ids explícitos) se recorre el store.
+     */
+    public Page<T> findPage(long afterId, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit debe ser > 0");
+        long maxId = sequence.get();
+        List<T> items = new ArrayList<>(Math.min(limit, 1024));
+
+        long probeBudget = (long) limit * 4 + 64;
+        long id = afterId;
+        while (items.size() < limit && id < maxId && probeBudget-- > 0) {
+            T entity = store.get(++id);
+            if (entity != null) items.add(entity);
+        }
+        if (items.size() == limit) return new Page<>(items, id < maxId ? id : null);
+        if (id >= maxId) return new Page<>(items, null);
+
+        // Ids dispersos: seleccionar los limit menores ids > cursor recorriendo una vez
+        long from = id;
+        PriorityQueue<Long> smallest = new PriorityQueue<>(Comparator.reverseOrder());
+        int remaining = limit - items.size();
+        store.forEachEntry((key, entity) -> {
+            if (key <= from) return;
+            if (smallest.size() < remaining) {
+                smallest.add(key);
+            } else if (key < smallest.peek()) {
+                smallest.poll();
+                smallest.add(key);
+            }
+        });
+        Long[] ids = smallest.toArray(new Long[0]);
+        Arrays.sort(ids);
+        long last = from;
+        for (Long key : ids) {
+            T entity = store.get(key);
+            if (entity != null) items.add(entity);
+            last = key;
+        }
+        // Se seleccionaron todos los que faltaban: puede haber más aunque alguno se haya
+        // borrado entre la selección y el get (la página vuelve más corta, no cortada)
+        return new Page<>(items, ids.length == remaining && last < maxId ? last : null);
     }
 
     /** e) Eliminar por ID */
     public boolean genericDelete(Long id) {
-        return store.remove(id) != null;
+        return genericDelete(id.longValue());
+    }
+
+    /** e) Eliminar por ID sin boxing */
+    public boolean genericDelete(long id) {
+        RepositoryMetrics m = metrics;
+        return m == null ? deleteInternal(id) : measured(m, RepositoryMetrics.Operation.DELETE, () -> deleteInternal(id));
+    }
+
+    private boolean deleteInternal(long id) {
+        synchronized (writeLock(id)) {
+            T removed;
+            if (!indexes.isEmpty()) {
+                synchronized (indexLock) {
+                    removed = storeRemove(id);
+                    for (EntityIndex<T> idx : indexes) idx.remove(id);
+                }
+            } else {
+                removed = storeRemove(id);
+                afterUnindexedWrite(id);
+            }
+            if (removed == null) return false;
+            fireDeleted(id, removed);
+            return true;
+        }
     }
 
-    /** c) Buscar por nombre de campo (igualdad exacta) */
+    /** c) Buscar por nombre de campo (igualdad exacta). Usa el índice si existe. */
     public List<T> genericFindByField(String fieldName, Object expectedValue) {
+        RepositoryMetrics m = metrics;
+        return m == null ? findByFieldInternal(fieldName, expectedValue, null)
+                : measured(m, RepositoryMetrics.Operation.FIND_BY_FIELD, () -> findByFieldInternal(fieldName, expectedValue, m));
+    }
+
+    private List<T> findByFieldInternal(String fieldName, Object expectedValue, RepositoryMetrics m) {
         Objects.requireNonNull(fieldName, "fieldName no puede ser null");
         List<T> result = new ArrayList<>();
-        for (T entity : store.values()) {
-            Object fieldVal = getFieldValue(entity, fieldName);
-            if (Objects.equals(fieldVal, expectedValue)) {
-                result.add(entity);
+
+        HashIndex<T> index = hashIndexFor(fieldName);
+        if (index != null) {
+            if (m != null) m.recordIndexLookup();
+            for (Long id : index.lookup(expectedValue)) {
+                T entity = store.get(id);
+                // Re-valida: la entidad pudo cambiar por setter sin reindex
+                if (entity != null && Objects.equals(index.keyOf(entity), expectedValue)) {
+                    result.add(entity);
+                }
             }
+            return result;
         }
+
+        store.forEach(new FieldScan<>(fieldName, expectedValue, result));
+        if (m != null) m.recordScan(fieldName, store.size(), result.size());
         return result;
     }
 
     /** d) Actualizar un campo por ID (ej: CUIL) */
     public boolean genericUpdate(Long id, String fieldName, Object newValue) {
-        T entity = store.get(id);
-        if (entity == null) return false;
-        setFieldValue(entity, fieldName, newValue);
+        RepositoryMetrics m = metrics;
+        return m == null ? updateInternal(id, fieldName, newValue)
+                : measured(m, RepositoryMetrics.Operation.UPDATE, () -> updateInternal(id, fieldName, newValue));
+    }
+
+    private boolean updateInternal(Long id, String fieldName, Object newValue) {
+        synchronized (writeLock(id)) {
+            return updateLocked(id, fieldName, newValue);
+        }
+    }
+
+    private boolean updateLocked(Long id, String fieldName, Object newValue) {
+        if (versions != null) return updateCopy(id, fieldName, newValue);
+        T entity;
+        Object converted;
+        Object oldValue;
+        if (!indexes.isEmpty()) {
+            synchronized (indexLock) {
+                entity = store.get(id);
+                if (entity == null) return false;
+                PropertyAccessor accessor = accessorFor(entity, fieldName);
+                converted = canonicalValue(entity.getClass(), fieldName, convertFor(accessor, newValue));
+                oldValue = updateIndexed(id, entity, accessor, converted);
+            }
+        } else {
+            entity = store.get(id);
+            if (entity == null) return false;
+            PropertyAccessor accessor = accessorFor(entity, fieldName);
+            converted = canonicalValue(entity.getClass(), fieldName, convertFor(accessor, newValue));
+            oldValue = accessor.get(entity);
+            setFieldValue(entity, accessor, converted);
+            store.updated(id, entity);
+            afterUnindexedWrite(id);
+        }
+        fireUpdated(id, entity, fieldName, oldValue, converted);
         return true;
     }
 
-    // ===================== Helpers de reflexión =====================
+    // ===================== Acceso tipado (repositorios generados) =====================
 
-    private Long readIdAsLong(T entity) {
-        // 1) getter getId()
-        try {
-            Method m = entity.getClass().getMethod("getId");
-            Object value = m.invoke(entity);
-            return coerceToLongOrNull(value);
-        } catch (Exception ignored) {}
+    /**
+     * genericFindByField con la comparación ya compilada (matches = getter directo == value).
+     * Si hay índice hash sobre el campo o métricas activas delega en genericFindByField;
+     * si no, recorre el store sin accessor ni conversión.
+     */
+    protected final List<T> findByProperty(String fieldName, Object value, Predicate<? super T> matches) {
+        if (metrics != null || hashIndexFor(fieldName) != null) return genericFindByField(fieldName, value);
+        List<T> result = new ArrayList<>();
+        store.forEach(entity -> {
+            if (matches.test(entity)) result.add(entity);
+        });
+        return result;
+    }
 
-        // 2) campo id
-        try {
-            Field f = entity.getClass().getDeclaredField("id");
-            f.setAccessible(true);
-            Object value = f.get(entity);
-            return coerceToLongOrNull(value);
-        } catch (Exception ignored) {}
+    /**
+     * genericUpdate con getter/setter directos: sin buscar el accessor por nombre ni convertir.
+     * - Sin índices, versionado, métricas ni internado es el camino corto (leer, setear, avisar).
+     * - Con cualquiera de ellos delega en genericUpdate, que ya sabe mantenerlos.
+     */
+    protected final <V> boolean updateProperty(long id, EntityProperty<T, V> property, V value) {
+        if (metrics != null || versions != null || !indexes.isEmpty() || !interned.isEmpty()) {
+            return genericUpdate(id, property.name(), value);
+        }
+        synchronized (writeLock(id)) {
+            T entity = store.get(id);
+            if (entity == null) return false;
+            V oldValue = property.get(entity);
+            property.set(entity, value);
+            store.updated(id, entity);
+            afterUnindexedWrite(id);
+            fireUpdated(id, entity, property.name(), oldValue, value);
+            return true;
+        }
+    }
 
-        return null;
+    // ===================== Operaciones en lote =====================
+
+    /**
+     * Guarda todas las entidades. Los ids nuevos se reservan en bloque con una sola
+     * operación atómica y los accessors se resuelven una vez por clase.
+     * Lotes grandes sin índices se insertan en paralelo, también con listeners (que
+     * entonces corren en hilos del common pool). Nunca lanza por un elemento: cada fallo
+     * queda en su ItemResult.
+     */
+    public BatchResult<T> saveAll(Collection<? extends T> entities) {
+        RepositoryMetrics m = metrics;
+        return m == null ? saveAllInternal(entities)
+                : measured(m, RepositoryMetrics.Operation.SAVE_ALL, () -> saveAllInternal(entities));
     }
 
-    private void writeIdFromLong(T entity, Long idValue) {
-        // 1) setId(Long)
-        try {
-            Method m = entity.getClass().getMethod("setId", Long.class);
-            m.invoke(entity, idValue);
-            return;
-        } catch (Exception ignored) {}
+    private BatchResult<T> saveAllInternal(Collection<? extends T> entities) {
+        Objects.requireNonNull(entities, "entities no puede ser null");
+        @SuppressWarnings("unchecked")
+        T[] items = (T[]) entities.toArray();
+        int n = items.length;
+        long[] currentIds = new long[n];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        BatchResult.ItemResult<T>[] results = new BatchResult.ItemResult[n];
 
-        // 2) setId(long)
-        try {
-            Method m = entity.getClass().getMethod("setId", long.class);
-            m.invoke(entity, idValue.longValue());
-            return;
-        } catch (Exception ignored) {}
+        // 1) Leer ids (metadata resuelta una vez por clase) y contar los nuevos
+        int newCount = 0;
+        long maxExplicit = Long.MIN_VALUE;
+        Class<?> lastType = null;
+        EntityMetadata meta = null;
+        for (int i = 0; i < n; i++) {
+            T entity = items[i];
+            if (entity == null) {
+                results[i] = failed(i, null, null, new NullPointerException("entity no puede ser null"));
+                continue;
+            }
+            try {
+                if (entity.getClass() != lastType) {
+                    lastType = entity.getClass();
+                    meta = EntityMetadata.of(lastType);
+                }
+                Long id = meta.readId(entity);
+                if (id == null || id == 0L) {
+                    newCount++;
+                } else {
+                    currentIds[i] = id;
+                    maxExplicit = Math.max(maxExplicit, id);
+                }
+            } catch (RuntimeException e) {
+                results[i] = failed(i, null, entity, e);
+            }
+        }
 
-        // 3) setId(Integer)
-        try {
-            Method m = entity.getClass().getMethod("setId", Integer.class);
-            m.invoke(entity, idValue.intValue());
-            return;
-        } catch (Exception ignored) {}
+        // 2) Reservar el bloque de ids nuevos de una vez, por encima de los ids explícitos
+        //    del lote (en el mismo CAS: un id nuevo no puede pisar a uno explícito)
+        long next = 0L;
+        if (newCount > 0 || maxExplicit != Long.MIN_VALUE) {
+            long floor = Math.max(maxExplicit, 0L);
+            long current;
+            long reserved;
+            do {
+                current = sequence.get();
+                reserved = Math.max(current, floor) + newCount;
+            } while (!sequence.compareAndSet(current, reserved));
+            next = reserved - newCount + 1;
+        }
 
-        // 4) setId(int)
-        try {
-            Method m = entity.getClass().getMethod("setId", int.class);
-            m.invoke(entity, idValue.intValue());
-            return;
-        } catch (Exception ignored) {}
+        // 3) Asignar ids
+        long[] ids = new long[n];
+        lastType = null;
+        for (int i = 0; i < n; i++) {
+            if (results[i] != null) continue;
+            T entity = items[i];
+            try {
+                if (currentIds[i] != 0L) {
+                    ids[i] = currentIds[i];
+                    continue;
+                }
+                ids[i] = next++;
+                if (entity.getClass() != lastType) {
+                    lastType = entity.getClass();
+                    meta = EntityMetadata.of(lastType);
+                }
+                // Con índices, el id se escribe recién al pasar las restricciones (como en save)
+                if (indexes.isEmpty()) meta.writeId(entity, ids[i]);
+            } catch (RuntimeException e) {
+                results[i] = failed(i, null, entity, e);
+            }
+        }
 
-        // 5) Escribir directo en el campo id
-        try {
-            Field f = entity.getClass().getDeclaredField("id");
-            f.setAccessible(true);
-            Class<?> t = f.getType();
-            if (t.equals(Long.class) || t.equals(long.class)) {
-                f.set(entity, idValue);
-            } else if (t.equals(Integer.class) || t.equals(int.class)) {
-                f.set(entity, idValue.intValue());
-            } else if (t.equals(String.class)) {
-                f.set(entity, String.valueOf(idValue));
+        // 4) Insertar. Con listeners cada elemento se guarda y se avisa bajo el lock de su id;
+        //    sin listeners, el lote entero de una vez. Sin índices, los lotes grandes van en
+        //    paralelo en ambos casos (el lock por id mantiene el orden de cada id).
+        boolean notify = !listeners.isEmpty();
+        if (!indexes.isEmpty()) {
+            if (notify) {
+                for (int i = 0; i < n; i++) {
+                    if (results[i] != null) continue;
+                    synchronized (writeLock(ids[i])) {
+                        T previous;
+                        synchronized (indexLock) {
+                            previous = insertIndexed(i, items, currentIds, ids, results);
+                        }
+                        if (results[i].isOk()) fireSaved(ids[i], previous, items[i]);
+                    }
+                }
             } else {
-                throw new IllegalStateException("Tipo de id no soportado: " + t.getSimpleName());
+                synchronized (indexLock) {
+                    for (int i = 0; i < n; i++) {
+                        if (results[i] == null) insertIndexed(i, items, currentIds, ids, results);
+                    }
+                }
+            }
+        } else {
+            IntStream range = IntStream.range(0, n);
+            if (n >= PARALLEL_BATCH_THRESHOLD) range = range.parallel();
+            range.forEach(i -> {
+                if (results[i] != null) return;
+                try {
+                    prepare(items[i]);
+                } catch (RuntimeException e) {
+                    results[i] = failed(i, null, items[i], e);
+                    return;
+                }
+                if (!notify) {
+                    storePut(ids[i], items[i]);
+                    results[i] = ok(i, ids[i], items[i]);
+                    return;
+                }
+                synchronized (writeLock(ids[i])) {
+                    T previous = storePut(ids[i], items[i]);
+                    results[i] = ok(i, ids[i], items[i]);
+                    fireSaved(ids[i], previous, items[i]);
+                }
+            });
+            if (!indexes.isEmpty()) { // se creó un índice durante la inserción
+                for (BatchResult.ItemResult<T> r : results) if (r.isOk()) reindex(r.id());
             }
-        } catch (Exception e) {
-            throw new IllegalStateException("No se pudo asignar id por reflexión", e);
         }
+        return new BatchResult<>(Arrays.asList(results));
     }
 
-    private Object getFieldValue(T entity, String fieldName) {
-        // 1) getter
+    /** Inserta items[i] manteniendo índices (con indexLock tomado); deja el resultado en results[i]. */
+    private T insertIndexed(int i, T[] items, long[] currentIds, long[] ids, BatchResult.ItemResult<T>[] results) {
+        T entity = items[i];
         try {
-            String getter = "get" + capitalize(fieldName);
-            Method m = entity.getClass().getMethod(getter);
-            return m.invoke(entity);
-        } catch (Exception ignored) {}
+            prepare(entity);
+            for (EntityIndex<T> idx : indexes) {
+                idx.checkConstraints(currentIds[i] != 0L ? currentIds[i] : null, entity);
+            }
+            if (currentIds[i] == 0L) writeIdFromLong(entity, ids[i]);
+            T previous = storePut(ids[i], entity);
+            for (EntityIndex<T> idx : indexes) idx.put(ids[i], entity);
+            results[i] = ok(i, ids[i], entity);
+            return previous;
+        } catch (RuntimeException e) {
+            results[i] = failed(i, null, entity, e);
+            return null;
+        }
+    }
 
-        // 2) campo directo
+    /** Actualiza el mismo campo en varias entidades; el valor se convierte una vez por clase. */
+    public BatchResult<T> updateAll(Collection<Long> ids, String fieldName, Object newValue) {
+        RepositoryMetrics m = metrics;
+        return m == null ? updateAllInternal(ids, fieldName, newValue)
+                : measured(m, RepositoryMetrics.Operation.UPDATE_ALL, () -> updateAllInternal(ids, fieldName, newValue));
+    }
+
+    private BatchResult<T> updateAllInternal(Collection<Long> ids, String fieldName, Object newValue) {
+        Objects.requireNonNull(ids, "ids no puede ser null");
+        Objects.requireNonNull(fieldName, "fieldName no puede ser null");
+        List<BatchResult.ItemResult<T>> results = new ArrayList<>(ids.size());
+        Class<?> lastType = null;
+        PropertyAccessor accessor = null;
+        Object converted = null;
+        RuntimeException resolveError = null;
+        int i = 0;
+        for (Long id : ids) {
+            int index = i++;
+            T entity = id == null ? null : store.get(id);
+            if (entity == null) {
+                results.add(new BatchResult.ItemResult<>(index, id, null, BatchResult.Status.NOT_FOUND, null));
+                continue;
+            }
+            if (entity.getClass() != lastType) {
+                lastType = entity.getClass();
+                try {
+                    accessor = EntityMetadata.of(lastType).property(fieldName);
+                    converted = canonicalValue(lastType, fieldName, accessor.convert(newValue));
+                    resolveError = null;
+                } catch (RuntimeException e) {
+                    resolveError = new IllegalStateException("No se pudo setear '" + fieldName + "'", e);
+                }
+            }
+            if (resolveError != null) {
+                results.add(failed(index, id, entity, resolveError));
+                continue;
+            }
+            synchronized (writeLock(id)) {
+                try {
+                    Object oldValue;
+                    if (versions != null) {
+                        PropertyAccessor a = accessor;
+                        Object value = converted;
+                        Swap<T> swap = swapCopy(id, -1L, copy -> setFieldValue(copy, a, value), published -> { });
+                        if (swap == null) {
+                            results.add(new BatchResult.ItemResult<>(index, id, null, BatchResult.Status.NOT_FOUND, null));
+                            continue;
+                        }
+                        entity = swap.current().value();
+                        oldValue = accessor.get(swap.previous().value());
+                    } else if (!indexes.isEmpty()) {
+                        oldValue = updateIndexed(id, entity, accessor, converted);
+                    } else {
+                        oldValue = accessor.get(entity);
+                        setFieldValue(entity, accessor, converted);
+                        store.updated(id, entity);
+                        afterUnindexedWrite(id);
+                    }
+                    results.add(ok(index, id, entity));
+                    fireUpdated(id, entity, fieldName, oldValue, converted);
+                } catch (RuntimeException e) {
+                    results.add(failed(index, id, entity, e));
+                }
+            }
+        }
+        return new BatchResult<>(results);
+    }
+
+    /** Elimina varios ids; cada ItemResult lleva la entidad borrada (o NOT_FOUND). */
+    public BatchResult<T> deleteAll(Collection<Long> ids) {
+        RepositoryMetrics m = metrics;
+        return m == null ? deleteAllInternal(ids)
+                : measured(m, RepositoryMetrics.Operation.DELETE_ALL, () -> deleteAllInternal(ids));
+    }
+
+    private BatchResult<T> deleteAllInternal(Collection<Long> ids) {
+        Objects.requireNonNull(ids, "ids no puede ser null");
+        List<BatchResult.ItemResult<T>> results = new ArrayList<>(ids.size());
+        boolean indexed = !indexes.isEmpty();
+        int i = 0;
+        for (Long id : ids) {
+            int index = i++;
+            if (id == null) {
+                results.add(new BatchResult.ItemResult<>(index, null, null, BatchResult.Status.NOT_FOUND, null));
+                continue;
+            }
+            synchronized (writeLock(id)) {
+                T removed;
+                if (indexed) {
+                    synchronized (indexLock) {
+                        removed = storeRemove(id);
+                        for (EntityIndex<T> idx : indexes) idx.remove(id);
+                    }
+                } else {
+                    removed = storeRemove(id);
+                }
+                if (removed != null) {
+                    results.add(ok(index, id, removed));
+                    fireDeleted(id, removed);
+                } else {
+                    results.add(new BatchResult.ItemResult<>(index, id, null, BatchResult.Status.NOT_FOUND, null));
+                }
+            }
+        }
+        if (!indexed && !indexes.isEmpty()) {
+            for (Long id : ids) if (id != null) reindex(id);
+        }
+        return new BatchResult<>(results);
+    }
+
+    /**
+     * Setea el valor ya convertido manteniendo índices; si viola una restricción
+     * deja la entidad como estaba y lanza. Devuelve el valor anterior.
+     */
+    private Object updateIndexed(Long id, T entity, PropertyAccessor accessor, Object converted) {
+        synchronized (indexLock) {
+            Object oldValue = accessor.get(entity);
+            setFieldValue(entity, accessor, converted);
+            try {
+                for (EntityIndex<T> idx : indexes) idx.checkConstraints(id, entity);
+            } catch (IllegalStateException e) {
+                accessor.set(entity, oldValue);
+                throw e;
+            }
+            for (EntityIndex<T> idx : indexes) idx.put(id, entity);
+            store.updated(id, entity);
+            return oldValue;
+        }
+    }
+
+    private static <T> BatchResult.ItemResult<T> ok(int index, Long id, T entity) {
+        return new BatchResult.ItemResult<>(index, id, entity, BatchResult.Status.OK, null);
+    }
+
+    private static <T> BatchResult.ItemResult<T> failed(int index, Long id, T entity, RuntimeException e) {
+        return new BatchResult.ItemResult<>(index, id, entity, BatchResult.Status.FAILED, e);
+    }
+
+    // ===================== Listeners =====================
+
+    /** Registra un listener de escrituras (save/update/delete, también en lote). */
+    public void addListener(RepositoryListener<? super T> listener) {
+        Objects.requireNonNull(listener, "listener no puede ser null");
+        synchronized (indexLock) {
+            List<RepositoryListener<? super T>> copy = new ArrayList<>(listeners);
+            copy.add(listener);
+            listeners = List.copyOf(copy);
+        }
+    }
+
+    public boolean removeListener(RepositoryListener<? super T> listener) {
+        synchronized (indexLock) {
+            List<RepositoryListener<? super T>> copy = new ArrayList<>(listeners);
+            boolean removed = copy.remove(listener);
+            listeners = List.copyOf(copy);
+            return removed;
+        }
+    }
+
+    /** Lock del id: quien escribe un id y avisa a los listeners lo hace con este lock tomado. */
+    private Object writeLock(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return writeLocks[(int) (h >>> 58)]; // 6 bits altos: WRITE_STRIPES = 64
+    }
+
+    // Todos los listeners se enteran aunque uno falle (ej: el WAL sin disco no debe dejar
+    // sin aviso al ChangeStream ni a los índices externos); el primer error se relanza
+    // al final con los demás como suppressed.
+
+    private void fireSaved(long id, T previous, T entity) {
+        RuntimeException error = null;
+        for (RepositoryListener<? super T> l : listeners) {
+            try {
+                l.onSaved(id, previous, entity);
+            } catch (RuntimeException e) {
+                error = collect(error, e);
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private void fireUpdated(long id, T entity, String fieldName, Object oldValue, Object newValue) {
+        RuntimeException error = null;
+        for (RepositoryListener<? super T> l : listeners) {
+            try {
+                l.onUpdated(id, entity, fieldName, oldValue, newValue);
+            } catch (RuntimeException e) {
+                error = collect(error, e);
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private void fireDeleted(long id, T entity) {
+        RuntimeException error = null;
+        for (RepositoryListener<? super T> l : listeners) {
+            try {
+                l.onDeleted(id, entity);
+            } catch (RuntimeException e) {
+                error = collect(error, e);
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private static RuntimeException collect(RuntimeException first, RuntimeException next) {
+        if (first == null) return next;
+        if (first != next) first.addSuppressed(next);
+        return first;
+    }
+
+    // ===================== Internado (flyweight) =====================
+
+    /**
+     * Canonicaliza fieldName con pool en cada escritura (save, saveAll, genericUpdate,
+     * updateAll, copias versionadas y recuperación del WAL): un valor repetido se reemplaza
+     * por la instancia del pool. Si el campo es un List/Set se canonicalizan sus elementos.
+     * Las entidades ya guardadas no se tocan. Ej:
+     *   repo.internField("categoria", Interner.byKey(Categoria.class, Categoria::getDenominacion));
+     *   repo.internField("denominacion", Interner.strings());
+     * Ojo: las instancias canónicas se comparten; modificar una (por setter) se ve en
+     * todas las entidades que la referencian.
+     */
+    public void internField(String fieldName, Interner<?> pool) {
+        InternedField field = new InternedField(fieldName, pool);
+        synchronized (indexLock) {
+            List<InternedField> copy = new ArrayList<>(interned);
+            copy.removeIf(f -> f.fieldName().equals(fieldName));
+            copy.add(field);
+            interned = List.copyOf(copy);
+        }
+    }
+
+    /** Deja de canonicalizar fieldName. */
+    public boolean removeInternField(String fieldName) {
+        synchronized (indexLock) {
+            List<InternedField> copy = new ArrayList<>(interned);
+            boolean removed = copy.removeIf(f -> f.fieldName().equals(fieldName));
+            interned = List.copyOf(copy);
+            return removed;
+        }
+    }
+
+    /**
+     * Todo lo que entra al store pasa por acá: con versionado, la clase tiene que poder
+     * copiarse (constructor sin argumentos); después se canonicalizan los campos internados.
+     */
+    private void prepare(T entity) {
+        if (versions != null) {
+            EntityMetadata metadata = EntityMetadata.of(entity.getClass());
+            if (!metadata.isInstantiable()) {
+                throw new IllegalArgumentException("El versionado copia las entidades y "
+                        + entity.getClass().getSimpleName() + " no tiene constructor sin argumentos");
+            }
+        }
+        for (InternedField f : interned) f.apply(entity);
+    }
+
+    private Object canonicalValue(Class<?> type, String fieldName, Object value) {
+        for (InternedField f : interned) {
+            if (f.fieldName().equals(fieldName)) return f.value(type, value);
+        }
+        return value;
+    }
+
+    // ===================== Métricas =====================
+
+    /**
+     * Activa las métricas y las registra por JMX como
+     * com.biblioteca.repositorio:type=InMemoryRepository,name=&lt;name&gt;.
+     * Si ya estaban activas devuelve las existentes.
+     */
+    public RepositoryMetrics enableMetrics(String name) {
+        Objects.requireNonNull(name, "name no puede ser null");
+        synchronized (indexLock) {
+            if (metrics != null) return metrics;
+            RepositoryMetrics m = new RepositoryMetrics(name, this);
+            try {
+                ObjectName objectName = new ObjectName("com.biblioteca.repositorio:type=InMemoryRepository,name="
+                        + ObjectName.quote(name));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(m, objectName);
+                metricsObjectName = objectName;
+            } catch (JMException e) {
+                throw new IllegalStateException("No se pudieron registrar las métricas '" + name + "' en JMX", e);
+            }
+            metrics = m;
+            return m;
+        }
+    }
+
+    /** Desactiva las métricas y las quita de JMX. */
+    public void disableMetrics() {
+        synchronized (indexLock) {
+            if (metrics == null) return;
+            metrics = null;
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsObjectName);
+            } catch (JMException e) {
+                // Ya no estaba registrado: nada que hacer
+            }
+            metricsObjectName = null;
+        }
+    }
+
+    public Optional<RepositoryMetrics> metrics() {
+        return Optional.ofNullable(metrics);
+    }
+
+    private static <R> R measured(RepositoryMetrics m, RepositoryMetrics.Operation op, Supplier<R> body) {
+        long start = m.start();
         try {
-            Field f = entity.getClass().getDeclaredField(fieldName);
-            f.setAccessible(true);
-            return f.get(entity);
-        } catch (Exception e) {
-            throw new IllegalArgumentException(
-                    "No existe el campo '" + fieldName + "' en " + entity.getClass().getSimpleName(), e
-            );
+            R result = body.get();
+            m.record(op, start);
+            return result;
+        } catch (RuntimeException e) {
+            m.recordFailure(op, start);
+            throw e;
         }
     }
 
-    private void setFieldValue(T entity, String fieldName, Object newValue) {
-        // 1) setter tipado
+    // ===================== Versionado (copy-on-write) =====================
+
+    /**
+     * Activa el versionado. Se llama con el repositorio vacío (antes de cargar datos
+     * o de abrir el WriteAheadLog). Desde ahí:
+     * - genericUpdate/updateAll no modifican la entidad guardada: publican una copia modificada.
+     * - findById devuelve instantáneas que el repositorio no vuelve a tocar
+     *   (siempre que nadie las modifique por setter).
+     * - Cada escritura asigna una versión nueva (updateIfVersion / update).
+     * Cuesta una entrada extra de mapa por entidad y una copia por actualización.
+     */
+    public void enableVersioning() {
+        synchronized (indexLock) {
+            if (versions != null) return;
+            requireUnbounded("versionado");
+            if (store.size() > 0) {
+                throw new IllegalStateException("enableVersioning requiere el repositorio vacío");
+            }
+            versions = new ConcurrentHashMap<>();
+        }
+    }
+
+    public boolean isVersioningEnabled() {
+        return versions != null;
+    }
+
+    /** Entidad con su versión actual (lectura consistente del par). */
+    public Optional<Versioned<T>> findVersioned(long id) {
+        return Optional.ofNullable(requireVersions().get(id));
+    }
+
+    /**
+     * Compare-and-set: aplica mutator sobre una copia de la entidad y la publica solo si
+     * la versión sigue siendo expectedVersion. Vacío si la versión cambió o el id no existe.
+     * El mutator corre fuera de locks y no debe cambiar el id. Notifica onSaved(previa, nueva).
+     */
+    public Optional<Versioned<T>> updateIfVersion(long id, long expectedVersion, Consumer<? super T> mutator) {
+        Objects.requireNonNull(mutator, "mutator no puede ser null");
+        requireVersions();
+        Swap<T> swap = swapCopy(id, expectedVersion, mutator,
+                published -> fireSaved(id, published.previous().value(), published.current().value()));
+        return swap == null ? Optional.empty() : Optional.of(swap.current());
+    }
+
+    /**
+     * Lee, modifica y publica con updateIfVersion, reintentando ante conflictos según policy.
+     * Vacío si el id no existe; IllegalStateException si se agotan los intentos.
+     */
+    public Optional<Versioned<T>> update(long id, Consumer<? super T> mutator, RetryPolicy policy) {
+        Objects.requireNonNull(mutator, "mutator no puede ser null");
+        Objects.requireNonNull(policy, "policy no puede ser null");
+        ConcurrentHashMap<Long, Versioned<T>> v = requireVersions();
+        for (int attempt = 1; ; attempt++) {
+            Versioned<T> current = v.get(id);
+            if (current == null) return Optional.empty();
+            Optional<Versioned<T>> updated = updateIfVersion(id, current.version(), mutator);
+            if (updated.isPresent()) return updated;
+            if (attempt >= policy.maxAttempts()) {
+                throw new IllegalStateException("Conflicto de versión en id=" + id
+                        + ": sin éxito tras " + attempt + " intentos (" + policy + ")");
+            }
+            policy.pause(attempt);
+        }
+    }
+
+    private ConcurrentHashMap<Long, Versioned<T>> requireVersions() {
+        ConcurrentHashMap<Long, Versioned<T>> v = versions;
+        if (v == null) throw new IllegalStateException("El versionado no está habilitado (enableVersioning)");
+        return v;
+    }
+
+    /** Versión reemplazada y versión publicada por swapCopy. */
+    private record Swap<T>(Versioned<T> previous, Versioned<T> current) {
+    }
+
+    /**
+     * Copia la versión actual, le aplica mutator y la publica si nadie escribió en el medio.
+     * expectedVersion &lt; 0 = cualquier versión (reintenta solo). null si no existe o si
+     * la versión no coincide. El mutator corre sin locks; la publicación y onPublished
+     * (el aviso a listeners) corren con el lock del id.
+     */
+    private Swap<T> swapCopy(long id, long expectedVersion, Consumer<? super T> mutator,
+                             Consumer<Swap<T>> onPublished) {
+        ConcurrentHashMap<Long, Versioned<T>> v = versions;
+        while (true) {
+            Versioned<T> base = v.get(id);
+            if (base == null) return null;
+            if (expectedVersion >= 0 && base.version() != expectedVersion) return null;
+
+            @SuppressWarnings("unchecked")
+            T copy = (T) EntityMetadata.of(base.value().getClass()).copy(base.value());
+            mutator.accept(copy);
+            prepare(copy);
+            Long copyId = readIdAsLong(copy);
+            if (copyId == null || copyId != id) {
+                throw new IllegalArgumentException("El mutator no puede cambiar el id (" + id + " -> " + copyId + ")");
+            }
+
+            synchronized (writeLock(id)) {
+                Versioned<T> published;
+                if (!indexes.isEmpty()) {
+                    synchronized (indexLock) {
+                        for (EntityIndex<T> idx : indexes) idx.checkConstraints(id, copy);
+                        published = publish(v, id, base, copy);
+                        if (published != null) {
+                            for (EntityIndex<T> idx : indexes) idx.put(id, copy);
+                        }
+                    }
+                } else {
+                    published = publish(v, id, base, copy);
+                    if (published != null) afterUnindexedWrite(id);
+                }
+                if (published != null) {
+                    Swap<T> swap = new Swap<>(base, published);
+                    onPublished.accept(swap);
+                    return swap;
+                }
+            }
+            if (expectedVersion >= 0) return null;
+        }
+    }
+
+    /** Reemplaza base por copy si base sigue vigente (comparación por identidad). */
+    private Versioned<T> publish(ConcurrentHashMap<Long, Versioned<T>> v, long id, Versioned<T> base, T copy) {
+        Versioned<T> result = v.compute(id, (k, now) -> {
+            if (now != base) return now;
+            store.put(k, copy);
+            return new Versioned<>(copy, versionClock.incrementAndGet());
+        });
+        return result != null && result.value() == copy ? result : null;
+    }
+
+    /** genericUpdate con versionado: publica una copia con el campo cambiado. */
+    private boolean updateCopy(Long id, String fieldName, Object newValue) {
+        Versioned<T> current = versions.get(id);
+        if (current == null) return false;
+        PropertyAccessor accessor = accessorFor(current.value(), fieldName);
+        Object converted = canonicalValue(current.value().getClass(), fieldName, convertFor(accessor, newValue));
+        Swap<T> swap = swapCopy(id, -1L, copy -> setFieldValue(copy, accessor, converted), published -> { });
+        if (swap == null) return false;
+        fireUpdated(id, swap.current().value(), fieldName, accessor.get(swap.previous().value()), converted);
+        return true;
+    }
+
+    /** store.put; con versionado, junto con la versión nueva. */
+    private T storePut(long id, T entity) {
+        ConcurrentHashMap<Long, Versioned<T>> v = versions;
+        if (v == null) return store.put(id, entity);
+        List<T> previous = new ArrayList<>(1);
+        v.compute(id, (k, now) -> {
+            previous.add(store.put(k, entity));
+            return new Versioned<>(entity, versionClock.incrementAndGet());
+        });
+        return previous.get(0);
+    }
+
+    /** store.remove; con versionado, también descarta la versión. */
+    private T storeRemove(long id) {
+        ConcurrentHashMap<Long, Versioned<T>> v = versions;
+        if (v == null) return store.remove(id);
+        List<T> removed = new ArrayList<>(1);
+        v.compute(id, (k, now) -> {
+            removed.add(store.remove(k));
+            return null;
+        });
+        return removed.get(0);
+    }
+
+    // ===================== Restauración (persistencia) =====================
+
+    /** Último id emitido por la secuencia. */
+    long currentSequence() {
+        return sequence.get();
+    }
+
+    /** Reserva un id nuevo de la secuencia (ej: altas dentro de una Transaction). */
+    long nextId() {
+        return sequence.incrementAndGet();
+    }
+
+    /** Lee sin envolver en Optional (uso interno del paquete). */
+    T peek(long id) {
+        return store.get(id);
+    }
+
+    void forEachEntry(EntityStore.EntryConsumer<? super T> action) {
+        store.forEachEntry(action);
+    }
+
+    /**
+     * Aplica una escritura de un commit de TransactionManager (value null = borrar) sin avisar
+     * a los listeners: chequea restricciones y mantiene índices como save/genericDelete.
+     * Devuelve la entidad anterior. El aviso va aparte (notifyApplied), cuando todo el commit
+     * quedó aplicado: un commit que se deshace no le llega al WAL, al ChangeStream ni a los cachés.
+     */
+    T applyQuietly(long id, T value) {
+        synchronized (writeLock(id)) {
+            if (value != null) prepare(value);
+            synchronized (indexLock) {
+                if (value == null) {
+                    T removed = storeRemove(id);
+                    for (EntityIndex<T> idx : indexes) idx.remove(id);
+                    return removed;
+                }
+                for (EntityIndex<T> idx : indexes) idx.checkConstraints(id, value);
+                T previous = storePut(id, value);
+                for (EntityIndex<T> idx : indexes) idx.put(id, value);
+                sequence.accumulateAndGet(id, Math::max);
+                return previous;
+            }
+        }
+    }
+
+    /** Avisa a los listeners una escritura hecha con applyQuietly. */
+    void notifyApplied(long id, T previous, T value) {
+        synchronized (writeLock(id)) {
+            if (value != null) fireSaved(id, previous, value);
+            else if (previous != null) fireDeleted(id, previous);
+        }
+    }
+
+    /** Carga una entidad recuperada: le asigna el id, mantiene índices, no notifica listeners. */
+    void restore(long id, T entity) {
+        EntityMetadata.of(entity.getClass()).writeId(entity, id);
+        prepare(entity);
+        synchronized (indexLock) {
+            storePut(id, entity);
+            for (EntityIndex<T> idx : indexes) idx.put(id, entity);
+        }
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    /** Borra una entidad durante la recuperación, sin notificar listeners. */
+    void restoreDelete(long id) {
+        synchronized (indexLock) {
+            storeRemove(id);
+            for (EntityIndex<T> idx : indexes) idx.remove(id);
+        }
+    }
+
+    /** La secuencia nunca retrocede: toma el máximo. */
+    void restoreSequence(long value) {
+        sequence.accumulateAndGet(value, Math::max);
+    }
+
+    // ===================== Índices secundarios =====================
+
+    /** Crea un índice hash (no único) sobre el campo: genericFindByField pasa a O(1). */
+    public void createIndex(String fieldName) {
+        addIndex(new HashIndex<>(fieldName, false));
+    }
+
+    /** Crea un índice hash único: save/genericUpdate rechazan valores repetidos (null se permite). */
+    public void createUniqueIndex(String fieldName) {
+        addIndex(new HashIndex<>(fieldName, true));
+    }
+
+    /** Crea un índice ordenado sobre el campo (rangos, prefijo, top-N). */
+    public void createOrderedIndex(String fieldName) {
+        addIndex(new OrderedIndex<>(fieldName));
+    }
+
+    /**
+     * Crea un índice ordenado sobre una clave derivada, identificado por name.
+     * Ej: createOrderedIndex("faltante", i -> i.getStockActual() - i.getStockMinimo())
+     * y luego findRange("faltante", null, false, 0, false) para stockActual < stockMinimo.
+     */
+    public void createOrderedIndex(String name, Function<? super T, ? extends Comparable<?>> keyExtractor) {
+        addIndex(new OrderedIndex<>(name, keyExtractor));
+    }
+
+    /**
+     * Entidades con from <= clave <= to (según inclusividad), en orden ascendente.
+     * from/to null = sin límite. El resultado es perezoso y débilmente consistente.
+     * Los límites se convierten al tipo de la clave (10 sirve para un Double); si no se
+     * puede (10.5 para un Long), IllegalArgumentException.
+     */
+    public Stream<T> findRange(String indexName, Object from, boolean fromInclusive,
+                               Object to, boolean toInclusive) {
+        OrderedIndex<T> index = requireOrderedIndex(indexName);
+        return resolve(index, index.range(from, fromInclusive, to, toInclusive).stream());
+    }
+
+    /** Entidades cuya clave (String) empieza con el prefijo, en orden ascendente. */
+    public Stream<T> findByPrefix(String indexName, String prefix) {
+        OrderedIndex<T> index = requireOrderedIndex(indexName);
+        return resolve(index, index.prefix(prefix).stream());
+    }
+
+    /** Las n entidades con mayor (descending) o menor clave del índice. */
+    public Stream<T> findTopN(String indexName, int n, boolean descending) {
+        if (n < 0) throw new IllegalArgumentException("n no puede ser negativo");
+        OrderedIndex<T> index = requireOrderedIndex(indexName);
+        var entries = descending ? index.all().descendingSet() : index.all();
+        return resolve(index, entries.stream()).limit(n);
+    }
+
+    /**
+     * Consulta con condiciones compuestas (Filter: and/or, rango, in, prefijo), proyecciones
+     * y agregados (count, sum, countBy, sumBy). Usa los índices si los hay y si no recorre
+     * el store, en paralelo para colecciones grandes. Ver Query.
+     */
+    public Query<T> query() {
+        requireUnbounded("query");
+        return new Query<>(this);
+    }
+
+    /** Elimina el índice del campo. Devuelve false si no existía. */
+    public boolean dropIndex(String fieldName) {
+        synchronized (indexLock) {
+            List<EntityIndex<T>> copy = new ArrayList<>(indexes);
+            boolean removed = copy.removeIf(idx -> idx.fieldName().equals(fieldName));
+            indexes = List.copyOf(copy);
+            return removed;
+        }
+    }
+
+    /**
+     * Re-indexa una entidad modificada por fuera del repositorio (ej: m.setDescripcion(...)).
+     * Si el nuevo valor viola un índice único lanza IllegalStateException y el índice no cambia.
+     */
+    public void reindex(Long id) {
+        synchronized (indexLock) {
+            T entity = store.get(id);
+            if (entity == null) {
+                for (EntityIndex<T> idx : indexes) idx.remove(id);
+                return;
+            }
+            for (EntityIndex<T> idx : indexes) idx.checkConstraints(id, entity);
+            for (EntityIndex<T> idx : indexes) idx.put(id, entity);
+        }
+    }
+
+    /** Re-indexa todas las entidades. */
+    public void reindexAll() {
+        synchronized (indexLock) {
+            store.forEachEntry((id, entity) -> reindex(id));
+        }
+    }
+
+    private void addIndex(EntityIndex<T> index) {
+        requireUnbounded("índices secundarios");
+        synchronized (indexLock) {
+            for (EntityIndex<T> idx : indexes) {
+                if (idx.fieldName().equals(index.fieldName()) && idx.getClass() == index.getClass()) {
+                    throw new IllegalStateException("Ya existe un índice sobre '" + index.fieldName() + "'");
+                }
+            }
+            store.forEachEntry((id, entity) -> {
+                index.checkConstraints(id, entity);
+                index.put(id, entity);
+            });
+            List<EntityIndex<T>> copy = new ArrayList<>(indexes);
+            copy.add(index);
+            indexes = List.copyOf(copy);
+        }
+    }
+
+    HashIndex<T> hashIndexFor(String fieldName) {
+        for (EntityIndex<T> idx : indexes) {
+            if (idx instanceof HashIndex<T> hash && hash.fieldName().equals(fieldName)) return hash;
+        }
+        return null;
+    }
+
+    /** Índice ordenado con ese nombre, o null. */
+    OrderedIndex<T> orderedIndexFor(String indexName) {
+        for (EntityIndex<T> idx : indexes) {
+            if (idx instanceof OrderedIndex<T> ordered && ordered.fieldName().equals(indexName)) return ordered;
+        }
+        return null;
+    }
+
+    private OrderedIndex<T> requireOrderedIndex(String indexName) {
+        OrderedIndex<T> ordered = orderedIndexFor(indexName);
+        if (ordered != null) return ordered;
+        throw new IllegalArgumentException("No existe un índice ordenado '" + indexName + "'");
+    }
+
+    /** id -> entidad, descartando borradas y entradas obsoletas (cambios por setter sin reindex). */
+    private Stream<T> resolve(OrderedIndex<T> index, Stream<OrderedIndex.Entry> entries) {
+        return entries.map(e -> {
+            T entity = store.get(e.id());
+            return entity != null && index.isCurrent(e, entity) ? entity : null;
+        }).filter(Objects::nonNull);
+    }
+
+    /** Para lo que necesita todas las entidades en memoria (índices, versionado, WriteAheadLog). */
+    void requireUnbounded(String feature) {
+        if (bounded) {
+            throw new IllegalStateException("No se puede usar " + feature + " con BoundedStore: requiere todas las entidades en memoria");
+        }
+    }
+
+    /**
+     * Una escritura sin lock pudo cruzarse con un createIndex en curso:
+     * si ahora hay índices, se re-indexa ese id bajo el lock.
+     */
+    private void afterUnindexedWrite(Long id) {
+        if (!indexes.isEmpty()) reindex(id);
+    }
+
+    // ===================== Helpers de acceso (cacheados por clase) =====================
+
+    private long assignId(T entity) {
+        Long current = readIdAsLong(entity);
+        if (current == null || current == 0L) { // Entidad nueva
+            long id = sequence.incrementAndGet();
+            writeIdFromLong(entity, id);
+            return id;
+        }
+        // Evita la captura de variable en lambda
+        sequence.accumulateAndGet(current, Math::max);
+        return current;
+    }
+
+    private Long readIdAsLong(T entity) {
+        return EntityMetadata.of(entity.getClass()).readId(entity);
+    }
+
+    private void writeIdFromLong(T entity, long idValue) {
+        EntityMetadata.of(entity.getClass()).writeId(entity, idValue);
+    }
+
+    private PropertyAccessor accessorFor(T entity, String fieldName) {
         try {
-            Field f = entity.getClass().getDeclaredField(fieldName);
-            Class<?> type = f.getType();
-            String setter = "set" + capitalize(fieldName);
-            Method m = entity.getClass().getMethod(setter, type);
-            m.invoke(entity, convertValue(newValue, type));
-            return;
-        } catch (NoSuchFieldException | NoSuchMethodException ignored) {
-        } catch (Exception e) {
+            return EntityMetadata.of(entity.getClass()).property(fieldName);
+        } catch (IllegalArgumentException e) {
             throw new IllegalStateException("No se pudo setear '" + fieldName + "'", e);
         }
+    }
 
-        // 2) campo directo
+    private Object convertFor(PropertyAccessor accessor, Object newValue) {
         try {
-            Field f = entity.getClass().getDeclaredField(fieldName);
-            f.setAccessible(true);
-            f.set(entity, convertValue(newValue, f.getType()));
-        } catch (Exception e) {
-            throw new IllegalStateException("No se pudo setear '" + fieldName + "'", e);
+            return accessor.convert(newValue);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("No se pudo setear '" + accessor.name() + "'", e);
         }
     }
 
-    private Long coerceToLongOrNull(Object value) {
-        if (value == null) return null;
-        if (value instanceof Long)    return (Long) value;
-        if (value instanceof Integer) return ((Integer) value).longValue();
-        if (value instanceof Short)   return ((Short) value).longValue();
-        if (value instanceof String)  return Long.valueOf((String) value);
-        return null;
+    /** Asigna un valor ya convertido. */
+    private void setFieldValue(T entity, PropertyAccessor accessor, Object converted) {
+        try {
+            accessor.set(entity, converted);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("No se pudo setear '" + accessor.name() + "'", e);
+        }
     }
 
-    private Object convertValue(Object value, Class<?> targetType) {
-        if (value == null) return null;
-        if (targetType.isInstance(value)) return value;
+    /** Recorrido por igualdad: el accessor se resuelve una vez por clase, no por entidad. */
+    private static final class FieldScan<T> implements Consumer<T> {
+        private final String fieldName;
+        private final Object expectedValue;
+        private final List<T> result;
+        private Class<?> lastType;
+        private PropertyAccessor accessor;
 
-        String s = String.valueOf(value);
-        if (targetType.equals(String.class)) return s;
-        if (targetType.equals(Long.class) || targetType.equals(long.class)) return Long.valueOf(s);
-        if (targetType.equals(Integer.class) || targetType.equals(int.class)) return Integer.valueOf(s);
-        if (targetType.equals(Short.class) || targetType.equals(short.class)) return Short.valueOf(s);
-        if (targetType.equals(Boolean.class) || targetType.equals(boolean.class)) return Boolean.valueOf(s);
-        if (targetType.equals(Double.class) || targetType.equals(double.class)) return Double.valueOf(s);
-        if (targetType.equals(Float.class)  || targetType.equals(float.class))  return Float.valueOf(s);
-        if (targetType.isEnum()) {
-            @SuppressWarnings("unchecked")
-            Class<? extends Enum> et = (Class<? extends Enum>) targetType;
-            return Enum.valueOf(et, s);
+        FieldScan(String fieldName, Object expectedValue, List<T> result) {
+            this.fieldName = fieldName;
+            this.expectedValue = expectedValue;
+            this.result = result;
         }
-        throw new IllegalArgumentException("No sé convertir '" + s + "' a " + targetType.getSimpleName());
-    }
 
-    private String capitalize(String name) {
-        if (name == null || name.isEmpty()) return name;
-        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        @Override
+        public void accept(T entity) {
+            if (entity.getClass() != lastType) {
+                lastType = entity.getClass();
+                accessor = EntityMetadata.of(lastType).property(fieldName);
+            }
+            if (Objects.equals(accessor.get(entity), expectedValue)) {
+                result.add(entity);
+            }
+        }
     }
 }
@@ -0,0 +1,119 @@
+package com.biblioteca.repositorio;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Un campo canonicalizado con un Interner (InMemoryRepository.internField).
+ * - Campo simple: se reemplaza el valor por la instancia canónica.
+ * - Campo List/Set (ej: imagenes): se reemplazan los elementos en la misma colección.
+ * - Una clase sin ese campo (repositorio polimórfico, ej: detalles solo en
+ *   ArticuloManufacturado) se deja como está.
+ * - Como PropertyPath, cachea el accessor de la última clase vista en un objeto
+ *   inmutable que se reemplaza entero (thread-safe sin locks).
+ */
+final class InternedField {
+
+    private enum Mode { NONE, VALUE, LIST, SET }
+
+    private record Resolved(Class<?> type, PropertyAccessor accessor, Mode mode) {
+    }
+
+    private final String fieldName;
+    private final Interner<?> pool;
+    private Resolved resolved;
+
+    InternedField(String fieldName, Interner<?> pool) {
+        this.fieldName = Objects.requireNonNull(fieldName, "fieldName no puede ser null");
+        this.pool = Objects.requireNonNull(pool, "pool no puede ser null");
+    }
+
+    String fieldName() {
+        return fieldName;
+    }
+
+    /** Canonicaliza el campo de entity (en el lugar). */
+    void apply(Object entity) {
+        Resolved r = resolve(entity.getClass());
+        switch (r.mode()) {
+            case NONE -> {
+            }
+            case VALUE -> {
+                Object value = r.accessor().get(entity);
+                Object canonical = pool.internObject(value);
+                if (canonical != value) r.accessor().set(entity, canonical);
+            }
+            case LIST -> {
+                List<?> list = (List<?>) r.accessor().get(entity);
+                if (list != null) internList(list);
+            }
+            case SET -> {
+                Set<?> set = (Set<?>) r.accessor().get(entity);
+                if (set != null) internSet(set);
+            }
+        }
+    }
+
+    /** El valor a setear en el campo de una entidad de la clase type (genericUpdate/updateAll). */
+    Object value(Class<?> type, Object value) {
+        return resolve(type).mode() == Mode.VALUE ? pool.internObject(value) : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void internList(List<?> list) {
+        for (ListIterator<Object> it = (ListIterator<Object>) list.listIterator(); it.hasNext(); ) {
+            Object element = it.next();
+            Object canonical = pool.internObject(element);
+            if (canonical != element) it.set(canonical);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void internSet(Set<?> set) {
+        List<Object> duplicates = null;
+        List<Object> canonicals = null;
+        for (Object element : set) {
+            Object canonical = pool.internObject(element);
+            if (canonical == element) continue;
+            if (duplicates == null) {
+                duplicates = new ArrayList<>();
+                canonicals = new ArrayList<>();
+            }
+            duplicates.add(element);
+            canonicals.add(canonical);
+        }
+        if (duplicates == null) return;
+        set.removeAll(duplicates);
+        ((Collection<Object>) set).addAll(canonicals);
+    }
+
+    private Resolved resolve(Class<?> type) {
+        Resolved r = resolved;
+        if (r != null && r.type() == type) return r;
+        PropertyAccessor accessor = EntityMetadata.of(type).findProperty(fieldName);
+        Mode mode;
+        if (accessor == null) {
+            mode = Mode.NONE;
+        } else if (List.class.isAssignableFrom(accessor.type())) {
+            mode = Mode.LIST;
+        } else if (Set.class.isAssignableFrom(accessor.type())) {
+            mode = Mode.SET;
+        } else if (Collection.class.isAssignableFrom(accessor.type()) || Map.class.isAssignableFrom(accessor.type())) {
+            throw new IllegalArgumentException("internField soporta List y Set, no " + accessor.type().getSimpleName()
+                    + " ('" + fieldName + "' en " + type.getSimpleName() + ")");
+        } else if (accessor.type().isAssignableFrom(pool.type())) {
+            mode = Mode.VALUE;
+        } else {
+            throw new IllegalArgumentException("El campo '" + fieldName + "' de " + type.getSimpleName() + " es "
+                    + accessor.type().getSimpleName() + ": no admite valores de " + pool.type().getSimpleName());
+        }
+        r = new Resolved(type, accessor, mode);
+        resolved = r;
+        return r;
+    }
+}
@@ -0,0 +1,157 @@
+package com.biblioteca.repositorio;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Pool de instancias canónicas (flyweight) con referencias débiles.
+ * - byKey(tipo, clave natural): dos valores con la misma clave son "el mismo"
+ *   (ej: Categoria por denominacion). intern devuelve siempre la primera instancia
+ *   registrada; el resto de los campos del duplicado se descartan.
+ * - byEquality(tipo) / strings(): la clave es el valor mismo (equals/hashCode).
+ * - Débil: el pool no mantiene vivo a nadie. Cuando ninguna entidad referencia a la
+ *   instancia canónica, el GC la junta y su entrada se limpia en el próximo intern.
+ * - Thread-safe (ConcurrentHashMap): el mismo pool se puede compartir entre repositorios
+ *   (ej: las categorías de insumos y de manufacturados).
+ * Se conecta a un repositorio con InMemoryRepository.internField.
+ */
+public final class Interner<T> {
+
+    private final Class<T> type;
+    private final Function<? super T, ?> naturalKey; // null = el valor mismo
+    private final ConcurrentHashMap<Object, Ref<T>> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+
+    private Interner(Class<T> type, Function<? super T, ?> naturalKey) {
+        this.type = Objects.requireNonNull(type, "type no puede ser null");
+        this.naturalKey = naturalKey;
+    }
+
+    /** Canonicaliza por clave natural. Un valor con clave null no se interna. */
+    public static <T> Interner<T> byKey(Class<T> type, Function<? super T, ?> naturalKey) {
+        return new Interner<>(type, Objects.requireNonNull(naturalKey, "naturalKey no puede ser null"));
+    }
+
+    /** Canonicaliza por equals/hashCode del valor (value objects inmutables). */
+    public static <T> Interner<T> byEquality(Class<T> type) {
+        return new Interner<>(type, null);
+    }
+
+    /** Pool de strings propio (a diferencia de String.intern, no es global ni vive para siempre). */
+    public static Interner<String> strings() {
+        return byEquality(String.class);
+    }
+
+    /** La instancia canónica equivalente a value (value mismo si es la primera). null -> null. */
+    public T intern(T value) {
+        if (value == null) return null;
+        expunge();
+        Object key = naturalKey == null ? new Probe(value) : naturalKey.apply(value);
+        if (key == null) return value;
+        while (true) {
+            Ref<T> ref = pool.get(key);
+            if (ref != null) {
+                T canonical = ref.get();
+                if (canonical != null) {
+                    if (canonical != value) hits.increment();
+                    return canonical;
+                }
+                pool.remove(ref.mapKey(), ref);
+                continue;
+            }
+            Ref<T> created = naturalKey == null
+                    ? new Ref<>(value, null, value.hashCode(), queue)
+                    : new Ref<>(value, key, 0, queue);
+            if (pool.putIfAbsent(created.mapKey(), created) == null) return value;
+        }
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    /** Instancias canónicas registradas (incluye las ya juntadas por el GC y no limpiadas). */
+    public int size() {
+        expunge();
+        return pool.size();
+    }
+
+    /** Cuántas veces intern devolvió otra instancia (duplicados reemplazados). */
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Interner[" + type.getSimpleName() + ", size=" + pool.size() + ", hits=" + hits.sum() + "]";
+    }
+
+    /** Como intern, para valores sin tipo estático: lo que no es del tipo del pool pasa igual. */
+    Object internObject(Object value) {
+        return type.isInstance(value) ? intern(type.cast(value)) : value;
+    }
+
+    private void expunge() {
+        for (Object r; (r = queue.poll()) != null; ) {
+            @SuppressWarnings("unchecked")
+            Ref<T> ref = (Ref<T>) r;
+            pool.remove(ref.mapKey(), ref);
+        }
+    }
+
+    /**
+     * Entrada del pool. Con clave natural el mapa se indexa por esa clave; sin ella la
+     * clave es la Ref misma (guardar el valor como clave lo mantendría vivo).
+     */
+    private static final class Ref<T> extends WeakReference<T> {
+        private final Object key;
+        private final int hash;
+
+        Ref(T value, Object key, int hash, ReferenceQueue<T> queue) {
+            super(value, queue);
+            this.key = key;
+            this.hash = hash;
+        }
+
+        Object mapKey() {
+            return key != null ? key : this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Ref<?> other)) return false;
+            Object value = get();
+            return value != null && value.equals(other.get());
+        }
+    }
+
+    /** Clave de búsqueda del modo por igualdad: se compara contra el valor de la Ref. */
+    private static final class Probe {
+        private final Object value;
+
+        Probe(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Ref<?> ref && value.equals(ref.get());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.biblioteca.repositorio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias (ns) con buckets log-lineales, estilo HdrHistogram.
+ * - 16 sub-buckets por potencia de 2: error relativo máximo ~6%, de 1 ns a 2^63 ns.
+ * - Registrar es un incremento atómico, sin locks ni asignaciones.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.getAndIncrement(bucketOf(nanos));
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) m = max.get();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    /** Valor (cota superior del bucket) por debajo del cual queda la fracción q de las muestras. */
+    long percentile(double q) {
+        if (q < 0.0 || q > 1.0) throw new IllegalArgumentException("q debe estar entre 0 y 1");
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0L;
+        long target = Math.max(1L, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0L);
+        max.set(0L);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB - 1);
+        return (magnitude - SUB_BITS + 1) * SUB + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int magnitude = bucket / SUB + SUB_BITS - 1;
+        int sub = bucket % SUB;
+        int shift = magnitude - SUB_BITS;
+        return ((long) (SUB + sub) << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,126 @@
+package com.biblioteca.repositorio;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * N procesos ShardServer en esta máquina (para probar ShardedRepository en una sola caja).
+ * - Cada shard es un JVM hijo con el mismo classpath, escuchando en loopback en un puerto libre.
+ * - start espera a que todos impriman su línea de listo.
+ * - Los hijos terminan al cerrar el cluster o si este proceso muere (se cierra su stdin).
+ *   Ej:
+ *   try (LocalShardCluster cluster = LocalShardCluster.start(4, ArticuloInsumo.class, Categoria.class, UnidadMedida.class);
+ *        ShardedRepository&lt;ArticuloInsumo&gt; repo = cluster.repository(ArticuloInsumo.class).connect()) { ... }
+ */
+public final class LocalShardCluster implements Closeable {
+
+    private static final long STOP_TIMEOUT_SECONDS = 5;
+
+    private final List<Process> processes;
+    private final List<InetSocketAddress> addresses;
+    private final Class<?>[] classes;
+
+    private LocalShardCluster(List<Process> processes, List<InetSocketAddress> addresses, Class<?>[] classes) {
+        this.processes = processes;
+        this.addresses = List.copyOf(addresses);
+        this.classes = classes;
+    }
+
+    /** classes: la clase de las entidades primero y después las que referencian. */
+    public static LocalShardCluster start(int shards, Class<?>... classes) throws IOException {
+        return start(shards, List.of(), classes);
+    }
+
+    /** Igual que start, con opciones para los JVM hijos (ej: "-Xmx512m"). */
+    public static LocalShardCluster start(int shards, List<String> jvmArgs, Class<?>... classes) throws IOException {
+        if (shards < 1) throw new IllegalArgumentException("shards debe ser >= 1");
+        if (classes.length == 0) throw new IllegalArgumentException("Falta la clase de las entidades");
+        Objects.requireNonNull(jvmArgs, "jvmArgs no puede ser null");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>(shards);
+        try {
+            for (int i = 0; i < shards; i++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(jvmArgs);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(ShardServer.class.getName());
+                command.add("0");
+                command.add(String.valueOf(i));
+                command.add(String.valueOf(shards));
+                for (Class<?> c : classes) command.add(c.getName());
+                processes.add(new ProcessBuilder(command)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+            // Arrancan todos a la vez; acá se espera a cada uno
+            List<InetSocketAddress> addresses = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) addresses.add(awaitReady(processes.get(i), i));
+            return new LocalShardCluster(processes, addresses, classes.clone());
+        } catch (IOException | RuntimeException e) {
+            for (Process p : processes) p.destroyForcibly();
+            throw e;
+        }
+    }
+
+    private static InetSocketAddress awaitReady(Process process, int index) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        String prefix = "SHARD " + index + " " + ShardServer.READY + " ";
+        if (line == null || !line.startsWith(prefix)) {
+            throw new IOException("El shard " + index + " no arrancó"
+                    + (line == null ? " (terminó con código " + exitCode(process) + ")" : ": " + line));
+        }
+        int port = Integer.parseInt(line.substring(prefix.length()).trim());
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private static String exitCode(Process process) {
+        try {
+            return process.waitFor(1, TimeUnit.SECONDS) ? String.valueOf(process.exitValue()) : "?";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "?";
+        }
+    }
+
+    public List<InetSocketAddress> addresses() {
+        return addresses;
+    }
+
+    /** Builder conectado a estos shards, con las clases del cluster como relacionadas. */
+    public <T> ShardedRepository.Builder<T> repository(Class<T> type) {
+        return ShardedRepository.builder(type).shards(addresses).related(classes);
+    }
+
+    /** Cierra el stdin de cada shard (terminan solos) y fuerza a los que no terminan a tiempo. */
+    @Override
+    public void close() {
+        for (Process p : processes) {
+            try {
+                p.getOutputStream().close();
+            } catch (IOException ignored) {
+                // ya terminó
+            }
+        }
+        for (Process p : processes) {
+            try {
+                if (!p.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) p.destroyForcibly();
+            } catch (InterruptedException e) {
+                p.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.biblioteca.repositorio;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** EvictionPolicy.lru(): LinkedHashMap en orden de acceso (id -> peso). */
+final class LruPolicy implements EvictionPolicy {
+
+    private final LinkedHashMap<Long, Long> order = new LinkedHashMap<>(16, 0.75f, true);
+    private long weightedSize;
+
+    @Override
+    public void recordWrite(long id, long weight) {
+        Long previous = order.put(id, weight);
+        weightedSize += weight - (previous == null ? 0L : previous);
+    }
+
+    @Override
+    public void recordAccess(long id) {
+        order.get(id);
+    }
+
+    @Override
+    public void recordRemoval(long id) {
+        Long weight = order.remove(id);
+        if (weight != null) weightedSize -= weight;
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public long victim() {
+        Map.Entry<Long, Long> eldest = order.pollFirstEntry();
+        if (eldest == null) return -1L;
+        weightedSize -= eldest.getValue();
+        return eldest.getKey();
+    }
+}
@@ -0,0 +1,130 @@
+package com.biblioteca.repositorio;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Índice ordenado (skip list) para consultas por rango, prefijo y top-N.
+ * - Entradas (clave, id) ordenadas por clave y luego por id: no hace falta un Set por clave.
+ * - La clave puede ser una propiedad o una función derivada (ej: stockActual - stockMinimo).
+ * - Los valores null no se indexan.
+ */
+final class OrderedIndex<T> extends EntityIndex<T> {
+
+    private final Function<? super T, ? extends Comparable<?>> keyExtractor;
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+    private final Map<Long, Entry> entryById = new ConcurrentHashMap<>();
+
+    /** Índice sobre una propiedad. */
+    OrderedIndex(String fieldName) {
+        super(fieldName);
+        this.keyExtractor = null;
+    }
+
+    /** Índice sobre una clave derivada; name identifica al índice en las consultas. */
+    OrderedIndex(String name, Function<? super T, ? extends Comparable<?>> keyExtractor) {
+        super(name);
+        this.keyExtractor = Objects.requireNonNull(keyExtractor, "keyExtractor no puede ser null");
+    }
+
+    @Override
+    Object keyOf(T entity) {
+        return keyExtractor != null ? keyExtractor.apply(entity) : super.keyOf(entity);
+    }
+
+    @Override
+    void checkConstraints(Long id, T entity) {
+        Object key = keyOf(entity);
+        if (key != null && !(key instanceof Comparable)) {
+            throw new IllegalStateException("El índice ordenado '" + fieldName()
+                    + "' requiere valores Comparable, no " + key.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    void put(Long id, T entity) {
+        Object key = keyOf(entity);
+        Entry next = key == null ? null : new Entry(comparable(key), id);
+        Entry previous = next == null ? entryById.remove(id) : entryById.put(id, next);
+        if (previous != null && !previous.equals(next)) {
+            entries.remove(previous);
+        }
+        if (next != null) {
+            entries.add(next);
+        }
+    }
+
+    @Override
+    void remove(Long id) {
+        Entry previous = entryById.remove(id);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+    }
+
+    /**
+     * Vista de las entradas en el rango (null = sin límite). Los límites se convierten al tipo
+     * de las claves (ej: 10 para un índice de Double), o IllegalArgumentException si no se puede:
+     * así el error sale acá y no como ClassCastException al recorrer la vista.
+     */
+    NavigableSet<Entry> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        Class<?> keyType = keyType();
+        if (keyType != null) {
+            from = Filter.Range.bound(fieldName(), from, keyType);
+            to = Filter.Range.bound(fieldName(), to, keyType);
+        }
+        NavigableSet<Entry> view = entries;
+        if (from != null) {
+            view = view.tailSet(new Entry(comparable(from), fromInclusive ? Long.MIN_VALUE : Long.MAX_VALUE), true);
+        }
+        if (to != null) {
+            view = view.headSet(new Entry(comparable(to), toInclusive ? Long.MAX_VALUE : Long.MIN_VALUE), true);
+        }
+        return view;
+    }
+
+    /** Vista de las entradas cuya clave (String) empieza con el prefijo. */
+    NavigableSet<Entry> prefix(String prefix) {
+        Objects.requireNonNull(prefix, "prefix no puede ser null");
+        Class<?> keyType = keyType();
+        if (keyType != null && keyType != String.class) {
+            throw new IllegalArgumentException("prefix requiere un índice de String; '" + fieldName()
+                    + "' tiene claves " + keyType.getSimpleName());
+        }
+        return entries.subSet(new Entry(comparable(prefix), Long.MIN_VALUE), true,
+                new Entry(comparable(prefix + Character.MAX_VALUE), Long.MAX_VALUE), true);
+    }
+
+    /** Tipo de las claves (el de la primera entrada), o null si el índice está vacío. */
+    private Class<?> keyType() {
+        Iterator<Entry> it = entries.iterator();
+        return it.hasNext() ? it.next().key().getClass() : null;
+    }
+
+    NavigableSet<Entry> all() {
+        return entries;
+    }
+
+    /** La entrada sigue vigente si la entidad no cambió por setter desde que se indexó. */
+    boolean isCurrent(Entry entry, T entity) {
+        return Objects.equals(keyOf(entity), entry.key());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object key) {
+        return (Comparable<Object>) key;
+    }
+
+    record Entry(Comparable<Object> key, long id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry o) {
+            int c = key.compareTo(o.key);
+            return c != 0 ? c : Long.compare(id, o.id);
+        }
+    }
+}
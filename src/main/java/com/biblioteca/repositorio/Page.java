@@ -0,0 +1,14 @@
+package com.biblioteca.repositorio;
+
+import java.util.List;
+
+/**
+ * Página de resultados ordenada por id (ver InMemoryRepository.findPage).
+ * - nextAfterId: cursor para pedir la página siguiente, o null si no hay más.
+ */
+public record Page<T>(List<T> items, Long nextAfterId) {
+
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
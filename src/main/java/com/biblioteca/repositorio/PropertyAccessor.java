@@ -0,0 +1,223 @@
+package com.biblioteca.repositorio;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Acceso a una propiedad de entidad sin reflexión en el camino caliente.
+ * - Usa el getter/setter de Lombok si existe (getX / isX / setX).
+ * - Si no hay getter/setter, accede directo al campo.
+ * - Los accesos se generan una sola vez con LambdaMetafactory (o MethodHandle como respaldo).
+ */
+final class PropertyAccessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String name;
+    private final Class<?> type;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    private PropertyAccessor(String name, Class<?> type,
+                             Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    String name() {
+        return name;
+    }
+
+    Class<?> type() {
+        return type;
+    }
+
+    Object get(Object entity) {
+        return getter.apply(entity);
+    }
+
+    /** Asigna el valor tal cual (ya convertido al tipo de la propiedad). */
+    void set(Object entity, Object value) {
+        setter.accept(entity, value);
+    }
+
+    /** Convierte al tipo de la propiedad (ej: "20999999" -> Integer). */
+    Object convert(Object value) {
+        return convertValue(value, type);
+    }
+
+    // ===================== Construcción (una vez por clase) =====================
+
+    static PropertyAccessor of(Class<?> owner, Field field) {
+        String name = field.getName();
+        Method getter = findGetter(owner, field);
+        Method setter = findSetter(owner, field);
+        return new PropertyAccessor(name, field.getType(),
+                getter != null ? getterFor(getter) : fieldGetterFor(owner, field),
+                setter != null ? setterFor(setter) : fieldSetterFor(owner, field));
+    }
+
+    private static Method findGetter(Class<?> owner, Field field) {
+        String cap = capitalize(field.getName());
+        Method m = publicMethod(owner, "get" + cap);
+        if (m == null && (field.getType() == boolean.class || field.getType() == Boolean.class)) {
+            m = publicMethod(owner, "is" + cap);
+        }
+        return m != null && m.getReturnType() != void.class ? m : null;
+    }
+
+    private static Method findSetter(Class<?> owner, Field field) {
+        return publicMethod(owner, "set" + capitalize(field.getName()), field.getType());
+    }
+
+    private static Method publicMethod(Class<?> owner, String name, Class<?>... params) {
+        try {
+            Method m = owner.getMethod(name, params);
+            return Modifier.isStatic(m.getModifiers()) ? null : m;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getterFor(Method m) {
+        try {
+            MethodHandle impl = LOOKUP.unreflect(m);
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    impl,
+                    MethodType.methodType(wrap(m.getReturnType()), m.getDeclaringClass()));
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            // Clase no pública u otra restricción: respaldo con MethodHandle
+            return handleGetter(privateHandle(m), m.getName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setterFor(Method m) {
+        try {
+            MethodHandle impl = LOOKUP.unreflect(m);
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    impl,
+                    MethodType.methodType(void.class, m.getDeclaringClass(), wrap(m.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return handleSetter(privateHandle(m), m.getName());
+        }
+    }
+
+    private static Function<Object, Object> fieldGetterFor(Class<?> owner, Field field) {
+        try {
+            MethodHandle mh = MethodHandles.privateLookupIn(field.getDeclaringClass(), LOOKUP).unreflectGetter(field);
+            return handleGetter(mh, field.getName());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("No se puede acceder al campo '" + field.getName()
+                    + "' en " + owner.getSimpleName(), e);
+        }
+    }
+
+    private static BiConsumer<Object, Object> fieldSetterFor(Class<?> owner, Field field) {
+        if (Modifier.isFinal(field.getModifiers())) {
+            return (entity, value) -> {
+                throw new IllegalStateException("El campo '" + field.getName() + "' es final");
+            };
+        }
+        try {
+            MethodHandle mh = MethodHandles.privateLookupIn(field.getDeclaringClass(), LOOKUP).unreflectSetter(field);
+            return handleSetter(mh, field.getName());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("No se puede acceder al campo '" + field.getName()
+                    + "' en " + owner.getSimpleName(), e);
+        }
+    }
+
+    private static MethodHandle privateHandle(Method m) {
+        try {
+            return MethodHandles.privateLookupIn(m.getDeclaringClass(), LOOKUP).unreflect(m);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("No se puede acceder a " + m, e);
+        }
+    }
+
+    private static Function<Object, Object> handleGetter(MethodHandle mh, String name) {
+        MethodHandle generic = mh.asType(MethodType.methodType(Object.class, Object.class));
+        return entity -> {
+            try {
+                return generic.invokeExact(entity);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("No se pudo leer '" + name + "'", t);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> handleSetter(MethodHandle mh, String name) {
+        MethodHandle generic = mh.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (entity, value) -> {
+            try {
+                generic.invokeExact(entity, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("No se pudo setear '" + name + "'", t);
+            }
+        };
+    }
+
+    // ===================== Conversión de valores =====================
+
+    static Object convertValue(Object value, Class<?> targetType) {
+        if (value == null) return null;
+        if (wrap(targetType).isInstance(value)) return value;
+
+        String s = String.valueOf(value);
+        if (targetType.equals(String.class)) return s;
+        if (targetType.equals(Long.class) || targetType.equals(long.class)) return Long.valueOf(s);
+        if (targetType.equals(Integer.class) || targetType.equals(int.class)) return Integer.valueOf(s);
+        if (targetType.equals(Short.class) || targetType.equals(short.class)) return Short.valueOf(s);
+        if (targetType.equals(Boolean.class) || targetType.equals(boolean.class)) return Boolean.valueOf(s);
+        if (targetType.equals(Double.class) || targetType.equals(double.class)) return Double.valueOf(s);
+        if (targetType.equals(Float.class)  || targetType.equals(float.class))  return Float.valueOf(s);
+        if (targetType.isEnum()) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Class<? extends Enum> et = (Class<? extends Enum>) targetType;
+            @SuppressWarnings("unchecked")
+            Object constant = Enum.valueOf(et, s);
+            return constant;
+        }
+        throw new IllegalArgumentException("No sé convertir '" + s + "' a " + targetType.getSimpleName());
+    }
+
+    static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class)     return Integer.class;
+        if (type == long.class)    return Long.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == double.class)  return Double.class;
+        if (type == float.class)   return Float.class;
+        if (type == short.class)   return Short.class;
+        if (type == byte.class)    return Byte.class;
+        if (type == char.class)    return Character.class;
+        return Void.class;
+    }
+
+    static String capitalize(String name) {
+        if (name == null || name.isEmpty()) return name;
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
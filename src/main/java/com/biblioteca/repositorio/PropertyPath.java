@@ -0,0 +1,71 @@
+package com.biblioteca.repositorio;
+
+import java.util.Objects;
+
+/**
+ * Lectura de una propiedad o ruta ("categoria.denominacion") para Query.
+ * - Cada tramo cachea el accessor de la última clase vista: en un recorrido todas las
+ *   entidades suelen ser de la misma clase y no se busca el nombre por cada una.
+ * - Thread-safe sin locks: el cache es un objeto inmutable que se reemplaza entero
+ *   (dos hilos pueden resolverlo a la vez, el resultado es el mismo).
+ * - Un tramo null corta la ruta y devuelve null.
+ */
+final class PropertyPath {
+
+    private record Resolved(Class<?> type, PropertyAccessor accessor) {
+    }
+
+    private final String path;
+    private final String[] names;
+    private final Resolved[] resolved;
+
+    PropertyPath(String path) {
+        this.path = Objects.requireNonNull(path, "field no puede ser null");
+        this.names = path.split("\\.", -1);
+        for (String name : names) {
+            if (name.isEmpty()) throw new IllegalArgumentException("Ruta de campo inválida: '" + path + "'");
+        }
+        this.resolved = new Resolved[names.length];
+    }
+
+    String path() {
+        return path;
+    }
+
+    /** true si es un campo directo (los índices son sobre campos directos). */
+    boolean isSimple() {
+        return names.length == 1;
+    }
+
+    Object get(Object entity) {
+        Object current = entity;
+        for (int i = 0; i < names.length && current != null; i++) {
+            Resolved r = resolved[i];
+            if (r == null || r.type() != current.getClass()) {
+                r = new Resolved(current.getClass(), EntityMetadata.of(current.getClass()).property(names[i]));
+                resolved[i] = r;
+            }
+            current = r.accessor().get(current);
+        }
+        return current;
+    }
+
+    /**
+     * Como get, pero si la clase no tiene algún tramo devuelve null en vez de fallar
+     * (repositorio polimórfico: descripcion solo existe en ArticuloManufacturado).
+     */
+    Object find(Object entity) {
+        Object current = entity;
+        for (int i = 0; i < names.length && current != null; i++) {
+            Resolved r = resolved[i];
+            if (r == null || r.type() != current.getClass()) {
+                PropertyAccessor accessor = EntityMetadata.of(current.getClass()).findProperty(names[i]);
+                if (accessor == null) return null;
+                r = new Resolved(current.getClass(), accessor);
+                resolved[i] = r;
+            }
+            current = r.accessor().get(current);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,336 @@
+package com.biblioteca.repositorio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Consulta sobre un InMemoryRepository (ver InMemoryRepository.query()).
+ * Ej: repo.query().where(Filter.and(Filter.eq("categoria", pizzas), Filter.lt("precioVenta", 5000.0)))
+ *         .sumBy("categoria.denominacion", "precioVenta")
+ * - Planificador: si alguna condición del and (o todas las ramas de un or) tiene índice,
+ *   se leen solo esos ids: hash para eq/in, ordenado para range/prefix/eq. Entre varias
+ *   se elige la que devuelve menos ids; un rango ordenado demasiado ancho se descarta
+ *   (ver ORDERED_SCAN_RATIO). El filtro completo se re-evalúa sobre cada candidato, así que
+ *   las demás condiciones y las entradas obsoletas (cambios por setter sin reindex) se filtran.
+ * - Sin índice útil se recorre el store; desde PARALLEL_SCAN_THRESHOLD entidades el
+ *   recorrido es paralelo (fork-join, en el pool común o en el de parallel(pool)).
+ * - Los resultados no tienen orden garantizado. Débilmente consistente, como stream().
+ * - El objeto Query es un builder de un solo hilo; la ejecución sí usa varios.
+ */
+public final class Query<T> {
+
+    /** Desde este tamaño el recorrido completo se hace en paralelo. */
+    static final int PARALLEL_SCAN_THRESHOLD = 50_000;
+
+    /** Un rango del índice ordenado se usa si devuelve menos de count / ORDERED_SCAN_RATIO ids. */
+    static final int ORDERED_SCAN_RATIO = 16;
+    private static final int ORDERED_MIN_LIMIT = 1_024;
+
+    /** Ids candidatos que salen de un índice (estimate = cantidad de ids). */
+    private record Access(String description, long estimate, Stream<Long> ids) {
+    }
+
+    private final InMemoryRepository<T> repository;
+    private Filter filter;
+    private ForkJoinPool pool;
+    private boolean sequential;
+
+    Query(InMemoryRepository<T> repository) {
+        this.repository = repository;
+    }
+
+    /** Agrega una condición (varias llamadas se combinan con and). */
+    public Query<T> where(Filter condition) {
+        Objects.requireNonNull(condition, "condition no puede ser null");
+        filter = filter == null ? condition : Filter.and(filter, condition);
+        return this;
+    }
+
+    /** Recorre en paralelo dentro de ese pool (ej: para limitar la cantidad de hilos). */
+    public Query<T> parallel(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool, "pool no puede ser null");
+        this.sequential = false;
+        return this;
+    }
+
+    /** Fuerza el recorrido secuencial aunque la colección sea grande. */
+    public Query<T> sequential() {
+        this.sequential = true;
+        this.pool = null;
+        return this;
+    }
+
+    // ===================== Resultados =====================
+
+    public List<T> list() {
+        return execute(s -> s.collect(Collectors.toList()));
+    }
+
+    public long count() {
+        return execute(Stream::count);
+    }
+
+    public Optional<T> findAny() {
+        return execute(Stream::findAny);
+    }
+
+    /** Proyección: por cada entidad, los valores de los campos pedidos (rutas permitidas). */
+    public List<Object[]> project(String... fields) {
+        PropertyPath[] paths = paths(fields);
+        return execute(s -> s.map(e -> {
+            Object[] row = new Object[paths.length];
+            for (int i = 0; i < paths.length; i++) row[i] = paths[i].get(e);
+            return row;
+        }).collect(Collectors.toList()));
+    }
+
+    public <R> List<R> map(Function<? super T, ? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper no puede ser null");
+        return execute(s -> s.<R>map(mapper).collect(Collectors.toList()));
+    }
+
+    /** Suma del campo numérico (los null no suman). */
+    public double sum(String field) {
+        PropertyPath path = new PropertyPath(field);
+        return execute(s -> s.mapToDouble(e -> number(path, e)).sum());
+    }
+
+    /** group by: cantidad de entidades por valor del campo (null es un grupo más). */
+    public Map<Object, Long> countBy(String groupField) {
+        PropertyPath group = new PropertyPath(groupField);
+        Map<Object, long[]> counts = execute(s -> s.collect(HashMap::new,
+                (Map<Object, long[]> m, T e) -> m.computeIfAbsent(group.get(e), k -> new long[1])[0]++,
+                (a, b) -> b.forEach((k, v) -> a.computeIfAbsent(k, x -> new long[1])[0] += v[0])));
+        Map<Object, Long> result = new HashMap<>(counts.size() * 2);
+        counts.forEach((k, v) -> result.put(k, v[0]));
+        return result;
+    }
+
+    /** group by: suma de sumField por valor de groupField. */
+    public Map<Object, Double> sumBy(String groupField, String sumField) {
+        PropertyPath group = new PropertyPath(groupField);
+        PropertyPath sum = new PropertyPath(sumField);
+        // Acumuladores mutables por grupo: sin un Double en caja por entidad
+        Map<Object, double[]> sums = execute(s -> s.collect(HashMap::new,
+                (Map<Object, double[]> m, T e) -> m.computeIfAbsent(group.get(e), k -> new double[1])[0] += number(sum, e),
+                (a, b) -> b.forEach((k, v) -> a.computeIfAbsent(k, x -> new double[1])[0] += v[0])));
+        Map<Object, Double> result = new HashMap<>(sums.size() * 2);
+        sums.forEach((k, v) -> result.put(k, v[0]));
+        return result;
+    }
+
+    /** Plan que se usaría, para diagnóstico (ej: "índice hash 'cuit' (1 ids) + filtro"). */
+    public String explain() {
+        Access access = filter == null ? null : access(filter);
+        if (access != null) return access.description() + " + filtro";
+        int size = repository.count();
+        return (parallelScan(size) ? "recorrido paralelo" : "recorrido secuencial")
+                + " (" + size + " entidades)" + (filter == null ? "" : " + filtro");
+    }
+
+    // ===================== Ejecución =====================
+
+    private <R> R execute(Function<Stream<T>, R> terminal) {
+        Predicate<Object> test = filter == null ? null : compile(filter);
+        Access access = filter == null ? null : access(filter);
+        RepositoryMetrics m = repository.metrics().orElse(null);
+        if (access != null) {
+            if (m != null) m.recordIndexLookup();
+            Stream<T> s = access.ids().map(repository::peek).filter(Objects::nonNull).filter(test);
+            return terminal.apply(s);
+        }
+        int size = repository.count();
+        if (m != null) m.recordScan(String.valueOf(filter), size, -1);
+        Stream<T> s = repository.stream();
+        if (test != null) s = s.filter(test);
+        if (!parallelScan(size)) return terminal.apply(s);
+        Stream<T> parallel = s.parallel();
+        return pool == null ? terminal.apply(parallel) : pool.submit(() -> terminal.apply(parallel)).join();
+    }
+
+    private boolean parallelScan(int size) {
+        return !sequential && (pool != null || size >= PARALLEL_SCAN_THRESHOLD);
+    }
+
+    // ===================== Planificador =====================
+
+    /** Ids candidatos para la condición, o null si hay que recorrer todo. */
+    private Access access(Filter f) {
+        return switch (f) {
+            case Filter.Eq eq -> {
+                if (!simple(eq.field())) yield null;
+                HashIndex<T> hash = repository.hashIndexFor(eq.field());
+                if (hash != null) {
+                    Set<Long> ids = hash.lookup(eq.value());
+                    yield new Access("índice hash '" + eq.field() + "' (" + ids.size() + " ids)", ids.size(), ids.stream());
+                }
+                OrderedIndex<T> ordered = eq.value() instanceof Comparable<?> ? repository.orderedIndexFor(eq.field()) : null;
+                yield ordered == null ? null
+                        : ordered("índice ordenado '" + eq.field() + "' (eq", ordered.range(eq.value(), true, eq.value(), true));
+            }
+            case Filter.In in -> {
+                HashIndex<T> hash = simple(in.field()) ? repository.hashIndexFor(in.field()) : null;
+                if (hash == null) yield null;
+                List<Set<Long>> sets = new ArrayList<>(in.values().size());
+                long total = 0;
+                for (Object v : in.values()) {
+                    Set<Long> ids = hash.lookup(v);
+                    sets.add(ids);
+                    total += ids.size();
+                }
+                // Valores distintos -> conjuntos de ids disjuntos: no hace falta distinct
+                yield new Access("índice hash '" + in.field() + "' (in, " + total + " ids)", total,
+                        sets.stream().flatMap(Set::stream));
+            }
+            case Filter.Range range -> {
+                OrderedIndex<T> ordered = simple(range.field()) ? repository.orderedIndexFor(range.field()) : null;
+                yield ordered == null ? null : ordered("índice ordenado '" + range.field() + "' (range",
+                        ordered.range(range.from(), range.fromInclusive(), range.to(), range.toInclusive()));
+            }
+            case Filter.Prefix prefix -> {
+                OrderedIndex<T> ordered = simple(prefix.field()) ? repository.orderedIndexFor(prefix.field()) : null;
+                yield ordered == null ? null
+                        : ordered("índice ordenado '" + prefix.field() + "' (prefix", ordered.prefix(prefix.prefix()));
+            }
+            case Filter.And and -> {
+                // La condición indexada más selectiva; el resto se evalúa como filtro
+                Access best = null;
+                for (Filter child : and.filters()) {
+                    Access a = access(child);
+                    if (a != null && (best == null || a.estimate() < best.estimate())) best = a;
+                }
+                yield best;
+            }
+            case Filter.Or or -> {
+                // Todas las ramas tienen que tener índice; si no, igual hay que recorrer todo
+                List<Access> branches = new ArrayList<>(or.filters().size());
+                long total = 0;
+                for (Filter child : or.filters()) {
+                    Access a = access(child);
+                    if (a == null) yield null;
+                    branches.add(a);
+                    total += a.estimate();
+                }
+                yield new Access(branches.stream().map(Access::description).collect(Collectors.joining(" ∪ ", "(", ")")),
+                        total, branches.stream().flatMap(Access::ids).distinct());
+            }
+        };
+    }
+
+    /**
+     * Acceso por una vista del índice ordenado, o null si es tan ancha que conviene recorrer:
+     * se cuentan las entradas hasta count / ORDERED_SCAN_RATIO (leer por id cuesta ~10 veces
+     * más por entidad que el recorrido secuencial del store).
+     */
+    private Access ordered(String description, NavigableSet<OrderedIndex.Entry> view) {
+        long limit = Math.max(ORDERED_MIN_LIMIT, repository.count() / ORDERED_SCAN_RATIO);
+        long n = 0;
+        for (Iterator<OrderedIndex.Entry> it = view.iterator(); n < limit && it.hasNext(); it.next()) n++;
+        if (n >= limit) return null;
+        return new Access(description + ", " + n + " ids)", n, view.stream().map(OrderedIndex.Entry::id));
+    }
+
+    private static boolean simple(String field) {
+        return field.indexOf('.') < 0;
+    }
+
+    // ===================== Evaluación =====================
+
+    /** Compila el filtro a un Predicate (las rutas se resuelven una vez por clase). */
+    private static Predicate<Object> compile(Filter f) {
+        return switch (f) {
+            case Filter.Eq eq -> {
+                PropertyPath path = new PropertyPath(eq.field());
+                Object value = eq.value();
+                yield e -> Objects.equals(path.get(e), value);
+            }
+            case Filter.In in -> {
+                PropertyPath path = new PropertyPath(in.field());
+                Set<Object> values = in.values();
+                yield e -> values.contains(path.get(e));
+            }
+            case Filter.Range range -> {
+                PropertyPath path = new PropertyPath(range.field());
+                RangeMatcher matcher = new RangeMatcher(range);
+                yield e -> matcher.matches(path.get(e));
+            }
+            case Filter.Prefix prefix -> {
+                PropertyPath path = new PropertyPath(prefix.field());
+                String p = prefix.prefix();
+                yield e -> path.get(e) instanceof String s && s.startsWith(p);
+            }
+            case Filter.And and -> {
+                Predicate<Object>[] parts = compileAll(and.filters());
+                yield e -> {
+                    for (Predicate<Object> p : parts) if (!p.test(e)) return false;
+                    return true;
+                };
+            }
+            case Filter.Or or -> {
+                Predicate<Object>[] parts = compileAll(or.filters());
+                yield e -> {
+                    for (Predicate<Object> p : parts) if (p.test(e)) return true;
+                    return false;
+                };
+            }
+        };
+    }
+
+    /** Range con los límites convertidos al tipo de los valores (se convierte una vez por tipo). */
+    private static final class RangeMatcher {
+        private final Filter.Range range;
+        private Filter.Range converted; // inmutable: una carrera solo repite la conversión
+
+        RangeMatcher(Filter.Range range) {
+            this.range = range;
+            this.converted = range;
+        }
+
+        boolean matches(Object value) {
+            if (value == null) return false;
+            Filter.Range r = converted;
+            if (!sameType(r, value.getClass())) {
+                r = range.withKeyType(value.getClass());
+                converted = r;
+            }
+            return r.matches(value);
+        }
+
+        private static boolean sameType(Filter.Range r, Class<?> type) {
+            return (r.from() == null || r.from().getClass() == type) && (r.to() == null || r.to().getClass() == type);
+        }
+    }
+
+    private static Predicate<Object>[] compileAll(List<Filter> filters) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Predicate<Object>[] parts = new Predicate[filters.size()];
+        for (int i = 0; i < parts.length; i++) parts[i] = compile(filters.get(i));
+        return parts;
+    }
+
+    private static PropertyPath[] paths(String[] fields) {
+        Objects.requireNonNull(fields, "fields no puede ser null");
+        PropertyPath[] paths = new PropertyPath[fields.length];
+        for (int i = 0; i < fields.length; i++) paths[i] = new PropertyPath(fields[i]);
+        return paths;
+    }
+
+    private static double number(PropertyPath path, Object entity) {
+        Object value = path.get(entity);
+        if (value == null) return 0.0;
+        if (value instanceof Number n) return n.doubleValue();
+        throw new IllegalArgumentException("El campo '" + path.path() + "' no es numérico: " + value.getClass().getSimpleName());
+    }
+}
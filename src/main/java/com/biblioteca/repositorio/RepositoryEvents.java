@@ -0,0 +1,59 @@
+package com.biblioteca.repositorio;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Eventos de Java Flight Recorder emitidos por RepositoryMetrics.
+ * - Solo con métricas activas y si la grabación tiene el evento habilitado.
+ * - Operaciones: solo las que superan el umbral de RepositoryMetrics (1 ms por defecto).
+ */
+final class RepositoryEvents {
+
+    private RepositoryEvents() {
+    }
+
+    @Name("com.biblioteca.RepositoryOperation")
+    @Label("Operación de repositorio")
+    @Category({"Biblioteca", "Repositorio"})
+    @Description("Operación de InMemoryRepository más lenta que el umbral configurado")
+    @StackTrace(false)
+    static final class Operation extends Event {
+        @Label("Repositorio")
+        String repository;
+
+        @Label("Operación")
+        String operation;
+
+        @Label("Latencia")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Falló")
+        boolean failed;
+    }
+
+    @Name("com.biblioteca.RepositoryScan")
+    @Label("Recorrido completo")
+    @Category({"Biblioteca", "Repositorio"})
+    @Description("genericFindByField o Query sin índice: recorrió todas las entidades")
+    static final class Scan extends Event {
+        @Label("Repositorio")
+        String repository;
+
+        @Label("Campo")
+        String field;
+
+        @Label("Entidades recorridas")
+        int scanned;
+
+        @Label("Coincidencias")
+        @Description("-1 en Query: el recorrido no cuenta coincidencias")
+        int matches;
+    }
+}
@@ -0,0 +1,30 @@
+package com.biblioteca.repositorio;
+
+/**
+ * Observador de escrituras de InMemoryRepository (ver addListener).
+ * - Se invoca en el hilo que escribe, después de aplicar el cambio y con el lock del id
+ *   tomado: los avisos de un mismo id llegan en el orden en que se aplicaron. El listener
+ *   no debe bloquearse ni esperar a otro hilo que escriba en el repositorio.
+ * - En un saveAll grande sin índices "el hilo que escribe" son varios hilos del common
+ *   pool a la vez: ids distintos se avisan en paralelo, así que el listener tiene que
+ *   ser thread-safe (cada id sigue llegando en orden).
+ * - Una excepción del listener llega al que llamó (el cambio en memoria ya quedó hecho),
+ *   pero recién después de avisar al resto de los listeners: un listener que falla no
+ *   le oculta la escritura a los demás. Si fallan varios, el primero se relanza y los
+ *   otros quedan como suppressed.
+ * - Los cambios hechos por setter fuera del repositorio no se notifican.
+ */
+public interface RepositoryListener<T> {
+
+    /** save / saveAll. previous = la entidad que tenía ese id antes (o null). */
+    default void onSaved(long id, T previous, T entity) {
+    }
+
+    /** genericUpdate / updateAll. */
+    default void onUpdated(long id, T entity, String fieldName, Object oldValue, Object newValue) {
+    }
+
+    /** genericDelete / deleteAll. */
+    default void onDeleted(long id, T entity) {
+    }
+}
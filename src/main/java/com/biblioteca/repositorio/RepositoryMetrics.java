@@ -0,0 +1,255 @@
+package com.biblioteca.repositorio;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Métricas de un InMemoryRepository (ver enableMetrics).
+ * - Contadores por operación con LongAdder (sin contención entre hilos).
+ * - Percentiles de latencia por operación (LatencyHistogram).
+ * - Índice vs recorrido completo en genericFindByField; aciertos de findById.
+ * - Publicadas por JMX y, las operaciones lentas y los recorridos, como eventos JFR.
+ * - Medir la latencia (dos System.nanoTime) cuesta más que un findById: con
+ *   setLatencySampling(n) se mide 1 de cada n operaciones; los contadores siguen exactos.
+ * - Desactivadas no cuestan nada más que leer un campo null en cada operación.
+ */
+public final class RepositoryMetrics implements RepositoryMetricsMXBean {
+
+    public enum Operation {
+        SAVE, FIND_BY_ID, FIND_ALL, FIND_BY_FIELD, UPDATE, DELETE, SAVE_ALL, UPDATE_ALL, DELETE_ALL
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final String name;
+    private final InMemoryRepository<?> repository;
+    private final LongAdder[] counts = new LongAdder[OPERATIONS.length];
+    private final LongAdder[] failures = new LongAdder[OPERATIONS.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder findHits = new LongAdder();
+    private final LongAdder findMisses = new LongAdder();
+    private final LongAdder indexLookups = new LongAdder();
+    private final LongAdder fullScans = new LongAdder();
+    private final LongAdder scannedEntities = new LongAdder();
+    private volatile long jfrThresholdNanos = Duration.ofMillis(1).toNanos();
+    private volatile int latencySampling = 1;
+
+    RepositoryMetrics(String name, InMemoryRepository<?> repository) {
+        this.name = Objects.requireNonNull(name, "name no puede ser null");
+        this.repository = repository;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            counts[i] = new LongAdder();
+            failures[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    // ===================== Registro (camino caliente) =====================
+
+    /** Inicio de una operación: System.nanoTime() o -1 si esta no se mide (muestreo). */
+    long start() {
+        int n = latencySampling;
+        if (n > 1 && ThreadLocalRandom.current().nextInt(n) != 0) return -1L;
+        return System.nanoTime();
+    }
+
+    void record(Operation op, long startNanos) {
+        counts[op.ordinal()].increment();
+        if (startNanos < 0) return;
+        long latency = System.nanoTime() - startNanos;
+        latencies[op.ordinal()].record(latency);
+        if (latency >= jfrThresholdNanos) emit(op, latency, false);
+    }
+
+    void recordFailure(Operation op, long startNanos) {
+        counts[op.ordinal()].increment();
+        failures[op.ordinal()].increment();
+        long latency = 0L;
+        if (startNanos >= 0) {
+            latency = System.nanoTime() - startNanos;
+            latencies[op.ordinal()].record(latency);
+        }
+        emit(op, latency, true);
+    }
+
+    void recordFind(long startNanos, boolean found) {
+        record(Operation.FIND_BY_ID, startNanos);
+        (found ? findHits : findMisses).increment();
+    }
+
+    void recordIndexLookup() {
+        indexLookups.increment();
+    }
+
+    void recordScan(String field, int scanned, int matches) {
+        fullScans.increment();
+        scannedEntities.add(scanned);
+        RepositoryEvents.Scan event = new RepositoryEvents.Scan();
+        if (event.isEnabled()) {
+            event.repository = name;
+            event.field = field;
+            event.scanned = scanned;
+            event.matches = matches;
+            event.commit();
+        }
+    }
+
+    private void emit(Operation op, long latency, boolean failed) {
+        RepositoryEvents.Operation event = new RepositoryEvents.Operation();
+        if (event.isEnabled()) {
+            event.repository = name;
+            event.operation = op.name();
+            event.latency = latency;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    // ===================== Consultas =====================
+
+    /** Desde qué latencia una operación se publica como evento JFR (las fallidas, siempre). */
+    public void setJfrThreshold(Duration threshold) {
+        Objects.requireNonNull(threshold, "threshold no puede ser null");
+        jfrThresholdNanos = threshold.toNanos();
+    }
+
+    /** Mide la latencia de 1 de cada n operaciones (1 = todas, el valor inicial). */
+    @Override
+    public void setLatencySampling(int n) {
+        if (n < 1) throw new IllegalArgumentException("n debe ser >= 1");
+        latencySampling = n;
+    }
+
+    public long count(Operation op) {
+        return counts[op.ordinal()].sum();
+    }
+
+    public long failures(Operation op) {
+        return failures[op.ordinal()].sum();
+    }
+
+    /** Latencia en ns bajo la cual queda la fracción q (0.99 = p99) de las operaciones. */
+    public long percentileNanos(Operation op, double q) {
+        return latencies[op.ordinal()].percentile(q);
+    }
+
+    /** Resumen legible, una línea por operación usada. */
+    public String report() {
+        StringBuilder sb = new StringBuilder("Métricas '").append(name).append("' (")
+                .append(getSize()).append(" entidades)\n");
+        for (Operation op : OPERATIONS) {
+            long n = count(op);
+            if (n == 0) continue;
+            sb.append(String.format("  %-13s n=%-10d fallas=%-6d p50=%dns p99=%dns p99.9=%dns max=%dns%n",
+                    op, n, failures(op), percentileNanos(op, 0.50), percentileNanos(op, 0.99),
+                    percentileNanos(op, 0.999), latencies[op.ordinal()].max()));
+        }
+        sb.append(String.format("  findById aciertos=%d fallos=%d | findByField índice=%d recorridos=%d (%d entidades)%n",
+                getFindByIdHits(), getFindByIdMisses(), getIndexLookups(), getFullScans(), getScannedEntities()));
+        return sb.toString();
+    }
+
+    // ===================== JMX =====================
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getSize() {
+        return repository.count();
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return perOperation(this::count);
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        return perOperation(this::failures);
+    }
+
+    @Override
+    public Map<String, Long> getP50Nanos() {
+        return perOperation(op -> percentileNanos(op, 0.50));
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return perOperation(op -> percentileNanos(op, 0.99));
+    }
+
+    @Override
+    public Map<String, Long> getP999Nanos() {
+        return perOperation(op -> percentileNanos(op, 0.999));
+    }
+
+    @Override
+    public Map<String, Long> getMaxNanos() {
+        return perOperation(op -> latencies[op.ordinal()].max());
+    }
+
+    @Override
+    public long getFindByIdHits() {
+        return findHits.sum();
+    }
+
+    @Override
+    public long getFindByIdMisses() {
+        return findMisses.sum();
+    }
+
+    @Override
+    public long getIndexLookups() {
+        return indexLookups.sum();
+    }
+
+    @Override
+    public long getFullScans() {
+        return fullScans.sum();
+    }
+
+    @Override
+    public long getScannedEntities() {
+        return scannedEntities.sum();
+    }
+
+    @Override
+    public double getIndexHitRatio() {
+        long hits = getIndexLookups();
+        long total = hits + getFullScans();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public int getLatencySampling() {
+        return latencySampling;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            counts[i].reset();
+            failures[i].reset();
+            latencies[i].reset();
+        }
+        findHits.reset();
+        findMisses.reset();
+        indexLookups.reset();
+        fullScans.reset();
+        scannedEntities.reset();
+    }
+
+    private Map<String, Long> perOperation(ToLongFunction<Operation> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Operation op : OPERATIONS) result.put(op.name(), value.applyAsLong(op));
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package com.biblioteca.repositorio;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de RepositoryMetrics (com.biblioteca.repositorio:type=InMemoryRepository,name=...).
+ * Latencias en nanosegundos; los mapas van por operación (SAVE, FIND_BY_ID, ...).
+ */
+public interface RepositoryMetricsMXBean {
+
+    String getName();
+
+    int getSize();
+
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getFailureCounts();
+
+    Map<String, Long> getP50Nanos();
+
+    Map<String, Long> getP99Nanos();
+
+    Map<String, Long> getP999Nanos();
+
+    Map<String, Long> getMaxNanos();
+
+    long getFindByIdHits();
+
+    long getFindByIdMisses();
+
+    /** genericFindByField resueltos con índice. */
+    long getIndexLookups();
+
+    /** genericFindByField resueltos recorriendo todo el store. */
+    long getFullScans();
+
+    long getScannedEntities();
+
+    /** indexLookups / (indexLookups + fullScans). */
+    double getIndexHitRatio();
+
+    /** Se mide la latencia de 1 de cada n operaciones. */
+    int getLatencySampling();
+
+    void setLatencySampling(int n);
+
+    void reset();
+}
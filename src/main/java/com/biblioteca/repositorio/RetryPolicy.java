@@ -0,0 +1,69 @@
+package com.biblioteca.repositorio;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reintentos ante conflictos de versión (InMemoryRepository.update, TransactionManager.execute).
+ * - none: un solo intento.
+ * - attempts(n): reintenta enseguida (solo un onSpinWait entre intentos).
+ * - backoff(n, inicial, máximo): espera exponencial con jitter entre intentos.
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialNanos;
+    private final long maxNanos;
+
+    private RetryPolicy(int maxAttempts, long initialNanos, long maxNanos) {
+        this.maxAttempts = maxAttempts;
+        this.initialNanos = initialNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0L, 0L);
+    }
+
+    public static RetryPolicy attempts(int maxAttempts) {
+        return new RetryPolicy(checkAttempts(maxAttempts), 0L, 0L);
+    }
+
+    public static RetryPolicy backoff(int maxAttempts, Duration initial, Duration max) {
+        Objects.requireNonNull(initial, "initial no puede ser null");
+        Objects.requireNonNull(max, "max no puede ser null");
+        if (initial.isNegative() || initial.isZero()) throw new IllegalArgumentException("initial debe ser > 0");
+        if (max.compareTo(initial) < 0) throw new IllegalArgumentException("max debe ser >= initial");
+        return new RetryPolicy(checkAttempts(maxAttempts), initial.toNanos(), max.toNanos());
+    }
+
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /** Espera antes del intento siguiente a attempt (1 = después del primer conflicto). */
+    void pause(int attempt) {
+        if (initialNanos == 0L) {
+            Thread.onSpinWait();
+            return;
+        }
+        long ceiling = initialNanos << Math.min(attempt - 1, 20);
+        if (ceiling <= 0 || ceiling > maxNanos) ceiling = maxNanos;
+        // Jitter: los que chocaron no reintentan todos a la vez
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+    }
+
+    private static int checkAttempts(int maxAttempts) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts debe ser >= 1");
+        return maxAttempts;
+    }
+
+    @Override
+    public String toString() {
+        if (maxAttempts == 1) return "none";
+        return initialNanos == 0L ? "attempts(" + maxAttempts + ")"
+                : "backoff(" + maxAttempts + ", " + Duration.ofNanos(initialNanos) + ", " + Duration.ofNanos(maxNanos) + ")";
+    }
+}
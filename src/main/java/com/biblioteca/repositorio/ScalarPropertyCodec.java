@@ -0,0 +1,114 @@
+package com.biblioteca.repositorio;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Codec genérico que persiste las propiedades escalares de la entidad.
+ * - Escalares: String, números, Boolean, enums, LocalTime/LocalDate/LocalDateTime.
+ * - Solo para entidades sin relaciones (UnidadMedida, Categoria, ...): si la clase tiene
+ *   algún campo no escalar (Categoria, Set de imágenes, etc.) el constructor falla en vez
+ *   de perderlo al recuperar. Para grafos usar GraphCodec.entityCodec.
+ * - El id no se codifica (lo lleva el registro del log).
+ */
+public final class ScalarPropertyCodec<T> implements EntityCodec<T> {
+
+    private final EntityMetadata metadata;
+    private final List<PropertyAccessor> properties = new ArrayList<>();
+
+    public ScalarPropertyCodec(Class<T> type) {
+        Objects.requireNonNull(type, "type no puede ser null");
+        this.metadata = EntityMetadata.of(type);
+        List<String> relations = new ArrayList<>();
+        for (PropertyAccessor p : metadata.properties()) {
+            if (p.name().equals("id")) continue;
+            if (isScalar(p.type())) properties.add(p);
+            else relations.add(p.name());
+        }
+        if (!relations.isEmpty()) {
+            throw new IllegalArgumentException(type.getSimpleName() + " tiene campos no escalares " + relations
+                    + " que ScalarPropertyCodec no guarda; usar GraphCodec.entityCodec");
+        }
+    }
+
+    @Override
+    public void encode(T entity, DataOutput out) throws IOException {
+        for (PropertyAccessor p : properties) {
+            Object value = p.get(entity);
+            out.writeBoolean(value != null);
+            if (value != null) writeValue(p.type(), value, out);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(DataInput in) throws IOException {
+        T entity = (T) metadata.newInstance();
+        for (PropertyAccessor p : properties) {
+            if (in.readBoolean()) {
+                p.set(entity, readValue(p.type(), in));
+            } else if (!p.type().isPrimitive()) {
+                p.set(entity, null);
+            }
+        }
+        return entity;
+    }
+
+    static boolean isScalar(Class<?> t) {
+        Class<?> w = PropertyAccessor.wrap(t);
+        return w == String.class || Number.class.isAssignableFrom(w) && w.getPackageName().equals("java.lang")
+                || w == Boolean.class || w == Character.class || t.isEnum()
+                || t == LocalTime.class || t == LocalDate.class || t == LocalDateTime.class;
+    }
+
+    private static void writeValue(Class<?> type, Object value, DataOutput out) throws IOException {
+        Class<?> t = PropertyAccessor.wrap(type);
+        if (t == String.class)              out.writeUTF((String) value);
+        else if (t == Long.class)           out.writeLong((Long) value);
+        else if (t == Integer.class)        out.writeInt((Integer) value);
+        else if (t == Double.class)         out.writeDouble((Double) value);
+        else if (t == Boolean.class)        out.writeBoolean((Boolean) value);
+        else if (t == Float.class)          out.writeFloat((Float) value);
+        else if (t == Short.class)          out.writeShort((Short) value);
+        else if (t == Byte.class)           out.writeByte((Byte) value);
+        else if (t == Character.class)      out.writeChar((Character) value);
+        else if (t.isEnum())                out.writeUTF(((Enum<?>) value).name());
+        else if (t == LocalTime.class)      out.writeLong(((LocalTime) value).toNanoOfDay());
+        else if (t == LocalDate.class)      out.writeLong(((LocalDate) value).toEpochDay());
+        else if (t == LocalDateTime.class) {
+            LocalDateTime dt = (LocalDateTime) value;
+            out.writeLong(dt.toLocalDate().toEpochDay());
+            out.writeLong(dt.toLocalTime().toNanoOfDay());
+        } else {
+            throw new IllegalArgumentException("Tipo no escalar: " + type.getSimpleName());
+        }
+    }
+
+    private static Object readValue(Class<?> type, DataInput in) throws IOException {
+        Class<?> t = PropertyAccessor.wrap(type);
+        if (t == String.class)              return in.readUTF();
+        if (t == Long.class)                return in.readLong();
+        if (t == Integer.class)             return in.readInt();
+        if (t == Double.class)              return in.readDouble();
+        if (t == Boolean.class)             return in.readBoolean();
+        if (t == Float.class)               return in.readFloat();
+        if (t == Short.class)               return in.readShort();
+        if (t == Byte.class)                return in.readByte();
+        if (t == Character.class)           return in.readChar();
+        if (t.isEnum())                     return PropertyAccessor.convertValue(in.readUTF(), t);
+        if (t == LocalTime.class)           return LocalTime.ofNanoOfDay(in.readLong());
+        if (t == LocalDate.class)           return LocalDate.ofEpochDay(in.readLong());
+        if (t == LocalDateTime.class) {
+            LocalDate d = LocalDate.ofEpochDay(in.readLong());
+            return LocalDateTime.of(d, LocalTime.ofNanoOfDay(in.readLong()));
+        }
+        throw new IllegalArgumentException("Tipo no escalar: " + type.getSimpleName());
+    }
+}
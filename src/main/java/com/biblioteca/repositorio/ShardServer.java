@@ -0,0 +1,398 @@
+package com.biblioteca.repositorio;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Un shard de ShardedRepository: un InMemoryRepository atendido por socket.
+ * - Protocolo: GraphCodec sobre la conexión (los esquemas y strings repetidos viajan una
+ *   vez por conexión). Cada mensaje es [op][argumentos...] seguido de un reset; la
+ *   respuesta es [OK|ERROR][resultado...] también con reset.
+ * - Ids intercalados: el shard index de count asigna index+1, index+1+count,
+ *   index+1+2*count, ... Así los ids de distintos shards nunca chocan y el shard de un
+ *   id es (id - 1) % count, sin directorio. Un id explícito de otro shard se rechaza.
+ * - Una conexión = un hilo virtual; las operaciones van directo al InMemoryRepository
+ *   (ya es thread-safe).
+ * - Una conexión cortada por un error de protocolo o de red no detiene al shard: se
+ *   cuenta en droppedConnections() y el error queda en lastConnectionFailure().
+ * Se arranca en proceso (start) o como proceso aparte (main, ver LocalShardCluster).
+ */
+public final class ShardServer implements Closeable {
+
+    // Operaciones
+    static final int OP_SAVE = 1;
+    static final int OP_SAVE_ALL = 2;
+    static final int OP_FIND_BY_ID = 3;
+    static final int OP_FIND_ALL = 4;
+    static final int OP_FIND_BY_FIELD = 5;
+    static final int OP_UPDATE = 6;
+    static final int OP_DELETE = 7;
+    static final int OP_COUNT = 8;
+    static final int OP_SHUTDOWN = 9;
+
+    // Estado de la respuesta
+    static final int STATUS_OK = 0;
+    static final int STATUS_ERROR = 1;
+
+    /** Línea que imprime main cuando el shard ya acepta conexiones: "SHARD &lt;índice&gt; LISTO &lt;puerto&gt;". */
+    static final String READY = "LISTO";
+
+    private final int index;
+    private final int count;
+    private final Class<?>[] classes;
+    private final InMemoryRepository<Object> repo = new InMemoryRepository<>();
+    // Último número local emitido: el n-ésimo id del shard es index + 1 + (n - 1) * count
+    private final AtomicLong local = new AtomicLong(0L);
+    private final ServerSocketChannel server;
+    private final List<SocketChannel> connections = new ArrayList<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final LongAdder droppedConnections = new LongAdder();
+    private volatile Exception connectionFailure;
+    private volatile boolean closed;
+
+    private ShardServer(int port, int index, int count, Class<?>[] classes) throws IOException {
+        this.index = index;
+        this.count = count;
+        this.classes = classes.clone();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread acceptor = new Thread(this::acceptLoop, "shard-" + index + "-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Levanta el shard index (de count) en port (0 = cualquiera libre), escuchando en loopback.
+     * classes: la clase de las entidades y las que referencian (lista permitida de GraphCodec).
+     */
+    public static ShardServer start(int port, int index, int count, Class<?>... classes) throws IOException {
+        if (count < 1) throw new IllegalArgumentException("count debe ser >= 1");
+        if (index < 0 || index >= count) throw new IllegalArgumentException("index fuera de rango: " + index);
+        if (classes.length == 0) throw new IllegalArgumentException("Falta la clase de las entidades");
+        for (Class<?> c : classes) Objects.requireNonNull(c, "classes no puede contener null");
+        return new ShardServer(port, index, count, classes);
+    }
+
+    public int port() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("Shard cerrado", e);
+        }
+    }
+
+    public int index() {
+        return index;
+    }
+
+    /** Entidades guardadas en este shard. */
+    public int size() {
+        return repo.count();
+    }
+
+    /** Conexiones cortadas por un error de protocolo o de red (no cuenta los cierres del cliente). */
+    public long droppedConnections() {
+        return droppedConnections.sum();
+    }
+
+    /** El error de la última conexión cortada, o null si no hubo ninguna. */
+    public Exception lastConnectionFailure() {
+        return connectionFailure;
+    }
+
+    /** Bloquea hasta que el shard se cierre (close o un SHUTDOWN remoto). */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // cerrando igual
+        }
+        synchronized (connections) {
+            for (SocketChannel c : connections) {
+                try {
+                    c.close();
+                } catch (IOException ignored) {
+                    // cerrando igual
+                }
+            }
+            connections.clear();
+        }
+        terminated.countDown();
+    }
+
+    /**
+     * Proceso shard: ShardServer &lt;puerto&gt; &lt;índice&gt; &lt;cantidad&gt; &lt;clase&gt; [clases relacionadas...].
+     * Termina con SHUTDOWN o cuando se cierra su stdin (el proceso padre terminó).
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Uso: ShardServer <puerto> <índice> <cantidad> <clase> [clases relacionadas...]");
+            System.exit(2);
+        }
+        Class<?>[] classes = new Class<?>[args.length - 3];
+        for (int i = 3; i < args.length; i++) classes[i - 3] = Class.forName(args[i]);
+        ShardServer shard = start(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), classes);
+        System.out.println("SHARD " + shard.index + " " + READY + " " + shard.port());
+        System.out.flush();
+        Thread stdinWatcher = new Thread(() -> {
+            try {
+                while (System.in.read() >= 0) {
+                    // nada: solo esperar el fin de stdin
+                }
+            } catch (IOException ignored) {
+                // stdin roto = padre muerto
+            }
+            shard.close();
+        }, "shard-" + shard.index + "-stdin");
+        stdinWatcher.setDaemon(true);
+        stdinWatcher.start();
+        shard.awaitTermination();
+    }
+
+    // ===================== Conexiones =====================
+
+    private void acceptLoop() {
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                if (!closed) close();
+                return;
+            }
+            synchronized (connections) {
+                if (closed) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // cerrando igual
+                    }
+                    return;
+                }
+                connections.add(channel);
+            }
+            Thread.ofVirtual().name("shard-" + index + "-conn").start(() -> serve(channel));
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            GraphCodec.Writer out = GraphCodec.writer(channel);
+            out.flush();
+            GraphCodec.Reader in = GraphCodec.reader(channel, classes);
+            while (!closed) {
+                Object op = in.read();
+                if (op == null && in.isEnd()) return;
+                if (!(op instanceof Integer code)) throw new IOException("Operación inválida: " + op);
+                if (!handle(code, in, out)) return;
+                out.reset();
+                out.flush();
+            }
+        } catch (EOFException | ClosedChannelException e) {
+            // el cliente cortó
+        } catch (IOException | RuntimeException e) {
+            // Error de protocolo o de red: el stream quedó desalineado, solo queda cortar
+            if (!closed) {
+                connectionFailure = e;
+                droppedConnections.increment();
+            }
+        } finally {
+            synchronized (connections) {
+                connections.remove(channel);
+            }
+        }
+    }
+
+    /** Lee los argumentos, ejecuta y escribe la respuesta. false = cerrar la conexión. */
+    private boolean handle(int op, GraphCodec.Reader in, GraphCodec.Writer out) throws IOException {
+        switch (op) {
+            case OP_SAVE -> {
+                Object entity = in.read();
+                try {
+                    long id = save(entity);
+                    out.write(STATUS_OK);
+                    out.write(id);
+                } catch (RuntimeException e) {
+                    error(out, e);
+                }
+            }
+            case OP_SAVE_ALL -> {
+                int n = (Integer) in.read();
+                List<Object> entities = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) entities.add(in.read());
+                Object[] results = saveAll(entities);
+                out.write(STATUS_OK);
+                for (Object r : results) out.write(r);
+            }
+            case OP_FIND_BY_ID -> {
+                long id = (Long) in.read();
+                out.write(STATUS_OK);
+                out.write(repo.peek(id));
+            }
+            case OP_FIND_ALL -> {
+                out.write(STATUS_OK);
+                writeAll(out, repo.findAll());
+            }
+            case OP_FIND_BY_FIELD -> {
+                String field = (String) in.read();
+                Object value = in.read();
+                List<Object> found;
+                try {
+                    found = repo.genericFindByField(field, value);
+                } catch (RuntimeException e) {
+                    error(out, e);
+                    return true;
+                }
+                out.write(STATUS_OK);
+                writeAll(out, found);
+            }
+            case OP_UPDATE -> {
+                long id = (Long) in.read();
+                String field = (String) in.read();
+                Object value = in.read();
+                try {
+                    boolean updated = repo.genericUpdate(id, field, value);
+                    out.write(STATUS_OK);
+                    out.write(updated);
+                } catch (RuntimeException e) {
+                    error(out, e);
+                }
+            }
+            case OP_DELETE -> {
+                long id = (Long) in.read();
+                out.write(STATUS_OK);
+                out.write(repo.genericDelete(id));
+            }
+            case OP_COUNT -> {
+                out.write(STATUS_OK);
+                out.write((long) repo.count());
+            }
+            case OP_SHUTDOWN -> {
+                out.write(STATUS_OK);
+                out.flush();
+                close();
+                return false;
+            }
+            default -> throw new IOException("Operación desconocida: " + op);
+        }
+        return true;
+    }
+
+    private static void writeAll(GraphCodec.Writer out, List<?> entities) throws IOException {
+        out.write(entities.size());
+        for (Object e : entities) out.write(e);
+    }
+
+    private static void error(GraphCodec.Writer out, RuntimeException e) throws IOException {
+        out.write(STATUS_ERROR);
+        out.write(e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    // ===================== Ids intercalados =====================
+
+    private long save(Object entity) {
+        Objects.requireNonNull(entity, "entity no puede ser null");
+        assignId(entity, EntityMetadata.of(entity.getClass()), 0L);
+        repo.save(entity);
+        return EntityMetadata.of(entity.getClass()).readId(entity);
+    }
+
+    /** Por elemento: el id guardado (Long) o el mensaje de error (String). */
+    private Object[] saveAll(List<Object> entities) {
+        Object[] results = new Object[entities.size()];
+        // Un bloque de la secuencia local para todas las entidades nuevas, reservado por
+        // encima de los ids explícitos del lote (en el mismo CAS: uno nuevo no pisa a uno explícito)
+        int fresh = 0;
+        long floor = 0L;
+        for (Object e : entities) {
+            if (e == null) continue;
+            Long id = EntityMetadata.of(e.getClass()).readId(e);
+            if (isNew(id)) fresh++;
+            else if (id > 0 && (id - 1) % count == index) floor = Math.max(floor, (id - 1) / count + 1);
+        }
+        long next = 0L;
+        if (fresh > 0) {
+            long current;
+            long reserved;
+            do {
+                current = local.get();
+                reserved = Math.max(current, floor) + fresh;
+            } while (!local.compareAndSet(current, reserved));
+            next = reserved - fresh;
+        }
+        List<Object> valid = new ArrayList<>(entities.size());
+        int[] positions = new int[entities.size()];
+        for (int i = 0; i < entities.size(); i++) {
+            Object e = entities.get(i);
+            try {
+                Objects.requireNonNull(e, "entity no puede ser null");
+                EntityMetadata meta = EntityMetadata.of(e.getClass());
+                if (isNew(meta.readId(e))) {
+                    assignId(e, meta, next++ + 1);
+                } else {
+                    assignId(e, meta, 0L);
+                }
+                positions[valid.size()] = i;
+                valid.add(e);
+            } catch (RuntimeException ex) {
+                results[i] = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+            }
+        }
+        BatchResult<Object> batch = repo.saveAll(valid);
+        for (BatchResult.ItemResult<Object> r : batch.items()) {
+            results[positions[r.index()]] = r.isOk() ? (Object) r.id()
+                    : r.error().getClass().getSimpleName() + ": " + r.error().getMessage();
+        }
+        return results;
+    }
+
+    private static boolean isNew(Long id) {
+        return id == null || id == 0L;
+    }
+
+    /**
+     * Entidad nueva: le escribe el id del número local reserved (1..; 0 = reservar uno).
+     * Con id: verifica que sea de este shard y adelanta la secuencia local.
+     */
+    private void assignId(Object entity, EntityMetadata meta, long reserved) {
+        Long current = meta.readId(entity);
+        if (isNew(current)) {
+            long n = reserved != 0L ? reserved : local.incrementAndGet();
+            long id = index + 1 + (n - 1) * count;
+            PropertyAccessor idAccessor = meta.findProperty("id");
+            Class<?> idType = idAccessor == null ? null : PropertyAccessor.wrap(idAccessor.type());
+            if (idType == Integer.class && id > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Shard " + index + ": ids Integer agotados");
+            }
+            meta.writeId(entity, id);
+            return;
+        }
+        if ((current - 1) % count != index) {
+            throw new IllegalArgumentException("El id " + current + " es del shard " + (current - 1) % count
+                    + ", no del " + index);
+        }
+        long n = (current - 1) / count + 1;
+        local.accumulateAndGet(n, Math::max);
+    }
+}
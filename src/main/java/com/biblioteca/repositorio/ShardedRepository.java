@@ -0,0 +1,525 @@
+package com.biblioteca.repositorio;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static com.biblioteca.repositorio.ShardServer.OP_COUNT;
+import static com.biblioteca.repositorio.ShardServer.OP_DELETE;
+import static com.biblioteca.repositorio.ShardServer.OP_FIND_ALL;
+import static com.biblioteca.repositorio.ShardServer.OP_FIND_BY_FIELD;
+import static com.biblioteca.repositorio.ShardServer.OP_FIND_BY_ID;
+import static com.biblioteca.repositorio.ShardServer.OP_SAVE;
+import static com.biblioteca.repositorio.ShardServer.OP_SAVE_ALL;
+import static com.biblioteca.repositorio.ShardServer.OP_SHUTDOWN;
+import static com.biblioteca.repositorio.ShardServer.OP_UPDATE;
+import static com.biblioteca.repositorio.ShardServer.STATUS_OK;
+
+/**
+ * Repositorio particionado en N shards (ShardServer), cada uno en su proceso.
+ * - Ubicación: una entidad con id va al shard dueño del id ((id - 1) % N, los shards
+ *   asignan ids intercalados). Una nueva va por afinidad (affinity: misma clave, mismo
+ *   shard; ej: los insumos de una categoría) o, sin afinidad, en ronda.
+ * - findById / genericUpdate / genericDelete: un solo shard, derivado del id.
+ * - findAll / genericFindByField / count: scatter-gather. El pedido sale a todos los
+ *   shards antes de leer la primera respuesta, así los shards trabajan a la vez sin un
+ *   hilo por shard en el cliente.
+ * - saveAll: un mensaje por shard con su parte del lote, también en paralelo.
+ * - Semántica remota: el shard guarda su propia copia. Modificar por setter una entidad
+ *   ya guardada no cambia nada hasta volver a guardarla; las lecturas devuelven copias.
+ * - Los valores de genericFindByField/genericUpdate viajan como valores sueltos de
+ *   GraphCodec: String, Integer, Long, Double, Boolean, null o una entidad.
+ * - Thread-safe: cada conexión se usa de a un hilo (connectionsPerShard conexiones por
+ *   shard). Un error de red cierra esa conexión y se informa como UncheckedIOException;
+ *   la próxima operación que la necesite la reabre.
+ */
+public final class ShardedRepository<T> implements Closeable {
+
+    private final Class<T> type;
+    private final Shard[] shards;
+    private final Function<? super T, ?> affinity;
+    private final AtomicLong roundRobin = new AtomicLong();
+
+    private ShardedRepository(Builder<T> b) throws IOException {
+        this.type = b.type;
+        this.affinity = b.affinity;
+        Class<?>[] allowed = b.allowed.toArray(Class<?>[]::new);
+        this.shards = new Shard[b.addresses.size()];
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new Shard(i, b.addresses.get(i), b.connectionsPerShard, allowed);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static <T> Builder<T> builder(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final List<InetSocketAddress> addresses = new ArrayList<>();
+        private final List<Class<?>> allowed = new ArrayList<>();
+        private Function<? super T, ?> affinity;
+        private int connectionsPerShard = 1;
+
+        private Builder(Class<T> type) {
+            this.type = Objects.requireNonNull(type, "type no puede ser null");
+            allowed.add(type);
+        }
+
+        /** Los shards en orden (el shard i debe haberse levantado con index i y count = cantidad). */
+        public Builder<T> shards(List<InetSocketAddress> addresses) {
+            for (InetSocketAddress a : addresses) this.addresses.add(Objects.requireNonNull(a, "address no puede ser null"));
+            return this;
+        }
+
+        /** Clases que referencian las entidades (ej: Categoria, UnidadMedida). */
+        public Builder<T> related(Class<?>... classes) {
+            for (Class<?> c : classes) allowed.add(Objects.requireNonNull(c, "classes no puede contener null"));
+            return this;
+        }
+
+        /** Clave de afinidad de las entidades nuevas: misma clave, mismo shard. */
+        public Builder<T> affinity(Function<? super T, ?> key) {
+            this.affinity = Objects.requireNonNull(key, "key no puede ser null");
+            return this;
+        }
+
+        public Builder<T> connectionsPerShard(int connections) {
+            if (connections < 1) throw new IllegalArgumentException("connectionsPerShard debe ser >= 1");
+            this.connectionsPerShard = connections;
+            return this;
+        }
+
+        public ShardedRepository<T> connect() throws IOException {
+            if (addresses.isEmpty()) throw new IllegalStateException("Falta al menos un shard");
+            return new ShardedRepository<>(this);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /** El shard que guarda (o guardaría) el id. */
+    public int shardOf(long id) {
+        if (id <= 0) throw new IllegalArgumentException("id inválido: " + id);
+        return (int) ((id - 1) % shards.length);
+    }
+
+    // ===================== Escritura =====================
+
+    /** Guarda en el shard que corresponda; le escribe a entity el id asignado. */
+    public T save(T entity) {
+        Objects.requireNonNull(entity, "entity no puede ser null");
+        Shard shard = shards[route(entity)];
+        Connection c = shard.acquire();
+        try {
+            c.send(OP_SAVE, entity);
+            c.expectOk();
+            long id = (Long) c.next();
+            EntityMetadata.of(entity.getClass()).writeId(entity, id);
+            return entity;
+        } catch (IOException e) {
+            throw c.broken(e);
+        } finally {
+            c.release();
+        }
+    }
+
+    /** Reparte el lote por shard y lo guarda en paralelo; ItemResult por elemento, en orden. */
+    public BatchResult<T> saveAll(Collection<? extends T> entities) {
+        Objects.requireNonNull(entities, "entities no puede ser null");
+        @SuppressWarnings("unchecked")
+        T[] items = (T[]) entities.toArray();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        BatchResult.ItemResult<T>[] results = new BatchResult.ItemResult[items.length];
+        int[][] byShard = new int[shards.length][];
+        int[] sizes = new int[shards.length];
+        int[] target = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            try {
+                Objects.requireNonNull(items[i], "entity no puede ser null");
+                target[i] = route(items[i]);
+                sizes[target[i]]++;
+            } catch (RuntimeException e) {
+                target[i] = -1;
+                results[i] = new BatchResult.ItemResult<>(i, null, items[i], BatchResult.Status.FAILED, e);
+            }
+        }
+        for (int s = 0; s < shards.length; s++) byShard[s] = new int[sizes[s]];
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < items.length; i++) {
+            if (target[i] >= 0) byShard[target[i]][sizes[target[i]]++] = i;
+        }
+
+        Connection[] conns = acquireAll(byShard);
+        try {
+            RuntimeException failure = null;
+            for (int s = 0; s < shards.length; s++) {
+                if (conns[s] == null) continue;
+                Object[] message = new Object[2 + byShard[s].length];
+                message[0] = OP_SAVE_ALL;
+                message[1] = byShard[s].length;
+                for (int k = 0; k < byShard[s].length; k++) message[2 + k] = items[byShard[s][k]];
+                failure = send(conns[s], failure, message);
+            }
+            for (int s = 0; s < shards.length; s++) {
+                if (conns[s] == null || conns[s].broken) continue;
+                try {
+                    conns[s].expectOk();
+                    for (int i : byShard[s]) {
+                        Object r = conns[s].next();
+                        if (r instanceof Long id) {
+                            EntityMetadata.of(items[i].getClass()).writeId(items[i], id);
+                            results[i] = new BatchResult.ItemResult<>(i, id, items[i], BatchResult.Status.OK, null);
+                        } else {
+                            results[i] = new BatchResult.ItemResult<>(i, null, items[i], BatchResult.Status.FAILED,
+                                    new IllegalStateException("Shard " + s + ": " + r));
+                        }
+                    }
+                } catch (IOException e) {
+                    failure = conns[s].broken(e);
+                }
+            }
+            if (failure != null) throw failure;
+        } finally {
+            releaseAll(conns);
+        }
+        return new BatchResult<>(Arrays.asList(results));
+    }
+
+    /** Actualiza un campo en el shard del id (el valor se convierte allá, como genericUpdate). */
+    public boolean genericUpdate(long id, String fieldName, Object newValue) {
+        Objects.requireNonNull(fieldName, "fieldName no puede ser null");
+        Connection c = shards[shardOf(id)].acquire();
+        try {
+            c.send(OP_UPDATE, id, fieldName, newValue);
+            c.expectOk();
+            return (Boolean) c.next();
+        } catch (IOException e) {
+            throw c.broken(e);
+        } finally {
+            c.release();
+        }
+    }
+
+    public boolean genericDelete(long id) {
+        Connection c = shards[shardOf(id)].acquire();
+        try {
+            c.send(OP_DELETE, id);
+            c.expectOk();
+            return (Boolean) c.next();
+        } catch (IOException e) {
+            throw c.broken(e);
+        } finally {
+            c.release();
+        }
+    }
+
+    // ===================== Lectura =====================
+
+    public Optional<T> findById(long id) {
+        Connection c = shards[shardOf(id)].acquire();
+        try {
+            c.send(OP_FIND_BY_ID, id);
+            c.expectOk();
+            return Optional.ofNullable(type.cast(c.next()));
+        } catch (IOException e) {
+            throw c.broken(e);
+        } finally {
+            c.release();
+        }
+    }
+
+    /** Todas las entidades: shard por shard, en el orden de cada uno. */
+    public List<T> findAll() {
+        return gatherLists(OP_FIND_ALL);
+    }
+
+    /** Igualdad sobre un campo en todos los shards (cada uno usa sus índices, si tiene). */
+    public List<T> genericFindByField(String fieldName, Object expectedValue) {
+        Objects.requireNonNull(fieldName, "fieldName no puede ser null");
+        return gatherLists(OP_FIND_BY_FIELD, fieldName, expectedValue);
+    }
+
+    public long count() {
+        Connection[] conns = acquireAll(null);
+        try {
+            RuntimeException failure = null;
+            for (Connection c : conns) failure = send(c, failure, OP_COUNT);
+            long total = 0;
+            for (Connection c : conns) {
+                if (c.broken) continue;
+                try {
+                    RuntimeException remote = c.status();
+                    if (remote != null) failure = remote;
+                    else total += (Long) c.next();
+                } catch (IOException e) {
+                    failure = c.broken(e);
+                }
+            }
+            if (failure != null) throw failure;
+            return total;
+        } finally {
+            releaseAll(conns);
+        }
+    }
+
+    /**
+     * Apaga los procesos shard (SHUTDOWN) y cierra las conexiones. Los datos de los shards
+     * se pierden: son repositorios en memoria.
+     */
+    public void shutdownShards() {
+        Connection[] conns = acquireAll(null);
+        try {
+            for (Connection c : conns) {
+                try {
+                    c.send(OP_SHUTDOWN);
+                    c.expectOk();
+                } catch (IOException | RuntimeException ignored) {
+                    // el shard ya no está: nada que apagar
+                }
+            }
+        } finally {
+            releaseAll(conns);
+        }
+        close();
+    }
+
+    @Override
+    public void close() {
+        for (Shard s : shards) {
+            if (s != null) s.close();
+        }
+    }
+
+    // ===================== Scatter-gather =====================
+
+    private List<T> gatherLists(Object... request) {
+        Connection[] conns = acquireAll(null);
+        try {
+            RuntimeException failure = null;
+            for (Connection c : conns) failure = send(c, failure, request);
+            List<T> result = new ArrayList<>();
+            // Se leen todas las respuestas aunque una falle: la conexión queda lista para el próximo pedido
+            for (Connection c : conns) {
+                if (c.broken) continue;
+                try {
+                    RuntimeException remote = c.status();
+                    if (remote != null) {
+                        failure = remote;
+                        continue;
+                    }
+                    int n = (Integer) c.next();
+                    for (int i = 0; i < n; i++) result.add(type.cast(c.next()));
+                } catch (IOException e) {
+                    failure = c.broken(e);
+                }
+            }
+            if (failure != null) throw failure;
+            return result;
+        } finally {
+            releaseAll(conns);
+        }
+    }
+
+    /** Una conexión por shard (solo los que tienen trabajo si only != null), en orden de shard. */
+    private Connection[] acquireAll(int[][] only) {
+        Connection[] conns = new Connection[shards.length];
+        for (int s = 0; s < shards.length; s++) {
+            if (only == null || only[s].length > 0) conns[s] = shards[s].acquire();
+        }
+        return conns;
+    }
+
+    private static void releaseAll(Connection[] conns) {
+        for (Connection c : conns) {
+            if (c != null) c.release();
+        }
+    }
+
+    /**
+     * Envía sin lanzar: en un scatter los demás shards ya recibieron su pedido y hay que
+     * leer sus respuestas igual. Devuelve el primer error (failure o el de este envío).
+     */
+    private static RuntimeException send(Connection c, RuntimeException failure, Object... message) {
+        try {
+            c.send(message);
+            return failure;
+        } catch (IOException e) {
+            RuntimeException error = c.broken(e);
+            return failure != null ? failure : error;
+        }
+    }
+
+    private int route(T entity) {
+        Long id = EntityMetadata.of(entity.getClass()).readId(entity);
+        if (id != null && id != 0L) return shardOf(id);
+        if (affinity != null) {
+            Object key = affinity.apply(entity);
+            if (key != null) {
+                int h = key.hashCode();
+                return Math.floorMod(h ^ (h >>> 16), shards.length);
+            }
+        }
+        return (int) Math.floorMod(roundRobin.getAndIncrement(), (long) shards.length);
+    }
+
+    // ===================== Conexiones =====================
+
+    private static final class Shard {
+        final int index;
+        final InetSocketAddress address;
+        final Class<?>[] allowed;
+        final AtomicReferenceArray<Connection> connections;
+        volatile boolean closed;
+
+        Shard(int index, InetSocketAddress address, int connections, Class<?>[] allowed) throws IOException {
+            this.index = index;
+            this.address = address;
+            this.allowed = allowed;
+            this.connections = new AtomicReferenceArray<>(connections);
+            for (int i = 0; i < connections; i++) this.connections.set(i, new Connection(index, address, allowed));
+        }
+
+        /**
+         * Una conexión sana y libre si la hay; si no, reabre una rota (un corte de red no
+         * deja el shard inutilizable) o espera por una al azar.
+         */
+        Connection acquire() {
+            if (closed) throw new IllegalStateException("ShardedRepository cerrado");
+            int n = connections.length();
+            int broken = -1;
+            for (int i = 0; i < n; i++) {
+                Connection c = connections.get(i);
+                if (c.broken) {
+                    if (broken < 0) broken = i;
+                } else if (c.lock.tryLock()) {
+                    if (!c.broken) return c;
+                    c.lock.unlock();
+                }
+            }
+            if (broken >= 0) {
+                Connection c = connections.get(broken);
+                if (c.lock.tryLock()) return c.broken ? reconnect(broken, c) : c;
+            }
+            int i = ThreadLocalRandom.current().nextInt(n);
+            Connection c = connections.get(i);
+            c.lock.lock();
+            return c.broken ? reconnect(i, c) : c;
+        }
+
+        /** Reemplaza la conexión rota del lugar i (con su lock tomado) y devuelve la nueva ya tomada. */
+        private Connection reconnect(int i, Connection old) {
+            try {
+                if (closed) throw new IllegalStateException("ShardedRepository cerrado");
+                if (connections.get(i) != old) return acquire(); // otro hilo ya la reabrió
+                Connection fresh;
+                try {
+                    fresh = new Connection(index, address, allowed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(new IOException("Shard " + index + " desconectado: " + e.getMessage(), e));
+                }
+                fresh.lock.lock();
+                connections.set(i, fresh);
+                return fresh;
+            } finally {
+                old.lock.unlock();
+            }
+        }
+
+        void close() {
+            closed = true;
+            for (int i = 0; i < connections.length(); i++) {
+                Connection c = connections.get(i);
+                if (c != null) c.close();
+            }
+        }
+    }
+
+    private static final class Connection {
+        final int shard;
+        final ReentrantLock lock = new ReentrantLock();
+        final SocketChannel channel;
+        final GraphCodec.Writer out;
+        final GraphCodec.Reader in;
+        volatile boolean broken;
+
+        Connection(int shard, InetSocketAddress address, Class<?>[] allowed) throws IOException {
+            this.shard = shard;
+            this.channel = SocketChannel.open(address);
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                this.out = GraphCodec.writer(channel);
+                out.flush();
+                this.in = GraphCodec.reader(channel, allowed);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void release() {
+            lock.unlock();
+        }
+
+        void send(Object... message) throws IOException {
+            for (Object part : message) out.write(part);
+            out.reset();
+            out.flush();
+        }
+
+        Object next() throws IOException {
+            Object o = in.read();
+            if (o == null && in.isEnd()) throw new EOFException("El shard " + shard + " cerró la conexión");
+            return o;
+        }
+
+        /** null si la respuesta es OK; si es un error remoto lo consume y lo devuelve. */
+        RuntimeException status() throws IOException {
+            Object status = next();
+            if (Integer.valueOf(STATUS_OK).equals(status)) return null;
+            return new IllegalStateException("Shard " + shard + ": " + next());
+        }
+
+        void expectOk() throws IOException {
+            RuntimeException remote = status();
+            if (remote != null) throw remote;
+        }
+
+        /** Marca la conexión como rota (el stream quedó a mitad de mensaje) y arma la excepción. */
+        UncheckedIOException broken(IOException e) {
+            broken = true;
+            close();
+            return new UncheckedIOException("Shard " + shard + ": " + e.getMessage(), e);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // cerrando igual
+            }
+        }
+    }
+}
@@ -0,0 +1,867 @@
+package com.biblioteca.repositorio;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de texto completo (invertido) sobre campos String de uno o varios repositorios.
+ * Ej: TextIndex&lt;Articulo&gt; index = TextIndex.builder(Articulo.class)
+ *         .field("denominacion", 3).field("categoria.denominacion", 2)
+ *         .field("descripcion", 1).field("preparacion", 0.5).build();
+ *     index.attach(repoInsumo); index.attach(repoManu);
+ *     index.search("pizza hawai", 10)
+ * - Normalización: minúsculas y sin acentos ("Ananá" = "anana", "Córdoba" = "cordoba");
+ *   se separa en palabras por todo lo que no sea letra o dígito y se ignoran las palabras
+ *   vacías más comunes del castellano ("de", "con", ...).
+ * - Cada palabra de la consulta busca, en este orden: el término exacto; si no está,
+ *   términos que empiezan con ella ("hawai" -> "hawaiana", hasta MAX_PREFIX_EXPANSIONS);
+ *   si tampoco, términos parecidos por trigramas y distancia de edición ("muzarela" ->
+ *   "muzzarella": 1 edición hasta 5 letras, 2 desde 6; solo palabras sin dígitos).
+ * - Ranking: por palabra de la consulta, idf del término x peso de los campos donde
+ *   aparece (x0.6 si vino por prefijo, menos por aproximación; si varios términos responden
+ *   a la palabra, vale el mejor); se suman las palabras y se multiplica por la fracción de
+ *   palabras de la consulta que coincidieron.
+ * - Top-k por bloques de documentos: una vez juntados limit resultados, se saltean los
+ *   bloques que no pueden superarlos; una palabra común cuesta microsegundos, no su lista.
+ * - Un campo que la clase no tiene (descripcion en ArticuloInsumo) se ignora.
+ * - Incremental: attach registra un listener (save/update/delete, también en lote) e
+ *   indexa lo que ya había. Cambios por setter sin pasar por el repositorio no se ven.
+ * - Un borrado o reemplazo deja el documento viejo muerto en las listas; cuando los
+ *   muertos superan a los vivos se compacta todo.
+ * - Thread-safe: búsquedas en paralelo entre sí (lock de lectura); las escrituras se serializan.
+ */
+public final class TextIndex<T> {
+
+    /** Un resultado: la entidad y su puntaje (mayor = más relevante). */
+    public record Hit<T>(T entity, double score) {
+    }
+
+    /** Campos indexables como máximo (cada término guarda en qué campos aparece en un byte). */
+    static final int MAX_FIELDS = 8;
+    /** Términos por prefijo que se consideran por palabra de la consulta. */
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+    /** Términos aproximados que se consideran por palabra de la consulta. */
+    static final int MAX_FUZZY_EXPANSIONS = 16;
+    static final int MIN_PREFIX_LENGTH = 3;
+    static final int MIN_FUZZY_LENGTH = 4;
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float FUZZY_FACTOR = 0.5f;
+    private static final int COMPACT_MIN_DEAD = 4_096;
+    // Bloques de documentos para saltear en la búsqueda; los términos con al menos
+    // LONG_TERM documentos guardan la máscara de campos de cada bloque
+    private static final int BLOCK_SHIFT = 10;
+    private static final int BLOCK = 1 << BLOCK_SHIFT;
+    private static final int LONG_TERM = 4_096;
+    // Repositorio de origen en los 8 bits altos de la clave; el id en el resto
+    private static final int SOURCE_SHIFT = 56;
+    private static final char PAD = '$';
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los", "o", "para", "por",
+            "se", "sin", "su", "un", "una", "y");
+
+    private final Class<T> type;
+    private final String[] fieldNames;
+    private final PropertyPath[] paths;
+    private final String[] rootNames; // primer tramo de cada campo (para onUpdated)
+    private final float[] maskWeights; // peso de cada combinación de campos (bit i = campo i)
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Source> sources = new ArrayList<>();
+
+    // Documentos: número interno -> entidad (null = muerto) y clave (origen + id)
+    private Object[] docs = new Object[1_024];
+    private long[] docKeys = new long[1_024];
+    private int docCount;
+    private int liveDocs;
+    private final LongIntMap byKey = new LongIntMap();
+
+    // Términos: diccionario ordenado (exacto y prefijos) y trigramas -> términos (aproximados)
+    private final TreeMap<String, Term> dictionary = new TreeMap<>();
+    private final List<Term> terms = new ArrayList<>();
+    private final HashMap<Long, IntList> trigrams = new HashMap<>();
+
+    private TextIndex(Builder<T> builder) {
+        this.type = builder.type;
+        int n = builder.fields.size();
+        this.fieldNames = builder.fields.keySet().toArray(String[]::new);
+        this.paths = new PropertyPath[n];
+        this.rootNames = new String[n];
+        float[] weights = new float[n];
+        for (int i = 0; i < n; i++) {
+            paths[i] = new PropertyPath(fieldNames[i]);
+            int dot = fieldNames[i].indexOf('.');
+            rootNames[i] = dot < 0 ? fieldNames[i] : fieldNames[i].substring(0, dot);
+            weights[i] = builder.fields.get(fieldNames[i]);
+        }
+        this.maskWeights = new float[1 << MAX_FIELDS];
+        for (int mask = 1; mask < maskWeights.length; mask++) {
+            float w = 0;
+            for (int i = 0; i < n; i++) {
+                if ((mask & 1 << i) != 0) w += weights[i];
+            }
+            maskWeights[mask] = w;
+        }
+    }
+
+    public static <T> Builder<T> builder(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    // ===================== Repositorios =====================
+
+    /** Indexa el repositorio (lo que tiene y lo que se escriba desde ahora). */
+    public void attach(InMemoryRepository<? extends T> repository) {
+        Objects.requireNonNull(repository, "repository no puede ser null");
+        Source source;
+        lock.writeLock().lock();
+        try {
+            for (Source s : sources) {
+                if (s.repository == repository) throw new IllegalStateException("El repositorio ya está indexado");
+            }
+            if (sources.size() == 1 << (Long.SIZE - SOURCE_SHIFT)) throw new IllegalStateException("Demasiados repositorios");
+            source = new Source(sources.size(), repository);
+            sources.add(source);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Primero el listener: lo que se guarde mientras se recorre no se pierde (upsert por clave)
+        source.listen();
+        lock.writeLock().lock();
+        try {
+            repository.forEachEntry((id, entity) -> upsert(source.key(id), entity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Deja de indexar el repositorio y quita sus entidades del índice. */
+    public boolean detach(InMemoryRepository<? extends T> repository) {
+        lock.writeLock().lock();
+        try {
+            for (Source s : sources) {
+                if (s.repository != repository || s.detached) continue;
+                s.detached = true;
+                s.unlisten();
+                for (int d = 0; d < docCount; d++) {
+                    if (docs[d] != null && docKeys[d] >>> SOURCE_SHIFT == s.index) remove(docKeys[d]);
+                }
+                return true;
+            }
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===================== Búsqueda =====================
+
+    /** Las limit entidades más relevantes para la consulta (vacío si no hay palabras buscables). */
+    public List<Hit<T>> search(String query, int limit) {
+        Objects.requireNonNull(query, "query no puede ser null");
+        if (limit < 1) throw new IllegalArgumentException("limit debe ser >= 1");
+        List<String> words = distinct(tokens(query));
+        if (words.isEmpty()) return List.of();
+        if (words.size() > Integer.SIZE) words = words.subList(0, Integer.SIZE);
+        lock.readLock().lock();
+        try {
+            List<Cursor> cursors = new ArrayList<>();
+            for (int w = 0; w < words.size(); w++) expand(words.get(w), w, cursors);
+            return cursors.isEmpty() ? List.of() : top(cursors, words.size(), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Entidades indexadas. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Términos distintos en el diccionario (incluye los que quedaron sin documentos vivos). */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TextIndex[" + type.getSimpleName() + ", campos=" + Arrays.toString(fieldNames) + ", docs=" + liveDocs + "]";
+    }
+
+    /** Términos del índice que responden a una palabra de la consulta (exacto, prefijos o aproximados). */
+    private void expand(String word, int w, List<Cursor> cursors) {
+        Term exact = dictionary.get(word);
+        if (exact != null && exact.size > 0) {
+            cursors.add(new Cursor(exact, w, idf(exact)));
+            return;
+        }
+        boolean found = false;
+        if (word.length() >= MIN_PREFIX_LENGTH) {
+            int expansions = 0;
+            NavigableMap<String, Term> range = dictionary.subMap(word, false, word + Character.MAX_VALUE, false);
+            for (Term t : range.values()) {
+                if (t.size == 0) continue;
+                cursors.add(new Cursor(t, w, idf(t) * PREFIX_FACTOR));
+                found = true;
+                if (++expansions == MAX_PREFIX_EXPANSIONS) break;
+            }
+        }
+        if (!found && word.length() >= MIN_FUZZY_LENGTH && onlyLetters(word)) {
+            for (Fuzzy f : fuzzy(word)) {
+                cursors.add(new Cursor(f.term, w, idf(f.term) * FUZZY_FACTOR * (1f - (float) f.edits / word.length())));
+            }
+        }
+    }
+
+    private float idf(Term t) {
+        return (float) Math.log(1.0 + (double) liveDocs / t.size);
+    }
+
+    /**
+     * Recorre los documentos en bloques de BLOCK números, en orden. Con limit resultados ya
+     * juntados, un bloque cuya cota (máscara de campos del bloque por término) no supera al
+     * peor de ellos se saltea sin mirar sus documentos: las palabras comunes cuestan del orden
+     * de los bloques, no de sus listas.
+     */
+    private List<Hit<T>> top(List<Cursor> cursors, int words, int limit) {
+        Cursor[] all = cursors.toArray(Cursor[]::new);
+        float[] wordScores = new float[words * BLOCK];
+        float[] wordBounds = new float[words];
+        int[] matched = new int[BLOCK]; // bits de las palabras que coincidieron por documento del bloque
+        int[] touched = new int[BLOCK];
+        TopHits top = new TopHits(limit);
+        // Cota de toda la consulta: alcanzada por los limit mejores, ningún bloque puede entrar
+        float ceiling = bound(all, -1, Integer.MAX_VALUE, wordBounds, words);
+        for (int block = nextBlock(all); block >= 0; block = nextBlock(all)) {
+            int from = block << BLOCK_SHIFT;
+            int to = from + BLOCK;
+            if (top.full() && bound(all, block, to, wordBounds, words) <= top.threshold()) {
+                for (Cursor c : all) c.skipTo(to);
+                continue;
+            }
+            int count = 0;
+            for (Cursor c : all) {
+                Term t = c.term;
+                int base = c.word * BLOCK;
+                int bit = 1 << c.word;
+                for (; c.pos < t.size && t.docs[c.pos] < to; c.pos++) {
+                    int d = t.docs[c.pos] - from;
+                    float score = c.scale * maskWeights[t.masks[c.pos] & 0xFF];
+                    if (matched[d] == 0) touched[count++] = d;
+                    // Una palabra vale por su mejor término (exacto, prefijo o aproximado)
+                    if ((matched[d] & bit) == 0 || score > wordScores[base + d]) wordScores[base + d] = score;
+                    matched[d] |= bit;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int d = touched[i];
+                int bits = matched[d];
+                matched[d] = 0;
+                if (docs[from + d] == null) continue;
+                float total = 0;
+                for (int w = 0; w < words; w++) {
+                    if ((bits & 1 << w) != 0) total += wordScores[w * BLOCK + d];
+                }
+                top.offer(from + d, total * ((float) Integer.bitCount(bits) / words));
+            }
+            if (top.full() && top.threshold() >= ceiling) break;
+        }
+        return top.hits();
+    }
+
+    /** Primer bloque con documentos pendientes en algún cursor (-1 si no queda ninguno). */
+    private static int nextBlock(Cursor[] cursors) {
+        int next = Integer.MAX_VALUE;
+        for (Cursor c : cursors) {
+            if (c.pos < c.term.size) next = Math.min(next, c.term.docs[c.pos]);
+        }
+        return next == Integer.MAX_VALUE ? -1 : next >>> BLOCK_SHIFT;
+    }
+
+    /**
+     * Cota del puntaje de cualquier documento del bloque (block = -1: de cualquier documento),
+     * calculada igual que el puntaje real (mismo orden de sumas) para que el redondeo no la
+     * deje por debajo.
+     */
+    private float bound(Cursor[] cursors, int block, int to, float[] wordBounds, int words) {
+        Arrays.fill(wordBounds, 0f);
+        int bits = 0;
+        for (Cursor c : cursors) {
+            if (c.pos >= c.term.size || c.term.docs[c.pos] >= to) continue;
+            float b = c.scale * maskWeights[(block < 0 ? c.term.allMasks : c.term.blockMask(block)) & 0xFF];
+            if (b > wordBounds[c.word]) wordBounds[c.word] = b;
+            bits |= 1 << c.word;
+        }
+        float total = 0;
+        for (int w = 0; w < words; w++) {
+            if ((bits & 1 << w) != 0) total += wordBounds[w];
+        }
+        return total * ((float) Integer.bitCount(bits) / words);
+    }
+
+    /** Posición en la lista de un término para una búsqueda (los documentos vienen en orden). */
+    private static final class Cursor {
+        final Term term;
+        final int word;
+        final float scale; // idf x factor (exacto, prefijo o aproximado)
+        int pos;
+
+        Cursor(Term term, int word, float scale) {
+            this.term = term;
+            this.word = word;
+            this.scale = scale;
+        }
+
+        /** Avanza al primer documento >= target (galope y búsqueda binaria). */
+        void skipTo(int target) {
+            int[] docs = term.docs;
+            int size = term.size;
+            if (pos >= size || docs[pos] >= target) return;
+            int step = 1;
+            while (pos + step < size && docs[pos + step] < target) step <<= 1;
+            int lo = pos + (step >>> 1) + 1;
+            int hi = Math.min(pos + step, size);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (docs[mid] < target) lo = mid + 1;
+                else hi = mid;
+            }
+            pos = lo;
+        }
+    }
+
+    /** Los limit mejores (min-heap por puntaje); a igual puntaje gana el documento más viejo. */
+    private final class TopHits {
+        private final int[] heapDocs;
+        private final float[] heapScores;
+        private int size;
+
+        TopHits(int limit) {
+            heapDocs = new int[limit];
+            heapScores = new float[limit];
+        }
+
+        boolean full() {
+            return size == heapDocs.length;
+        }
+
+        float threshold() {
+            return heapScores[0];
+        }
+
+        void offer(int doc, float score) {
+            if (size < heapDocs.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(doc, score, heapDocs[parent], heapScores[parent])) break;
+                    heapDocs[i] = heapDocs[parent];
+                    heapScores[i] = heapScores[parent];
+                    i = parent;
+                }
+                heapDocs[i] = doc;
+                heapScores[i] = score;
+            } else if (worse(heapDocs[0], heapScores[0], doc, score)) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && worse(heapDocs[child + 1], heapScores[child + 1], heapDocs[child], heapScores[child])) child++;
+                    if (!worse(heapDocs[child], heapScores[child], doc, score)) break;
+                    heapDocs[i] = heapDocs[child];
+                    heapScores[i] = heapScores[child];
+                    i = child;
+                }
+                heapDocs[i] = doc;
+                heapScores[i] = score;
+            }
+        }
+
+        private static boolean worse(int docA, float scoreA, int docB, float scoreB) {
+            return scoreA < scoreB || (scoreA == scoreB && docA > docB);
+        }
+
+        List<Hit<T>> hits() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> heapScores[a] != heapScores[b] ? Float.compare(heapScores[b], heapScores[a])
+                    : Integer.compare(heapDocs[a], heapDocs[b]));
+            List<Hit<T>> hits = new ArrayList<>(size);
+            for (int i : order) hits.add(new Hit<>(type.cast(docs[heapDocs[i]]), heapScores[i]));
+            return hits;
+        }
+    }
+
+    private record Fuzzy(Term term, int edits) {
+    }
+
+    /** Términos a pocas ediciones de word, candidatos por trigramas compartidos. */
+    private List<Fuzzy> fuzzy(String word) {
+        long[] grams = trigramsOf(word);
+        int maxEdits = word.length() <= 5 ? 1 : 2;
+        IntIntMap shared = new IntIntMap();
+        for (long g : grams) {
+            IntList list = trigrams.get(g);
+            if (list == null) continue;
+            for (int i = 0; i < list.size; i++) shared.increment(list.values[i]);
+        }
+        List<Fuzzy> result = new ArrayList<>();
+        for (int slot = 0; slot < shared.keys.length; slot++) {
+            int termId = shared.keys[slot] - 1;
+            if (termId < 0) continue;
+            Term t = terms.get(termId);
+            if (t.size == 0 || Math.abs(t.text.length() - word.length()) > maxEdits) continue;
+            // Dice sobre trigramas: descarta rápido antes de la distancia de edición
+            int candidateGrams = t.text.length();
+            if (2.0 * shared.values[slot] / (grams.length + candidateGrams) < 0.4) continue;
+            int edits = editDistance(word, t.text, maxEdits);
+            if (edits <= maxEdits) result.add(new Fuzzy(t, edits));
+        }
+        result.sort((a, b) -> a.edits != b.edits ? Integer.compare(a.edits, b.edits) : Integer.compare(b.term.size, a.term.size));
+        return result.size() > MAX_FUZZY_EXPANSIONS ? result.subList(0, MAX_FUZZY_EXPANSIONS) : result;
+    }
+
+    /** Distancia de Damerau-Levenshtein (transposiciones adyacentes); max + 1 si la supera. */
+    static int editDistance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) return max + 1;
+            int[] tmp = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[m], max + 1);
+    }
+
+    // ===================== Escritura (con el lock de escritura) =====================
+
+    private void upsert(long key, Object entity) {
+        int old = byKey.get(key);
+        if (old >= 0) kill(old);
+        // Palabra -> campos donde aparece
+        Map<String, Integer> masks = new HashMap<>();
+        for (int f = 0; f < paths.length; f++) {
+            Object value = paths[f].find(entity);
+            if (!(value instanceof String text)) continue;
+            for (String token : tokens(text)) masks.merge(token, 1 << f, (a, b) -> a | b);
+        }
+        int doc = newDoc(key, entity);
+        for (Map.Entry<String, Integer> e : masks.entrySet()) {
+            termFor(e.getKey()).add(doc, e.getValue().byteValue());
+        }
+        maybeCompact();
+    }
+
+    private void remove(long key) {
+        int old = byKey.get(key);
+        if (old < 0) return;
+        kill(old);
+        byKey.remove(key);
+        maybeCompact();
+    }
+
+    private int newDoc(long key, Object entity) {
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docCount * 2);
+            docKeys = Arrays.copyOf(docKeys, docCount * 2);
+        }
+        int doc = docCount++;
+        docs[doc] = entity;
+        docKeys[doc] = key;
+        byKey.put(key, doc);
+        liveDocs++;
+        return doc;
+    }
+
+    private void kill(int doc) {
+        docs[doc] = null;
+        liveDocs--;
+    }
+
+    private Term termFor(String text) {
+        Term t = dictionary.get(text);
+        if (t != null) return t;
+        t = new Term(terms.size(), text);
+        dictionary.put(text, t);
+        terms.add(t);
+        // Solo palabras de letras entran a los aproximados (en números y códigos no tiene sentido)
+        if (text.length() >= MIN_FUZZY_LENGTH - 1 && onlyLetters(text)) {
+            for (long g : trigramsOf(text)) trigrams.computeIfAbsent(g, k -> new IntList()).add(t.id);
+        }
+        return t;
+    }
+
+    /** Con más muertos que vivos, renumera los documentos y limpia todas las listas. */
+    private void maybeCompact() {
+        int dead = docCount - liveDocs;
+        if (dead < COMPACT_MIN_DEAD || dead <= liveDocs) return;
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int d = 0; d < docCount; d++) {
+            if (docs[d] == null) {
+                remap[d] = -1;
+                continue;
+            }
+            remap[d] = next;
+            docs[next] = docs[d];
+            docKeys[next] = docKeys[d];
+            byKey.put(docKeys[next], next);
+            next++;
+        }
+        Arrays.fill(docs, next, docCount, null);
+        docCount = next;
+        for (Term t : terms) t.remap(remap);
+    }
+
+    // ===================== Texto =====================
+
+    /** Palabras normalizadas (minúsculas, sin acentos), sin palabras vacías ni de una letra. */
+    static List<String> tokens(String text) {
+        String s = text;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                s = Normalizer.normalize(s, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder(16);
+        for (int i = 0; i <= s.length(); i++) {
+            char c = i < s.length() ? s.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue; // acento separado por NFD
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                if (word.length() > 1) {
+                    String token = word.toString();
+                    if (!STOP_WORDS.contains(token)) tokens.add(token);
+                }
+                word.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> distinct(List<String> tokens) {
+        return tokens.size() < 2 ? tokens : List.copyOf(new LinkedHashSet<>(tokens));
+    }
+
+    private static boolean onlyLetters(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isLetter(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /** Trigramas de "$palabra$" empaquetados en un long (3 chars de 16 bits). */
+    private static long[] trigramsOf(String word) {
+        String padded = PAD + word + PAD;
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+        return grams;
+    }
+
+    // ===================== Estructuras =====================
+
+    /**
+     * Un término: documentos donde aparece (en orden de alta) y en qué campos (máscara).
+     * La unión de las máscaras (de todo el término o, si es largo, por bloque) acota su puntaje.
+     */
+    private static final class Term {
+        final int id;
+        final String text;
+        int[] docs = new int[2];
+        byte[] masks = new byte[2];
+        int size;
+        byte allMasks;
+        byte[] blockMasks; // solo términos largos
+
+        Term(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+
+        void add(int doc, byte mask) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                masks = Arrays.copyOf(masks, size * 2);
+            }
+            docs[size] = doc;
+            masks[size] = mask;
+            size++;
+            allMasks |= mask;
+            if (blockMasks != null) {
+                int block = doc >>> BLOCK_SHIFT;
+                if (block >= blockMasks.length) blockMasks = Arrays.copyOf(blockMasks, Math.max(block + 1, blockMasks.length * 2));
+                blockMasks[block] |= mask;
+            } else if (size == LONG_TERM) {
+                rebuildMasks();
+            }
+        }
+
+        byte blockMask(int block) {
+            return blockMasks == null ? allMasks : blockMasks[block];
+        }
+
+        void remap(int[] remap) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc < 0) continue;
+                docs[n] = doc;
+                masks[n] = masks[i];
+                n++;
+            }
+            size = n;
+            if (n < docs.length / 4) {
+                docs = Arrays.copyOf(docs, Math.max(2, n));
+                masks = Arrays.copyOf(masks, Math.max(2, n));
+            }
+            rebuildMasks();
+        }
+
+        private void rebuildMasks() {
+            allMasks = 0;
+            blockMasks = size >= LONG_TERM ? new byte[(docs[size - 1] >>> BLOCK_SHIFT) + 1] : null;
+            for (int i = 0; i < size; i++) {
+                allMasks |= masks[i];
+                if (blockMasks != null) blockMasks[docs[i] >>> BLOCK_SHIFT] |= masks[i];
+            }
+        }
+    }
+
+    /** Contador int -> int (candidatos aproximados: término -> trigramas compartidos). */
+    private static final class IntIntMap {
+        int[] keys = new int[64]; // clave + 1 (0 = libre)
+        int[] values = new int[64];
+        private int size;
+
+        void increment(int key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != 0 && keys[i] != key + 1) i = (i + 1) & mask;
+            if (keys[i] == 0) {
+                keys[i] = key + 1;
+                size++;
+            }
+            values[i]++;
+            if (size * 2 > keys.length) grow();
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == 0) continue;
+                int i = mix(oldKeys[j] - 1) & mask;
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** Mapa long -> int (clave de entidad -> documento) con direccionamiento abierto. */
+    private static final class LongIntMap {
+        private long[] keys = new long[1_024];
+        private int[] values = new int[1_024]; // doc + 1 (0 = libre)
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (values[i] == 0) return -1;
+                if (keys[i] == key) return values[i] - 1;
+            }
+        }
+
+        void put(long key, int value) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            if (values[i] == 0) size++;
+            keys[i] = key;
+            values[i] = value + 1;
+            if (size * 2 > keys.length) grow();
+        }
+
+        /** Borrado con corrimiento hacia atrás (sin lápidas). */
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (true) {
+                if (values[i] == 0) return;
+                if (keys[i] == key) break;
+                i = (i + 1) & mask;
+            }
+            size--;
+            for (int j = (i + 1) & mask; values[j] != 0; j = (j + 1) & mask) {
+                int home = mix(keys[j]) & mask;
+                // j se puede mover a i si su posición ideal no está entre i (excl.) y j (incl.)
+                if ((j > i && (home <= i || home > j)) || (j < i && home <= i && home > j)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            values[i] = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == 0) continue;
+                int i = mix(oldKeys[j]) & mask;
+                while (values[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** Lista de int creciente (términos de un trigrama). */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    // ===================== Listener por repositorio =====================
+
+    /** Un repositorio indexado: traduce sus eventos a claves (origen + id). */
+    private final class Source implements RepositoryListener<Object> {
+        final int index;
+        final InMemoryRepository<? extends T> repository;
+        boolean detached;
+
+        Source(int index, InMemoryRepository<? extends T> repository) {
+            this.index = index;
+            this.repository = repository;
+        }
+
+        long key(long id) {
+            if (id < 0 || id >>> SOURCE_SHIFT != 0) throw new IllegalArgumentException("Id fuera de rango para TextIndex: " + id);
+            return (long) index << SOURCE_SHIFT | id;
+        }
+
+        void listen() {
+            repository.addListener(this);
+        }
+
+        void unlisten() {
+            repository.removeListener(this);
+        }
+
+        @Override
+        public void onSaved(long id, Object previous, Object entity) {
+            write(() -> upsert(key(id), entity));
+        }
+
+        @Override
+        public void onUpdated(long id, Object entity, String fieldName, Object oldValue, Object newValue) {
+            for (String root : rootNames) {
+                if (root.equals(fieldName)) {
+                    write(() -> upsert(key(id), entity));
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onDeleted(long id, Object entity) {
+            write(() -> remove(key(id)));
+        }
+
+        private void write(Runnable action) {
+            lock.writeLock().lock();
+            try {
+                if (!detached) action.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // ===================== Builder =====================
+
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final Map<String, Float> fields = new LinkedHashMap<>();
+
+        private Builder(Class<T> type) {
+            this.type = Objects.requireNonNull(type, "type no puede ser null");
+        }
+
+        /** Campo o ruta ("categoria.denominacion") de tipo String, con su peso en el ranking. */
+        public Builder<T> field(String path, double weight) {
+            Objects.requireNonNull(path, "path no puede ser null");
+            if (!(weight > 0) || Double.isInfinite(weight)) throw new IllegalArgumentException("El peso debe ser > 0: " + weight);
+            if (fields.size() == MAX_FIELDS && !fields.containsKey(path)) {
+                throw new IllegalArgumentException("Máximo " + MAX_FIELDS + " campos por índice");
+            }
+            new PropertyPath(path); // valida la sintaxis
+            fields.put(path, (float) weight);
+            return this;
+        }
+
+        public TextIndex<T> build() {
+            if (fields.isEmpty()) throw new IllegalStateException("Falta al menos un campo");
+            return new TextIndex<>(this);
+        }
+    }
+}
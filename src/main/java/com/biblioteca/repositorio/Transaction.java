@@ -0,0 +1,153 @@
+package com.biblioteca.repositorio;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Transacción de TransactionManager (se obtiene con begin()).
+ * - Lecturas: el snapshot del begin más las escrituras propias.
+ * - Escrituras: quedan acá hasta commit(); close() sin commit hace rollback.
+ * - Las entidades leídas son compartidas: para cambiarlas usar update (trabaja sobre una copia).
+ * - No es thread-safe: una transacción se usa desde un solo hilo.
+ */
+public final class Transaction implements AutoCloseable {
+
+    /** Marca de borrado en el conjunto de escrituras. */
+    static final Object DELETED = new Object();
+
+    record Key(InMemoryRepository<?> repo, long id) {
+    }
+
+    private enum State { ACTIVE, COMMITTED, ROLLED_BACK }
+
+    private final TransactionManager manager;
+    private final long snapshotTs;
+    private final Map<Key, Object> writes = new LinkedHashMap<>();
+    private State state = State.ACTIVE;
+
+    Transaction(TransactionManager manager, long snapshotTs) {
+        this.manager = manager;
+        this.snapshotTs = snapshotTs;
+    }
+
+    // ===================== Lecturas =====================
+
+    public <T> Optional<T> findById(InMemoryRepository<T> repo, long id) {
+        requireActive();
+        Object own = writes.get(new Key(repo, id));
+        if (own != null) return own == DELETED ? Optional.empty() : Optional.of(cast(own));
+        return Optional.ofNullable(cast(manager.read(repo, id, snapshotTs)));
+    }
+
+    /** Todas las entidades del repositorio según el snapshot (con las escrituras propias). */
+    public <T> List<T> findAll(InMemoryRepository<T> repo) {
+        requireActive();
+        Map<Long, Object> visible = manager.readAll(repo, snapshotTs);
+        for (Map.Entry<Key, Object> w : writes.entrySet()) {
+            if (w.getKey().repo() != repo) continue;
+            if (w.getValue() == DELETED) visible.remove(w.getKey().id());
+            else visible.put(w.getKey().id(), w.getValue());
+        }
+        List<T> result = new ArrayList<>(visible.size());
+        for (Object o : visible.values()) result.add(cast(o));
+        return result;
+    }
+
+    // ===================== Escrituras =====================
+
+    /**
+     * Alta o reemplazo. Si la entidad no tiene id se le asigna uno ya mismo (sirve para
+     * relacionarla dentro de la misma transacción). No modificarla después de guardarla.
+     */
+    public <T> T save(InMemoryRepository<T> repo, T entity) {
+        requireActive();
+        Objects.requireNonNull(repo, "repo no puede ser null");
+        Objects.requireNonNull(entity, "entity no puede ser null");
+        EntityMetadata meta = EntityMetadata.of(entity.getClass());
+        Long id = meta.readId(entity);
+        if (id == null || id == 0L) {
+            id = repo.nextId();
+            meta.writeId(entity, id);
+        }
+        writes.put(new Key(repo, id), entity);
+        return entity;
+    }
+
+    /** Aplica mutator sobre una copia de la entidad visible y la deja para confirmar. */
+    public <T> Optional<T> update(InMemoryRepository<T> repo, long id, Consumer<? super T> mutator) {
+        Objects.requireNonNull(mutator, "mutator no puede ser null");
+        Optional<T> current = findById(repo, id);
+        if (current.isEmpty()) return Optional.empty();
+        T copy = cast(EntityMetadata.of(current.get().getClass()).copy(current.get()));
+        mutator.accept(copy);
+        Long copyId = EntityMetadata.of(copy.getClass()).readId(copy);
+        if (copyId == null || copyId != id) {
+            throw new IllegalArgumentException("El mutator no puede cambiar el id (" + id + " -> " + copyId + ")");
+        }
+        writes.put(new Key(repo, id), copy);
+        return Optional.of(copy);
+    }
+
+    /** Borra la entidad. Devuelve false si no era visible en la transacción. */
+    public <T> boolean delete(InMemoryRepository<T> repo, long id) {
+        boolean existed = findById(repo, id).isPresent();
+        if (existed) writes.put(new Key(repo, id), DELETED);
+        return existed;
+    }
+
+    // ===================== Fin =====================
+
+    /**
+     * Confirma todas las escrituras de una vez. TransactionConflictException si otra
+     * transacción confirmó antes alguna de estas entidades; IllegalStateException si
+     * falla al aplicar (ej: índice único). En ambos casos no queda nada aplicado ni se
+     * avisa a los listeners. Si lo que falla es un listener al avisar, el commit ya quedó
+     * confirmado (como en save) y el error llega igual.
+     */
+    public void commit() {
+        requireActive();
+        try {
+            if (!writes.isEmpty()) manager.commit(snapshotTs, writes);
+            state = State.COMMITTED;
+        } catch (RuntimeException e) {
+            state = State.ROLLED_BACK;
+            throw e;
+        } finally {
+            writes.clear();
+            manager.finished(snapshotTs);
+        }
+    }
+
+    public void rollback() {
+        requireActive();
+        state = State.ROLLED_BACK;
+        writes.clear();
+        manager.finished(snapshotTs);
+    }
+
+    public boolean isActive() {
+        return state == State.ACTIVE;
+    }
+
+    /** Rollback si no se confirmó. */
+    @Override
+    public void close() {
+        if (state == State.ACTIVE) rollback();
+    }
+
+    private void requireActive() {
+        if (state != State.ACTIVE) {
+            throw new IllegalStateException("La transacción ya terminó (" + state.name().toLowerCase() + ")");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+}
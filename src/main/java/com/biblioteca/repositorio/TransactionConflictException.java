@@ -0,0 +1,11 @@
+package com.biblioteca.repositorio;
+
+/** Otra transacción confirmó antes un cambio sobre la misma entidad (first-committer-wins). */
+public class TransactionConflictException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransactionConflictException(String message) {
+        super(message);
+    }
+}
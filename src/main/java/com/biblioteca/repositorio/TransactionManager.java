@@ -0,0 +1,257 @@
+package com.biblioteca.repositorio;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Transacciones sobre varios InMemoryRepository con aislamiento snapshot (MVCC).
+ * - Cada transacción lee el estado confirmado al empezar (begin), sin tomar locks:
+ *   una lectura larga del catálogo nunca frena a los escritores.
+ * - Las escrituras quedan en la transacción hasta commit; rollback/close las descarta.
+ * - Conflictos: gana el primero que confirma (TransactionConflictException al segundo).
+ * - Al confirmar se aplica como save/genericDelete (restricciones e índices) y recién con
+ *   todo aplicado se avisa a listeners, WAL y ChangeStream: un commit que falla a mitad
+ *   (ej: índice único) se deshace sin que ningún listener lo vea.
+ * - Las versiones viejas se descartan apenas ninguna transacción activa las puede ver; un
+ *   repositorio sin versiones retenidas se suelta (el manager no lo mantiene vivo).
+ * - Los repositorios se deben escribir solo por transacciones mientras haya lectores
+ *   transaccionales; una escritura directa la ven también las transacciones ya empezadas.
+ */
+public final class TransactionManager {
+
+    // Último commitTs publicado: una transacción que empieza ve todo lo confirmado hasta ahí
+    private final AtomicLong clock = new AtomicLong(0L);
+    // Serializa commits y GC; las lecturas no lo usan
+    private final ReentrantLock commitLock = new ReentrantLock();
+
+    // repositorio (por identidad) -> id -> versiones
+    private final ConcurrentHashMap<InMemoryRepository<?>, ConcurrentHashMap<Long, VersionChain>> chains =
+            new ConcurrentHashMap<>();
+
+    // snapshotTs de las transacciones activas (multiconjunto), bajo su propio monitor
+    private final TreeMap<Long, Integer> active = new TreeMap<>();
+
+    // Cadenas con versiones podables (bajo commitLock)
+    private final ArrayDeque<GcEntry> gcQueue = new ArrayDeque<>();
+    private long lastGcWatermark = -1L;
+
+    private record GcEntry(InMemoryRepository<?> repo, ConcurrentHashMap<Long, VersionChain> chains, long id,
+                           VersionChain chain) {
+    }
+
+    /** Escritura aplicada sin avisar: lo necesario para deshacerla o avisarla después. */
+    private record Applied(InMemoryRepository<?> repo, long id, Object previous, Object value) {
+    }
+
+    /** Empieza una transacción con snapshot del último commit. Usar con try-with-resources. */
+    public Transaction begin() {
+        long snapshotTs;
+        synchronized (active) {
+            snapshotTs = clock.get();
+            active.merge(snapshotTs, 1, Integer::sum);
+        }
+        return new Transaction(this, snapshotTs);
+    }
+
+    /**
+     * Ejecuta work en una transacción y confirma; ante un conflicto la repite
+     * desde cero según policy. Devuelve el resultado de work.
+     */
+    public <R> R execute(Function<? super Transaction, ? extends R> work, RetryPolicy policy) {
+        Objects.requireNonNull(work, "work no puede ser null");
+        Objects.requireNonNull(policy, "policy no puede ser null");
+        for (int attempt = 1; ; attempt++) {
+            try (Transaction tx = begin()) {
+                R result = work.apply(tx);
+                tx.commit();
+                return result;
+            } catch (TransactionConflictException e) {
+                if (attempt >= policy.maxAttempts()) throw e;
+                policy.pause(attempt);
+            }
+        }
+    }
+
+    /** Cantidad de entidades con versiones retenidas (para monitoreo). */
+    public int versionChains() {
+        int n = 0;
+        for (ConcurrentHashMap<Long, VersionChain> m : chains.values()) n += m.size();
+        return n;
+    }
+
+    /**
+     * Descarta las versiones que ya nadie puede leer. Corre sola después de cada commit
+     * y de cada transacción terminada; no espera si hay un commit en curso.
+     * Devuelve la cantidad de versiones descartadas.
+     */
+    public int gc() {
+        if (!commitLock.tryLock()) return 0;
+        try {
+            long watermark = watermark();
+            if (watermark == lastGcWatermark || gcQueue.isEmpty()) return 0;
+            lastGcWatermark = watermark;
+            int discarded = 0;
+            for (int n = gcQueue.size(); n > 0; n--) {
+                GcEntry e = gcQueue.poll();
+                discarded += e.chain().prune(watermark);
+                if (e.chain().size() == 1 && e.chain().latestCommitTs() <= watermark) {
+                    // Todas las transacciones ven la última versión = la del repositorio
+                    e.chains().remove(e.id(), e.chain());
+                    e.chain().queued = false;
+                    discarded++;
+                    // Sin cadenas, el repositorio no se retiene (los commits crean el mapa de nuevo)
+                    if (e.chains().isEmpty()) chains.remove(e.repo(), e.chains());
+                } else {
+                    gcQueue.add(e);
+                }
+            }
+            return discarded;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // ===================== Uso desde Transaction =====================
+
+    /** Valor confirmado visible en snapshotTs (null = no existe). */
+    Object read(InMemoryRepository<?> repo, long id, long snapshotTs) {
+        VersionChain chain = chainOf(repo, id);
+        if (chain != null) return chain.valueAt(snapshotTs);
+        Object current = repo.peek(id);
+        // Un commit pudo crear la cadena (con el valor previo como base) mientras leíamos
+        chain = chainOf(repo, id);
+        return chain != null ? chain.valueAt(snapshotTs) : current;
+    }
+
+    /** Todas las entidades visibles en snapshotTs, por id. */
+    Map<Long, Object> readAll(InMemoryRepository<?> repo, long snapshotTs) {
+        Map<Long, Object> result = new LinkedHashMap<>();
+        repo.forEachEntry((id, entity) -> {
+            Object visible = read(repo, id, snapshotTs);
+            if (visible != null) result.put(id, visible);
+        });
+        // Borradas después del snapshot: ya no están en el repositorio, sí en su cadena
+        ConcurrentHashMap<Long, VersionChain> repoChains = chains.get(repo);
+        if (repoChains != null) {
+            repoChains.forEach((id, chain) -> {
+                if (!result.containsKey(id)) {
+                    Object visible = chain.valueAt(snapshotTs);
+                    if (visible != null) result.put(id, visible);
+                }
+            });
+        }
+        return result;
+    }
+
+    void commit(long snapshotTs, Map<Transaction.Key, Object> writes) {
+        commitLock.lock();
+        try {
+            // 1) First-committer-wins: nadie confirmó estas entidades después del snapshot
+            for (Transaction.Key k : writes.keySet()) {
+                VersionChain chain = chainOf(k.repo(), k.id());
+                if (chain != null && chain.latestCommitTs() > snapshotTs) {
+                    throw new TransactionConflictException("Conflicto en id=" + k.id()
+                            + ": otra transacción la modificó (commit " + chain.latestCommitTs()
+                            + " > snapshot " + snapshotTs + ")");
+                }
+            }
+
+            // 2) Nuevas versiones (antes de tocar los repositorios: los lectores siguen viendo la base)
+            long commitTs = clock.get() + 1;
+            List<VersionChain> touched = new ArrayList<>(writes.size());
+            for (Map.Entry<Transaction.Key, Object> w : writes.entrySet()) {
+                InMemoryRepository<?> repo = w.getKey().repo();
+                long id = w.getKey().id();
+                ConcurrentHashMap<Long, VersionChain> repoChains =
+                        chains.computeIfAbsent(repo, r -> new ConcurrentHashMap<>());
+                VersionChain chain = repoChains.get(id);
+                if (chain == null) {
+                    chain = new VersionChain(repo.peek(id));
+                    repoChains.put(id, chain);
+                }
+                chain.append(commitTs, w.getValue() == Transaction.DELETED ? null : w.getValue());
+                touched.add(chain);
+                if (!chain.queued) {
+                    chain.queued = true;
+                    gcQueue.add(new GcEntry(repo, repoChains, id, chain));
+                }
+            }
+
+            // 3) Aplicar sin avisar; si algo falla (ej: índice único) se deshace lo aplicado
+            List<Applied> applied = new ArrayList<>(writes.size());
+            try {
+                for (Map.Entry<Transaction.Key, Object> w : writes.entrySet()) {
+                    InMemoryRepository<?> repo = w.getKey().repo();
+                    long id = w.getKey().id();
+                    Object value = w.getValue() == Transaction.DELETED ? null : w.getValue();
+                    applied.add(new Applied(repo, id, applyQuietly(repo, id, value), value));
+                }
+            } catch (RuntimeException e) {
+                for (int i = applied.size() - 1; i >= 0; i--) {
+                    Applied a = applied.get(i);
+                    applyQuietly(a.repo(), a.id(), a.previous());
+                }
+                for (VersionChain chain : touched) chain.removeLatest(commitTs);
+                throw new IllegalStateException("No se pudo confirmar la transacción: " + e.getMessage(), e);
+            }
+
+            // 4) Publicar: las transacciones que empiecen desde ahora ven este commit
+            clock.set(commitTs);
+
+            // 5) Avisar, en el orden de las escrituras. Un listener que falla no deshace el
+            //    commit (como en save): los demás avisos se hacen y el primer error se relanza
+            RuntimeException error = null;
+            for (Applied a : applied) {
+                try {
+                    notifyApplied(a);
+                } catch (RuntimeException e) {
+                    if (error == null) error = e;
+                    else if (error != e) error.addSuppressed(e);
+                }
+            }
+            if (error != null) throw error;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    void finished(long snapshotTs) {
+        synchronized (active) {
+            active.computeIfPresent(snapshotTs, (ts, n) -> n == 1 ? null : n - 1);
+        }
+        gc();
+    }
+
+    // ===================== Internos =====================
+
+    /** Snapshot más viejo todavía en uso (o el último commit si no hay transacciones). */
+    private long watermark() {
+        synchronized (active) {
+            return active.isEmpty() ? clock.get() : active.firstKey();
+        }
+    }
+
+    private VersionChain chainOf(InMemoryRepository<?> repo, long id) {
+        ConcurrentHashMap<Long, VersionChain> repoChains = chains.get(repo);
+        return repoChains == null ? null : repoChains.get(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Object applyQuietly(InMemoryRepository<T> repo, long id, Object value) {
+        return repo.applyQuietly(id, (T) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void notifyApplied(Applied a) {
+        ((InMemoryRepository<T>) a.repo()).notifyApplied(a.id(), (T) a.previous(), (T) a.value());
+    }
+}
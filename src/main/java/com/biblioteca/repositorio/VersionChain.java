@@ -0,0 +1,83 @@
+package com.biblioteca.repositorio;
+
+/**
+ * Versiones confirmadas de una entidad (MVCC), de la más vieja a la más nueva.
+ * - La versión base (commitTs 0) es el valor que había antes de la primera escritura transaccional.
+ * - value null = la entidad no existía / fue borrada en esa versión.
+ * - Se lee sin locks (arreglo inmutable publicado por volatile); solo el TransactionManager
+ *   agrega o poda versiones, bajo su commitLock.
+ */
+final class VersionChain {
+
+    record Version(long commitTs, Object value) {
+    }
+
+    private volatile Version[] versions;
+    boolean queued; // ya está en la cola de GC (bajo commitLock)
+
+    VersionChain(Object base) {
+        this.versions = new Version[]{new Version(0L, base)};
+    }
+
+    /** Valor visible para una transacción que empezó en snapshotTs. */
+    Object valueAt(long snapshotTs) {
+        Version[] v = versions;
+        for (int i = v.length - 1; i >= 0; i--) {
+            if (v[i].commitTs() <= snapshotTs) return v[i].value();
+        }
+        // Podado: nunca debería pasar mientras la transacción esté registrada
+        throw new IllegalStateException("Versión " + snapshotTs + " ya no disponible");
+    }
+
+    long latestCommitTs() {
+        Version[] v = versions;
+        return v[v.length - 1].commitTs();
+    }
+
+    Object latestValue() {
+        Version[] v = versions;
+        return v[v.length - 1].value();
+    }
+
+    int size() {
+        return versions.length;
+    }
+
+    void append(long commitTs, Object value) {
+        Version[] v = versions;
+        Version[] next = new Version[v.length + 1];
+        System.arraycopy(v, 0, next, 0, v.length);
+        next[v.length] = new Version(commitTs, value);
+        versions = next;
+    }
+
+    /** Quita la versión commitTs si es la última (commit abortado al aplicar). */
+    void removeLatest(long commitTs) {
+        Version[] v = versions;
+        if (v.length > 1 && v[v.length - 1].commitTs() == commitTs) {
+            Version[] next = new Version[v.length - 1];
+            System.arraycopy(v, 0, next, 0, next.length);
+            versions = next;
+        }
+    }
+
+    /**
+     * Descarta las versiones que ninguna transacción activa puede ver: todas las anteriores
+     * a la más nueva con commitTs &lt;= watermark. Devuelve la cantidad descartada.
+     */
+    int prune(long watermark) {
+        Version[] v = versions;
+        int keepFrom = 0;
+        for (int i = v.length - 1; i >= 0; i--) {
+            if (v[i].commitTs() <= watermark) {
+                keepFrom = i;
+                break;
+            }
+        }
+        if (keepFrom == 0) return 0;
+        Version[] next = new Version[v.length - keepFrom];
+        System.arraycopy(v, keepFrom, next, 0, next.length);
+        versions = next;
+        return keepFrom;
+    }
+}
@@ -0,0 +1,9 @@
+package com.biblioteca.repositorio;
+
+/**
+ * Entidad junto con su versión (ver InMemoryRepository.enableVersioning).
+ * - La versión cambia en cada escritura del id; nunca se repite, ni entre ids distintos.
+ * - value es una instantánea: el repositorio no la vuelve a modificar.
+ */
+public record Versioned<T>(T value, long version) {
+}
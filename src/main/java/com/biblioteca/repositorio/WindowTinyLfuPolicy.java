@@ -0,0 +1,183 @@
+package com.biblioteca.repositorio;
+
+import java.util.HashMap;
+
+/**
+ * EvictionPolicy.windowTinyLfu(): W-TinyLFU (Einziger, Friedman y Manes).
+ * - Ventana LRU (1% del peso): las entradas nuevas entran siempre acá.
+ * - Lo que desborda la ventana pasa a "probation" como candidato; cuando hay que
+ *   desalojar compite con la víctima de probation y se queda el de mayor frecuencia
+ *   estimada (FrequencySketch). Un recorrido de una sola pasada no desplaza a las
+ *   entidades que se leen seguido.
+ * - Una lectura en probation la promueve a "protected" (80% del resto); lo que
+ *   desborda protected vuelve a probation.
+ * - Un solo mapa id -> nodo y listas enlazadas intrusivas por región: cada acceso es
+ *   una búsqueda y un par de punteros.
+ */
+final class WindowTinyLfuPolicy implements EvictionPolicy {
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.80;
+
+    private static final class Node {
+        final long id;
+        long weight;
+        Region region;
+        Node prev;
+        Node next;
+
+        Node(long id, long weight) {
+            this.id = id;
+            this.weight = weight;
+        }
+    }
+
+    /** Lista LRU circular con centinela: head.next es la más vieja. */
+    private static final class Region {
+        final Node head = new Node(-1L, 0L);
+        long weight;
+
+        Region() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        boolean isEmpty() {
+            return head.next == head;
+        }
+
+        Node eldest() {
+            return head.next;
+        }
+
+        void addLast(Node n) {
+            n.region = this;
+            n.prev = head.prev;
+            n.next = head;
+            head.prev.next = n;
+            head.prev = n;
+            weight += n.weight;
+        }
+
+        void unlink(Node n) {
+            n.prev.next = n.next;
+            n.next.prev = n.prev;
+            n.prev = null;
+            n.next = null;
+            n.region = null;
+            weight -= n.weight;
+        }
+
+        void moveToLast(Node n) {
+            if (head.prev == n) return;
+            n.prev.next = n.next;
+            n.next.prev = n.prev;
+            n.prev = head.prev;
+            n.next = head;
+            head.prev.next = n;
+            head.prev = n;
+        }
+    }
+
+    private final HashMap<Long, Node> nodes = new HashMap<>();
+    private final Region window = new Region();
+    private final Region probation = new Region();
+    private final Region protectedRegion = new Region();
+    private long windowMax = 1L;
+    private long protectedMax = Long.MAX_VALUE;
+    private FrequencySketch sketch = new FrequencySketch(1024);
+    // Último que pasó de la ventana a probation y todavía no compitió
+    private Node candidate;
+
+    @Override
+    public void setMaximum(long maximumWeight) {
+        windowMax = Math.max(1L, (long) (maximumWeight * WINDOW_RATIO));
+        protectedMax = (long) ((maximumWeight - windowMax) * PROTECTED_RATIO);
+        sketch = new FrequencySketch(maximumWeight);
+    }
+
+    @Override
+    public void recordWrite(long id, long weight) {
+        sketch.increment(id);
+        Node n = nodes.get(id);
+        if (n == null) {
+            n = new Node(id, weight);
+            nodes.put(id, n);
+            window.addLast(n);
+        } else {
+            Region r = n.region;
+            r.weight += weight - n.weight;
+            n.weight = weight;
+            onHit(n);
+        }
+        // La ventana desborda hacia probation
+        while (window.weight > windowMax && window.head.next != window.head.prev) {
+            Node eldest = window.eldest();
+            window.unlink(eldest);
+            probation.addLast(eldest);
+            candidate = eldest;
+        }
+    }
+
+    @Override
+    public void recordAccess(long id) {
+        sketch.increment(id);
+        Node n = nodes.get(id);
+        if (n != null) onHit(n);
+    }
+
+    @Override
+    public void recordRemoval(long id) {
+        Node n = nodes.remove(id);
+        if (n == null) return;
+        n.region.unlink(n);
+        if (n == candidate) candidate = null;
+    }
+
+    @Override
+    public long weightedSize() {
+        return window.weight + probation.weight + protectedRegion.weight;
+    }
+
+    @Override
+    public long victim() {
+        if (probation.isEmpty() && !protectedRegion.isEmpty()) {
+            Node eldest = protectedRegion.eldest();
+            protectedRegion.unlink(eldest);
+            probation.addLast(eldest);
+        }
+        Node evicted;
+        if (probation.isEmpty()) {
+            if (window.isEmpty()) return -1L;
+            evicted = window.eldest();
+        } else {
+            evicted = probation.eldest();
+            Node challenger = candidate;
+            candidate = null;
+            // Admisión: el candidato entra solo si es más frecuente que la víctima
+            if (challenger != null && challenger != evicted && challenger.region == probation
+                    && sketch.frequency(challenger.id) <= sketch.frequency(evicted.id)) {
+                evicted = challenger;
+            }
+        }
+        evicted.region.unlink(evicted);
+        nodes.remove(evicted.id);
+        if (evicted == candidate) candidate = null;
+        return evicted.id;
+    }
+
+    private void onHit(Node n) {
+        if (n.region == probation) {
+            probation.unlink(n);
+            protectedRegion.addLast(n);
+            // Lo que desborda protected vuelve a probation
+            while (protectedRegion.weight > protectedMax && protectedRegion.head.next != protectedRegion.head.prev) {
+                Node eldest = protectedRegion.eldest();
+                protectedRegion.unlink(eldest);
+                probation.addLast(eldest);
+            }
+        } else {
+            n.region.moveToLast(n);
+        }
+    }
+}
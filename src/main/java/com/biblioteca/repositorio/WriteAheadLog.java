@@ -0,0 +1,523 @@
+package com.biblioteca.repositorio;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Durabilidad opcional para InMemoryRepository: log binario de escrituras + snapshots.
+ * - Pese al nombre, el registro se agrega DESPUÉS de aplicar el cambio en memoria (es un
+ *   listener): una escritura que falla al registrarse ya es visible en el repositorio y
+ *   para los demás listeners; al que escribió le llega el error y no debe darla por durable.
+ * - Cada save/genericUpdate/genericDelete agrega un registro con el estado ACTUAL del id
+ *   (PUT con la entidad codificada, o DELETE si ya no existe). Así el último registro de
+ *   cada id refleja el store aunque los escritores se crucen, y reaplicar es idempotente.
+ * - Escritura por FileChannel con doble buffer: mientras un hilo vuelca y hace fsync,
+ *   los demás siguen agregando, y el siguiente fsync confirma a todos juntos (group commit).
+ * - snapshot(): rota a un segmento nuevo, vuelca el store a snapshot.bin y borra los
+ *   segmentos anteriores. Recuperación = snapshot + segmentos posteriores, en orden.
+ * - La secuencia de ids se restaura como máximo(secuencia del snapshot, ids del log).
+ * - Un error de escritura o fsync deja el log fallido: lo no escrito vuelve al buffer y
+ *   toda escritura posterior del repositorio falla (UncheckedIOException) en vez de darse
+ *   por durable (igual queda aplicada en memoria y avisada a los demás listeners).
+ *   Un snapshot en segundo plano que falla se reintenta y queda en
+ *   lastSnapshotFailure().
+ *
+ * Formato de registro: [int largo][int crc32][byte tipo][long id][entidad].
+ * Un registro final truncado o con crc inválido (caída a mitad de escritura) se descarta.
+ */
+public final class WriteAheadLog<T> implements RepositoryListener<T>, Closeable {
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    private static final int SNAPSHOT_MAGIC = 0x54525a53; // "TRZS"
+    private static final int FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /** Sin fsync por escritura, el buffer se vuelca igual al pasar este tamaño. */
+    private static final int EAGER_FLUSH_BYTES = 1 << 20;
+
+    /** Resultado de la última recuperación (para medir tiempos de arranque). */
+    public record RecoveryStats(long snapshotEntities, long logRecords, long truncatedBytes, Duration elapsed) {
+    }
+
+    private final Path dir;
+    private final InMemoryRepository<T> repo;
+    private final EntityCodec<T> codec;
+    private final FsyncPolicy policy;
+
+    // Agregado de registros (appendLock)
+    private final Object appendLock = new Object();
+    private final ExposedByteArrayOutputStream scratch = new ExposedByteArrayOutputStream();
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private long appendedPosition;
+
+    // Volcado a disco (flushLock)
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private FileChannel channel;
+    private long segment;
+    private volatile long syncedPosition;
+
+    private final ScheduledExecutorService background;
+    private final RecoveryStats recoveryStats;
+    private volatile boolean closed;
+    private volatile IOException failure; // primer error de escritura: el log ya no es confiable
+    private volatile Exception snapshotFailure;
+
+    private WriteAheadLog(Path dir, InMemoryRepository<T> repo, EntityCodec<T> codec, FsyncPolicy policy)
+            throws IOException {
+        this.dir = dir;
+        this.repo = repo;
+        this.codec = codec;
+        this.policy = policy;
+        this.recoveryStats = recover();
+        this.channel = openSegment(segment);
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-" + dir.getFileName());
+            t.setDaemon(true);
+            return t;
+        });
+        if (policy.mode() != FsyncPolicy.Mode.EVERY_COMMIT) {
+            long every = policy.interval().toNanos();
+            background.scheduleWithFixedDelay(this::backgroundFlush, every, every, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Recupera el repositorio (que debe estar vacío) desde dir y empieza a registrar sus escrituras.
+     * No admite repositorios sobre BoundedStore: el snapshot solo vería lo que quedó en memoria
+     * y perdería lo desalojado (ahí la persistencia es el EntityWriter del store).
+     */
+    public static <T> WriteAheadLog<T> open(Path dir, InMemoryRepository<T> repo, EntityCodec<T> codec,
+                                            FsyncPolicy policy) throws IOException {
+        Objects.requireNonNull(dir, "dir no puede ser null");
+        Objects.requireNonNull(repo, "repo no puede ser null");
+        Objects.requireNonNull(codec, "codec no puede ser null");
+        Objects.requireNonNull(policy, "policy no puede ser null");
+        repo.requireUnbounded("WriteAheadLog");
+        if (repo.count() > 0) {
+            throw new IllegalStateException("El repositorio debe estar vacío para recuperarlo desde " + dir);
+        }
+        Files.createDirectories(dir);
+        WriteAheadLog<T> wal = new WriteAheadLog<>(dir, repo, codec, policy);
+        repo.addListener(wal);
+        return wal;
+    }
+
+    public RecoveryStats recoveryStats() {
+        return recoveryStats;
+    }
+
+    /** El error de escritura que dejó fallido el log, o null si está sano. */
+    public IOException failure() {
+        return failure;
+    }
+
+    /** El error del último snapshot en segundo plano, o null si salió bien. */
+    public Exception lastSnapshotFailure() {
+        return snapshotFailure;
+    }
+
+    /** Toma un snapshot cada intervalo, en segundo plano. */
+    public void scheduleSnapshots(Duration interval) {
+        long every = interval.toNanos();
+        background.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+                snapshotFailure = null;
+            } catch (IOException | RuntimeException e) {
+                // Si falló el log, failure() ya lo refleja; si no, se reintenta en el próximo intervalo
+                snapshotFailure = e;
+            }
+        }, every, every, TimeUnit.NANOSECONDS);
+    }
+
+    // ===================== Listener del repositorio =====================
+
+    @Override
+    public void onSaved(long id, T previous, T entity) {
+        logState(id);
+    }
+
+    @Override
+    public void onUpdated(long id, T entity, String fieldName, Object oldValue, Object newValue) {
+        logState(id);
+    }
+
+    @Override
+    public void onDeleted(long id, T entity) {
+        logState(id);
+    }
+
+    private void logState(long id) {
+        long position;
+        boolean eager;
+        synchronized (appendLock) {
+            if (closed) throw new IllegalStateException("WriteAheadLog cerrado: " + dir);
+            checkHealthy();
+            T current = repo.peek(id);
+            try {
+                scratch.reset();
+                scratchOut.writeByte(current != null ? RECORD_PUT : RECORD_DELETE);
+                scratchOut.writeLong(id);
+                if (current != null) codec.encode(current, scratchOut);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo codificar id=" + id, e);
+            }
+            int length = scratch.size();
+            crc.reset();
+            crc.update(scratch.buffer(), 0, length);
+            ensureCapacity(8 + length);
+            pending.putInt(length).putInt((int) crc.getValue()).put(scratch.buffer(), 0, length);
+            appendedPosition += 8 + length;
+            position = appendedPosition;
+            eager = pending.position() >= EAGER_FLUSH_BYTES;
+        }
+        try {
+            if (policy.mode() == FsyncPolicy.Mode.EVERY_COMMIT) {
+                awaitSynced(position);
+            } else if (eager) {
+                drain(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el log en " + dir, e);
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() >= bytes) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+        pending.flip();
+        bigger.put(pending);
+        pending = bigger;
+    }
+
+    // ===================== Volcado / group commit =====================
+
+    /** Espera a que la posición quede en disco; el que toma el lock hace fsync por todos. */
+    private void awaitSynced(long position) throws IOException {
+        if (syncedPosition >= position) return;
+        flushLock.lock();
+        try {
+            if (syncedPosition >= position) return; // otro hilo ya hizo el fsync que nos incluye
+            drain(true);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Escribe lo pendiente en el segmento actual (y fsync si force). */
+    private void drain(boolean force) throws IOException {
+        flushLock.lock();
+        try {
+            if (failure != null) throw failure;
+            ByteBuffer toWrite;
+            long upTo;
+            synchronized (appendLock) {
+                toWrite = pending;
+                pending = spare;
+                pending.clear();
+                upTo = appendedPosition;
+            }
+            toWrite.flip();
+            try {
+                while (toWrite.hasRemaining()) channel.write(toWrite);
+                if (force) channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                restoreUnwritten(toWrite);
+                throw fail(e);
+            }
+            toWrite.clear();
+            spare = toWrite;
+            if (force) syncedPosition = upTo;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve al frente del buffer lo que no llegó al archivo (sin fsync no se sabe cuánto
+     * llegó: se conserva todo lo de este volcado) y deja un buffer de repuesto propio.
+     */
+    private void restoreUnwritten(ByteBuffer toWrite) {
+        toWrite.rewind();
+        synchronized (appendLock) {
+            ByteBuffer merged = ByteBuffer.allocate(Math.max(pending.capacity(), toWrite.remaining() + pending.position()));
+            pending.flip();
+            merged.put(toWrite).put(pending);
+            pending = merged;
+        }
+        spare = ByteBuffer.allocate(64 * 1024);
+    }
+
+    /** Deja el log fallido (solo cuenta el primer error) y devuelve el error a lanzar. */
+    private IOException fail(Exception e) {
+        synchronized (appendLock) {
+            if (failure == null) {
+                failure = e instanceof IOException io ? io : new IOException("Error escribiendo el log en " + dir, e);
+            }
+            return failure;
+        }
+    }
+
+    private void checkHealthy() {
+        IOException f = failure;
+        if (f != null) throw new UncheckedIOException("WriteAheadLog fallido en " + dir + "; la escritura no es durable", f);
+    }
+
+    private void backgroundFlush() {
+        try {
+            if (!closed) drain(policy.mode() == FsyncPolicy.Mode.INTERVAL);
+        } catch (IOException e) {
+            // Queda en failure: la próxima escritura del repositorio falla con este error
+        }
+    }
+
+    // ===================== Snapshots =====================
+
+    /**
+     * Vuelca el estado del repositorio a snapshot.bin y descarta los segmentos que cubre.
+     * No bloquea a los escritores (el snapshot es difuso y el log posterior lo corrige).
+     */
+    public synchronized void snapshot() throws IOException {
+        long coveredFrom;
+        flushLock.lock();
+        try {
+            drain(true);
+            try {
+                channel.close();
+                segment++;
+                channel = openSegment(segment);
+            } catch (IOException | RuntimeException e) {
+                throw fail(e); // sin segmento abierto no se puede seguir registrando
+            }
+            coveredFrom = segment;
+        } finally {
+            flushLock.unlock();
+        }
+
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel fc = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(fc), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(repo.currentSequence());
+            out.writeLong(coveredFrom);
+
+            ExposedByteArrayOutputStream entityBytes = new ExposedByteArrayOutputStream();
+            DataOutputStream entityOut = new DataOutputStream(entityBytes);
+            long[] count = {0};
+            try {
+                repo.forEachEntry((id, entity) -> {
+                    try {
+                        entityBytes.reset();
+                        codec.encode(entity, entityOut);
+                        out.writeByte(RECORD_PUT);
+                        out.writeLong(id);
+                        out.writeInt(entityBytes.size());
+                        out.write(entityBytes.buffer(), 0, entityBytes.size());
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(0); // fin de entidades
+            out.writeLong(count[0]);
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            fc.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        for (long s : listSegments()) {
+            if (s < coveredFrom) Files.deleteIfExists(segmentPath(s));
+        }
+    }
+
+    // ===================== Recuperación =====================
+
+    private RecoveryStats recover() throws IOException {
+        long started = System.nanoTime();
+        long sequence = 0L;
+        long firstSegment = 0L;
+        long snapshotEntities = 0L;
+
+        Path snapshotPath = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotPath)) {
+            try (CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(Files.newInputStream(snapshotPath), 1 << 16), new CRC32())) {
+                DataInputStream in = new DataInputStream(checked);
+                if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                    throw new IOException("Formato de snapshot desconocido: " + snapshotPath);
+                }
+                sequence = in.readLong();
+                firstSegment = in.readLong();
+                byte[] buf = new byte[256];
+                while (in.readByte() == RECORD_PUT) {
+                    long id = in.readLong();
+                    int length = in.readInt();
+                    if (buf.length < length) buf = new byte[Math.max(length, buf.length * 2)];
+                    in.readFully(buf, 0, length);
+                    repo.restore(id, codec.decode(new DataInputStream(new ByteArrayInputStream(buf, 0, length))));
+                    snapshotEntities++;
+                }
+                long count = in.readLong();
+                long expected = checked.getChecksum().getValue();
+                if (count != snapshotEntities || (int) expected != in.readInt()) {
+                    throw new IOException("Snapshot corrupto (crc/cantidad no coinciden): " + snapshotPath);
+                }
+            }
+        }
+
+        long logRecords = 0L;
+        long truncated = 0L;
+        long last = firstSegment - 1;
+        List<Long> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            long s = segments.get(i);
+            if (s < firstSegment) continue;
+            long[] result = replay(segmentPath(s), i == segments.size() - 1);
+            logRecords += result[0];
+            truncated += result[1];
+            last = s;
+        }
+        repo.restoreSequence(sequence);
+        segment = last + 1;
+        return new RecoveryStats(snapshotEntities, logRecords, truncated, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    /** Reaplica un segmento. Devuelve {registros, bytes truncados}. */
+    private long[] replay(Path file, boolean lastSegment) throws IOException {
+        long records = 0;
+        long position = 0;
+        long size = Files.size(file);
+        byte[] body = new byte[256];
+        CRC32 check = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (position + 8 <= size) {
+                int length = in.readInt();
+                int expected = in.readInt();
+                if (length < 9 || position + 8 + length > size) break; // registro truncado
+                if (body.length < length) body = new byte[Math.max(length, body.length * 2)];
+                in.readFully(body, 0, length);
+                check.reset();
+                check.update(body, 0, length);
+                if ((int) check.getValue() != expected) break;
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+                byte type = record.readByte();
+                long id = record.readLong();
+                if (type == RECORD_PUT) {
+                    repo.restore(id, codec.decode(record));
+                } else if (type == RECORD_DELETE) {
+                    repo.restoreDelete(id);
+                    repo.restoreSequence(id);
+                } else {
+                    throw new IOException("Tipo de registro desconocido " + type + " en " + file);
+                }
+                records++;
+                position += 8 + length;
+            }
+        }
+        long garbage = size - position;
+        if (garbage > 0) {
+            if (!lastSegment) {
+                throw new IOException("Segmento corrupto en la posición " + position + ": " + file);
+            }
+            try (FileChannel fc = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                fc.truncate(position); // escritura interrumpida por una caída
+            }
+        }
+        return new long[]{records, garbage};
+    }
+
+    // ===================== Archivos =====================
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private void syncDirectory() {
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException ignored) {
+            // No todos los sistemas permiten abrir directorios; el rename ya es atómico
+        }
+    }
+
+    /** Vuelca y hace fsync de todo lo pendiente; deja de registrar escrituras. Si el log falló, lanza ese error. */
+    @Override
+    public void close() throws IOException {
+        repo.removeListener(this);
+        background.shutdown();
+        flushLock.lock();
+        try {
+            if (closed) return;
+            try {
+                drain(true);
+            } finally {
+                synchronized (appendLock) {
+                    closed = true;
+                }
+                channel.close();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** ByteArrayOutputStream que expone su arreglo interno (evita copias al calcular el crc). */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        ExposedByteArrayOutputStream() {
+            super(256);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.biblioteca.repositorio.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Procesa @GenerateRepository: por cada entidad genera &lt;Entidad&gt;Repository.
+ * - Un EntityProperty por campo escalar (primitivos, wrappers, String, enums, java.time,
+ *   BigDecimal/BigInteger) propio o heredado, salvo id. Colecciones y relaciones quedan
+ *   para genericFindByField/genericUpdate.
+ * - Los getters/setters son los de Lombok (getX, isX para boolean primitivo, setX):
+ *   los campos son privados, así que el "acceso directo" es una llamada que el JIT inlinea.
+ * - Los wrappers se exponen como primitivos (findByCuit(int)); para null usar genericUpdate.
+ * Se registra en META-INF/services y lo descubre javac junto con Lombok.
+ */
+@SupportedAnnotationTypes(RepositoryProcessor.ANNOTATION)
+public class RepositoryProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "com.biblioteca.repositorio.GenerateRepository";
+
+    private static final Set<String> SCALAR_TYPES = Set.of(
+            "java.lang.String", "java.math.BigDecimal", "java.math.BigInteger", "java.util.UUID");
+
+    /** Campo escalar con los nombres que necesita el código generado. */
+    private record Property(String name, boolean primitive, boolean unboxable,
+                            String boxedType, String paramType, String getter, String setter) {
+
+        String constant() {
+            StringBuilder sb = new StringBuilder();
+            for (char c : name.toCharArray()) {
+                if (Character.isUpperCase(c) && !sb.isEmpty()) sb.append('_');
+                sb.append(Character.toUpperCase(c));
+            }
+            return sb.toString();
+        }
+
+        String capitalized() {
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        boolean floating() {
+            return paramType.equals("double") || paramType.equals("float");
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) return false;
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+                error(element, "@GenerateRepository va en una clase concreta (entidad)");
+                continue;
+            }
+            TypeElement entity = (TypeElement) element;
+            if (entity.getNestingKind().isNested()) {
+                error(element, "@GenerateRepository no soporta clases anidadas");
+                continue;
+            }
+            try {
+                write(entity, properties(entity));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo generar el repositorio de " + entity, e);
+            }
+        }
+        return true;
+    }
+
+    // ===================== Análisis de la entidad =====================
+
+    /** Campos escalares de la clase y sus superclases (los de la subclase primero gana por nombre). */
+    private List<Property> properties(TypeElement entity) {
+        Map<String, Property> byName = new LinkedHashMap<>();
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement t = entity; t != null; t = superclass(t)) hierarchy.add(0, t);
+        for (TypeElement t : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                Set<Modifier> mods = field.getModifiers();
+                String name = field.getSimpleName().toString();
+                if (mods.contains(Modifier.STATIC) || mods.contains(Modifier.TRANSIENT) || name.equals("id")) continue;
+                Property p = property(name, field.asType());
+                if (p != null) byName.putIfAbsent(name, p);
+            }
+        }
+        return List.copyOf(byName.values());
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror sup = type.getSuperclass();
+        if (sup.getKind() != TypeKind.DECLARED) return null;
+        TypeElement e = (TypeElement) ((DeclaredType) sup).asElement();
+        return e.getQualifiedName().contentEquals("java.lang.Object") ? null : e;
+    }
+
+    private Property property(String name, TypeMirror type) {
+        String cap = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        if (type.getKind().isPrimitive()) {
+            String boxed = processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+            String getter = "get" + cap;
+            String setter = "set" + cap;
+            if (type.getKind() == TypeKind.BOOLEAN) {
+                // Lombok: boolean isActivo -> isActivo()/setActivo(); boolean activo -> isActivo()
+                boolean prefixed = name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2));
+                getter = prefixed ? name : "is" + cap;
+                if (prefixed) setter = "set" + name.substring(2);
+            }
+            return new Property(name, true, false, typeName(boxed), type.toString(), getter, setter);
+        }
+        if (type.getKind() != TypeKind.DECLARED) return null;
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String qualified = element.getQualifiedName().toString();
+        String getter = "get" + cap;
+        String setter = "set" + cap;
+        try {
+            PrimitiveType unboxed = processingEnv.getTypeUtils().unboxedType(type);
+            return new Property(name, false, true, typeName(qualified), unboxed.toString(), getter, setter);
+        } catch (IllegalArgumentException notAWrapper) {
+            // Sigue: String, enum, java.time, ...
+        }
+        boolean scalar = SCALAR_TYPES.contains(qualified)
+                || element.getKind() == ElementKind.ENUM
+                || qualified.startsWith("java.time.");
+        return scalar ? new Property(name, false, false, typeName(qualified), typeName(qualified), getter, setter) : null;
+    }
+
+    /** java.lang.Integer -> Integer (el resto queda calificado: el generado no necesita imports). */
+    private static String typeName(String qualified) {
+        String simple = qualified.startsWith("java.lang.") ? qualified.substring("java.lang.".length()) : qualified;
+        return simple.indexOf('.') < 0 ? simple : qualified;
+    }
+
+    // ===================== Generación =====================
+
+    private void write(TypeElement entity, List<Property> properties) throws IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(entity);
+        String packageName = pkg.getQualifiedName().toString();
+        String entityName = entity.getSimpleName().toString();
+        String repositoryName = entityName + "Repository";
+        String qualifiedName = packageName.isEmpty() ? repositoryName : packageName + "." + repositoryName;
+
+        try (PrintWriter out = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(qualifiedName, entity).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import com.biblioteca.repositorio.EntityProperty;");
+            out.println("import com.biblioteca.repositorio.EntityStore;");
+            out.println("import com.biblioteca.repositorio.InMemoryRepository;");
+            out.println();
+            out.println("import javax.annotation.processing.Generated;");
+            out.println("import java.util.List;");
+            out.println("import java.util.Objects;");
+            out.println();
+            out.println("/** Repositorio tipado de " + entityName + " (generado desde @GenerateRepository; no editar). */");
+            out.println("@Generated(\"" + RepositoryProcessor.class.getName() + "\")");
+            out.println("public class " + repositoryName + " extends InMemoryRepository<" + entityName + "> {");
+            for (Property p : properties) {
+                out.println();
+                out.println("    public static final EntityProperty<" + entityName + ", " + p.boxedType() + "> "
+                        + p.constant() + " = new EntityProperty<>() {");
+                out.println("        @Override public String name() { return \"" + p.name() + "\"; }");
+                out.println("        @Override public " + p.boxedType() + " get(" + entityName + " e) { return e."
+                        + p.getter() + "(); }");
+                out.println("        @Override public void set(" + entityName + " e, " + p.boxedType() + " v) { e."
+                        + p.setter() + "(v); }");
+                out.println("    };");
+            }
+            out.println();
+            out.println("    public " + repositoryName + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    public " + repositoryName + "(EntityStore<" + entityName + "> store) {");
+            out.println("        super(store);");
+            out.println("    }");
+            for (Property p : properties) {
+                out.println();
+                out.println("    public List<" + entityName + "> findBy" + p.capitalized() + "(" + p.paramType() + " value) {");
+                out.println("        return findByProperty(\"" + p.name() + "\", value, e -> " + matches(p) + ");");
+                out.println("    }");
+                out.println();
+                out.println("    public boolean update" + p.capitalized() + "(long id, " + p.paramType() + " value) {");
+                out.println("        return updateProperty(id, " + p.constant() + ", value);");
+                out.println("    }");
+            }
+            out.println("}");
+        }
+    }
+
+    /** Igualdad con la misma semántica que Objects.equals (la de genericFindByField) sin boxing. */
+    private static String matches(Property p) {
+        String read = "e." + p.getter() + "()";
+        if (p.primitive()) {
+            return p.floating() ? compare(p, read) + " == 0" : read + " == value";
+        }
+        if (p.unboxable()) {
+            String check = p.floating() ? compare(p, "v") + " == 0" : "v == value";
+            return "{ " + p.boxedType() + " v = " + read + "; return v != null && " + check + "; }";
+        }
+        return "Objects.equals(" + read + ", value)";
+    }
+
+    private static String compare(Property p, String read) {
+        return (p.paramType().equals("double") ? "Double" : "Float") + ".compare(" + read + ", value)";
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
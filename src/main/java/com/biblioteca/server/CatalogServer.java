@@ -0,0 +1,388 @@
+package com.biblioteca.server;
+
+import com.biblioteca.repositorio.Filter;
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.repositorio.RepositoryListener;
+import com.biblioteca.traza1.entidades.Domicilio;
+import com.biblioteca.traza1.entidades.Empresa;
+import com.biblioteca.traza1.entidades.Sucursal;
+import com.biblioteca.traza2.entidades.Articulo;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor HTTP/JSON embebido delante de los repositorios (com.sun.net.httpserver, sin dependencias).
+ * - Un hilo virtual por pedido: un pedido bloqueado (ej: escribiendo a un cliente lento)
+ *   no ocupa un hilo de plataforma, así que miles de conexiones abiertas no cuestan hilos.
+ * - Conexiones persistentes (HTTP/1.1 keep-alive) y pipelining: el cliente puede mandar
+ *   varios pedidos seguidos sin esperar; se responden en orden por la misma conexión.
+ * - Los endpoints de lectura se cachean ya serializados (ResponseCache) y se invalidan con
+ *   los listeners de los repositorios: cualquier save/update/delete de insumos o
+ *   manufacturados invalida /articulos; de empresas, /empresas. Un cambio hecho con un
+ *   setter directo sobre la entidad (sin pasar por el repositorio) no se ve hasta la
+ *   próxima escritura. Un fallo en /articulos es un Query que recorre ambos repositorios
+ *   (el filtro es sobre un campo anidado, sin índice): por eso conviene cachearlo.
+ * - ETag en las respuestas cacheadas: con If-None-Match igual se responde 304 sin cuerpo.
+ * Endpoints (solo GET):
+ *   /articulos?categoria=X      insumos y manufacturados de esa categoría (cacheado)
+ *   /empresas/{id}/sucursales   sucursales de la empresa (cacheado)
+ *   /insumos/{id}/stock         stock actual del insumo (siempre fresco)
+ *   /health
+ *   Ej:
+ *   try (CatalogServer server = CatalogServer.builder().port(8080)
+ *           .empresas(repoEmpresa).insumos(repoInsumo).manufacturados(repoManu).start()) { ... }
+ */
+public final class CatalogServer implements Closeable {
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final ResponseCache cache;
+    private final InMemoryRepository<Empresa> empresas;
+    private final InMemoryRepository<ArticuloInsumo> insumos;
+    private final InMemoryRepository<ArticuloManufacturado> manufacturados;
+    private final RepositoryListener<Object> articulosListener;
+    private final RepositoryListener<Object> empresasListener;
+
+    private CatalogServer(Builder builder) throws IOException {
+        this.empresas = builder.empresas;
+        this.insumos = builder.insumos;
+        this.manufacturados = builder.manufacturados;
+        this.cache = new ResponseCache(builder.cacheSize);
+        this.articulosListener = invalidating(ResponseCache.Region.ARTICULOS);
+        this.empresasListener = invalidating(ResponseCache.Region.EMPRESAS);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.http = HttpServer.create(new InetSocketAddress(builder.port), builder.backlog);
+        http.setExecutor(executor);
+        http.createContext("/articulos", handler(this::articulos));
+        http.createContext("/empresas/", handler(this::sucursales));
+        http.createContext("/insumos/", handler(this::stock));
+        http.createContext("/health", handler(this::health));
+        insumos.addListener(articulosListener);
+        manufacturados.addListener(articulosListener);
+        empresas.addListener(empresasListener);
+        http.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Puerto en el que escucha (el real si se pidió el 0). */
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public long cacheHits() {
+        return cache.hits();
+    }
+
+    public long cacheMisses() {
+        return cache.misses();
+    }
+
+    /** Deja de aceptar conexiones, corta las abiertas y saca los listeners de los repositorios. */
+    @Override
+    public void close() {
+        http.stop(0);
+        executor.close();
+        insumos.removeListener(articulosListener);
+        manufacturados.removeListener(articulosListener);
+        empresas.removeListener(empresasListener);
+    }
+
+    // ===== Endpoints =====
+
+    private Reply articulos(HttpExchange exchange, String path) {
+        if (!path.equals("/articulos")) return Reply.error(404, "No existe " + path);
+        String categoria = queryParam(exchange.getRequestURI().getRawQuery(), "categoria");
+        if (categoria == null || categoria.isBlank()) return Reply.error(400, "Falta el parámetro categoria");
+        return Reply.cached(cache.get(ResponseCache.Region.ARTICULOS, "articulos:" + categoria, () -> {
+            Filter filter = Filter.eq("categoria.denominacion", categoria);
+            List<Articulo> articulos = new ArrayList<>(insumos.query().where(filter).list());
+            articulos.addAll(manufacturados.query().where(filter).list());
+            articulos.sort(Comparator.comparing(Articulo::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+            JsonWriter json = new JsonWriter().beginArray();
+            for (Articulo a : articulos) writeArticulo(json, a);
+            return json.endArray().toBytes();
+        }));
+    }
+
+    private Reply sucursales(HttpExchange exchange, String path) {
+        String[] parts = path.split("/");
+        // "", "empresas", "{id}", "sucursales"
+        if (parts.length != 4 || !parts[3].equals("sucursales")) return Reply.error(404, "No existe " + path);
+        long id = parseId(parts[2]);
+        if (id < 0) return Reply.error(400, "Id inválido: " + parts[2]);
+        return cache.getIfPresent(ResponseCache.Region.EMPRESAS, "sucursales:" + id)
+                .map(Reply::cached)
+                .orElseGet(() -> {
+                    Optional<Empresa> empresa = empresas.findById(id);
+                    if (empresa.isEmpty()) return Reply.error(404, "No existe la empresa " + id);
+                    return Reply.cached(cache.get(ResponseCache.Region.EMPRESAS, "sucursales:" + id, () -> {
+                        List<Sucursal> sucursales = new ArrayList<>(empresa.get().getSucursales());
+                        sucursales.sort(Comparator.comparing(Sucursal::getNombre, Comparator.nullsLast(Comparator.naturalOrder())));
+                        JsonWriter json = new JsonWriter().beginArray();
+                        for (Sucursal s : sucursales) writeSucursal(json, s);
+                        return json.endArray().toBytes();
+                    }));
+                });
+    }
+
+    private Reply stock(HttpExchange exchange, String path) {
+        String[] parts = path.split("/");
+        // "", "insumos", "{id}", "stock"
+        if (parts.length != 4 || !parts[3].equals("stock")) return Reply.error(404, "No existe " + path);
+        long id = parseId(parts[2]);
+        if (id < 0) return Reply.error(400, "Id inválido: " + parts[2]);
+        Optional<ArticuloInsumo> insumo = insumos.findById(id);
+        if (insumo.isEmpty()) return Reply.error(404, "No existe el insumo " + id);
+        ArticuloInsumo i = insumo.get();
+        Integer actual = i.getStockActual();
+        Integer minimo = i.getStockMinimo();
+        JsonWriter json = new JsonWriter().beginObject()
+                .field("id", i.getId())
+                .field("denominacion", i.getDenominacion())
+                .field("stockActual", actual)
+                .field("stockMinimo", minimo)
+                .field("stockMaximo", i.getStockMaximo())
+                .field("bajoMinimo", actual != null && minimo != null && actual < minimo)
+                .endObject();
+        return Reply.fresh(json.toBytes());
+    }
+
+    private Reply health(HttpExchange exchange, String path) {
+        if (!path.equals("/health")) return Reply.error(404, "No existe " + path);
+        return Reply.fresh(new JsonWriter().beginObject().field("status", "UP").endObject().toBytes());
+    }
+
+    // ===== JSON =====
+
+    private static void writeArticulo(JsonWriter json, Articulo a) {
+        json.beginObject()
+                .field("id", a.getId())
+                .field("tipo", a instanceof ArticuloInsumo ? "insumo" : "manufacturado")
+                .field("denominacion", a.getDenominacion())
+                .field("precioVenta", a.getPrecioVenta())
+                .field("categoria", a.getCategoria() == null ? null : a.getCategoria().getDenominacion())
+                .field("unidadMedida", a.getUnidadMedida() == null ? null : a.getUnidadMedida().getDenominacion());
+        if (a instanceof ArticuloInsumo i) {
+            json.field("stockActual", i.getStockActual());
+        } else if (a instanceof ArticuloManufacturado m) {
+            json.field("tiempoEstimadoMinutos", m.getTiempoEstimadoMinutos());
+        }
+        json.endObject();
+    }
+
+    private static void writeSucursal(JsonWriter json, Sucursal s) {
+        json.beginObject()
+                .field("id", s.getId())
+                .field("nombre", s.getNombre())
+                .field("horarioApertura", s.getHorarioApertura() == null ? null : s.getHorarioApertura().toString())
+                .field("horarioCierre", s.getHorarioCierre() == null ? null : s.getHorarioCierre().toString())
+                .field("esCasaMatriz", s.isEsCasaMatriz());
+        Domicilio d = s.getDomicilio();
+        json.name("domicilio");
+        if (d == null) {
+            json.value((String) null);
+        } else {
+            json.beginObject()
+                    .field("calle", d.getCalle())
+                    .field("numero", d.getNumero())
+                    .field("cp", d.getCp())
+                    .field("localidad", d.getLocalidad() == null ? null : d.getLocalidad().getNombre())
+                    .endObject();
+        }
+        json.endObject();
+    }
+
+    // ===== HTTP =====
+
+    /** Lo que responde un endpoint: cuerpo JSON, status y ETag (solo las cacheadas). */
+    private record Reply(int status, byte[] body, String etag) {
+        static Reply fresh(byte[] body) {
+            return new Reply(200, body, null);
+        }
+
+        static Reply cached(ResponseCache.Response response) {
+            return new Reply(200, response.body(), response.etag());
+        }
+
+        static Reply error(int status, String message) {
+            return new Reply(status, new JsonWriter().beginObject().field("error", message).endObject().toBytes(), null);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Reply handle(HttpExchange exchange, String path);
+    }
+
+    /**
+     * Adapta un endpoint: valida el método, consume el cuerpo del pedido (si no, el
+     * siguiente pedido de la conexión se leería mal) y escribe la respuesta con largo fijo.
+     */
+    private static HttpHandler handler(Endpoint endpoint) {
+        return exchange -> {
+            try (exchange) {
+                drain(exchange.getRequestBody());
+                Reply reply;
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    reply = Reply.error(405, "Método no permitido: " + exchange.getRequestMethod());
+                } else {
+                    try {
+                        reply = endpoint.handle(exchange, exchange.getRequestURI().getPath());
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        reply = Reply.error(400, e.getMessage());
+                    }
+                }
+                send(exchange, reply);
+            }
+        };
+    }
+
+    private static void send(HttpExchange exchange, Reply reply) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON);
+        if (reply.etag() != null) {
+            headers.set("ETag", reply.etag());
+            if (reply.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+        exchange.sendResponseHeaders(reply.status(), reply.body().length);
+        exchange.getResponseBody().write(reply.body());
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        byte[] buffer = new byte[512];
+        while (body.read(buffer) >= 0) {
+            // descartar: ningún endpoint usa cuerpo
+        }
+    }
+
+    /** -1 si no es un id válido. */
+    private static long parseId(String text) {
+        try {
+            long id = Long.parseLong(text);
+            return id > 0 ? id : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String queryParam(String rawQuery, String name) {
+        if (rawQuery == null) return null;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private RepositoryListener<Object> invalidating(ResponseCache.Region region) {
+        return new RepositoryListener<>() {
+            @Override
+            public void onSaved(long id, Object previous, Object entity) {
+                cache.invalidate(region);
+            }
+
+            @Override
+            public void onUpdated(long id, Object entity, String fieldName, Object oldValue, Object newValue) {
+                cache.invalidate(region);
+            }
+
+            @Override
+            public void onDeleted(long id, Object entity) {
+                cache.invalidate(region);
+            }
+        };
+    }
+
+    // ===== Builder =====
+
+    public static final class Builder {
+        private int port = 8080;
+        private int backlog = 0; // 0 = el default del sistema
+        private int cacheSize = 10_000;
+        private InMemoryRepository<Empresa> empresas;
+        private InMemoryRepository<ArticuloInsumo> insumos;
+        private InMemoryRepository<ArticuloManufacturado> manufacturados;
+
+        private Builder() {
+        }
+
+        /** 0 = un puerto libre cualquiera (ver port()). */
+        public Builder port(int port) {
+            if (port < 0 || port > 65_535) throw new IllegalArgumentException("Puerto inválido: " + port);
+            this.port = port;
+            return this;
+        }
+
+        /** Conexiones pendientes de aceptar que el sistema encola. */
+        public Builder backlog(int backlog) {
+            if (backlog < 0) throw new IllegalArgumentException("backlog debe ser >= 0");
+            this.backlog = backlog;
+            return this;
+        }
+
+        /** Respuestas cacheadas como máximo (al llenarse se vacía). */
+        public Builder cacheSize(int cacheSize) {
+            if (cacheSize < 1) throw new IllegalArgumentException("cacheSize debe ser >= 1");
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public Builder empresas(InMemoryRepository<Empresa> empresas) {
+            this.empresas = Objects.requireNonNull(empresas, "empresas no puede ser null");
+            return this;
+        }
+
+        public Builder insumos(InMemoryRepository<ArticuloInsumo> insumos) {
+            this.insumos = Objects.requireNonNull(insumos, "insumos no puede ser null");
+            return this;
+        }
+
+        public Builder manufacturados(InMemoryRepository<ArticuloManufacturado> manufacturados) {
+            this.manufacturados = Objects.requireNonNull(manufacturados, "manufacturados no puede ser null");
+            return this;
+        }
+
+        /** Abre el puerto y empieza a atender. Falla con UncheckedIOException si no puede escuchar. */
+        public CatalogServer start() {
+            if (empresas == null || insumos == null || manufacturados == null) {
+                throw new IllegalStateException("Faltan repositorios: empresas, insumos y manufacturados son obligatorios");
+            }
+            try {
+                return new CatalogServer(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escuchar en el puerto " + port, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.biblioteca.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Escritor JSON mínimo para las respuestas de CatalogServer (sin dependencias).
+ * - Objetos y arrays anidados; las comas las pone solo.
+ * - Strings escapados según RFC 8259; números no finitos se escriben como null.
+ */
+final class JsonWriter {
+
+    private final StringBuilder out = new StringBuilder(256);
+    // Por nivel: true si todavía no se escribió ningún elemento
+    private boolean[] first = new boolean[8];
+    private int depth;
+    private boolean afterName;
+
+    JsonWriter beginObject() {
+        return open('{');
+    }
+
+    JsonWriter endObject() {
+        return close('}');
+    }
+
+    JsonWriter beginArray() {
+        return open('[');
+    }
+
+    JsonWriter endArray() {
+        return close(']');
+    }
+
+    JsonWriter name(String name) {
+        separator();
+        string(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separator();
+        if (value == null) out.append("null");
+        else string(value);
+        return this;
+    }
+
+    JsonWriter value(Number value) {
+        separator();
+        if (value == null
+                || value instanceof Double d && !Double.isFinite(d)
+                || value instanceof Float f && !Float.isFinite(f)) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(Boolean value) {
+        separator();
+        out.append(value == null ? "null" : value.toString());
+        return this;
+    }
+
+    /** Atajos: name(n).value(v). */
+    JsonWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    JsonWriter field(String name, Number value) {
+        return name(name).value(value);
+    }
+
+    JsonWriter field(String name, Boolean value) {
+        return name(name).value(value);
+    }
+
+    byte[] toBytes() {
+        if (depth != 0) throw new IllegalStateException("JSON incompleto: faltan " + depth + " cierres");
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private JsonWriter open(char c) {
+        separator();
+        out.append(c);
+        if (depth == first.length) first = Arrays.copyOf(first, depth * 2);
+        first[depth++] = true;
+        return this;
+    }
+
+    private JsonWriter close(char c) {
+        if (depth == 0) throw new IllegalStateException("Cierre '" + c + "' sin apertura");
+        depth--;
+        out.append(c);
+        return this;
+    }
+
+    private void separator() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (!first[depth - 1]) out.append(',');
+            first[depth - 1] = false;
+        }
+    }
+
+    private void string(String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+}
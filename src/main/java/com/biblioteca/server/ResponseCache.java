@@ -0,0 +1,85 @@
+package com.biblioteca.server;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché de respuestas ya serializadas (bytes JSON) para los endpoints de lectura.
+ * - Invalidación por región: cada región tiene una generación que sube con cada escritura
+ *   en sus repositorios (listeners). Una entrada de otra generación es un fallo.
+ * - La generación se lee antes de calcular: si alguien escribe mientras se calcula, la
+ *   entrada queda vieja de entrada y el próximo pedido recalcula (nunca se sirve de más).
+ * - Tamaño acotado sin política fina: al llegar al máximo se vacía (las claves son pocas:
+ *   una por categoría / empresa).
+ */
+final class ResponseCache {
+
+    enum Region { ARTICULOS, EMPRESAS }
+
+    /** Cuerpo listo para enviar y su ETag (para If-None-Match). */
+    record Response(byte[] body, String etag) {
+    }
+
+    private record Entry(Response response, long generation) {
+    }
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Region, AtomicLong> generations = new EnumMap<>(Region.class);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ResponseCache(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries debe ser >= 1");
+        this.maxEntries = maxEntries;
+        for (Region r : Region.values()) generations.put(r, new AtomicLong());
+    }
+
+    Response get(Region region, String key, Supplier<byte[]> compute) {
+        long generation = generations.get(region).get();
+        Entry e = entries.get(key);
+        if (e != null && e.generation() == generation) {
+            hits.increment();
+            return e.response();
+        }
+        misses.increment();
+        byte[] body = compute.get();
+        Response response = new Response(body, etag(region, generation, body));
+        if (entries.size() >= maxEntries) entries.clear();
+        entries.put(key, new Entry(response, generation));
+        return response;
+    }
+
+    /** La respuesta cacheada y vigente para key, sin calcular nada si no está. */
+    Optional<Response> getIfPresent(Region region, String key) {
+        Entry e = entries.get(key);
+        if (e != null && e.generation() == generations.get(region).get()) {
+            hits.increment();
+            return Optional.of(e.response());
+        }
+        return Optional.empty();
+    }
+
+    void invalidate(Region region) {
+        generations.get(region).incrementAndGet();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    private static String etag(Region region, long generation, byte[] body) {
+        return "\"" + region.ordinal() + "-" + Long.toHexString(generation) + "-"
+                + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+    }
+}
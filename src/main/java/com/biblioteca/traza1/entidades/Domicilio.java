@@ -1,15 +1,21 @@
 package com.biblioteca.traza1.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 
+import java.io.Serializable;
+
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
 @Builder
+@GenerateRepository
+
+public class Domicilio implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class Domicilio {
     private Integer id;
     private String calle;
     private Integer numero;
@@ -1,7 +1,9 @@
 package com.biblioteca.traza1.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -11,8 +13,11 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString(exclude = "sucursales") // excluye sucursales para evitar recursión infinita
+@GenerateRepository
+
+public class Empresa implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class Empresa {
     // Para buscar/actualizar por ID (punto 5 del TP)
     private Integer id;
 
@@ -23,5 +28,8 @@ public class Empresa {
     private String logo;
 
     // Relación: Empresa -> * Sucursal
+    // Set por la API (getter/setter); las instancias son HashSet, o las que arma el repositorio
+    // al copiar/decodificar (HashSet, LinkedHashSet, TreeSet): todas serializables
+    @SuppressWarnings("serial")
     private Set<Sucursal> sucursales = new HashSet<>();
 }
@@ -1,15 +1,21 @@
 package com.biblioteca.traza1.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import java.io.Serializable;
+
 @Getter
 @Setter
 @SuperBuilder
 @NoArgsConstructor
 @ToString(exclude = "provincia")
+@GenerateRepository
+
+public class Localidad implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class Localidad {
     private Integer id;
     private String nombre;
     private Provincia provincia; // 1 Provincia -> n Localidades
@@ -1,8 +1,10 @@
 package com.biblioteca.traza1.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -12,12 +14,18 @@ import java.util.Set;
 @AllArgsConstructor
 @SuperBuilder
 @ToString(exclude = "provincias")
+@GenerateRepository
+
+public class Pais implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class Pais {
     private Integer id;
     private String nombre;
 
     // 1 País -> n Provincias
+    // Set por la API (getter/setter); las instancias son HashSet, o las que arma el repositorio
+    // al copiar/decodificar (HashSet, LinkedHashSet, TreeSet): todas serializables
+    @SuppressWarnings("serial")
     @Builder.Default
     private Set<Provincia> provincias = new HashSet<>();
 }
@@ -1,8 +1,10 @@
 package com.biblioteca.traza1.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -11,13 +13,19 @@ import java.util.Set;
 @SuperBuilder
 @NoArgsConstructor
 @ToString(exclude = {"pais", "localidades"}) // evita recursión en prints)
+@GenerateRepository
+
+public class Provincia implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class Provincia {
     private Integer id;
     private String nombre;
     private Pais pais; // 1 País -> n Provincias
 
     // 1 Provincia -> n Localidades
+    // Set por la API (getter/setter); las instancias son HashSet, o las que arma el repositorio
+    // al copiar/decodificar (HashSet, LinkedHashSet, TreeSet): todas serializables
+    @SuppressWarnings("serial")
     @Builder.Default
     private Set<Localidad> localidades = new HashSet<>();
 }
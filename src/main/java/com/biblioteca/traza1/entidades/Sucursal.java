@@ -1,7 +1,9 @@
 package com.biblioteca.traza1.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 
+import java.io.Serializable;
 import java.time.LocalTime;
 
 @Getter
@@ -10,8 +12,11 @@ import java.time.LocalTime;
 @AllArgsConstructor
 @ToString
 @Builder
+@GenerateRepository
+
+public class Sucursal implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class Sucursal {
     private Integer id; // para buscar/actualizar por ID
     private String nombre;
     private LocalTime horarioApertura;
@@ -0,0 +1,338 @@
+package com.biblioteca.traza1.geo;
+
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.repositorio.RepositoryListener;
+import com.biblioteca.traza1.entidades.Domicilio;
+import com.biblioteca.traza1.entidades.Empresa;
+import com.biblioteca.traza1.entidades.Localidad;
+import com.biblioteca.traza1.entidades.Pais;
+import com.biblioteca.traza1.entidades.Provincia;
+import com.biblioteca.traza1.entidades.Sucursal;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de la jerarquía empresa ↔ sucursal ↔ localidad ↔ provincia ↔ país.
+ * - Cada nodo geográfico guarda sus sucursales y empresas (incluidas las de sus descendientes):
+ *   "sucursales de la provincia X" es O(resultado), sin recorrer el grafo.
+ * - Los ancestros salen de punteros del índice: O(1) por nivel.
+ * - Se arma con las referencias hacia arriba (Sucursal.domicilio.localidad, Localidad.provincia,
+ *   Provincia.pais): no hace falta mantener a mano Pais.provincias ni Provincia.localidades.
+ * - Las entidades se identifican por identidad (traza1 no tiene equals ni ids obligatorios).
+ * - Con attach(repo) se mantiene solo en save/update/delete de Empresa; si se cambia una
+ *   relación por setter, usar refresh.
+ */
+public final class GeoHierarchyIndex {
+
+    /** País, provincia o localidad. */
+    private static final class GeoNode {
+        final Object entity;
+        GeoNode parent;
+        final Set<GeoNode> children = identitySet();
+        final Set<Sucursal> sucursales = identitySet();
+        final Map<Empresa, Integer> empresas = new IdentityHashMap<>(); // empresa -> sucursales acá
+
+        GeoNode(Object entity) {
+            this.entity = entity;
+        }
+    }
+
+    private record SucursalEntry(Empresa empresa, GeoNode localidad) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Object, GeoNode> nodes = new IdentityHashMap<>();
+    private final Map<Sucursal, SucursalEntry> sucursales = new IdentityHashMap<>();
+    private final Map<Empresa, Set<Sucursal>> empresas = new IdentityHashMap<>();
+
+    /** Índice vacío; cargar con add/addPais o con attach. */
+    public GeoHierarchyIndex() {
+    }
+
+    /** Indexa las empresas del repositorio y se mantiene con sus escrituras. */
+    public static GeoHierarchyIndex attach(InMemoryRepository<Empresa> repo) {
+        Objects.requireNonNull(repo, "repo no puede ser null");
+        GeoHierarchyIndex index = new GeoHierarchyIndex();
+        repo.addListener(index.listener());
+        repo.forEach(index::add);
+        return index;
+    }
+
+    /** Listener para registrar a mano en un repositorio de empresas. */
+    public RepositoryListener<Empresa> listener() {
+        return new RepositoryListener<>() {
+            @Override
+            public void onSaved(long id, Empresa previous, Empresa entity) {
+                if (previous != null && previous != entity) remove(previous);
+                add(entity);
+            }
+
+            @Override
+            public void onUpdated(long id, Empresa entity, String fieldName, Object oldValue, Object newValue) {
+                if ("sucursales".equals(fieldName)) add(entity);
+            }
+
+            @Override
+            public void onDeleted(long id, Empresa entity) {
+                remove(entity);
+            }
+        };
+    }
+
+    // ===================== Mantenimiento =====================
+
+    /** Indexa (o re-indexa) la empresa con todas sus sucursales. */
+    public void add(Empresa empresa) {
+        Objects.requireNonNull(empresa, "empresa no puede ser null");
+        lock.writeLock().lock();
+        try {
+            Set<Sucursal> previous = empresas.remove(empresa);
+            if (previous != null) {
+                for (Sucursal s : previous) unlinkSucursal(s);
+            }
+            Set<Sucursal> current = identitySet();
+            if (empresa.getSucursales() != null) {
+                for (Sucursal s : empresa.getSucursales()) {
+                    if (s == null) continue;
+                    SucursalEntry other = sucursales.get(s);
+                    if (other != null) {
+                        // La sucursal pasa a esta empresa
+                        unlinkSucursal(s);
+                        Set<Sucursal> otherSet = empresas.get(other.empresa());
+                        if (otherSet != null) otherSet.remove(s);
+                    }
+                    linkSucursal(empresa, s);
+                    current.add(s);
+                }
+            }
+            empresas.put(empresa, current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Saca la empresa y sus sucursales del índice. Devuelve false si no estaba. */
+    public boolean remove(Empresa empresa) {
+        lock.writeLock().lock();
+        try {
+            Set<Sucursal> previous = empresas.remove(empresa);
+            if (previous == null) return false;
+            for (Sucursal s : previous) unlinkSucursal(s);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Registra el país con sus provincias y localidades (aunque todavía no tengan sucursales). */
+    public void addPais(Pais pais) {
+        Objects.requireNonNull(pais, "pais no puede ser null");
+        lock.writeLock().lock();
+        try {
+            GeoNode paisNode = nodes.computeIfAbsent(pais, GeoNode::new);
+            if (pais.getProvincias() == null) return;
+            for (Provincia p : pais.getProvincias()) {
+                GeoNode provNode = nodeFor(p);
+                if (provNode.parent == null) setParent(provNode, paisNode);
+                if (p.getLocalidades() == null) continue;
+                for (Localidad l : p.getLocalidades()) {
+                    GeoNode locNode = nodeFor(l);
+                    if (locNode.parent == null) setParent(locNode, provNode);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Re-ubica una sucursal cuyo domicilio/localidad cambió por setter. */
+    public void refresh(Sucursal sucursal) {
+        lock.writeLock().lock();
+        try {
+            SucursalEntry entry = sucursales.get(sucursal);
+            if (entry == null) return;
+            unlinkSucursal(sucursal);
+            linkSucursal(entry.empresa(), sucursal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===================== Descendientes =====================
+
+    /** Sucursales en el país, la provincia o la localidad. */
+    public Set<Sucursal> sucursalesEn(Object paisProvinciaOLocalidad) {
+        lock.readLock().lock();
+        try {
+            GeoNode node = nodes.get(paisProvinciaOLocalidad);
+            return node == null ? Set.of() : copy(node.sucursales);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Empresas con al menos una sucursal en el país, la provincia o la localidad. */
+    public Set<Empresa> empresasEn(Object paisProvinciaOLocalidad) {
+        lock.readLock().lock();
+        try {
+            GeoNode node = nodes.get(paisProvinciaOLocalidad);
+            return node == null ? Set.of() : copy(node.empresas.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Sucursal> sucursalesDe(Empresa empresa) {
+        lock.readLock().lock();
+        try {
+            Set<Sucursal> s = empresas.get(empresa);
+            return s == null ? Set.of() : copy(s);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Provincia> provinciasDe(Pais pais) {
+        return childrenOf(pais, Provincia.class);
+    }
+
+    public Set<Localidad> localidadesDe(Provincia provincia) {
+        return childrenOf(provincia, Localidad.class);
+    }
+
+    // ===================== Ancestros =====================
+
+    public Optional<Empresa> empresaDe(Sucursal sucursal) {
+        lock.readLock().lock();
+        try {
+            SucursalEntry e = sucursales.get(sucursal);
+            return e == null ? Optional.empty() : Optional.of(e.empresa());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<Localidad> localidadDe(Sucursal sucursal) {
+        return ancestorOfSucursal(sucursal, Localidad.class);
+    }
+
+    public Optional<Provincia> provinciaDe(Sucursal sucursal) {
+        return ancestorOfSucursal(sucursal, Provincia.class);
+    }
+
+    public Optional<Pais> paisDe(Sucursal sucursal) {
+        return ancestorOfSucursal(sucursal, Pais.class);
+    }
+
+    /** Provincia o país que contiene al nodo (ej: provinciaDe(localidad)). */
+    public <A> Optional<A> ancestroDe(Object localidadOProvincia, Class<A> type) {
+        lock.readLock().lock();
+        try {
+            GeoNode node = nodes.get(localidadOProvincia);
+            return node == null ? Optional.empty() : ancestor(node.parent, type);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Localidades, provincias o países donde la empresa tiene sucursales. */
+    public <A> Set<A> ubicacionesDe(Empresa empresa, Class<A> type) {
+        lock.readLock().lock();
+        try {
+            Set<Sucursal> own = empresas.get(empresa);
+            if (own == null) return Set.of();
+            Set<A> result = identitySet();
+            for (Sucursal s : own) {
+                SucursalEntry e = sucursales.get(s);
+                if (e != null) ancestor(e.localidad(), type).ifPresent(result::add);
+            }
+            return Collections.unmodifiableSet(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===================== Internos (con writeLock) =====================
+
+    private void linkSucursal(Empresa empresa, Sucursal s) {
+        Domicilio d = s.getDomicilio();
+        GeoNode loc = d == null || d.getLocalidad() == null ? null : nodeFor(d.getLocalidad());
+        sucursales.put(s, new SucursalEntry(empresa, loc));
+        for (GeoNode n = loc; n != null; n = n.parent) {
+            n.sucursales.add(s);
+            n.empresas.merge(empresa, 1, Integer::sum);
+        }
+    }
+
+    private void unlinkSucursal(Sucursal s) {
+        SucursalEntry entry = sucursales.remove(s);
+        if (entry == null) return;
+        for (GeoNode n = entry.localidad(); n != null; n = n.parent) {
+            n.sucursales.remove(s);
+            n.empresas.computeIfPresent(entry.empresa(), (e, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /** Nodo de la localidad/provincia/país, creando la cadena de ancestros que falte. */
+    private GeoNode nodeFor(Object entity) {
+        GeoNode node = nodes.get(entity);
+        if (node != null) return node;
+        node = new GeoNode(entity);
+        nodes.put(entity, node);
+        Object parent = entity instanceof Localidad l ? l.getProvincia()
+                : entity instanceof Provincia p ? p.getPais() : null;
+        if (parent != null) setParent(node, nodeFor(parent));
+        return node;
+    }
+
+    private static void setParent(GeoNode child, GeoNode parent) {
+        child.parent = parent;
+        parent.children.add(child);
+    }
+
+    private <C> Set<C> childrenOf(Object entity, Class<C> type) {
+        lock.readLock().lock();
+        try {
+            GeoNode node = nodes.get(entity);
+            if (node == null) return Set.of();
+            Set<C> result = identitySet();
+            for (GeoNode c : node.children) result.add(type.cast(c.entity));
+            return Collections.unmodifiableSet(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <A> Optional<A> ancestorOfSucursal(Sucursal sucursal, Class<A> type) {
+        lock.readLock().lock();
+        try {
+            SucursalEntry e = sucursales.get(sucursal);
+            return e == null ? Optional.empty() : ancestor(e.localidad(), type);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static <A> Optional<A> ancestor(GeoNode from, Class<A> type) {
+        for (GeoNode n = from; n != null; n = n.parent) {
+            if (type.isInstance(n.entity)) return Optional.of(type.cast(n.entity));
+        }
+        return Optional.empty();
+    }
+
+    private static <E> Set<E> copy(Set<E> source) {
+        Set<E> result = identitySet();
+        result.addAll(source);
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static <E> Set<E> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
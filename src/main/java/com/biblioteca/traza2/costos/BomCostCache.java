@@ -0,0 +1,239 @@
+package com.biblioteca.traza2.costos;
+
+import com.biblioteca.repositorio.InMemoryRepository;
+import com.biblioteca.repositorio.RepositoryListener;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.entidades.ArticuloManufacturadoDetalle;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Costo de producción (lista de materiales) precalculado para ArticuloManufacturado.
+ * - costo = suma de cantidad * precioCompra de cada detalle; margen = precioVenta - costo.
+ * - Índice inverso insumo -> manufacturados: un cambio de precioCompra recalcula solo los afectados.
+ * - Se mantiene con listeners de ambos repositorios (save/update/delete, también en lote).
+ * - Los cambios hechos por setter fuera del repositorio no se notifican: usar refresh(id).
+ */
+public final class BomCostCache implements AutoCloseable {
+
+    /** Costo de un manufacturado. completo = false si algún insumo no tiene precioCompra. */
+    public record Costo(long articuloId, double costo, Double precioVenta, boolean completo) {
+
+        /** precioVenta - costo, o null si no hay precio de venta. */
+        public Double margen() {
+            return precioVenta == null ? null : precioVenta - costo;
+        }
+
+        /** Margen sobre el precio de venta (0.25 = 25%), o null si no hay precio de venta. */
+        public Double margenPorcentaje() {
+            return precioVenta == null || precioVenta == 0.0 ? null : (precioVenta - costo) / precioVenta;
+        }
+    }
+
+    private final InMemoryRepository<ArticuloManufacturado> manufacturados;
+    private final InMemoryRepository<ArticuloInsumo> insumos;
+
+    private final ConcurrentHashMap<Long, Costo> costs = new ConcurrentHashMap<>();
+    // manufacturado -> insumos que usa (para actualizar el índice inverso al cambiar la receta)
+    private final ConcurrentHashMap<Long, long[]> insumosByArticulo = new ConcurrentHashMap<>();
+    // insumo -> manufacturados que lo usan
+    private final ConcurrentHashMap<Long, Set<Long>> articulosByInsumo = new ConcurrentHashMap<>();
+
+    private final RepositoryListener<ArticuloManufacturado> manufacturadoListener = new RepositoryListener<>() {
+        @Override
+        public void onSaved(long id, ArticuloManufacturado previous, ArticuloManufacturado entity) {
+            recompute(id, entity);
+        }
+
+        @Override
+        public void onUpdated(long id, ArticuloManufacturado entity, String fieldName, Object oldValue, Object newValue) {
+            if ("detalles".equals(fieldName) || "precioVenta".equals(fieldName)) recompute(id, entity);
+        }
+
+        @Override
+        public void onDeleted(long id, ArticuloManufacturado entity) {
+            evict(id);
+        }
+    };
+
+    private final RepositoryListener<ArticuloInsumo> insumoListener = new RepositoryListener<>() {
+        @Override
+        public void onSaved(long id, ArticuloInsumo previous, ArticuloInsumo entity) {
+            recomputeUsersOf(id);
+        }
+
+        @Override
+        public void onUpdated(long id, ArticuloInsumo entity, String fieldName, Object oldValue, Object newValue) {
+            if ("precioCompra".equals(fieldName) && !Objects.equals(oldValue, newValue)) recomputeUsersOf(id);
+        }
+
+        @Override
+        public void onDeleted(long id, ArticuloInsumo entity) {
+            recomputeUsersOf(id);
+        }
+    };
+
+    /** Calcula todos los costos y se suscribe a los cambios de ambos repositorios. */
+    public BomCostCache(InMemoryRepository<ArticuloManufacturado> manufacturados,
+                        InMemoryRepository<ArticuloInsumo> insumos) {
+        this.manufacturados = Objects.requireNonNull(manufacturados, "manufacturados no puede ser null");
+        this.insumos = Objects.requireNonNull(insumos, "insumos no puede ser null");
+        insumos.addListener(insumoListener);
+        manufacturados.addListener(manufacturadoListener);
+        recostAll();
+    }
+
+    // ===================== Consultas =====================
+
+    /** Costo del manufacturado (lo calcula si todavía no estaba en cache). */
+    public Optional<Costo> get(long articuloId) {
+        Costo c = costs.get(articuloId);
+        if (c != null) return Optional.of(c);
+        return manufacturados.findById(articuloId).map(m -> recompute(articuloId, m));
+    }
+
+    public Optional<Costo> get(ArticuloManufacturado articulo) {
+        Objects.requireNonNull(articulo, "articulo no puede ser null");
+        return articulo.getId() == null ? Optional.empty() : get(articulo.getId());
+    }
+
+    /** Ids de los manufacturados que usan el insumo. */
+    public Set<Long> articulosQueUsan(long insumoId) {
+        Set<Long> users = articulosByInsumo.get(insumoId);
+        return users == null ? Set.of() : Collections.unmodifiableSet(users);
+    }
+
+    public int size() {
+        return costs.size();
+    }
+
+    // ===================== Mantenimiento =====================
+
+    /** Recalcula un manufacturado modificado por setter (ej: addDetalle después del save). */
+    public void refresh(long articuloId) {
+        Optional<ArticuloManufacturado> m = manufacturados.findById(articuloId);
+        if (m.isPresent()) recompute(articuloId, m.get());
+        else evict(articuloId);
+    }
+
+    /**
+     * Recalcula todos los costos en paralelo y descarta los de artículos que ya no existen.
+     * Devuelve la cantidad de artículos costeados.
+     */
+    public int recostAll() {
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        manufacturados.stream().parallel().forEach(m -> {
+            Long id = m.getId();
+            if (id == null) return;
+            recompute(id, m);
+            seen.add(id);
+        });
+        for (Long id : costs.keySet()) {
+            if (!seen.contains(id)) evict(id);
+        }
+        return seen.size();
+    }
+
+    /** Deja de escuchar los repositorios. */
+    @Override
+    public void close() {
+        insumos.removeListener(insumoListener);
+        manufacturados.removeListener(manufacturadoListener);
+    }
+
+    // ===================== Internos =====================
+
+    private void recomputeUsersOf(long insumoId) {
+        Set<Long> users = articulosByInsumo.get(insumoId);
+        if (users == null) return;
+        for (Long articuloId : users.toArray(Long[]::new)) {
+            manufacturados.findById(articuloId).ifPresentOrElse(
+                    m -> recompute(articuloId, m), () -> evict(articuloId));
+        }
+    }
+
+    /**
+     * Recalcula dentro de compute: dos recálculos del mismo artículo no se pisan y el último
+     * siempre lee los precios vigentes.
+     */
+    private Costo recompute(long articuloId, ArticuloManufacturado articulo) {
+        return costs.compute(articuloId, (id, old) -> {
+            Set<ArticuloManufacturadoDetalle> detalles = articulo.getDetalles();
+            long[] used = new long[detalles == null ? 0 : detalles.size()];
+            int n = 0;
+            double total = 0.0;
+            boolean completo = true;
+            if (detalles != null) {
+                for (ArticuloManufacturadoDetalle d : detalles) {
+                    ArticuloInsumo insumo = d.getArticuloInsumo();
+                    Double precio = precioCompraDe(insumo);
+                    if (precio == null) {
+                        completo = false;
+                    } else {
+                        total += d.getCantidad() * precio;
+                    }
+                    if (insumo.getId() != null) used[n++] = insumo.getId();
+                }
+            }
+            relink(id, Arrays.copyOf(used, n));
+            return new Costo(id, total, articulo.getPrecioVenta(), completo);
+        });
+    }
+
+    /** Precio vigente: el del repositorio de insumos si está ahí, si no el del objeto del detalle. */
+    private Double precioCompraDe(ArticuloInsumo insumo) {
+        if (insumo.getId() != null) {
+            Optional<ArticuloInsumo> stored = insumos.findById(insumo.getId());
+            if (stored.isPresent()) return stored.get().getPrecioCompra();
+        }
+        return insumo.getPrecioCompra();
+    }
+
+    private void relink(long articuloId, long[] used) {
+        long[] previous = insumosByArticulo.put(articuloId, used);
+        if (Arrays.equals(previous, used)) return; // receta sin cambios (caso normal de un cambio de precio)
+        if (previous != null) {
+            for (long insumoId : previous) {
+                if (!contains(used, insumoId)) unlink(insumoId, articuloId);
+            }
+        }
+        for (long insumoId : used) {
+            // add dentro de compute: unlink no puede descartar el set entre el alta y el add
+            articulosByInsumo.compute(insumoId, (k, users) -> {
+                Set<Long> s = users != null ? users : ConcurrentHashMap.newKeySet();
+                s.add(articuloId);
+                return s;
+            });
+        }
+    }
+
+    private void evict(long articuloId) {
+        costs.compute(articuloId, (id, old) -> {
+            long[] previous = insumosByArticulo.remove(id);
+            if (previous != null) {
+                for (long insumoId : previous) unlink(insumoId, id);
+            }
+            return null;
+        });
+    }
+
+    private void unlink(long insumoId, long articuloId) {
+        articulosByInsumo.computeIfPresent(insumoId, (k, users) -> {
+            users.remove(articuloId);
+            return users.isEmpty() ? null : users;
+        });
+    }
+
+    private static boolean contains(long[] values, long value) {
+        for (long v : values) {
+            if (v == value) return true;
+        }
+        return false;
+    }
+}
@@ -3,12 +3,15 @@ package com.biblioteca.traza2.entidades;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @SuperBuilder @ToString(exclude = "imagenes")
 
-public abstract class Articulo {
+public abstract class Articulo implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private Long id;
     private String denominacion;
     private Double precioVenta;
@@ -18,6 +21,9 @@ public abstract class Articulo {
     private Categoria categoria;
 
     // relaciones 1 -> n (excluí para no imprimir listados grandes)
+    // Set por la API (getter/setter); las instancias son HashSet, o las que arma el repositorio
+    // al copiar/decodificar (HashSet, LinkedHashSet, TreeSet): todas serializables
+    @SuppressWarnings("serial")
     @Builder.Default
     private Set<ImagenArticulo> imagenes = new HashSet<>();
 
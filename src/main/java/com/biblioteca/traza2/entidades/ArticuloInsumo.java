@@ -1,11 +1,15 @@
 package com.biblioteca.traza2.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @SuperBuilder @ToString(callSuper = true) // incluye los campos de Articulo
+@GenerateRepository
 
 public class ArticuloInsumo extends Articulo {
+    private static final long serialVersionUID = 1L;
+
     private Double precioCompra;
     private Integer stockActual;
     private Integer stockMaximo;
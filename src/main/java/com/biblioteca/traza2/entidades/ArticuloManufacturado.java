@@ -1,5 +1,6 @@
 package com.biblioteca.traza2.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
@@ -7,13 +8,19 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Getter @Setter @NoArgsConstructor @SuperBuilder @ToString(callSuper = true) // imprime lo de Articulo + sus propios campos
+@GenerateRepository
 
 public class ArticuloManufacturado extends Articulo{
+    private static final long serialVersionUID = 1L;
+
     private String descripcion;
     private Integer tiempoEstimadoMinutos;
     private String preparacion;
 
     // relacion 1 -> n (excluyo para que el toString no sea grande)
+    // Set por la API (getter/setter); las instancias son HashSet, o las que arma el repositorio
+    // al copiar/decodificar (HashSet, LinkedHashSet, TreeSet): todas serializables
+    @SuppressWarnings("serial")
     @Builder.Default @ToString.Exclude
     private Set<ArticuloManufacturadoDetalle> detalles = new HashSet<>();
 
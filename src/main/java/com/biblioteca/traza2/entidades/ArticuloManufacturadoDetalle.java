@@ -1,9 +1,15 @@
 package com.biblioteca.traza2.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 
+import java.io.Serializable;
+
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder @ToString
-public class ArticuloManufacturadoDetalle {
+@GenerateRepository
+public class ArticuloManufacturadoDetalle implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private Long id;
     @NonNull private Integer cantidad;
 
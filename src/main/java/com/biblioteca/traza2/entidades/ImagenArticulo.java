@@ -1,10 +1,16 @@
 package com.biblioteca.traza2.entidades;
 
+import com.biblioteca.repositorio.GenerateRepository;
 import lombok.*;
 
+import java.io.Serializable;
+
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder @ToString
+@GenerateRepository
+
+public class ImagenArticulo implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class ImagenArticulo {
     private Long id;
     private String denominacion;
 }
@@ -0,0 +1,87 @@
+package com.biblioteca.traza2.stock;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+
+/**
+ * Vista de ArticuloInsumo cuyos datos de stock viven en StockColumns (fuera del heap).
+ * - Los getters/setters de stock y precioCompra leen/escriben las columnas, así que
+ *   toString, genericUpdate("stockActual", ...) y el resto del código siguen funcionando igual.
+ * - Se obtiene con StockColumns.attach(insumo); el id no puede cambiar después.
+ * - No tiene constructor sin argumentos (sin columnas no hay de dónde leer el stock): un
+ *   repositorio con versionado y los decodificadores (GraphCodec, CatalogImage) la rechazan
+ *   con IllegalArgumentException. Para persistirla, guardar un ArticuloInsumo común.
+ */
+public class ArticuloInsumoColumnar extends ArticuloInsumo {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient StockColumns columns;
+
+    ArticuloInsumoColumnar(StockColumns columns, ArticuloInsumo source) {
+        this.columns = columns;
+        super.setId(source.getId());
+        setDenominacion(source.getDenominacion());
+        setPrecioVenta(source.getPrecioVenta());
+        setUnidadMedida(source.getUnidadMedida());
+        setCategoria(source.getCategoria());
+        setImagenes(source.getImagenes());
+        setEsParaElaborar(source.getEsParaElaborar());
+    }
+
+    @Override
+    public void setId(Long id) {
+        if (getId() != null && !getId().equals(id)) {
+            throw new IllegalStateException("No se puede cambiar el id de un insumo en columnas");
+        }
+        super.setId(id);
+    }
+
+    @Override
+    public Integer getStockActual() {
+        return columns.getStockActual(getId());
+    }
+
+    @Override
+    public void setStockActual(Integer stockActual) {
+        columns.setStockActual(getId(), stockActual);
+    }
+
+    @Override
+    public Integer getStockMinimo() {
+        return columns.getStockMinimo(getId());
+    }
+
+    @Override
+    public void setStockMinimo(Integer stockMinimo) {
+        columns.setStockMinimo(getId(), stockMinimo);
+    }
+
+    @Override
+    public Integer getStockMaximo() {
+        return columns.getStockMaximo(getId());
+    }
+
+    @Override
+    public void setStockMaximo(Integer stockMaximo) {
+        columns.setStockMaximo(getId(), stockMaximo);
+    }
+
+    @Override
+    public Double getPrecioCompra() {
+        return columns.getPrecioCompra(getId());
+    }
+
+    @Override
+    public void setPrecioCompra(Double precioCompra) {
+        columns.setPrecioCompra(getId(), precioCompra);
+    }
+
+    /** Ajuste atómico del stock actual (ver StockColumns.tryAdjustStock). */
+    public boolean tryAdjustStock(int delta) {
+        return columns.tryAdjustStock(getId(), delta);
+    }
+
+    public StockColumns columns() {
+        return columns;
+    }
+}
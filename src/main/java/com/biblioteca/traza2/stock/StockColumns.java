@@ -0,0 +1,334 @@
+package com.biblioteca.traza2.stock;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * Almacenamiento columnar fuera del heap para los datos de stock de ArticuloInsumo.
+ * - Columnas: stockActual, stockMinimo, stockMaximo (int) y precioCompra (double), por id de insumo.
+ * - Las filas se indexan directo por id (los ids salen de la secuencia del repositorio, son densos).
+ * - Bloques de 64K filas en ByteBuffers directos, o mapeados a un archivo (sobreviven al reinicio).
+ *   Cada bloque se reserva recién cuando se escribe una fila suya: un id alto y aislado
+ *   cuesta un bloque (1,5 MB) más un puntero por cada bloque anterior, no todos los bloques.
+ * - Ids válidos: 0..MAX_ID; fuera de ese rango se rechazan con IllegalArgumentException.
+ * - Ajustes de stock atómicos con VarHandle (CAS) sobre la memoria del buffer, sin locks.
+ * - Recorridos como "stock por debajo del mínimo" son bucles planos sobre columnas contiguas.
+ *
+ * Los valores null de la entidad se guardan como bits en una columna de flags.
+ */
+public final class StockColumns implements Closeable {
+
+    private static final int ROWS_PER_CHUNK = 1 << 16;
+    private static final int ROW_SHIFT = 16;
+    private static final int ROW_MASK = ROWS_PER_CHUNK - 1;
+
+    /** Mayor id admitido (2^32 - 1): la tabla de bloques llega a lo sumo a 65536 punteros. */
+    public static final long MAX_ID = (1L << 32) - 1;
+
+    // Posición de cada columna dentro del bloque (alineadas para los accesos atómicos)
+    private static final int FLAGS = 0;
+    private static final int ACTUAL = 4 * ROWS_PER_CHUNK;
+    private static final int MINIMO = 8 * ROWS_PER_CHUNK;
+    private static final int MAXIMO = 12 * ROWS_PER_CHUNK;
+    private static final int PRECIO = 16 * ROWS_PER_CHUNK;
+    private static final int CHUNK_BYTES = 24 * ROWS_PER_CHUNK;
+
+    // Bits de la columna de flags
+    static final int PRESENT = 1;
+    static final int NULL_ACTUAL = 1 << 1;
+    static final int NULL_MINIMO = 1 << 2;
+    static final int NULL_MAXIMO = 1 << 3;
+    static final int NULL_PRECIO = 1 << 4;
+
+    private static final VarHandle INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel file; // null = solo memoria
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0]; // null = bloque todavía sin reservar
+
+    private StockColumns(FileChannel file) {
+        this.file = file;
+    }
+
+    /** Columnas en memoria directa (fuera del heap, no persistentes). */
+    public static StockColumns offHeap() {
+        return new StockColumns(null);
+    }
+
+    /** Columnas mapeadas a un archivo: los valores persisten entre ejecuciones. */
+    public static StockColumns mapped(Path path) throws IOException {
+        FileChannel fc = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        StockColumns columns = new StockColumns(fc);
+        long existing = Math.min(fc.size() / CHUNK_BYTES, (MAX_ID >>> ROW_SHIFT) + 1);
+        for (int i = 0; i < existing; i++) columns.chunkFor((long) i << ROW_SHIFT, true);
+        return columns;
+    }
+
+    // ===================== Carga / vista =====================
+
+    /**
+     * Pasa los datos de stock del insumo a las columnas y devuelve una vista que los lee de ahí.
+     * El insumo debe tener id (guardarlo antes en el repositorio, o asignarlo).
+     */
+    public ArticuloInsumoColumnar attach(ArticuloInsumo insumo) {
+        Objects.requireNonNull(insumo, "insumo no puede ser null");
+        if (insumo.getId() == null) {
+            throw new IllegalArgumentException("El insumo necesita id para ubicarse en las columnas");
+        }
+        long id = insumo.getId();
+        put(id, insumo.getStockActual(), insumo.getStockMinimo(), insumo.getStockMaximo(), insumo.getPrecioCompra());
+        return new ArticuloInsumoColumnar(this, insumo);
+    }
+
+    public void put(long id, Integer stockActual, Integer stockMinimo, Integer stockMaximo, Double precioCompra) {
+        ByteBuffer c = chunkFor(id, true);
+        int row = row(id);
+        INT.setVolatile(c, ACTUAL + 4 * row, stockActual == null ? 0 : stockActual);
+        INT.setVolatile(c, MINIMO + 4 * row, stockMinimo == null ? 0 : stockMinimo);
+        INT.setVolatile(c, MAXIMO + 4 * row, stockMaximo == null ? 0 : stockMaximo);
+        LONG.setVolatile(c, PRECIO + 8 * row, Double.doubleToRawLongBits(precioCompra == null ? 0d : precioCompra));
+        int flags = PRESENT
+                | (stockActual == null ? NULL_ACTUAL : 0)
+                | (stockMinimo == null ? NULL_MINIMO : 0)
+                | (stockMaximo == null ? NULL_MAXIMO : 0)
+                | (precioCompra == null ? NULL_PRECIO : 0);
+        INT.setVolatile(c, FLAGS + 4 * row, flags);
+    }
+
+    /** Quita la fila (ej: el insumo se borró del repositorio). */
+    public void remove(long id) {
+        ByteBuffer c = chunkFor(id, false);
+        if (c != null) INT.setVolatile(c, FLAGS + 4 * row(id), 0);
+    }
+
+    public boolean contains(long id) {
+        ByteBuffer c = chunkFor(id, false);
+        return c != null && ((int) INT.getVolatile(c, FLAGS + 4 * row(id)) & PRESENT) != 0;
+    }
+
+    // ===================== Lecturas =====================
+
+    public Integer getStockActual(long id) {
+        return readInt(id, ACTUAL, NULL_ACTUAL);
+    }
+
+    public Integer getStockMinimo(long id) {
+        return readInt(id, MINIMO, NULL_MINIMO);
+    }
+
+    public Integer getStockMaximo(long id) {
+        return readInt(id, MAXIMO, NULL_MAXIMO);
+    }
+
+    public Double getPrecioCompra(long id) {
+        ByteBuffer c = requireRow(id);
+        int row = row(id);
+        if (((int) INT.getVolatile(c, FLAGS + 4 * row) & NULL_PRECIO) != 0) return null;
+        return Double.longBitsToDouble((long) LONG.getVolatile(c, PRECIO + 8 * row));
+    }
+
+    private Integer readInt(long id, int column, int nullBit) {
+        ByteBuffer c = requireRow(id);
+        int row = row(id);
+        if (((int) INT.getVolatile(c, FLAGS + 4 * row) & nullBit) != 0) return null;
+        return (int) INT.getVolatile(c, column + 4 * row);
+    }
+
+    // ===================== Escrituras =====================
+
+    public void setStockActual(long id, Integer value) {
+        writeInt(id, ACTUAL, NULL_ACTUAL, value);
+    }
+
+    public void setStockMinimo(long id, Integer value) {
+        writeInt(id, MINIMO, NULL_MINIMO, value);
+    }
+
+    public void setStockMaximo(long id, Integer value) {
+        writeInt(id, MAXIMO, NULL_MAXIMO, value);
+    }
+
+    public void setPrecioCompra(long id, Double value) {
+        ByteBuffer c = requireRow(id);
+        int row = row(id);
+        LONG.setVolatile(c, PRECIO + 8 * row, Double.doubleToRawLongBits(value == null ? 0d : value));
+        updateFlag(c, row, NULL_PRECIO, value == null);
+    }
+
+    private void writeInt(long id, int column, int nullBit, Integer value) {
+        ByteBuffer c = requireRow(id);
+        int row = row(id);
+        INT.setVolatile(c, column + 4 * row, value == null ? 0 : value);
+        updateFlag(c, row, nullBit, value == null);
+    }
+
+    private static void updateFlag(ByteBuffer c, int row, int bit, boolean set) {
+        int offset = FLAGS + 4 * row;
+        while (true) {
+            int current = (int) INT.getVolatile(c, offset);
+            int next = set ? current | bit : current & ~bit;
+            if (next == current || INT.compareAndSet(c, offset, current, next)) return;
+        }
+    }
+
+    // ===================== Ajustes atómicos =====================
+
+    /**
+     * Suma delta al stock actual si el resultado no queda negativo (CAS, sin locks).
+     * Devuelve false si no alcanza el stock. Un stock null cuenta como 0.
+     */
+    public boolean tryAdjustStock(long id, int delta) {
+        ByteBuffer c = requireRow(id);
+        int row = row(id);
+        int offset = ACTUAL + 4 * row;
+        while (true) {
+            int current = (int) INT.getVolatile(c, offset);
+            long next = (long) current + delta;
+            if (next < 0 || next > Integer.MAX_VALUE) return false;
+            if (INT.compareAndSet(c, offset, current, (int) next)) {
+                if (delta != 0) updateFlag(c, row, NULL_ACTUAL, false);
+                return true;
+            }
+        }
+    }
+
+    /** Suma delta sin validar (ej: reposición o compensación) y devuelve el nuevo valor. */
+    public int addStock(long id, int delta) {
+        ByteBuffer c = requireRow(id);
+        int row = row(id);
+        int next = (int) INT.getAndAdd(c, ACTUAL + 4 * row, delta) + delta;
+        updateFlag(c, row, NULL_ACTUAL, false);
+        return next;
+    }
+
+    public boolean compareAndSetStock(long id, int expected, int update) {
+        ByteBuffer c = requireRow(id);
+        int row = row(id);
+        boolean swapped = INT.compareAndSet(c, ACTUAL + 4 * row, expected, update);
+        if (swapped) updateFlag(c, row, NULL_ACTUAL, false);
+        return swapped;
+    }
+
+    // ===================== Recorridos =====================
+
+    /** Ids con stockActual < stockMinimo (ignora filas con alguno de los dos en null). */
+    public void forEachBelowMinimum(LongConsumer action) {
+        ByteBuffer[] snapshot = chunks;
+        int skip = PRESENT | NULL_ACTUAL | NULL_MINIMO;
+        for (int ci = 0; ci < snapshot.length; ci++) {
+            ByteBuffer c = snapshot[ci];
+            if (c == null) continue;
+            long base = (long) ci << ROW_SHIFT;
+            for (int row = 0; row < ROWS_PER_CHUNK; row++) {
+                int flags = c.getInt(FLAGS + 4 * row);
+                // Bucle plano sobre columnas contiguas: sin objetos ni desreferencias por fila
+                if ((flags & skip) == PRESENT
+                        && c.getInt(ACTUAL + 4 * row) < c.getInt(MINIMO + 4 * row)) {
+                    action.accept(base + row);
+                }
+            }
+        }
+    }
+
+    /** Cantidad de insumos con stockActual < stockMinimo. */
+    public long countBelowMinimum() {
+        long[] count = {0};
+        forEachBelowMinimum(id -> count[0]++);
+        return count[0];
+    }
+
+    /** Valor del stock: suma de stockActual * precioCompra (ignora nulls). */
+    public double totalStockValue() {
+        ByteBuffer[] snapshot = chunks;
+        int skip = PRESENT | NULL_ACTUAL | NULL_PRECIO;
+        double total = 0;
+        for (ByteBuffer c : snapshot) {
+            if (c == null) continue;
+            for (int row = 0; row < ROWS_PER_CHUNK; row++) {
+                if ((c.getInt(FLAGS + 4 * row) & skip) == PRESENT) {
+                    total += c.getInt(ACTUAL + 4 * row) * c.getDouble(PRECIO + 8 * row);
+                }
+            }
+        }
+        return total;
+    }
+
+    /** Fuerza a disco las columnas mapeadas (no hace nada en modo offHeap). */
+    public void force() {
+        if (file == null) return;
+        for (ByteBuffer c : chunks) {
+            if (c != null) ((MappedByteBuffer) c).force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (file != null) file.close();
+    }
+
+    // ===================== Bloques =====================
+
+    private ByteBuffer requireRow(long id) {
+        ByteBuffer c = chunkFor(id, false);
+        if (c == null || ((int) INT.getVolatile(c, FLAGS + 4 * row(id)) & PRESENT) == 0) {
+            throw new IllegalArgumentException("No hay datos de stock para el insumo id=" + id);
+        }
+        return c;
+    }
+
+    private ByteBuffer chunkFor(long id, boolean create) {
+        if (id > MAX_ID && !create) return null; // nunca pudo guardarse
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("id fuera de rango para las columnas (0.." + MAX_ID + "): " + id);
+        }
+        int index = (int) (id >>> ROW_SHIFT);
+        ByteBuffer[] current = chunks;
+        ByteBuffer c = index < current.length ? current[index] : null;
+        if (c != null || !create) return c;
+        return reserve(index);
+    }
+
+    /** Reserva solo el bloque pedido; los intermedios quedan en null hasta que se escriban. */
+    private synchronized ByteBuffer reserve(int index) {
+        ByteBuffer[] current = chunks;
+        if (index < current.length && current[index] != null) return current[index];
+        ByteBuffer[] next = Arrays.copyOf(current, Math.max(current.length, index + 1));
+        next[index] = allocate(index);
+        chunks = next;
+        return next[index];
+    }
+
+    private ByteBuffer allocate(int index) {
+        if (file == null) {
+            return ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+        }
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, (long) index * CHUNK_BYTES, CHUNK_BYTES)
+                    .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo mapear el bloque " + index, e);
+        }
+    }
+
+    private static int row(long id) {
+        return (int) (id & ROW_MASK);
+    }
+}
@@ -0,0 +1,193 @@
+package com.biblioteca.traza2.stock;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.entidades.ArticuloManufacturadoDetalle;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reserva atómica de stock para producir ArticuloManufacturado.
+ * - Todo o nada: o se descuentan todos los insumos de los detalles, o ninguno.
+ * - Pedidos de un solo insumo: CAS directo sobre StockColumns, sin locks.
+ * - Pedidos de varios insumos: locks por franjas (stripes) tomados en orden, así dos pedidos
+ *   que comparten insumos no se bloquean mutuamente ni dejan descuentos a medias.
+ * - No hay lock global: pedidos sobre insumos distintos corren en paralelo.
+ */
+public final class StockReservationEngine {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final StockColumns columns;
+    private final ReentrantLock[] stripes;
+
+    public StockReservationEngine(StockColumns columns) {
+        this(columns, DEFAULT_STRIPES);
+    }
+
+    public StockReservationEngine(StockColumns columns, int stripes) {
+        this.columns = Objects.requireNonNull(columns, "columns no puede ser null");
+        int n = Integer.highestOneBit(Math.max(1, stripes) - 1) << 1;
+        this.stripes = new ReentrantLock[Math.max(1, n)];
+        for (int i = 0; i < this.stripes.length; i++) this.stripes[i] = new ReentrantLock();
+    }
+
+    /** Stock descontado por una reserva; cancel() lo devuelve (una sola vez). */
+    public final class Reservation {
+        private final long[] insumoIds;
+        private final int[] cantidades;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Reservation(long[] insumoIds, int[] cantidades) {
+            this.insumoIds = insumoIds;
+            this.cantidades = cantidades;
+        }
+
+        public long[] insumoIds() {
+            return insumoIds.clone();
+        }
+
+        public int cantidadDe(long insumoId) {
+            int i = Arrays.binarySearch(insumoIds, insumoId);
+            return i >= 0 ? cantidades[i] : 0;
+        }
+
+        /** Devuelve el stock reservado. Devuelve false si ya estaba cancelada. */
+        public boolean cancel() {
+            if (!cancelled.compareAndSet(false, true)) return false;
+            for (int i = 0; i < insumoIds.length; i++) columns.addStock(insumoIds[i], cantidades[i]);
+            return true;
+        }
+    }
+
+    /**
+     * Reserva el stock para producir unidades del artículo, o lanza IllegalStateException
+     * indicando el insumo que no alcanza (sin descontar nada).
+     */
+    public Reservation reserve(ArticuloManufacturado articulo, int unidades) {
+        Requirements req = requirements(articulo, unidades);
+        int missing = tryTake(req);
+        if (missing >= 0) {
+            long id = req.ids[missing];
+            throw new IllegalStateException("Stock insuficiente del insumo id=" + id + " ("
+                    + req.names[missing] + "): hay " + columns.getStockActual(id)
+                    + ", se necesitan " + req.quantities[missing]);
+        }
+        return new Reservation(req.ids, req.quantities);
+    }
+
+    /** Como reserve, pero devuelve vacío si no alcanza el stock. */
+    public Optional<Reservation> tryReserve(ArticuloManufacturado articulo, int unidades) {
+        Requirements req = requirements(articulo, unidades);
+        return tryTake(req) < 0 ? Optional.of(new Reservation(req.ids, req.quantities)) : Optional.empty();
+    }
+
+    /** Devuelve -1 si descontó todo, o la posición del insumo que no alcanzó. */
+    private int tryTake(Requirements req) {
+        int n = req.ids.length;
+        if (n == 0) return -1;
+        if (n == 1) {
+            return columns.tryAdjustStock(req.ids[0], -req.quantities[0]) ? -1 : 0;
+        }
+
+        int[] lockOrder = stripeOrder(req.ids);
+        for (int s : lockOrder) stripes[s].lock();
+        try {
+            // Chequeo previo: con los locks tomados solo compiten pedidos de un insumo (CAS)
+            for (int i = 0; i < n; i++) {
+                Integer stock = columns.getStockActual(req.ids[i]);
+                if (stock == null || stock < req.quantities[i]) return i;
+            }
+            for (int i = 0; i < n; i++) {
+                if (!columns.tryAdjustStock(req.ids[i], -req.quantities[i])) {
+                    // Un CAS concurrente se llevó el stock: compensar lo ya descontado
+                    for (int j = 0; j < i; j++) columns.addStock(req.ids[j], req.quantities[j]);
+                    return i;
+                }
+            }
+            return -1;
+        } finally {
+            for (int k = lockOrder.length - 1; k >= 0; k--) stripes[lockOrder[k]].unlock();
+        }
+    }
+
+    /** Franjas distintas, en orden ascendente (evita interbloqueos). */
+    private int[] stripeOrder(long[] ids) {
+        int[] s = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) s[i] = stripeOf(ids[i]);
+        Arrays.sort(s);
+        int distinct = 0;
+        for (int i = 0; i < s.length; i++) {
+            if (i == 0 || s[i] != s[i - 1]) s[distinct++] = s[i];
+        }
+        return Arrays.copyOf(s, distinct);
+    }
+
+    private int stripeOf(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & (stripes.length - 1);
+    }
+
+    /** Cantidades por insumo (sumando detalles repetidos), ordenadas por id. */
+    private static Requirements requirements(ArticuloManufacturado articulo, int unidades) {
+        Objects.requireNonNull(articulo, "articulo no puede ser null");
+        if (unidades <= 0) throw new IllegalArgumentException("unidades debe ser > 0");
+        var detalles = articulo.getDetalles();
+        long[] ids = new long[detalles.size()];
+        int[] qty = new int[detalles.size()];
+        String[] names = new String[detalles.size()];
+        int n = 0;
+        for (ArticuloManufacturadoDetalle d : detalles) {
+            ArticuloInsumo insumo = d.getArticuloInsumo();
+            if (insumo.getId() == null) {
+                throw new IllegalArgumentException("El insumo '" + insumo.getDenominacion() + "' no tiene id");
+            }
+            Integer cantidad = d.getCantidad();
+            if (cantidad == null || cantidad <= 0) {
+                // Una cantidad negativa sumaría stock en vez de reservarlo
+                throw new IllegalArgumentException("La cantidad del insumo '" + insumo.getDenominacion()
+                        + "' debe ser > 0 (es " + cantidad + ")");
+            }
+            ids[n] = insumo.getId();
+            qty[n] = Math.multiplyExact(cantidad, unidades);
+            names[n] = insumo.getDenominacion();
+            n++;
+        }
+        // Orden por id con fusión de repetidos (n es chico: inserción)
+        for (int i = 1; i < n; i++) {
+            long id = ids[i];
+            int q = qty[i];
+            String name = names[i];
+            int j = i - 1;
+            while (j >= 0 && ids[j] > id) {
+                ids[j + 1] = ids[j];
+                qty[j + 1] = qty[j];
+                names[j + 1] = names[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            qty[j + 1] = q;
+            names[j + 1] = name;
+        }
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct > 0 && ids[distinct - 1] == ids[i]) {
+                qty[distinct - 1] = Math.addExact(qty[distinct - 1], qty[i]);
+            } else {
+                ids[distinct] = ids[i];
+                qty[distinct] = qty[i];
+                names[distinct] = names[i];
+                distinct++;
+            }
+        }
+        return new Requirements(Arrays.copyOf(ids, distinct), Arrays.copyOf(qty, distinct),
+                Arrays.copyOf(names, distinct));
+    }
+
+    private record Requirements(long[] ids, int[] quantities, String[] names) {
+    }
+}
@@ -0,0 +1,241 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedStoreTest {
+
+    @Test
+    void unaCargaCruzadaConUnRemoveNoReviveLaEntidad() throws Exception {
+        Categoria pizzas = Categoria.builder().id(1L).denominacion("Pizzas").build();
+        Map<Long, Categoria> source = new ConcurrentHashMap<>(Map.of(1L, pizzas));
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+
+        BoundedStore<Categoria> store = BoundedStore.<Categoria>maximumSize(10)
+                .loader(id -> {
+                    Categoria found = source.get(id); // lee la fuente antes del borrado
+                    if (first.compareAndSet(true, false)) {
+                        loadStarted.countDown();
+                        await(release);
+                    }
+                    return found;
+                })
+                .writeThrough(new EntityWriter<>() {
+                    @Override
+                    public void write(long id, Categoria entity) {
+                        source.put(id, entity);
+                    }
+
+                    @Override
+                    public void delete(long id) {
+                        source.remove(id);
+                    }
+                })
+                .build();
+
+        Thread reader = new Thread(() -> store.get(1L));
+        reader.start();
+        loadStarted.await();
+
+        assertSame(pizzas, store.remove(1L));
+        release.countDown();
+        reader.join();
+
+        assertEquals(0, store.size());
+        assertNull(store.get(1L));
+        store.close();
+    }
+
+    @Test
+    void lruDesalojaLaMenosUsada() throws Exception {
+        try (BoundedStore<Categoria> store = BoundedStore.<Categoria>maximumSize(3).eviction(EvictionPolicy.lru()).build()) {
+            for (long id = 1; id <= 3; id++) store.put(id, categoria(id));
+            // Las lecturas llegan a la política de a READ_BUFFER_SIZE
+            for (int i = 0; i < BoundedStore.READ_BUFFER_SIZE; i++) store.get(1L);
+
+            store.put(4L, categoria(4L));
+
+            assertNull(store.get(2L));
+            assertNotNull(store.get(1L));
+            assertNotNull(store.get(3L));
+            assertNotNull(store.get(4L));
+            assertEquals(1, store.stats().evictions());
+        }
+    }
+
+    @Test
+    void tinyLfuNoDejaQueUnRecorridoDesplaceALasFrecuentes() throws Exception {
+        // Con LRU el recorrido vacía el caché; con W-TinyLFU las frecuentes quedan
+        assertEquals(0, hotSurvivingScan(EvictionPolicy.lru()));
+        assertTrue(hotSurvivingScan(EvictionPolicy.windowTinyLfu()) >= 90);
+    }
+
+    @Test
+    void maximoPorPesoDesalojaHastaEntrar() throws Exception {
+        try (BoundedStore<Categoria> store = BoundedStore.<Categoria>maximumWeight(10,
+                c -> c.getDenominacion().length()).eviction(EvictionPolicy.lru()).build()) {
+            store.put(1L, Categoria.builder().id(1L).denominacion("aaaa").build());
+            store.put(2L, Categoria.builder().id(2L).denominacion("bbbb").build());
+            store.put(3L, Categoria.builder().id(3L).denominacion("cc").build());
+            assertEquals(3, store.size());
+
+            store.put(4L, Categoria.builder().id(4L).denominacion("ddddd").build());
+
+            // 4 + 4 + 2 + 5 = 15 > 10: sale la más vieja (4) y queda 11, sale la siguiente (4)
+            BoundedStore.Stats stats = store.stats();
+            assertEquals(2, stats.size());
+            assertEquals(7, stats.weightedSize());
+            assertEquals(2, stats.evictions());
+            assertEquals(8, stats.evictedWeight());
+            assertNull(store.get(1L));
+            assertNull(store.get(2L));
+        }
+    }
+
+    @Test
+    void writeBehindAgrupaLasEscriturasDeUnIdHastaElFlush() throws Exception {
+        RecordingWriter writer = new RecordingWriter();
+        BoundedStore<Categoria> store = BoundedStore.<Categoria>maximumSize(1)
+                .writeBehind(writer, Duration.ofHours(1)) // el volcado de fondo no llega a correr
+                .loader(id -> writer.source.get(id))
+                .build();
+        Categoria last = null;
+        for (int i = 0; i < 5; i++) {
+            last = Categoria.builder().id(1L).denominacion("Pizzas " + i).build();
+            store.put(1L, last);
+        }
+        store.put(2L, categoria(2L)); // desaloja el 1, que sigue pendiente
+        store.put(3L, categoria(3L));
+        store.remove(3L);
+
+        assertTrue(writer.operations.isEmpty());
+        assertSame(last, store.get(1L)); // sale de lo pendiente, no del loader
+        assertEquals(0, store.stats().loads());
+        assertEquals(3, store.stats().pendingWrites());
+
+        assertEquals(3, store.flush());
+        assertEquals(List.of("write 1 Pizzas 4", "write 2 c2", "delete 3"), writer.sorted());
+        assertEquals(0, store.stats().pendingWrites());
+
+        store.put(4L, categoria(4L));
+        store.close(); // vuelca lo pendiente
+        assertEquals("write 4 c4", writer.operations.get(writer.operations.size() - 1));
+        assertThrows(IllegalStateException.class, () -> store.put(5L, categoria(5L)));
+    }
+
+    @Test
+    void variosHilosPidiendoElMismoIdHacenUnaSolaCarga() throws Exception {
+        int threads = 8;
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        BoundedStore<Categoria> store = BoundedStore.<Categoria>maximumSize(10)
+                .loader(id -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return categoria(id);
+                })
+                .build();
+        List<Categoria> results = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                Categoria c = store.get(7L);
+                synchronized (results) {
+                    results.add(c);
+                }
+            });
+            readers.add(t);
+            t.start();
+        }
+        // Todos bloqueados: uno en el loader y el resto esperando esa misma carga
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!readers.stream().allMatch(t -> t.getState() == Thread.State.WAITING) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread t : readers) t.join();
+
+        assertEquals(1, calls.get());
+        assertEquals(1, store.stats().loads());
+        assertEquals(threads, results.size());
+        for (Categoria c : results) assertSame(results.get(0), c);
+        store.close();
+    }
+
+    /**
+     * Cuántas de 100 entidades leídas seguido quedan después de un recorrido read-through de
+     * 1000 ids que no estaban en memoria (cada uno se carga una vez y no se vuelve a pedir).
+     */
+    private static int hotSurvivingScan(EvictionPolicy policy) throws Exception {
+        try (BoundedStore<Categoria> store = BoundedStore.<Categoria>maximumSize(100).eviction(policy)
+                .loader(BoundedStoreTest::categoria).build()) {
+            for (long id = 1; id <= 100; id++) store.put(id, categoria(id));
+            for (int round = 0; round < 20; round++) {
+                for (long id = 1; id <= 100; id++) store.get(id);
+            }
+            for (long id = 1_001; id <= 2_000; id++) assertNotNull(store.get(id));
+            assertEquals(1_000, store.stats().loads());
+            // values() ve solo lo que está en memoria (get volvería a cargar lo desalojado)
+            return (int) store.values().filter(c -> c.getId() <= 100).count();
+        }
+    }
+
+    private static Categoria categoria(long id) {
+        return Categoria.builder().id(id).denominacion("c" + id).build();
+    }
+
+    /** Writer que anota cada operación y guarda el estado como una fuente. */
+    private static final class RecordingWriter implements EntityWriter<Categoria> {
+        final Map<Long, Categoria> source = new ConcurrentHashMap<>();
+        final List<String> operations = new ArrayList<>();
+
+        @Override
+        public synchronized void write(long id, Categoria entity) {
+            source.put(id, entity);
+            operations.add("write " + id + " " + entity.getDenominacion());
+        }
+
+        @Override
+        public synchronized void delete(long id) {
+            source.remove(id);
+            operations.add("delete " + id);
+        }
+
+        /** Orden por id (el flush recorre lo pendiente sin orden fijo). */
+        synchronized List<String> sorted() {
+            List<String> sorted = new ArrayList<>(operations);
+            sorted.sort((a, b) -> Long.compare(id(a), id(b)));
+            return sorted;
+        }
+
+        private static long id(String operation) {
+            return Long.parseLong(operation.split(" ")[1]);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
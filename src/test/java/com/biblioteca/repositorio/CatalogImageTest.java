@@ -0,0 +1,54 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CatalogImageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void noReusaElIdDeUnaEntidadBorradaAntesDeEscribir() throws IOException {
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        repo.save(Categoria.builder().denominacion("Pizzas").build());
+        repo.save(Categoria.builder().denominacion("Empanadas").build());
+        repo.save(Categoria.builder().denominacion("Bebidas").build());
+        repo.genericDelete(3L);
+
+        Path file = dir.resolve("catalogo.img");
+        try (CatalogImage.Writer w = CatalogImage.writer(file)) {
+            w.add("categorias", repo);
+        }
+
+        CatalogImage image = CatalogImage.open(file, Categoria.class);
+        InMemoryRepository<Categoria> opened = image.repository("categorias", Categoria.class);
+        assertEquals(2, opened.count());
+        assertFalse(opened.findById(3L).isPresent());
+        assertEquals(4L, opened.save(Categoria.builder().denominacion("Postres").build()).getId());
+    }
+
+    @Test
+    void seccionVaciaConservaLaSecuencia() throws IOException {
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        repo.save(Categoria.builder().denominacion("Pizzas").build());
+        repo.genericDelete(1L);
+
+        Path file = dir.resolve("vacio.img");
+        try (CatalogImage.Writer w = CatalogImage.writer(file)) {
+            w.add("categorias", repo);
+        }
+
+        InMemoryRepository<Categoria> opened = CatalogImage.open(file, Categoria.class)
+                .repository("categorias", Categoria.class);
+        assertEquals(0, opened.count());
+        assertEquals(2L, opened.save(Categoria.builder().denominacion("Postres").build()).getId());
+    }
+}
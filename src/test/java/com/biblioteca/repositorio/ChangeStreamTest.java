@@ -0,0 +1,168 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeStreamTest {
+
+    private static final int WRITERS = 4;
+    private static final int OPS_PER_WRITER = 20_000;
+    private static final int IDS = 8;
+
+    @Test
+    void reproducirLosEventosDejaElEstadoDelRepositorio() throws Exception {
+        checkReplay(new InMemoryRepository<>());
+    }
+
+    @Test
+    void reproducirLosEventosConIndicesDejaElEstadoDelRepositorio() throws Exception {
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        repo.createIndex("denominacion");
+        checkReplay(repo);
+    }
+
+    /** Varios hilos guardan y borran los mismos pocos ids; después se reproduce el stream. */
+    private static void checkReplay(InMemoryRepository<Categoria> repo) throws Exception {
+        // Un listener a veces lento antes del stream (como el WAL escribiendo a disco) agranda
+        // la ventana entre aplicar el cambio y publicarlo
+        repo.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(long id, Categoria previous, Categoria entity) {
+                stall();
+            }
+
+            @Override
+            public void onDeleted(long id, Categoria entity) {
+                stall();
+            }
+        });
+        try (ChangeStream<Categoria> stream = ChangeStream.attach(repo, 1 << 18)) {
+            Thread[] writers = new Thread[WRITERS];
+            for (int w = 0; w < WRITERS; w++) {
+                String prefix = "w" + w + "-";
+                writers[w] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int op = 0; op < OPS_PER_WRITER; op++) {
+                        long id = random.nextLong(1, IDS + 1);
+                        switch (random.nextInt(3)) {
+                            case 0 -> repo.save(Categoria.builder().id(id).denominacion(prefix + op).build());
+                            case 1 -> repo.saveAll(List.of(Categoria.builder().id(id).denominacion(prefix + op).build()));
+                            default -> repo.genericDelete(id);
+                        }
+                    }
+                });
+                writers[w].start();
+            }
+            for (Thread writer : writers) writer.join();
+
+            Map<Long, Categoria> replayed = replay(stream);
+            for (long id = 1; id <= IDS; id++) {
+                assertSame(repo.findById(id).orElse(null), replayed.get(id), "id " + id);
+            }
+        }
+    }
+
+    @Test
+    void saveAllGrandeEnParaleloAvisaCadaIdEnOrden() throws Exception {
+        // Lotes por encima de PARALLEL_BATCH_THRESHOLD: se insertan y avisan desde el common pool
+        // mientras otros hilos guardan y borran ids sueltos del mismo rango
+        int batch = InMemoryRepository.PARALLEL_BATCH_THRESHOLD;
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        try (ChangeStream<Categoria> stream = ChangeStream.attach(repo, 1 << 18)) {
+            Thread[] writers = new Thread[WRITERS];
+            for (int w = 0; w < WRITERS; w++) {
+                String prefix = "w" + w + "-";
+                boolean batches = w % 2 == 0;
+                writers[w] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    if (batches) {
+                        for (int round = 0; round < 3; round++) {
+                            List<Categoria> lote = new ArrayList<>(batch);
+                            for (long id = 1; id <= batch; id++) {
+                                lote.add(Categoria.builder().id(id).denominacion(prefix + round).build());
+                            }
+                            repo.saveAll(lote);
+                        }
+                        return;
+                    }
+                    for (int op = 0; op < OPS_PER_WRITER; op++) {
+                        long id = random.nextLong(1, batch + 1);
+                        if (random.nextBoolean()) {
+                            repo.save(Categoria.builder().id(id).denominacion(prefix + op).build());
+                        } else {
+                            repo.genericDelete(id);
+                        }
+                    }
+                });
+                writers[w].start();
+            }
+            for (Thread writer : writers) writer.join();
+
+            Map<Long, Categoria> replayed = replay(stream);
+            for (long id = 1; id <= batch; id++) {
+                assertSame(repo.findById(id).orElse(null), replayed.get(id), "id " + id);
+            }
+        }
+    }
+
+    private static void stall() {
+        if (ThreadLocalRandom.current().nextInt(16) == 0) LockSupport.parkNanos(20_000);
+    }
+
+    /**
+     * Aplica los eventos en orden de secuencia. En cada uno, before tiene que ser la entidad
+     * que la reproducción tiene para ese id (si no, el evento salió antes que uno anterior).
+     */
+    private static Map<Long, Categoria> replay(ChangeStream<Categoria> stream) throws InterruptedException {
+        long last = stream.nextSequence() - 1;
+        assertTrue(stream.oldestSequence() <= 1, "el buffer no alcanza para el test");
+        Map<Long, Categoria> state = new HashMap<>();
+        List<Long> outOfOrder = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        stream.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ChangeEvent<Categoria> event) {
+                if (event.before() != state.get(event.id())) outOfOrder.add(event.sequence());
+                switch (event.type()) {
+                    case SAVED -> state.put(event.id(), event.after());
+                    case DELETED -> state.remove(event.id());
+                    case UPDATED -> throw new IllegalStateException("no hay updates en el test");
+                }
+                if (event.sequence() == last) done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        }, 1L);
+        assertTrue(done.await(30, TimeUnit.SECONDS), "no llegaron todos los eventos");
+        assertEquals(0, outOfOrder.size(),
+                () -> "eventos fuera de orden, ej: " + outOfOrder.subList(0, Math.min(10, outOfOrder.size())));
+        return state;
+    }
+}
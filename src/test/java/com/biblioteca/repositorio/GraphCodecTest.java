@@ -0,0 +1,234 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza1.entidades.Localidad;
+import com.biblioteca.traza1.entidades.Pais;
+import com.biblioteca.traza1.entidades.Provincia;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.entidades.ArticuloManufacturadoDetalle;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.ImagenArticulo;
+import com.biblioteca.traza2.entidades.UnidadMedida;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphCodecTest {
+
+    private static final Class<?>[] ARTICULOS = {
+            ArticuloInsumo.class, ArticuloManufacturado.class, ArticuloManufacturadoDetalle.class,
+            Categoria.class, UnidadMedida.class, ImagenArticulo.class};
+    private static final Class<?>[] GEOGRAFIA = {Pais.class, Provincia.class, Localidad.class};
+
+    @Test
+    void compartidosYDetallesVuelvenComoElMismoObjeto() throws IOException {
+        Categoria harinas = Categoria.builder().id(1L).denominacion("Harinas").build();
+        UnidadMedida kilos = UnidadMedida.builder().id(1L).denominacion("Kilogramos").build();
+        ArticuloInsumo harina = ArticuloInsumo.builder().id(1L).denominacion("Harina 000").precioCompra(850.5)
+                .stockActual(40).esParaElaborar(true).categoria(harinas).unidadMedida(kilos).build();
+        ArticuloInsumo semola = ArticuloInsumo.builder().id(2L).denominacion("Sémola").precioCompra(1_200.0)
+                .stockActual(0).categoria(harinas).unidadMedida(kilos).build();
+        ArticuloManufacturado noquis = ArticuloManufacturado.builder().id(3L).denominacion("Ñoquis")
+                .descripcion("De papa").tiempoEstimadoMinutos(25).unidadMedida(kilos).build();
+        noquis.getDetalles().add(new ArticuloManufacturadoDetalle(1L, 2, harina));
+        noquis.getDetalles().add(new ArticuloManufacturadoDetalle(2L, 1, semola));
+        noquis.getImagenes().add(ImagenArticulo.builder().id(1L).denominacion("noquis.jpg").build());
+
+        List<Object> roots = readAll(write(harina, semola, noquis, null, "suelto", 42L), ARTICULOS);
+
+        assertEquals(6, roots.size());
+        ArticuloInsumo harina2 = (ArticuloInsumo) roots.get(0);
+        ArticuloInsumo semola2 = (ArticuloInsumo) roots.get(1);
+        ArticuloManufacturado noquis2 = (ArticuloManufacturado) roots.get(2);
+        assertEquals("Harina 000", harina2.getDenominacion());
+        assertEquals(850.5, harina2.getPrecioCompra());
+        assertEquals(40, harina2.getStockActual());
+        assertTrue(harina2.getEsParaElaborar());
+        assertNull(semola2.getEsParaElaborar());
+        assertEquals("Sémola", semola2.getDenominacion());
+        // Categoria y UnidadMedida compartidas: una sola instancia al leer
+        assertSame(harina2.getCategoria(), semola2.getCategoria());
+        assertSame(harina2.getUnidadMedida(), noquis2.getUnidadMedida());
+        assertEquals("Harinas", harina2.getCategoria().getDenominacion());
+        // Los detalles apuntan a las mismas raíces que se leyeron antes
+        Map<Integer, ArticuloInsumo> byCantidad = noquis2.getDetalles().stream().collect(Collectors.toMap(
+                ArticuloManufacturadoDetalle::getCantidad, ArticuloManufacturadoDetalle::getArticuloInsumo));
+        assertSame(harina2, byCantidad.get(2));
+        assertSame(semola2, byCantidad.get(1));
+        assertEquals("noquis.jpg", noquis2.getImagenes().iterator().next().getDenominacion());
+        assertEquals(25, noquis2.getTiempoEstimadoMinutos());
+        assertNull(roots.get(3));
+        assertEquals("suelto", roots.get(4));
+        assertEquals(42L, roots.get(5));
+    }
+
+    @Test
+    void ciclosPaisProvinciaLocalidad() throws IOException {
+        Pais argentina = Pais.builder().id(1).nombre("Argentina").build();
+        for (String nombre : List.of("Mendoza", "Córdoba")) {
+            Provincia provincia = Provincia.builder().id(argentina.getProvincias().size() + 1).nombre(nombre)
+                    .pais(argentina).build();
+            for (int i = 1; i <= 3; i++) {
+                provincia.getLocalidades().add(Localidad.builder().id(i).nombre(nombre + " " + i).provincia(provincia).build());
+            }
+            argentina.getProvincias().add(provincia);
+        }
+
+        Pais pais = (Pais) readAll(write(argentina), GEOGRAFIA).get(0);
+
+        assertEquals("Argentina", pais.getNombre());
+        assertEquals(2, pais.getProvincias().size());
+        for (Provincia provincia : pais.getProvincias()) {
+            assertSame(pais, provincia.getPais());
+            assertEquals(3, provincia.getLocalidades().size());
+            for (Localidad localidad : provincia.getLocalidades()) assertSame(provincia, localidad.getProvincia());
+        }
+    }
+
+    @Test
+    void resetVuelveAEscribirLoCompartido() throws IOException {
+        Categoria pizzas = Categoria.builder().id(1L).denominacion("Pizzas").build();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GraphCodec.Writer w = GraphCodec.writer(Channels.newChannel(bytes))) {
+            w.write(ArticuloInsumo.builder().id(1L).categoria(pizzas).build());
+            w.write(ArticuloInsumo.builder().id(2L).categoria(pizzas).build());
+            w.reset();
+            w.write(ArticuloInsumo.builder().id(3L).categoria(pizzas).build());
+        }
+
+        List<Object> roots = readAll(bytes.toByteArray(), ARTICULOS);
+
+        Categoria first = ((ArticuloInsumo) roots.get(0)).getCategoria();
+        assertSame(first, ((ArticuloInsumo) roots.get(1)).getCategoria());
+        assertNotSame(first, ((ArticuloInsumo) roots.get(2)).getCategoria());
+        assertEquals("Pizzas", ((ArticuloInsumo) roots.get(2)).getCategoria().getDenominacion());
+    }
+
+    @Test
+    void cortadoEnCualquierByteFallaPorFinDeStream() throws IOException {
+        Pais argentina = Pais.builder().id(1).nombre("Argentina").build();
+        argentina.getProvincias().add(Provincia.builder().id(1).nombre("Mendoza").pais(argentina).build());
+        byte[] full = write(argentina, ArticuloInsumo.builder().id(1L).denominacion("Harina").precioCompra(1.5).build());
+        Class<?>[] allowed = {Pais.class, Provincia.class, Localidad.class, ArticuloInsumo.class};
+
+        for (int n = 0; n < full.length; n++) {
+            byte[] cut = Arrays.copyOf(full, n);
+            assertThrows(EOFException.class, () -> readAll(cut, allowed), "cortado en " + n);
+        }
+    }
+
+    @Test
+    void cabeceraRegistroYClaseInvalidos() throws IOException {
+        byte[] valid = write(Categoria.builder().id(1L).denominacion("Pizzas").build());
+
+        byte[] magic = valid.clone();
+        magic[0] ^= 1;
+        assertThrows(StreamCorruptedException.class, () -> readAll(magic, ARTICULOS));
+        byte[] version = valid.clone();
+        version[4] = 99;
+        assertThrows(StreamCorruptedException.class, () -> readAll(version, ARTICULOS));
+        byte[] record = valid.clone();
+        record[5] = 77;
+        assertThrows(StreamCorruptedException.class, () -> readAll(record, ARTICULOS));
+        // Clase que no está entre las permitidas
+        assertThrows(InvalidClassException.class, () -> readAll(valid, UnidadMedida.class));
+    }
+
+    @Test
+    void tamaniosNegativosOEnormesNoReservanMemoria() {
+        // Cantidad de la colección fuera de int, o negativa (varint de 10 bytes)
+        assertThrows(StreamCorruptedException.class, () -> readAll(paisConProvincias(1L << 40), GEOGRAFIA));
+        assertThrows(StreamCorruptedException.class, () -> readAll(paisConProvincias(-1L), GEOGRAFIA));
+        // Integer.MAX_VALUE elementos sin ningún byte detrás: fin de stream, no un HashSet gigante
+        assertThrows(EOFException.class, () -> readAll(paisConProvincias(Integer.MAX_VALUE), GEOGRAFIA));
+        // Nombre de clase de 2^31 - 1 bytes: se acumula a medida que llega y corta por fin de stream
+        assertThrows(EOFException.class, () -> readAll(stream(s -> {
+            s.write(1); // RECORD_OBJECT
+            s.write(GraphCodec.A_OBJECT);
+            varint(s, 1); // REF_NEW
+            varint(s, 0); // clase 0, nueva
+            varint(s, (long) Integer.MAX_VALUE << 1);
+            return s;
+        }), GEOGRAFIA));
+        // Registro de entityCodec con largo negativo
+        EntityCodec<Pais> codec = GraphCodec.entityCodec(Pais.class, Provincia.class, Localidad.class);
+        assertThrows(StreamCorruptedException.class,
+                () -> codec.decode(new DataInputStream(new ByteArrayInputStream(new byte[]{-1, -1, -1, -1}))));
+    }
+
+    /** Stream armado a mano: un Pais nuevo cuyo esquema es solo "provincias", con size elementos declarados. */
+    private static byte[] paisConProvincias(long size) throws IOException {
+        return stream(s -> {
+            s.write(1); // RECORD_OBJECT
+            s.write(GraphCodec.A_OBJECT);
+            varint(s, 1); // REF_NEW
+            varint(s, 0); // clase 0, nueva
+            rawString(s, Pais.class.getName());
+            varint(s, 1); // un campo
+            rawString(s, "provincias");
+            s.write(GraphCodec.K_COLLECTION); // no nullable: sin bitmap de presentes
+            s.write(GraphCodec.C_HASH_SET);
+            varint(s, size);
+            return s;
+        });
+    }
+
+    private static byte[] stream(Function<ByteArrayOutputStream, ByteArrayOutputStream> body) throws IOException {
+        byte[] empty = write(); // [magic][versión][FIN]
+        ByteArrayOutputStream s = new ByteArrayOutputStream();
+        s.write(empty, 0, empty.length - 1);
+        return body.apply(s).toByteArray();
+    }
+
+    private static void rawString(ByteArrayOutputStream s, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        varint(s, (long) utf8.length << 1);
+        s.write(utf8, 0, utf8.length);
+    }
+
+    private static void varint(ByteArrayOutputStream s, long v) {
+        while ((v & ~0x7FL) != 0) {
+            s.write((int) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        s.write((int) v);
+    }
+
+    private static byte[] write(Object... roots) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GraphCodec.Writer w = GraphCodec.writer(Channels.newChannel(bytes))) {
+            for (Object root : roots) w.write(root);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Todas las raíces hasta el fin de stream (null incluidos). */
+    private static List<Object> readAll(byte[] bytes, Class<?>... allowed) throws IOException {
+        List<Object> roots = new ArrayList<>();
+        try (GraphCodec.Reader r = GraphCodec.reader(Channels.newChannel(new ByteArrayInputStream(bytes)), allowed)) {
+            for (Object o = r.read(); !r.isEnd(); o = r.read()) roots.add(o);
+        }
+        return roots;
+    }
+}
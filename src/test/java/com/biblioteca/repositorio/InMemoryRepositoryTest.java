@@ -0,0 +1,171 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRepositoryTest {
+
+    @Test
+    void saveAllConIdsExplicitosYNuevosNoLosMezcla() {
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        Categoria explicita = Categoria.builder().id(1L).denominacion("Pizzas").build();
+        Categoria nueva = Categoria.builder().denominacion("Empanadas").build();
+
+        BatchResult<Categoria> result = repo.saveAll(List.of(explicita, nueva));
+
+        assertTrue(result.allOk());
+        assertEquals(2, repo.count());
+        assertEquals(1L, explicita.getId());
+        assertEquals(2L, nueva.getId());
+        assertEquals("Pizzas", repo.findById(1L).orElseThrow().getDenominacion());
+        assertEquals("Empanadas", repo.findById(2L).orElseThrow().getDenominacion());
+    }
+
+    @Test
+    void saveAllReservaLosIdsNuevosPorEncimaDelMayorExplicito() {
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        repo.save(Categoria.builder().denominacion("Bebidas").build()); // id 1
+        List<Categoria> batch = List.of(
+                Categoria.builder().denominacion("a").build(),
+                Categoria.builder().id(5L).denominacion("b").build(),
+                Categoria.builder().denominacion("c").build(),
+                Categoria.builder().id(3L).denominacion("d").build());
+
+        assertTrue(repo.saveAll(batch).allOk());
+
+        assertEquals(5, repo.count());
+        assertEquals(6L, batch.get(0).getId());
+        assertEquals(7L, batch.get(2).getId());
+        assertEquals(8L, repo.save(Categoria.builder().denominacion("e").build()).getId());
+    }
+
+    @Test
+    void saveAllGrandeConIdsExplicitosNoPierdeEntidades() {
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        List<Categoria> batch = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Uno de cada cuatro con id explícito dentro del rango que tomarían los nuevos
+            Long id = i % 4 == 0 ? (long) (i / 4 + 1) : null;
+            batch.add(Categoria.builder().id(id).denominacion("c" + i).build());
+        }
+
+        assertTrue(repo.saveAll(batch).allOk());
+
+        assertEquals(batch.size(), repo.count());
+        Set<Long> ids = new HashSet<>();
+        for (Categoria c : batch) assertTrue(ids.add(c.getId()), "id repetido " + c.getId());
+    }
+
+    @Test
+    void unListenerQueFallaNoLeOcultaLaEscrituraALosDemas() {
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+        repo.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(long id, Categoria previous, Categoria entity) {
+                throw new IllegalStateException("sin disco");
+            }
+        });
+        List<Long> seen = new ArrayList<>();
+        repo.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(long id, Categoria previous, Categoria entity) {
+                seen.add(id);
+            }
+        });
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> repo.save(Categoria.builder().denominacion("Pizzas").build()));
+
+        assertEquals("sin disco", e.getMessage());
+        assertEquals(List.of(1L), seen);
+        assertTrue(repo.findById(1L).isPresent());
+    }
+
+    @Test
+    void rangosConviertenLosLimitesAlTipoDeLaClave() {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        for (int i = 1; i <= 20; i++) {
+            repo.save(ArticuloInsumo.builder().denominacion("i" + i).precioCompra(i * 1.5).stockActual(i).build());
+        }
+        // Sin índice: Filter.range recorre; con índice: OrderedIndex.range
+        assertEquals(5, repo.query().where(Filter.between("precioCompra", 3, 10)).count());
+        repo.createOrderedIndex("precioCompra");
+        repo.createOrderedIndex("id");
+        assertEquals(5, repo.findRange("precioCompra", 3, true, 10, true).count());
+        assertEquals(5, repo.query().where(Filter.between("precioCompra", 3, 10)).count());
+        assertEquals(5, repo.findRange("id", 1, true, 5, true).count());
+
+        assertThrows(IllegalArgumentException.class, () -> repo.findRange("id", 10.5, true, null, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> repo.query().where(Filter.gt("stockActual", 10.5)).count());
+    }
+
+    @Test
+    void findPageNoCortaLaPaginacionSiSeBorraDuranteLaSeleccion() {
+        ConcurrentMapStore<Categoria> delegate = new ConcurrentMapStore<>();
+        long[] deleteAfterScan = {0L};
+        EntityStore<Categoria> store = new EntityStore<>() {
+            @Override
+            public Categoria get(long id) {
+                return delegate.get(id);
+            }
+
+            @Override
+            public Categoria put(long id, Categoria entity) {
+                return delegate.put(id, entity);
+            }
+
+            @Override
+            public Categoria remove(long id) {
+                return delegate.remove(id);
+            }
+
+            @Override
+            public int size() {
+                return delegate.size();
+            }
+
+            @Override
+            public void forEach(Consumer<? super Categoria> action) {
+                delegate.forEach(action);
+            }
+
+            @Override
+            public void forEachEntry(EntryConsumer<? super Categoria> action) {
+                delegate.forEachEntry(action);
+                // Borrado concurrente entre la selección de ids y la lectura de las entidades
+                if (deleteAfterScan[0] != 0L) delegate.remove(deleteAfterScan[0]);
+            }
+
+            @Override
+            public Stream<Categoria> values() {
+                return delegate.values();
+            }
+        };
+        InMemoryRepository<Categoria> repo = new InMemoryRepository<>(store);
+        for (long id = 1_000; id <= 5_000; id += 1_000) {
+            repo.save(Categoria.builder().id(id).denominacion("c" + id).build());
+        }
+
+        deleteAfterScan[0] = 2_000L;
+        Page<Categoria> first = repo.findPage(0L, 2);
+        assertEquals(1, first.items().size());
+        assertEquals(2_000L, first.nextAfterId());
+
+        deleteAfterScan[0] = 0L;
+        Page<Categoria> second = repo.findPage(first.nextAfterId(), 2);
+        assertEquals(List.of(3_000L, 4_000L), second.items().stream().map(Categoria::getId).toList());
+    }
+}
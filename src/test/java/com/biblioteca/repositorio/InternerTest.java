@@ -0,0 +1,132 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.ImagenArticulo;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InternerTest {
+
+    @Test
+    void porIgualdadEncuentraLaInstanciaCanonicaConOtraIgual() {
+        Interner<String> pool = Interner.strings();
+        String first = new String("Harina");
+        String copy = new String("Harina");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(copy));
+        assertSame(first, pool.intern(first));
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.hits()); // devolver la misma instancia no cuenta
+
+        // Mismo hashCode, distinto valor: la búsqueda compara por equals, no solo por hash
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        String aa = new String("Aa");
+        String bb = new String("BB");
+        assertSame(aa, pool.intern(aa));
+        assertSame(bb, pool.intern(bb));
+        assertSame(aa, pool.intern(new String("Aa")));
+        assertSame(bb, pool.intern(new String("BB")));
+        assertEquals(3, pool.size());
+    }
+
+    @Test
+    void porClaveDevuelveLaPrimeraYNoInternaClavesNull() {
+        Interner<Categoria> pool = Interner.byKey(Categoria.class, Categoria::getDenominacion);
+        Categoria pizzas = Categoria.builder().id(1L).denominacion("Pizzas").build();
+        Categoria otra = Categoria.builder().id(2L).denominacion("Pizzas").build();
+        Categoria sinNombre = Categoria.builder().id(3L).build();
+
+        assertSame(pizzas, pool.intern(pizzas));
+        assertSame(pizzas, pool.intern(otra));
+        assertSame(sinNombre, pool.intern(sinNombre));
+        assertEquals(null, pool.intern(null));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void laEntradaSeLimpiaCuandoElGcJuntaLaInstancia() throws InterruptedException {
+        Interner<String> strings = Interner.strings();
+        Interner<Categoria> categorias = Interner.byKey(Categoria.class, Categoria::getDenominacion);
+        String kept = new String("Azúcar");
+        strings.intern(kept);
+        for (int i = 0; i < 1_000; i++) {
+            strings.intern(new String("tmp-" + i));
+            categorias.intern(Categoria.builder().denominacion("cat-" + i).build());
+        }
+
+        for (int attempt = 0; attempt < 50 && (strings.size() > 1 || categorias.size() > 0); attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, strings.size());
+        assertEquals(0, categorias.size());
+        assertSame(kept, strings.intern(new String("Azúcar")));
+        // Una entrada limpiada no devuelve nada viejo: el valor nuevo pasa a ser el canónico
+        String again = new String("tmp-7");
+        assertSame(again, strings.intern(again));
+        Categoria nueva = Categoria.builder().denominacion("cat-7").build();
+        assertSame(nueva, categorias.intern(nueva));
+    }
+
+    @Test
+    void internFieldReemplazaValoresYElementosDeSet() {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        Interner<Categoria> categorias = Interner.byKey(Categoria.class, Categoria::getDenominacion);
+        Interner<ImagenArticulo> imagenes = Interner.byKey(ImagenArticulo.class, ImagenArticulo::getDenominacion);
+        repo.internField("categoria", categorias);
+        repo.internField("imagenes", imagenes);
+        repo.internField("denominacion", Interner.strings());
+
+        ArticuloInsumo harina = repo.save(insumo("Harina", "Secos", "bolsa.png", "logo.png"));
+        // ImagenArticulo compara por identidad: sin internar, el Set tendría dos "logo.png"
+        ArticuloInsumo azucar = insumo("Azúcar", "Secos", "logo.png", "logo.png");
+        ArticuloInsumo otraHarina = insumo("Harina", "Harinas", "bolsa.png");
+        repo.saveAll(List.of(azucar, otraHarina));
+
+        assertSame(harina.getCategoria(), azucar.getCategoria());
+        assertSame(harina.getDenominacion(), otraHarina.getDenominacion());
+        assertEquals(1, azucar.getImagenes().size());
+        ImagenArticulo logo = imagen(harina, "logo.png");
+        assertSame(logo, azucar.getImagenes().iterator().next());
+        assertSame(imagen(harina, "bolsa.png"), otraHarina.getImagenes().iterator().next());
+        assertTrue(harina.getImagenes().contains(logo));
+
+        // genericUpdate interna el valor nuevo del campo
+        Categoria secos = Categoria.builder().denominacion("Secos").build();
+        assertTrue(repo.genericUpdate(otraHarina.getId(), "categoria", secos));
+        assertSame(harina.getCategoria(), repo.findById(otraHarina.getId()).orElseThrow().getCategoria());
+        assertNotSame(secos, otraHarina.getCategoria());
+
+        // Sin el campo internado las escrituras siguientes no se tocan
+        assertTrue(repo.removeInternField("categoria"));
+        ArticuloInsumo suelto = repo.save(insumo("Sal", "Secos"));
+        assertNotSame(harina.getCategoria(), suelto.getCategoria());
+    }
+
+    private static ArticuloInsumo insumo(String denominacion, String categoria, String... imagenes) {
+        Set<ImagenArticulo> set = new HashSet<>();
+        for (String imagen : imagenes) set.add(ImagenArticulo.builder().denominacion(imagen).build());
+        return ArticuloInsumo.builder()
+                .denominacion(new String(denominacion))
+                .categoria(Categoria.builder().denominacion(categoria).build())
+                .imagenes(set)
+                .build();
+    }
+
+    private static ImagenArticulo imagen(ArticuloInsumo articulo, String denominacion) {
+        return articulo.getImagenes().stream()
+                .filter(i -> i.getDenominacion().equals(denominacion))
+                .findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,168 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryTest {
+
+    // Por encima de PARALLEL_SCAN_THRESHOLD: sin índice el recorrido es paralelo
+    private static final int SIZE = 60_000;
+    private static final int CATEGORIES = 20;
+
+    /** Una forma de filtro y su equivalente ingenuo sobre la entidad. */
+    private record Shape(Filter filter, Predicate<ArticuloInsumo> expected) {
+    }
+
+    @Test
+    void eqUsaElIndiceHashYSinIndiceRecorre() {
+        InMemoryRepository<ArticuloInsumo> repo = catalog();
+        Query<ArticuloInsumo> query = repo.query().where(Filter.eq("stockActual", 7));
+        long scanned = query.count();
+        assertTrue(query.explain().startsWith("recorrido paralelo"), query.explain());
+
+        repo.createIndex("stockActual");
+
+        assertTrue(query.explain().startsWith("índice hash 'stockActual'"), query.explain());
+        assertEquals(scanned, query.count());
+    }
+
+    @Test
+    void andUsaLaCondicionIndexadaMasSelectiva() {
+        InMemoryRepository<ArticuloInsumo> repo = catalog();
+        repo.createIndex("stockActual");
+        repo.createOrderedIndex("denominacion");
+        // stockActual = 7: ~600 ids; prefijo "insumo-0001": 10 ids
+        Query<ArticuloInsumo> query = repo.query()
+                .where(Filter.and(Filter.eq("stockActual", 7), Filter.prefix("denominacion", "insumo-0001")));
+
+        assertTrue(query.explain().startsWith("índice ordenado 'denominacion' (prefix, 10 ids)"), query.explain());
+        assertEquals(repo.stream().filter(a -> a.getStockActual() == 7 && a.getDenominacion().startsWith("insumo-0001"))
+                .count(), query.count());
+    }
+
+    @Test
+    void orSoloUsaIndicesSiTodasLasRamasTienenUno() {
+        InMemoryRepository<ArticuloInsumo> repo = catalog();
+        repo.createIndex("stockActual");
+        Query<ArticuloInsumo> indexed = repo.query()
+                .where(Filter.or(Filter.eq("stockActual", 1), Filter.eq("stockActual", 2)));
+        Query<ArticuloInsumo> scanned = repo.query()
+                .where(Filter.or(Filter.eq("stockActual", 1), Filter.eq("esParaElaborar", true)));
+
+        assertTrue(indexed.explain().contains(" ∪ "), indexed.explain());
+        assertTrue(scanned.explain().startsWith("recorrido"), scanned.explain());
+        assertEquals(repo.stream().filter(a -> a.getStockActual() <= 2 && a.getStockActual() >= 1).count(),
+                indexed.count());
+    }
+
+    @Test
+    void rangoOrdenadoDemasiadoAnchoCaeARecorrido() {
+        InMemoryRepository<ArticuloInsumo> repo = catalog();
+        repo.createOrderedIndex("precioCompra");
+        // precioCompra = id - 1: lt(x) devuelve exactamente x ids; el corte es count / ORDERED_SCAN_RATIO
+        long limit = SIZE / Query.ORDERED_SCAN_RATIO;
+        Query<ArticuloInsumo> narrow = repo.query().where(Filter.lt("precioCompra", limit - 1));
+        Query<ArticuloInsumo> wide = repo.query().where(Filter.lt("precioCompra", limit));
+
+        assertTrue(narrow.explain().startsWith("índice ordenado 'precioCompra'"), narrow.explain());
+        assertTrue(wide.explain().startsWith("recorrido"), wide.explain());
+        assertEquals(limit - 1, narrow.count());
+        assertEquals(limit, wide.count());
+    }
+
+    @Test
+    void recorridoParaleloCorreEnElPoolIndicado() {
+        InMemoryRepository<ArticuloInsumo> repo = catalog();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Query<ArticuloInsumo> query = repo.query().where(Filter.ge("stockActual", 50)).parallel(pool);
+
+            Set<Thread> threads = Set.copyOf(query.map(a -> Thread.currentThread()));
+
+            assertFalse(threads.isEmpty());
+            for (Thread t : threads) {
+                assertTrue(t instanceof ForkJoinWorkerThread w && w.getPool() == pool, t.getName());
+            }
+            assertTrue(query.explain().startsWith("recorrido paralelo"), query.explain());
+            assertTrue(query.sequential().explain().startsWith("recorrido secuencial"), query.explain());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void nueveFormasDanLoMismoConIndiceRecorridoYStream() {
+        InMemoryRepository<ArticuloInsumo> repo = catalog();
+        List<Shape> shapes = List.of(
+                new Shape(Filter.eq("stockActual", 7), a -> a.getStockActual() == 7),
+                new Shape(Filter.in("stockActual", 1, 2, 3), a -> a.getStockActual() >= 1 && a.getStockActual() <= 3),
+                new Shape(Filter.between("precioCompra", 100, 400),
+                        a -> a.getPrecioCompra() >= 100 && a.getPrecioCompra() <= 400),
+                new Shape(Filter.prefix("denominacion", "insumo-001"), a -> a.getDenominacion().startsWith("insumo-001")),
+                new Shape(Filter.eq("categoria.denominacion", "cat-3"),
+                        a -> a.getCategoria().getDenominacion().equals("cat-3")),
+                new Shape(Filter.and(Filter.eq("stockActual", 7), Filter.lt("precioCompra", 30_000)),
+                        a -> a.getStockActual() == 7 && a.getPrecioCompra() < 30_000),
+                new Shape(Filter.and(Filter.eq("esParaElaborar", true), Filter.between("precioCompra", 1_000, 1_100)),
+                        a -> a.getEsParaElaborar() && a.getPrecioCompra() >= 1_000 && a.getPrecioCompra() <= 1_100),
+                new Shape(Filter.or(Filter.eq("stockActual", 1), Filter.prefix("denominacion", "insumo-002")),
+                        a -> a.getStockActual() == 1 || a.getDenominacion().startsWith("insumo-002")),
+                new Shape(Filter.or(Filter.in("stockActual", 4, 5), Filter.ge("precioCompra", SIZE - 50)),
+                        a -> a.getStockActual() == 4 || a.getStockActual() == 5 || a.getPrecioCompra() >= SIZE - 50));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            checkShapes(repo, shapes, pool);
+            repo.createIndex("stockActual");
+            repo.createOrderedIndex("precioCompra");
+            repo.createOrderedIndex("denominacion");
+            checkShapes(repo, shapes, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkShapes(InMemoryRepository<ArticuloInsumo> repo, List<Shape> shapes, ForkJoinPool pool) {
+        for (Shape shape : shapes) {
+            Set<Long> expected = repo.stream().filter(shape.expected()).map(ArticuloInsumo::getId)
+                    .collect(Collectors.toSet());
+            String plan = repo.query().where(shape.filter()).explain();
+            assertFalse(expected.isEmpty(), shape.filter().toString());
+            assertEquals(expected, ids(repo.query().where(shape.filter()).sequential()), plan);
+            assertEquals(expected, ids(repo.query().where(shape.filter()).parallel(pool)), plan);
+            assertEquals(expected.size(), repo.query().where(shape.filter()).count(), plan);
+        }
+    }
+
+    private static Set<Long> ids(Query<ArticuloInsumo> query) {
+        return Set.copyOf(query.map(ArticuloInsumo::getId));
+    }
+
+    /** SIZE insumos: id i, precioCompra i - 1, stockActual (i - 1) % 97, 20 categorías compartidas. */
+    private static InMemoryRepository<ArticuloInsumo> catalog() {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        Categoria[] categorias = new Categoria[CATEGORIES];
+        for (int c = 0; c < CATEGORIES; c++) categorias[c] = Categoria.builder().denominacion("cat-" + c).build();
+        for (int i = 0; i < SIZE; i++) {
+            repo.save(ArticuloInsumo.builder()
+                    .denominacion(String.format("insumo-%05d", i))
+                    .precioCompra((double) i)
+                    .stockActual(i % 97)
+                    .esParaElaborar(i % 3 == 0)
+                    .categoria(categorias[i % CATEGORIES])
+                    .build());
+        }
+        return repo;
+    }
+}
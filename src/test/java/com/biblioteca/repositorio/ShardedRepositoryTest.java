@@ -0,0 +1,113 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedRepositoryTest {
+
+    private final List<ShardServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        servers.forEach(ShardServer::close);
+    }
+
+    @Test
+    void saveAllConIdsExplicitosYNuevosEnElMismoShard() throws IOException {
+        try (ShardedRepository<Categoria> repo = connect(1, 1)) {
+            Categoria explicita = Categoria.builder().id(1L).denominacion("Pizzas").build();
+            Categoria nueva = Categoria.builder().denominacion("Empanadas").build();
+
+            BatchResult<Categoria> result = repo.saveAll(List.of(explicita, nueva));
+
+            assertTrue(result.allOk());
+            assertEquals(2, repo.count());
+            assertEquals("Pizzas", repo.findById(1L).orElseThrow().getDenominacion());
+            assertEquals("Empanadas", repo.findById(result.items().get(1).id()).orElseThrow().getDenominacion());
+        }
+    }
+
+    @Test
+    void saveAllIntercaladoNoRepiteIds() throws IOException {
+        try (ShardedRepository<Categoria> repo = connect(2, 1)) {
+            List<Categoria> batch = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Long id = i % 4 == 0 ? (long) (i / 4 + 1) : null; // ids 1..10, de los dos shards
+                batch.add(Categoria.builder().id(id).denominacion("c" + i).build());
+            }
+
+            assertTrue(repo.saveAll(batch).allOk());
+
+            assertEquals(batch.size(), repo.count());
+        }
+    }
+
+    @Test
+    void unaConexionRotaSeReabre() throws Exception {
+        try (ShardedRepository<Categoria> repo = connect(1, 1)) {
+            repo.save(Categoria.builder().denominacion("Bebidas").build());
+            channelOf(repo).close(); // corte de red simulado
+
+            assertThrows(UncheckedIOException.class, () -> repo.findById(1L));
+            // La siguiente operación reabre la conexión en vez de dejar el shard inutilizable
+            assertEquals("Bebidas", repo.findById(1L).orElseThrow().getDenominacion());
+            assertEquals(1, repo.count());
+        }
+    }
+
+    @Test
+    void unaConexionConBasuraSeCuentaYElShardSigueAtendiendo() throws Exception {
+        try (ShardedRepository<Categoria> repo = connect(1, 1)) {
+            ShardServer server = servers.get(0);
+            assertEquals(0, server.droppedConnections());
+            try (SocketChannel garbage = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.port()))) {
+                garbage.write(ByteBuffer.wrap("esto no es GraphCodec".getBytes(StandardCharsets.UTF_8)));
+                // Abierta hasta que el shard la corte: un cierre del cliente no es un error
+                for (int i = 0; i < 500 && server.droppedConnections() == 0; i++) Thread.sleep(10);
+            }
+
+            assertEquals(1, server.droppedConnections());
+            assertTrue(server.lastConnectionFailure() instanceof IOException, String.valueOf(server.lastConnectionFailure()));
+            repo.save(Categoria.builder().denominacion("Bebidas").build());
+            assertEquals(1, repo.count());
+        }
+    }
+
+    private ShardedRepository<Categoria> connect(int shards, int connections) throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            ShardServer server = ShardServer.start(0, i, shards, Categoria.class);
+            servers.add(server);
+            addresses.add(new InetSocketAddress("127.0.0.1", server.port()));
+        }
+        return ShardedRepository.builder(Categoria.class).shards(addresses).connectionsPerShard(connections).connect();
+    }
+
+    private static SocketChannel channelOf(ShardedRepository<?> repo) throws ReflectiveOperationException {
+        Field shardsField = ShardedRepository.class.getDeclaredField("shards");
+        shardsField.setAccessible(true);
+        Object shard = ((Object[]) shardsField.get(repo))[0];
+        Field connections = shard.getClass().getDeclaredField("connections");
+        connections.setAccessible(true);
+        Object connection = ((AtomicReferenceArray<?>) connections.get(shard)).get(0);
+        Field channel = connection.getClass().getDeclaredField("channel");
+        channel.setAccessible(true);
+        return (SocketChannel) channel.get(connection);
+    }
+}
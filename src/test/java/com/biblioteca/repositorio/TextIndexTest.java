@@ -0,0 +1,194 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.Articulo;
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextIndexTest {
+
+    // Más de un bloque de documentos y palabras con listas largas (> LONG_TERM)
+    private static final int MENU_SIZE = 20_000;
+
+    @Test
+    void normalizaAcentosMayusculasYPalabrasVacias() {
+        assertEquals(List.of("noquis", "cordoba", "anana"), TextIndex.tokens("ÑOQUIS de Córdoba con Ananá"));
+
+        InMemoryRepository<ArticuloManufacturado> repo = new InMemoryRepository<>();
+        ArticuloManufacturado pizza = repo.save(plato("Pizza con Ananá", "Receta de Córdoba"));
+        TextIndex<Articulo> index = index(repo);
+
+        assertSame(pizza, only(index.search("anana", 10)));
+        assertSame(pizza, only(index.search("ANANÁ", 10)));
+        assertSame(pizza, only(index.search("cordoba", 10)));
+        assertTrue(index.search("de con", 10).isEmpty());
+    }
+
+    @Test
+    void prefijoYAproximadoCuandoNoHayTerminoExacto() {
+        InMemoryRepository<ArticuloManufacturado> repo = new InMemoryRepository<>();
+        ArticuloManufacturado hawaiana = repo.save(plato("Pizza Hawaiana", "Con jamón y ananá"));
+        ArticuloManufacturado hawai = repo.save(plato("Hawai", "Con ananá"));
+        ArticuloManufacturado muzza = repo.save(plato("Pizza de Muzzarella", "Con orégano"));
+        TextIndex<Articulo> index = index(repo);
+
+        // "hawai" existe: solo el término exacto, sin expandir a "hawaiana"
+        assertSame(hawai, only(index.search("hawai", 10)));
+        assertSame(hawaiana, only(index.search("hawaia", 10)));
+        // "muzarela" -> "muzzarella": 2 ediciones, admitidas desde 6 letras
+        assertSame(muzza, only(index.search("muzarela", 10)));
+        // Con dígitos no hay aproximados
+        assertTrue(index.search("muzarela1", 10).isEmpty());
+        // Exacto puntúa más que prefijo
+        List<TextIndex.Hit<Articulo>> hits = index.search("pizza hawai", 10);
+        assertSame(hawai, hits.get(0).entity());
+    }
+
+    @Test
+    void topKConSaltoDeBloquesCoincideConElRankingExhaustivo() {
+        InMemoryRepository<ArticuloManufacturado> repo = new InMemoryRepository<>();
+        repo.saveAll(menu(MENU_SIZE, new Random(42)));
+        TextIndex<Articulo> index = index(repo);
+        List<String> queries = List.of("pizza", "hawai", "anana", "muzarela", "ñoquis calabaza", "jalapenos",
+                "empanada carne cuchillo", "pizza grande", "tarta", "jamón y queso", "cordob", "1234",
+                "gratinar horno", "postres");
+
+        for (String q : queries) {
+            // Con limit = todos los documentos el heap nunca se llena: no se saltea ningún bloque
+            List<TextIndex.Hit<Articulo>> exhaustive = index.search(q, index.size());
+            List<TextIndex.Hit<Articulo>> top = index.search(q, 10);
+
+            assertTrue(!top.isEmpty(), q);
+            assertEquals(exhaustive.subList(0, Math.min(10, exhaustive.size())), top, q);
+        }
+    }
+
+    @Test
+    void borradosNoAparecenYLaCompactacionConservaLosVivos() {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        int n = 10_000;
+        List<ArticuloInsumo> insumos = new ArrayList<>();
+        for (int i = 0; i < n; i++) insumos.add(ArticuloInsumo.builder().denominacion("Harina " + i).build());
+        repo.saveAll(insumos);
+        TextIndex<Articulo> index = index(repo);
+
+        // 3000 muertos: por debajo de COMPACT_MIN_DEAD, quedan como tumbas en las listas
+        for (long id = 1; id <= 3_000; id++) repo.genericDelete(id);
+        assertEquals(n - 3_000, index.size());
+        assertLiveIds(index.search("harina", n), 3_001, n);
+
+        // 6000 muertos contra 4000 vivos: compacta y renumera
+        for (long id = 3_001; id <= 6_000; id++) repo.genericDelete(id);
+        assertEquals(n - 6_000, index.size());
+        assertLiveIds(index.search("harina", n), 6_001, n);
+        assertTrue(index.search("2999", 10).isEmpty());
+
+        // Después de renumerar, los reemplazos y altas siguen llegando al documento correcto
+        ArticuloInsumo reemplazo = ArticuloInsumo.builder().id(7_000L).denominacion("Azúcar").build();
+        repo.save(reemplazo);
+        ArticuloInsumo nuevo = repo.save(ArticuloInsumo.builder().denominacion("Harina 0000").build());
+        assertSame(reemplazo, only(index.search("azucar", 10)));
+        assertTrue(index.search("6999", 10).isEmpty());
+        assertSame(nuevo, only(index.search("0000", 10)));
+        assertEquals(n - 6_000 + 1, index.size());
+    }
+
+    @Test
+    void sigueLosCambiosDelRepositorio() {
+        InMemoryRepository<ArticuloManufacturado> repo = new InMemoryRepository<>();
+        TextIndex<Articulo> index = index(repo);
+        ArticuloManufacturado pizza = repo.save(plato("Pizza Napolitana", "Con tomate"));
+        assertSame(pizza, only(index.search("napolitana", 10)));
+
+        // Reemplazo por save: el texto viejo deja de responder
+        ArticuloManufacturado fugazzeta = plato("Pizza Fugazzeta", "Con cebolla");
+        fugazzeta.setId(pizza.getId());
+        repo.save(fugazzeta);
+        assertTrue(index.search("napolitana", 10).isEmpty());
+        assertEquals(1, index.search("fugazzeta", 10).size());
+
+        // Campo indexado por genericUpdate; uno que no se indexa no reindexa ni rompe nada
+        assertTrue(repo.genericUpdate(pizza.getId(), "descripcion", "Con rúcula"));
+        assertTrue(repo.genericUpdate(pizza.getId(), "precioVenta", 100.0));
+        assertEquals(1, index.search("rucula", 10).size());
+        assertTrue(index.search("cebolla", 10).isEmpty());
+
+        // Lote, borrado y detach
+        repo.saveAll(List.of(plato("Empanada Salteña", "Con carne"), plato("Empanada Árabe", "Con carne")));
+        assertEquals(2, index.search("empanada", 10).size());
+        repo.genericDelete(pizza.getId());
+        assertTrue(index.search("fugazzeta", 10).isEmpty());
+        assertEquals(2, index.size());
+        assertTrue(index.detach(repo));
+        assertEquals(0, index.size());
+        repo.save(plato("Pizza Especial", "Con morrón"));
+        assertTrue(index.search("especial", 10).isEmpty());
+    }
+
+    private static TextIndex<Articulo> index(InMemoryRepository<? extends Articulo> repo) {
+        TextIndex<Articulo> index = TextIndex.builder(Articulo.class)
+                .field("denominacion", 3)
+                .field("categoria.denominacion", 2)
+                .field("descripcion", 1)
+                .field("preparacion", 0.5)
+                .build();
+        index.attach(repo);
+        return index;
+    }
+
+    private static Articulo only(List<TextIndex.Hit<Articulo>> hits) {
+        assertEquals(1, hits.size(), hits.toString());
+        return hits.get(0).entity();
+    }
+
+    /** Los hits son exactamente los ids from..to. */
+    private static void assertLiveIds(List<TextIndex.Hit<Articulo>> hits, long from, long to) {
+        assertEquals(to - from + 1, hits.size());
+        for (TextIndex.Hit<Articulo> hit : hits) {
+            long id = hit.entity().getId();
+            assertTrue(id >= from && id <= to, "id borrado en los resultados: " + id);
+        }
+    }
+
+    private static ArticuloManufacturado plato(String denominacion, String descripcion) {
+        return ArticuloManufacturado.builder().denominacion(denominacion).descripcion(descripcion).build();
+    }
+
+    /** Carta sintética como DatasetGenerator.menu: platos con acentos, ingredientes y pasos. */
+    private static List<ArticuloManufacturado> menu(int n, Random random) {
+        String[][] platos = {
+                {"Pizzas", "Pizza"}, {"Empanadas", "Empanada"}, {"Pastas", "Ñoquis"}, {"Postres", "Tarta"}};
+        String[] variantes = {
+                "Hawaiana", "Napolitana", "de Muzzarella", "de Carne Cortada a Cuchillo", "de Jamón y Queso",
+                "con Ananá", "Cordobesa", "con Jalapeños", "de Calabaza"};
+        String[] tamanios = {"Chica", "Mediana", "Grande"};
+        String[] ingredientes = {"muzzarella", "tomate", "jamón", "ananá", "cebolla", "calabaza", "queso"};
+        String[] pasos = {"Estirar la masa", "Hornear a 250 grados", "Gratinar", "Servir caliente"};
+        Map<String, Categoria> categorias = new HashMap<>();
+        List<ArticuloManufacturado> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String[] plato = platos[random.nextInt(platos.length)];
+            String descripcion = "Con " + ingredientes[random.nextInt(ingredientes.length)] + " y "
+                    + ingredientes[random.nextInt(ingredientes.length)];
+            result.add(ArticuloManufacturado.builder()
+                    .denominacion(plato[1] + " " + variantes[random.nextInt(variantes.length)] + " "
+                            + tamanios[random.nextInt(tamanios.length)] + " " + i)
+                    .descripcion(descripcion)
+                    .preparacion(pasos[random.nextInt(pasos.length)] + ".")
+                    .categoria(categorias.computeIfAbsent(plato[0], d -> Categoria.builder().denominacion(d).build()))
+                    .build());
+        }
+        return result;
+    }
+}
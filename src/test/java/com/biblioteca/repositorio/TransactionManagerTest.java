@@ -0,0 +1,134 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.Categoria;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionManagerTest {
+
+    private final TransactionManager manager = new TransactionManager();
+    private final InMemoryRepository<Categoria> repo = new InMemoryRepository<>();
+
+    @Test
+    void cadaTransaccionLeeSuSnapshot() {
+        long id = repo.save(categoria("Pizzas")).getId();
+
+        try (Transaction reader = manager.begin()) {
+            try (Transaction writer = manager.begin()) {
+                writer.update(repo, id, c -> c.setDenominacion("Pizzas al molde"));
+                writer.save(repo, categoria("Empanadas"));
+                writer.commit();
+            }
+
+            assertEquals("Pizzas", reader.findById(repo, id).orElseThrow().getDenominacion());
+            assertEquals(1, reader.findAll(repo).size());
+            try (Transaction later = manager.begin()) {
+                assertEquals("Pizzas al molde", later.findById(repo, id).orElseThrow().getDenominacion());
+                assertEquals(2, later.findAll(repo).size());
+            }
+        }
+        assertEquals(0, manager.versionChains());
+    }
+
+    @Test
+    void ganaElPrimeroQueConfirma() {
+        long id = repo.save(categoria("Pizzas")).getId();
+
+        try (Transaction first = manager.begin(); Transaction second = manager.begin()) {
+            first.update(repo, id, c -> c.setDenominacion("primera"));
+            second.update(repo, id, c -> c.setDenominacion("segunda"));
+            first.commit();
+            assertThrows(TransactionConflictException.class, second::commit);
+            assertFalse(second.isActive());
+        }
+        assertEquals("primera", repo.findById(id).orElseThrow().getDenominacion());
+    }
+
+    @Test
+    void rollbackNoAplicaNada() {
+        long id = repo.save(categoria("Pizzas")).getId();
+
+        try (Transaction tx = manager.begin()) {
+            tx.update(repo, id, c -> c.setDenominacion("cambiada"));
+            tx.delete(repo, id);
+            tx.save(repo, categoria("Empanadas"));
+            assertTrue(tx.findById(repo, id).isEmpty());
+        } // close sin commit
+
+        assertEquals(1, repo.count());
+        assertEquals("Pizzas", repo.findById(id).orElseThrow().getDenominacion());
+    }
+
+    @Test
+    void commitQueFallaNoAvisaALosListeners() {
+        repo.createUniqueIndex("denominacion");
+        long pizzas = repo.save(categoria("Pizzas")).getId();
+        repo.save(categoria("Empanadas"));
+        List<String> events = new ArrayList<>();
+        repo.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(long id, Categoria previous, Categoria entity) {
+                events.add("saved " + id + " " + entity.getDenominacion());
+            }
+
+            @Override
+            public void onDeleted(long id, Categoria entity) {
+                events.add("deleted " + id);
+            }
+        });
+
+        try (Transaction tx = manager.begin()) {
+            tx.update(repo, pizzas, c -> c.setDenominacion("Pizzas al molde"));
+            tx.save(repo, categoria("Empanadas")); // viola el índice único: se deshace todo
+            assertThrows(IllegalStateException.class, tx::commit);
+        }
+
+        assertEquals(List.of(), events);
+        assertEquals("Pizzas", repo.findById(pizzas).orElseThrow().getDenominacion());
+        assertEquals(2, repo.count());
+
+        try (Transaction tx = manager.begin()) {
+            tx.update(repo, pizzas, c -> c.setDenominacion("Pizzas al molde"));
+            tx.commit();
+        }
+        assertEquals(List.of("saved " + pizzas + " Pizzas al molde"), events);
+    }
+
+    @Test
+    void noRetieneRepositoriosSinVersiones() throws InterruptedException {
+        WeakReference<InMemoryRepository<Categoria>> ref = commitEnRepositorioTemporal();
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        assertEquals(0, manager.versionChains());
+    }
+
+    private WeakReference<InMemoryRepository<Categoria>> commitEnRepositorioTemporal() {
+        InMemoryRepository<Categoria> temporal = new InMemoryRepository<>();
+        long id = temporal.save(categoria("Pizzas")).getId();
+        try (Transaction reader = manager.begin()) { // retiene la versión vieja hasta cerrarse
+            try (Transaction tx = manager.begin()) {
+                tx.update(temporal, id, c -> c.setDenominacion("Pizzas al molde"));
+                tx.commit();
+            }
+            assertEquals(1, manager.versionChains());
+            assertEquals("Pizzas", reader.findById(temporal, id).orElseThrow().getDenominacion());
+        }
+        return new WeakReference<>(temporal);
+    }
+
+    private static Categoria categoria(String denominacion) {
+        return Categoria.builder().denominacion(denominacion).build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.stock.StockColumns;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersioningTest {
+
+    private static final int THREADS = 8;
+    private static final int INCREMENTS_PER_THREAD = 2_000;
+    private static final int READERS = 2;
+    private static final int PUBLISHED_UPDATES = 500;
+
+    @Test
+    void updateConcurrenteNoPierdeIncrementos() throws Exception {
+        InMemoryRepository<ArticuloInsumo> repo = versioned();
+        long id = repo.save(insumo(0)).getId();
+        RetryPolicy policy = RetryPolicy.backoff(1_000, Duration.ofNanos(1_000), Duration.ofMillis(1));
+
+        runAll(THREADS, () -> {
+            for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                assertTrue(repo.update(id, a -> a.setStockActual(a.getStockActual() + 1), policy).isPresent());
+            }
+        });
+
+        assertEquals(THREADS * INCREMENTS_PER_THREAD, repo.findById(id).orElseThrow().getStockActual());
+    }
+
+    @Test
+    void lectoresNuncaVenUnaActualizacionAMedias() throws Exception {
+        InMemoryRepository<ArticuloInsumo> repo = versioned();
+        ArticuloInsumo first = repo.save(insumo(0));
+        long id = first.getId();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong torn = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+
+        // Invariante: stockMinimo == stockMaximo en toda versión publicada
+        Thread writer = new Thread(() -> {
+            try {
+                for (int n = 1; n <= PUBLISHED_UPDATES; n++) {
+                    int value = n;
+                    repo.update(id, a -> {
+                        a.setStockMinimo(value);
+                        Thread.yield(); // deja leer entre los dos campos
+                        a.setStockMaximo(value);
+                    }, RetryPolicy.attempts(10));
+                }
+            } finally {
+                writing.set(false);
+            }
+        });
+        writer.start();
+        runAll(READERS, () -> {
+            while (writing.get()) {
+                ArticuloInsumo a = repo.findById(id).orElseThrow();
+                if (!a.getStockMinimo().equals(a.getStockMaximo())) torn.incrementAndGet();
+                reads.incrementAndGet();
+            }
+        });
+        writer.join();
+
+        assertTrue(reads.get() > 0);
+        assertEquals(0, torn.get(), "lecturas a medias de " + reads.get());
+        // La instancia leída al principio no la modificó ninguna actualización
+        assertEquals(0, first.getStockMinimo());
+        assertEquals(0, first.getStockMaximo());
+        assertEquals(PUBLISHED_UPDATES, repo.findById(id).orElseThrow().getStockMaximo());
+    }
+
+    @Test
+    void updateIfVersionConVersionVieja() {
+        InMemoryRepository<ArticuloInsumo> repo = versioned();
+        long id = repo.save(insumo(5)).getId();
+        long version = repo.findVersioned(id).orElseThrow().version();
+
+        assertTrue(repo.updateIfVersion(id, version, a -> a.setStockActual(6)).isPresent());
+        assertFalse(repo.updateIfVersion(id, version, a -> a.setStockActual(7)).isPresent());
+        assertEquals(6, repo.findById(id).orElseThrow().getStockActual());
+    }
+
+    @Test
+    void rechazaEntidadesQueNoSePuedenCopiar() throws Exception {
+        InMemoryRepository<ArticuloInsumo> repo = versioned();
+        try (StockColumns columns = StockColumns.offHeap()) {
+            ArticuloInsumo insumo = insumo(5);
+            insumo.setId(1L);
+            ArticuloInsumo columnar = columns.attach(insumo);
+
+            assertThrows(IllegalArgumentException.class, () -> repo.save(columnar));
+            assertFalse(repo.saveAll(List.of(columnar)).allOk());
+            assertEquals(0, repo.count());
+        }
+    }
+
+    private static InMemoryRepository<ArticuloInsumo> versioned() {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        repo.enableVersioning();
+        return repo;
+    }
+
+    private static ArticuloInsumo insumo(int stock) {
+        return ArticuloInsumo.builder().denominacion("Harina").precioCompra(10.0)
+                .stockActual(stock).stockMinimo(0).stockMaximo(0).build();
+    }
+
+    /** Corre task en n hilos y relanza el primer error. */
+    private static void runAll(int n, Runnable task) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Thread t = new Thread(task);
+            t.setUncaughtExceptionHandler((th, e) -> {
+                synchronized (errors) {
+                    errors.add(e);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) t.join();
+        if (!errors.isEmpty()) throw new AssertionError("falló un hilo", errors.get(0));
+    }
+}
@@ -0,0 +1,146 @@
+package com.biblioteca.repositorio;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.Categoria;
+import com.biblioteca.traza2.entidades.ImagenArticulo;
+import com.biblioteca.traza2.entidades.UnidadMedida;
+import com.biblioteca.traza2.stock.ArticuloInsumoColumnar;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+
+    private static final EntityCodec<ArticuloInsumo> CODEC = GraphCodec.entityCodec(ArticuloInsumo.class,
+            Categoria.class, UnidadMedida.class, ImagenArticulo.class);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recuperaIdsYRelaciones() throws IOException {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        try (WriteAheadLog<ArticuloInsumo> wal = WriteAheadLog.open(dir, repo, CODEC, FsyncPolicy.everyCommit())) {
+            Categoria categoria = Categoria.builder().id(7L).denominacion("Lácteos").build();
+            repo.save(insumo("Leche", categoria));
+            repo.save(insumo("Queso", categoria));
+        }
+
+        InMemoryRepository<ArticuloInsumo> recovered = new InMemoryRepository<>();
+        try (WriteAheadLog<ArticuloInsumo> wal = WriteAheadLog.open(dir, recovered, CODEC, FsyncPolicy.everyCommit())) {
+            assertEquals(2, recovered.count());
+            ArticuloInsumo leche = recovered.findById(1L).orElseThrow();
+            assertEquals(1L, leche.getId());
+            assertEquals("Leche", leche.getDenominacion());
+            assertNotNull(leche.getCategoria());
+            assertEquals(7L, leche.getCategoria().getId());
+            assertEquals("Lácteos", leche.getCategoria().getDenominacion());
+
+            // Volver a guardar una entidad recuperada la actualiza, no crea otra
+            leche.setStockActual(99);
+            recovered.save(leche);
+            assertEquals(2, recovered.count());
+            assertEquals(3L, recovered.save(insumo("Manteca", leche.getCategoria())).getId());
+        }
+    }
+
+    @Test
+    void recuperaDesdeSnapshotYLog() throws IOException {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        Categoria categoria = Categoria.builder().denominacion("Harinas").build();
+        try (WriteAheadLog<ArticuloInsumo> wal = WriteAheadLog.open(dir, repo, CODEC, FsyncPolicy.everyCommit())) {
+            repo.save(insumo("Harina 000", categoria));
+            repo.save(insumo("Harina 0000", categoria));
+            wal.snapshot();
+            repo.save(insumo("Levadura", categoria));
+            repo.genericDelete(1L);
+        }
+
+        InMemoryRepository<ArticuloInsumo> recovered = new InMemoryRepository<>();
+        try (WriteAheadLog<ArticuloInsumo> wal = WriteAheadLog.open(dir, recovered, CODEC, FsyncPolicy.everyCommit())) {
+            assertEquals(2, recovered.count());
+            assertFalse(recovered.findById(1L).isPresent());
+            assertEquals("Harinas", recovered.findById(3L).orElseThrow().getCategoria().getDenominacion());
+            assertEquals(4L, recovered.save(insumo("Sal", categoria)).getId());
+        }
+    }
+
+    @Test
+    void errorDeEscrituraDejaElLogFallido() throws Exception {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>();
+        Categoria categoria = Categoria.builder().denominacion("Aceites").build();
+        WriteAheadLog<ArticuloInsumo> wal = WriteAheadLog.open(dir, repo, CODEC, FsyncPolicy.everyCommit());
+        repo.save(insumo("Oliva", categoria));
+
+        // Simula un disco que falla: el canal del segmento deja de aceptar escrituras
+        Field channel = WriteAheadLog.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(wal)).close();
+
+        assertThrows(UncheckedIOException.class, () -> repo.save(insumo("Girasol", categoria)));
+        assertNotNull(wal.failure());
+        // Las escrituras siguientes no se dan por durables en silencio
+        assertThrows(UncheckedIOException.class, () -> repo.save(insumo("Maíz", categoria)));
+        assertThrows(IOException.class, wal::close);
+
+        InMemoryRepository<ArticuloInsumo> recovered = new InMemoryRepository<>();
+        try (WriteAheadLog<ArticuloInsumo> reopened = WriteAheadLog.open(dir, recovered, CODEC, FsyncPolicy.everyCommit())) {
+            assertEquals("Oliva", recovered.findById(1L).orElseThrow().getDenominacion());
+        }
+    }
+
+    @Test
+    void rechazaRepositoriosAcotados() {
+        InMemoryRepository<ArticuloInsumo> repo = new InMemoryRepository<>(
+                BoundedStore.<ArticuloInsumo>maximumSize(10).build());
+
+        assertThrows(IllegalStateException.class,
+                () -> WriteAheadLog.open(dir, repo, CODEC, FsyncPolicy.everyCommit()));
+    }
+
+    @Test
+    void codecRechazaClasesSinConstructorSinArgumentos() {
+        assertThrows(IllegalArgumentException.class,
+                () -> GraphCodec.entityCodec(ArticuloInsumoColumnar.class, Categoria.class));
+        assertThrows(IllegalArgumentException.class,
+                () -> GraphCodec.reader(Channels.newChannel(new ByteArrayInputStream(new byte[0])),
+                        ArticuloInsumoColumnar.class));
+    }
+
+    @Test
+    void codecEscalarRechazaRelaciones() {
+        assertThrows(IllegalArgumentException.class, () -> new ScalarPropertyCodec<>(ArticuloInsumo.class));
+    }
+
+    @Test
+    void codecEscalarRecuperaElId() throws IOException {
+        InMemoryRepository<UnidadMedida> repo = new InMemoryRepository<>();
+        ScalarPropertyCodec<UnidadMedida> codec = new ScalarPropertyCodec<>(UnidadMedida.class);
+        try (WriteAheadLog<UnidadMedida> wal = WriteAheadLog.open(dir, repo, codec, FsyncPolicy.everyCommit())) {
+            repo.save(UnidadMedida.builder().denominacion("Kilogramos").build());
+        }
+        InMemoryRepository<UnidadMedida> recovered = new InMemoryRepository<>();
+        try (WriteAheadLog<UnidadMedida> wal = WriteAheadLog.open(dir, recovered, codec, FsyncPolicy.everyCommit())) {
+            UnidadMedida kg = recovered.findById(1L).orElseThrow();
+            assertEquals(1L, kg.getId());
+            assertEquals("Kilogramos", kg.getDenominacion());
+        }
+    }
+
+    private static ArticuloInsumo insumo(String denominacion, Categoria categoria) {
+        return ArticuloInsumo.builder().denominacion(denominacion).precioCompra(10.0).stockActual(5)
+                .categoria(categoria).build();
+    }
+}
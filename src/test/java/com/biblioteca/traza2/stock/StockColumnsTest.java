@@ -0,0 +1,40 @@
+package com.biblioteca.traza2.stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StockColumnsTest {
+
+    @Test
+    void idAltoAisladoNoReservaLosBloquesIntermedios() throws IOException {
+        try (StockColumns columns = StockColumns.offHeap()) {
+            // Con bloques reservados de corrido serían ~23 GB fuera del heap
+            columns.put(1L, 2, 5, 10, 1.5);
+            columns.put(1_000_000_000L, 1, 3, 10, 2.0);
+
+            assertEquals(1, columns.getStockActual(1_000_000_000L));
+            assertFalse(columns.contains(500_000_000L));
+            List<Long> below = new ArrayList<>();
+            columns.forEachBelowMinimum(below::add);
+            assertEquals(List.of(1L, 1_000_000_000L), below);
+            assertEquals(2 * 1.5 + 2.0, columns.totalStockValue());
+        }
+    }
+
+    @Test
+    void rechazaIdsFueraDeRango() throws IOException {
+        try (StockColumns columns = StockColumns.offHeap()) {
+            assertThrows(IllegalArgumentException.class, () -> columns.put(-1L, 1, 1, 1, 1.0));
+            assertThrows(IllegalArgumentException.class, () -> columns.put(StockColumns.MAX_ID + 1, 1, 1, 1, 1.0));
+            assertThrows(IllegalArgumentException.class, () -> columns.put(1L << 47, 1, 1, 1, 1.0));
+            assertFalse(columns.contains(Long.MAX_VALUE >>> 1));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.biblioteca.traza2.stock;
+
+import com.biblioteca.traza2.entidades.ArticuloInsumo;
+import com.biblioteca.traza2.entidades.ArticuloManufacturado;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StockReservationEngineTest {
+
+    @Test
+    void rechazaCantidadesNoPositivasSinTocarElStock() {
+        StockColumns columns = StockColumns.offHeap();
+        StockReservationEngine engine = new StockReservationEngine(columns);
+        ArticuloInsumo harina = insumo(1L, "Harina", 100, columns);
+        ArticuloInsumo queso = insumo(2L, "Queso", 100, columns);
+
+        ArticuloManufacturado negativa = ArticuloManufacturado.builder().denominacion("Pizza").build();
+        negativa.addDetalle(harina, 2);
+        negativa.addDetalle(queso, -5);
+        ArticuloManufacturado cero = ArticuloManufacturado.builder().denominacion("Fugazza").build();
+        cero.addDetalle(harina, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> engine.reserve(negativa, 1));
+        assertThrows(IllegalArgumentException.class, () -> engine.tryReserve(cero, 3));
+        assertEquals(100, columns.getStockActual(1L));
+        assertEquals(100, columns.getStockActual(2L));
+    }
+
+    @Test
+    void reservaYCancelaTodoONada() {
+        StockColumns columns = StockColumns.offHeap();
+        StockReservationEngine engine = new StockReservationEngine(columns);
+        ArticuloManufacturado pizza = ArticuloManufacturado.builder().denominacion("Pizza").build();
+        pizza.addDetalle(insumo(1L, "Harina", 10, columns), 3);
+        pizza.addDetalle(insumo(2L, "Queso", 5, columns), 2);
+
+        StockReservationEngine.Reservation reservation = engine.reserve(pizza, 2);
+        assertEquals(4, columns.getStockActual(1L));
+        assertEquals(1, columns.getStockActual(2L));
+
+        // Al queso no le alcanza: la harina tampoco se descuenta
+        assertThrows(IllegalStateException.class, () -> engine.reserve(pizza, 1));
+        assertEquals(4, columns.getStockActual(1L));
+
+        reservation.cancel();
+        assertEquals(10, columns.getStockActual(1L));
+        assertEquals(5, columns.getStockActual(2L));
+    }
+
+    private static ArticuloInsumo insumo(long id, String denominacion, int stock, StockColumns columns) {
+        ArticuloInsumo insumo = ArticuloInsumo.builder().id(id).denominacion(denominacion).stockActual(stock).build();
+        columns.attach(insumo);
+        return insumo;
+    }
+}